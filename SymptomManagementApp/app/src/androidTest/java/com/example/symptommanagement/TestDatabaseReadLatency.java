@@ -0,0 +1,129 @@
+package com.example.symptommanagement;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+import com.example.symptommanagement.data.PatientDBHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.example.symptommanagement.data.PatientCPContract.*;
+
+/**
+ * Measures the latency of UI reads from the PatientContentProvider while a large sync is being written.
+ * The latencies are written to the log.
+ */
+public class TestDatabaseReadLatency extends AndroidTestCase {
+
+    private static final String LOG_TAG = TestDatabaseReadLatency.class.getSimpleName();
+    private static final int SYNC_LOG_COUNT = 20000;
+
+    /**
+     * Setup method to be executed before each test case.
+     * Deletes all pain logs to ensure a clean state.
+     */
+    public void setUp() throws Exception {
+        super.setUp();
+        mContext.getContentResolver().delete(PainLogEntry.CONTENT_URI, null, null);
+    }
+
+    /**
+     * Test that the database uses write-ahead logging.
+     */
+    public void testWriteAheadLogging() {
+        SQLiteDatabase db = new PatientDBHelper(mContext).getReadableDatabase();
+        assertTrue(db.isWriteAheadLoggingEnabled());
+        assertEquals("wal", DatabaseUtils.stringForQuery(db, "PRAGMA journal_mode", null));
+        db.close();
+    }
+
+    /**
+     * Read the latest pain logs over and over while a sync inserts a large history in one transaction.
+     * With write-ahead logging the reads run beside the write instead of waiting for its commit.
+     */
+    public void testReadLatencyDuringSyncWrite() throws Exception {
+        final ContentValues[] logs = createPainLogs(SYNC_LOG_COUNT);
+        final long[] writeTime = new long[1];
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.elapsedRealtime();
+                mContext.getContentResolver().bulkInsert(PainLogEntry.CONTENT_URI, logs);
+                writeTime[0] = SystemClock.elapsedRealtime() - start;
+            }
+        });
+
+        List<Long> latencies = new ArrayList<>();
+        writer.start();
+        while (writer.isAlive()) {
+            long start = SystemClock.elapsedRealtime();
+            Cursor cursor = mContext.getContentResolver().query(PainLogEntry.CONTENT_URI,
+                    new String[]{PainLogEntry.COLUMN_SEVERITY, PainLogEntry.COLUMN_CREATED},
+                    PainLogEntry.COLUMN_CREATED + " > ?",
+                    new String[]{Long.toString(System.currentTimeMillis() - 60 * 60 * 1000L)}, null);
+            assertNotNull(cursor);
+            cursor.getCount();
+            cursor.close();
+            latencies.add(SystemClock.elapsedRealtime() - start);
+        }
+        writer.join();
+
+        Collections.sort(latencies);
+        long max = latencies.isEmpty() ? 0L : latencies.get(latencies.size() - 1);
+        Log.i(LOG_TAG, SYNC_LOG_COUNT + " rows written in " + writeTime[0] + " ms, " + latencies.size()
+                + " reads, p50 " + percentile(latencies, 50) + " ms, p95 " + percentile(latencies, 95)
+                + " ms, max " + max + " ms");
+
+        // The reads were not blocked until the write committed
+        assertTrue(latencies.size() > 1);
+        assertTrue(max < writeTime[0]);
+    }
+
+    /**
+     * Test the database maintenance provider method.
+     */
+    public void testMaintenance() {
+        mContext.getContentResolver().bulkInsert(PainLogEntry.CONTENT_URI, createPainLogs(1000));
+        mContext.getContentResolver().delete(PainLogEntry.CONTENT_URI, null, null);
+
+        Bundle result = mContext.getContentResolver().call(PainLogEntry.CONTENT_URI, METHOD_MAINTENANCE, null, null);
+        assertNotNull(result);
+        assertTrue(result.containsKey(PatientDBHelper.RESULT_VACUUMED));
+    }
+
+    /**
+     * Helper method to create pain logs with distinct creation times.
+     *
+     * @param count The number of pain logs.
+     * @return The pain logs.
+     */
+    private ContentValues[] createPainLogs(int count) {
+        ContentValues[] logs = new ContentValues[count];
+        long created = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            logs[i] = TestData.createTestPainLog(i % 4, i % 2);
+            logs[i].put(PainLogEntry.COLUMN_CREATED, created - i * 1000L);
+        }
+        return logs;
+    }
+
+    /**
+     * Helper method to get a percentile of sorted latencies.
+     *
+     * @param sorted  The latencies in ascending order.
+     * @param percent The percentile.
+     * @return The latency at the percentile.
+     */
+    private long percentile(List<Long> sorted, int percent) {
+        if (sorted.isEmpty()) return 0L;
+        int index = Math.min(sorted.size() - 1, sorted.size() * percent / 100);
+        return sorted.get(index);
+    }
+}
@@ -21,6 +21,8 @@ import android.database.sqlite.SQLiteDatabase;
 import android.test.AndroidTestCase;
 import com.example.symptommanagement.data.PatientDBHelper;
 
+import java.util.Arrays;
+
 import static com.example.symptommanagement.data.PatientCPContract.*;
 
 public class TestPatientDB extends AndroidTestCase {
@@ -473,4 +475,113 @@ public class TestPatientDB extends AndroidTestCase {
         // Close the cursor after reading
         cursor.close();
     }
-}
\ No newline at end of file
+
+    /**
+     * Test method for the indexes of the patient data queries.
+     * Runs EXPLAIN QUERY PLAN for each access path and checks that an index is used.
+     */
+    public void testQueryPlansUseIndexes() {
+        // Get a reference to the database helper
+        PatientDBHelper dbHelper = new PatientDBHelper(mContext);
+
+        // Get a readable database instance
+        SQLiteDatabase db = dbHelper.getReadableDatabase();
+
+        // The log histories are read in created order from the covering indexes
+        assertQueryPlan(db, PatientDBHelper.CHECK_IN_LOG_INDEX,
+                "SELECT " + CheckInLogEntry.COLUMN_CHECKIN_ID + ", " + CheckInLogEntry.COLUMN_CREATED +
+                        " FROM " + CheckInLogEntry.TABLE_NAME +
+                        " WHERE " + CheckInLogEntry.COLUMN_PATIENT_ID + " = ? AND " +
+                        CheckInLogEntry.COLUMN_CREATED + " > ? ORDER BY " + CheckInLogEntry.COLUMN_CREATED);
+        assertQueryPlan(db, PatientDBHelper.PAIN_LOG_INDEX,
+                "SELECT " + PainLogEntry.COLUMN_SEVERITY + ", " + PainLogEntry.COLUMN_EATING + ", " +
+                        PainLogEntry.COLUMN_CHECKIN_ID + ", " + PainLogEntry.COLUMN_CREATED +
+                        " FROM " + PainLogEntry.TABLE_NAME +
+                        " WHERE " + PainLogEntry.COLUMN_PATIENT_ID + " = ? AND " +
+                        PainLogEntry.COLUMN_CREATED + " > ? ORDER BY " + PainLogEntry.COLUMN_CREATED);
+        assertQueryPlan(db, PatientDBHelper.MED_LOG_INDEX,
+                "SELECT " + MedLogEntry.COLUMN_MED_ID + ", " + MedLogEntry.COLUMN_MED_NAME + ", " +
+                        MedLogEntry.COLUMN_TAKEN + ", " + MedLogEntry.COLUMN_CHECKIN_ID + ", " +
+                        MedLogEntry.COLUMN_CREATED + " FROM " + MedLogEntry.TABLE_NAME +
+                        " WHERE " + MedLogEntry.COLUMN_PATIENT_ID + " = ? AND " +
+                        MedLogEntry.COLUMN_CREATED + " > ? ORDER BY " + MedLogEntry.COLUMN_CREATED);
+        assertQueryPlan(db, PatientDBHelper.CREDENTIAL_USER_NAME_INDEX,
+                "SELECT * FROM " + CredentialEntry.TABLE_NAME +
+                        " WHERE " + CredentialEntry.COLUMN_USER_NAME + " = ? COLLATE NOCASE");
+        assertQueryPlan(db, PatientDBHelper.REMINDER_CREATED_INDEX,
+                "SELECT * FROM " + ReminderEntry.TABLE_NAME +
+                        " WHERE " + ReminderEntry.COLUMN_CREATED + " = ?");
+
+        // The remaining lookups by patient use the indexes of the unique constraints
+        assertQueryPlan(db, "INDEX", "SELECT * FROM " + StatusLogEntry.TABLE_NAME +
+                " WHERE " + StatusLogEntry.COLUMN_PATIENT_ID + " = ? AND " + StatusLogEntry.COLUMN_CREATED + " > ?");
+        assertQueryPlan(db, "INDEX", "SELECT * FROM " + ReminderEntry.TABLE_NAME +
+                " WHERE " + ReminderEntry.COLUMN_PATIENT_ID + " = ?");
+        assertQueryPlan(db, "INDEX", "SELECT * FROM " + PatientEntry.TABLE_NAME +
+                " WHERE " + PatientEntry.COLUMN_PATIENT_ID + " = ?");
+        assertQueryPlan(db, "INDEX", "SELECT * FROM " + CredentialEntry.TABLE_NAME +
+                " WHERE " + CredentialEntry.COLUMN_USER_ID + " = ?");
+        assertQueryPlan(db, "INDEX", "SELECT * FROM " + PrescriptionEntry.TABLE_NAME +
+                " WHERE " + PrescriptionEntry.COLUMN_PATIENT_ID + " = ?");
+    }
+
+    /**
+     * Test method for the schema migration.
+     * Marks a database as version 1, reopens it and checks that the stored logs are kept
+     * and the timestamps are stored as integers.
+     */
+    public void testUpgradeKeepsData() {
+        // Start with a fresh database holding one pain log
+        mContext.deleteDatabase(PatientDBHelper.DATABASE_NAME);
+        SQLiteDatabase db = new PatientDBHelper(mContext).getWritableDatabase();
+        ContentValues testObject = TestData.createTestPainLog(200, 300);
+        assertTrue(db.insert(PainLogEntry.TABLE_NAME, null, testObject) != -1);
+
+        // Pretend it is an old database, opening it again runs the migrations
+        db.setVersion(1);
+        db.close();
+        db = new PatientDBHelper(mContext).getWritableDatabase();
+
+        Cursor cursor = db.rawQuery("SELECT typeof(" + PainLogEntry.COLUMN_CREATED + "), " +
+                PainLogEntry.COLUMN_CREATED + " FROM " + PainLogEntry.TABLE_NAME, null);
+        assertTrue(cursor.moveToFirst());
+        assertEquals(1, cursor.getCount());
+        assertEquals("integer", cursor.getString(0));
+        assertEquals((long) testObject.getAsLong(PainLogEntry.COLUMN_CREATED), cursor.getLong(1));
+        cursor.close();
+
+        // The indexes are in place after the migration
+        assertQueryPlan(db, PatientDBHelper.PAIN_LOG_INDEX,
+                "SELECT " + PainLogEntry.COLUMN_SEVERITY + ", " + PainLogEntry.COLUMN_CREATED +
+                        " FROM " + PainLogEntry.TABLE_NAME +
+                        " WHERE " + PainLogEntry.COLUMN_PATIENT_ID + " = ? AND " +
+                        PainLogEntry.COLUMN_CREATED + " > ?");
+        db.close();
+    }
+
+    /**
+     * Checks that the query plan of a statement mentions the expected index and does not
+     * scan a whole table.
+     *
+     * @param db    The database to explain the statement in.
+     * @param index The name of the index expected in the plan.
+     * @param sql   The statement, any ? parameters are bound to "1".
+     */
+    private void assertQueryPlan(SQLiteDatabase db, String index, String sql) {
+        int parameters = sql.length() - sql.replace("?", "").length();
+        String[] args = new String[parameters];
+        Arrays.fill(args, "1");
+
+        Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, args);
+        StringBuilder plan = new StringBuilder();
+        int detail = cursor.getColumnIndex("detail");
+        while (cursor.moveToNext()) {
+            plan.append(cursor.getString(detail)).append('\n');
+        }
+        cursor.close();
+        System.out.println("Query plan for " + sql + ":\n" + plan);
+
+        assertTrue("Expected " + index + " in plan:\n" + plan, plan.indexOf(index) >= 0);
+        assertFalse("Table scan in plan:\n" + plan, plan.toString().matches("(?s).*SCAN (TABLE )?\\w+\\s*(\n|$).*"));
+    }
+}
@@ -7,6 +7,15 @@ import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
 import android.test.AndroidTestCase;
+import com.example.symptommanagement.data.LogRetention;
+import com.example.symptommanagement.data.PainLog;
+import com.example.symptommanagement.data.Patient;
+import com.example.symptommanagement.data.PatientCache;
+import com.example.symptommanagement.data.SyncWatermarks;
+import com.example.symptommanagement.data.graphics.PatientPlotData;
+
+import java.util.HashSet;
+import java.util.Set;
 
 import static com.example.symptommanagement.data.PatientCPContract.*;
 
@@ -172,6 +181,151 @@ public class TestPatientProvider extends AndroidTestCase {
         insertReadRecord(testObj, StatusLogEntry.CONTENT_URI);
     }
 
+    /**
+     * Test method for the log retention window.
+     * Stores pain logs from before and inside the window and checks that compaction deletes only
+     * the old logs the cloud already has.
+     */
+    public void testLogRetentionCompaction() {
+        ContentValues patient = TestData.createTestPatient("Frank Neal", TestData.TRUE, System.currentTimeMillis());
+        mContext.getContentResolver().insert(PatientEntry.CONTENT_URI, patient);
+        String patientId = patient.getAsString(PatientEntry.COLUMN_PATIENT_ID);
+
+        long day = 24 * 60 * 60 * 1000L;
+        long now = System.currentTimeMillis();
+        long oldest = now - (LogRetention.getRetentionDays(mContext) + 10) * day;
+        ContentValues[] logs = new ContentValues[1200];
+        for (int i = 0; i < logs.length; i++) {
+            logs[i] = TestData.createTestPainLog(3, 1);
+            // the first 1000 logs are outside the window, the rest are from today
+            long created = (i < 1000) ? oldest + i * 1000L : now - i * 1000L;
+            logs[i].put(PainLogEntry.COLUMN_CREATED, created);
+        }
+        assertEquals(logs.length, mContext.getContentResolver().bulkInsert(PainLogEntry.CONTENT_URI, logs));
+
+        // Only the first 600 old logs have been uploaded
+        SyncWatermarks.clear(mContext);
+        SyncWatermarks.advance(mContext, patientId, PainLogEntry.TABLE_NAME, SyncWatermarks.Direction.UPLOAD,
+                oldest + 599 * 1000L);
+        assertEquals(600, LogRetention.compact(mContext));
+
+        // Once everything has been uploaded the rest of the old logs go, the recent ones stay
+        SyncWatermarks.advance(mContext, patientId, PainLogEntry.TABLE_NAME, SyncWatermarks.Direction.UPLOAD, now);
+        assertEquals(400, LogRetention.compact(mContext));
+        Cursor cursor = mContext.getContentResolver().query(PainLogEntry.CONTENT_URI,
+                new String[]{PainLogEntry._ID}, null, null, null);
+        assertEquals(200, cursor.getCount());
+        cursor.close();
+        SyncWatermarks.clear(mContext);
+    }
+
+    /**
+     * Test that the patient cache keeps only the most recently used patients on the device.
+     */
+    public void testPatientCacheTrim() {
+        PatientCache.clear(mContext);
+        PatientCache.setSizes(mContext, 2, 3);
+        for (int i = 0; i < 5; i++) {
+            Patient patient = new Patient();
+            patient.setId("cached" + i);
+            patient.setVersion((long) i);
+            patient.setLastName("Neal");
+            PatientCache.put(mContext, patient);
+        }
+
+        // the memory holds the last two, the device the last three
+        assertNull(PatientCache.getFromMemory(mContext, "cached2"));
+        assertNotNull(PatientCache.getFromMemory(mContext, "cached4"));
+        Patient stored = PatientCache.get(mContext, "cached2");
+        assertNotNull(stored);
+        assertEquals("Neal", stored.getLastName());
+        assertEquals("\"2\"", PatientCache.getETag(stored));
+        assertNull(PatientCache.get(mContext, "cached1"));
+
+        PatientCache.clear(mContext);
+        PatientCache.setSizes(mContext, PatientCache.DEFAULT_MEMORY_SIZE, PatientCache.DEFAULT_DEVICE_SIZE);
+    }
+
+    /**
+     * Test that a patient record shown from memory stays on the device, and that a record trimmed from
+     * the device is dropped from memory too.
+     */
+    public void testPatientCacheTouch() throws InterruptedException {
+        PatientCache.clear(mContext);
+        PatientCache.setSizes(mContext, 5, 2);
+        for (int i = 0; i < 2; i++) {
+            Patient patient = new Patient();
+            patient.setId("touched" + i);
+            patient.setVersion((long) i);
+            PatientCache.put(mContext, patient);
+            Thread.sleep(5);
+        }
+
+        // the oldest record is viewed again from memory, so the next one is trimmed instead
+        assertNotNull(PatientCache.get(mContext, "touched0"));
+        Thread.sleep(5);
+        Patient patient = new Patient();
+        patient.setId("touched2");
+        patient.setVersion(2L);
+        PatientCache.put(mContext, patient);
+
+        assertNotNull(PatientCache.getFromMemory(mContext, "touched0"));
+        assertNull("A record trimmed from the device is not kept in memory.",
+                PatientCache.getFromMemory(mContext, "touched1"));
+        assertNull(PatientCache.get(mContext, "touched1"));
+
+        PatientCache.clear(mContext);
+        PatientCache.setSizes(mContext, PatientCache.DEFAULT_MEMORY_SIZE, PatientCache.DEFAULT_DEVICE_SIZE);
+    }
+
+    /**
+     * Test that the plot data keeps the lowest and highest severity of each hour with pain logs, which
+     * the bar chart downsamples a wide window from.
+     */
+    public void testPlotDataHourlyRanges() {
+        long day = 24 * 60 * 60 * 1000L;
+        long start = ((System.currentTimeMillis() - 10 * day) / PatientPlotData.HOUR) * PatientPlotData.HOUR;
+        Set<PainLog> logs = new HashSet<>();
+        for (int i = 0; i < 6; i++) {
+            // two logs a day, one hour apart
+            logs.add(painLog(start + (i / 2) * day + (i % 2) * PatientPlotData.HOUR,
+                    (i % 2 == 0) ? PainLog.Severity.SEVERE : PainLog.Severity.WELL_CONTROLLED));
+        }
+        // a well-controlled log in the first hour adds its lowest level
+        logs.add(painLog(start + 30 * 60 * 1000L, PainLog.Severity.WELL_CONTROLLED));
+        Patient patient = new Patient();
+        patient.setId("ranges");
+        patient.setPainLog(logs);
+
+        PatientPlotData plotData = PatientPlotData.build(patient);
+        assertEquals(7, plotData.getPainTimes().length);
+        assertEquals(7, plotData.getSeverityRangeTimes().length);
+        assertEquals((double) start, plotData.getSeverityRangeTimes()[0], 0.001);
+        assertEquals((double) start, plotData.getSeverityRangeTimes()[1], 0.001);
+        assertEquals(100.0, plotData.getSeverityRanges()[0], 0.001);
+        assertEquals(300.0, plotData.getSeverityRanges()[1], 0.001);
+        assertEquals((double) (start + PatientPlotData.HOUR), plotData.getSeverityRangeTimes()[2], 0.001);
+        // every log is eating, so each hour has a single eating point
+        assertEquals(6, plotData.getEatingRangeTimes().length);
+        assertEquals(2, plotData.getSevereCount());
+        assertEquals(4, plotData.getControlledCount());
+    }
+
+    /**
+     * Helper method to create a pain log of a patient who is eating.
+     *
+     * @param created  The time of the log.
+     * @param severity The severity of the pain.
+     * @return the pain log
+     */
+    private static PainLog painLog(long created, PainLog.Severity severity) {
+        PainLog log = new PainLog();
+        log.setCreated(created);
+        log.setSeverity(severity);
+        log.setEating(PainLog.Eating.EATING);
+        return log;
+    }
+
     /**
      * Helper method to insert and update a record and verify the update.
      * Uses the PatientProvider's ContentResolver to perform the operations.
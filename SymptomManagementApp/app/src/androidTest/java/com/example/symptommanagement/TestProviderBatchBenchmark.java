@@ -0,0 +1,132 @@
+package com.example.symptommanagement;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.test.AndroidTestCase;
+import android.util.Log;
+
+import java.util.ArrayList;
+
+import static com.example.symptommanagement.data.PatientCPContract.*;
+
+/**
+ * Benchmark of the PatientContentProvider batch operations, inserting the log history of a large sync.
+ * The rows per second of each approach are written to the log.
+ */
+public class TestProviderBatchBenchmark extends AndroidTestCase {
+
+    private static final String LOG_TAG = TestProviderBatchBenchmark.class.getSimpleName();
+    private static final int SYNC_LOG_COUNT = 10000;
+    private static final int SINGLE_INSERT_COUNT = 1000;
+
+    /**
+     * Setup method to be executed before each test case.
+     * Deletes all pain logs to ensure a clean state.
+     */
+    public void setUp() throws Exception {
+        super.setUp();
+        mContext.getContentResolver().delete(PainLogEntry.CONTENT_URI, null, null);
+    }
+
+    /**
+     * Benchmark bulkInsert with a 10k log sync, and check that syncing the same history again
+     * inserts nothing.
+     */
+    public void testBulkInsertSync() {
+        ContentValues[] logs = createPainLogs(SYNC_LOG_COUNT);
+
+        long start = SystemClock.elapsedRealtime();
+        int inserted = mContext.getContentResolver().bulkInsert(PainLogEntry.CONTENT_URI, logs);
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        logRate("bulkInsert", inserted, elapsed);
+        assertEquals(SYNC_LOG_COUNT, inserted);
+        assertEquals(SYNC_LOG_COUNT, countPainLogs());
+
+        // The next sync sends the same history again, which must be ignored
+        start = SystemClock.elapsedRealtime();
+        inserted = mContext.getContentResolver().bulkInsert(PainLogEntry.CONTENT_URI, logs);
+        elapsed = SystemClock.elapsedRealtime() - start;
+        logRate("bulkInsert (repeated sync)", SYNC_LOG_COUNT, elapsed);
+        assertEquals(0, inserted);
+        assertEquals(SYNC_LOG_COUNT, countPainLogs());
+    }
+
+    /**
+     * Benchmark applyBatch with a 10k log sync.
+     */
+    public void testApplyBatchSync() throws Exception {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        for (ContentValues log : createPainLogs(SYNC_LOG_COUNT)) {
+            operations.add(ContentProviderOperation.newInsert(PainLogEntry.CONTENT_URI).withValues(log).build());
+        }
+
+        long start = SystemClock.elapsedRealtime();
+        ContentProviderResult[] results =
+                mContext.getContentResolver().applyBatch(CONTENT_AUTHORITY, operations);
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        logRate("applyBatch", results.length, elapsed);
+        assertEquals(SYNC_LOG_COUNT, results.length);
+        assertEquals(SYNC_LOG_COUNT, countPainLogs());
+    }
+
+    /**
+     * Benchmark inserting one row at a time, each in its own transaction with its own notification,
+     * as the baseline the batch operations are compared with.
+     */
+    public void testSingleInserts() {
+        ContentValues[] logs = createPainLogs(SINGLE_INSERT_COUNT);
+
+        long start = SystemClock.elapsedRealtime();
+        for (ContentValues log : logs) {
+            mContext.getContentResolver().insert(PainLogEntry.CONTENT_URI, log);
+        }
+        long elapsed = SystemClock.elapsedRealtime() - start;
+        logRate("single inserts", SINGLE_INSERT_COUNT, elapsed);
+        assertEquals(SINGLE_INSERT_COUNT, countPainLogs());
+    }
+
+    /**
+     * Helper method to create pain logs with distinct creation times.
+     *
+     * @param count The number of pain logs.
+     * @return The pain logs.
+     */
+    private ContentValues[] createPainLogs(int count) {
+        ContentValues[] logs = new ContentValues[count];
+        long created = System.currentTimeMillis();
+        for (int i = 0; i < count; i++) {
+            logs[i] = TestData.createTestPainLog(i % 4, i % 2);
+            logs[i].put(PainLogEntry.COLUMN_CREATED, created - i * 60 * 1000L);
+        }
+        return logs;
+    }
+
+    /**
+     * Helper method to count the stored pain logs.
+     *
+     * @return The number of pain logs.
+     */
+    private int countPainLogs() {
+        Cursor cursor = mContext.getContentResolver().query(PainLogEntry.CONTENT_URI,
+                new String[]{PainLogEntry._ID}, null, null, null);
+        assertNotNull(cursor);
+        int count = cursor.getCount();
+        cursor.close();
+        return count;
+    }
+
+    /**
+     * Helper method to log the insert rate.
+     *
+     * @param approach The approach benchmarked.
+     * @param rows     The number of rows processed.
+     * @param millis   The elapsed time in milliseconds.
+     */
+    private void logRate(String approach, int rows, long millis) {
+        long rate = rows * 1000L / Math.max(1L, millis);
+        Log.i(LOG_TAG, approach + ": " + rows + " rows in " + millis + " ms (" + rate + " rows/s)");
+    }
+}
@@ -5,6 +5,7 @@ import android.content.SharedPreferences;
 import android.preference.PreferenceManager;
 import android.util.Log;
 import com.example.symptommanagement.client.SymptomManagementService;
+import com.example.symptommanagement.data.PatientCache;
 import com.example.symptommanagement.data.PatientDataManager;
 import com.example.symptommanagement.data.UserCredential;
 import com.example.symptommanagement.patient.Reminder.ReminderManager;
@@ -92,7 +93,8 @@ public class LoginUtility {
     /**
      * Performs the logout process for the current user. It clears all user-related data and
      * preferences, effectively logging the user out of the application. This method cancels
-     * any active patient reminders if the user role is set to PATIENT.
+     * any active patient reminders if the user role is set to PATIENT, and removes the patient
+     * records cached for a PHYSICIAN.
      *
      * @param context The context for accessing shared preferences and other resources.
      */
@@ -103,6 +105,11 @@ public class LoginUtility {
             ReminderManager.cancelPatientReminders(context);
         }
 
+        // Remove the patient records cached for a physician
+        if (role == UserCredential.UserRole.PHYSICIAN) {
+            PatientCache.clear(context);
+        }
+
         // Clear all user-related data and preferences
         username = "";
         loginId = "";
@@ -140,6 +140,15 @@ public class PatientAddEditFragment extends Fragment {
         super.onSaveInstanceState(outState);
     }
 
+    /**
+     * Cancels the API calls of this fragment that have not returned yet, their results are no longer needed.
+     */
+    @Override
+    public void onDestroy() {
+        CallableTask.cancelAll(this);
+        super.onDestroy();
+    }
+
     /**
      * Fetches patient details from the API using the provided patientId.
      * If patientId is null, no data will be fetched.
@@ -155,7 +164,7 @@ public class PatientAddEditFragment extends Fragment {
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
             // Invoke the API call asynchronously using CallableTask
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 Log.d(LOG_TAG, "getting single patient with id : " + patientId);
                 return symptomManagementApi.getPatient(patientId);
             }, new TaskCallback<Patient>() {
@@ -214,7 +223,7 @@ public class PatientAddEditFragment extends Fragment {
         final String successMsg = (patientId == null ? "ADDED" : "UPDATED");
         if (symptomManagementApi != null) {
             // Invoke the API call asynchronously using CallableTask
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 // Set the patient's ID, first name, and last name for the API call
                 patient.setId(patientId);
                 patient.setFirstName(binding.editFirstName.getText().toString());
@@ -289,7 +298,7 @@ public class PatientAddEditFragment extends Fragment {
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
             // Invoke the API call asynchronously using CallableTask
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 Log.d(LOG_TAG, "updating patient :" + patient.toString());
 
                 // Check if it's a new patient or an update
@@ -145,6 +145,15 @@ public class PatientDetailFragment extends Fragment {
         super.onSaveInstanceState(outState);
     }
 
+    /**
+     * Cancels the API calls of this fragment that have not returned yet, their results are no longer needed.
+     */
+    @Override
+    public void onDestroy() {
+        CallableTask.cancelAll(this);
+        super.onDestroy();
+    }
+
     /**
      * Retrieves the patient information from the API using the patient ID.
      * It displays the patient's name, birthdate, and physician list in the UI.
@@ -154,7 +163,7 @@ public class PatientDetailFragment extends Fragment {
         final SymptomManagementApi svc = SymptomManagementService.getService();
         if (svc != null) {
             // Invoke the API call asynchronously using CallableTask
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 Log.d(LOG_TAG, "getting single Patient id : " + patientId);
                 return svc.getPatient(patientId);
             }, new TaskCallback<Patient>() {
@@ -218,7 +227,7 @@ public class PatientDetailFragment extends Fragment {
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
             // Invoke the API call asynchronously using CallableTask
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 Log.d(LOG_TAG, "deleting Physician id : " + patientId);
                 return symptomManagementApi.deletePatient(patientId);
             }, new TaskCallback<Patient>() {
@@ -175,6 +175,15 @@ public class PatientListFragment extends ListFragment {
         }
     }
 
+    /**
+     * Cancels the API calls of this fragment that have not returned yet, their results are no longer needed.
+     */
+    @Override
+    public void onDestroy() {
+        CallableTask.cancelAll(this);
+        super.onDestroy();
+    }
+
     /**
      * Sets the choice mode for list items click.
      * If activateOnItemClick is true, it enables single choice mode for list items,
@@ -213,7 +222,7 @@ public class PatientListFragment extends ListFragment {
     private void refreshAllPatients() {
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 Log.d(LOG_TAG, "getting all patients");
                 return symptomManagementApi.getPatientList();
             }, new TaskCallback<Collection<Patient>>() {
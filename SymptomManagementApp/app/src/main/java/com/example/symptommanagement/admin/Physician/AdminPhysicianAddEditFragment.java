@@ -138,6 +138,15 @@ public class AdminPhysicianAddEditFragment extends Fragment {
         super.onSaveInstanceState(outState);
     }
 
+    /**
+     * Cancels the API calls of this fragment that have not returned yet, their results are no longer needed.
+     */
+    @Override
+    public void onDestroy() {
+        CallableTask.cancelAll(this);
+        super.onDestroy();
+    }
+
     /**
      * Fetches the details of a single physician from the API using the specified `physicianId`.
      * The method queries the API to get the details of the physician with the provided ID and
@@ -159,7 +168,7 @@ public class AdminPhysicianAddEditFragment extends Fragment {
         // Check if the API instance is available
         if (symptomManagementApi != null) {
             // Use CallableTask to invoke the API call in a background thread
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 Log.d(LOG_TAG, "getting single physician with id : " + physicianId);
                 // Invoke the API method to get the physician details
                 return symptomManagementApi.getPhysician(physicianId);
@@ -225,7 +234,7 @@ public class AdminPhysicianAddEditFragment extends Fragment {
         // Check if the API instance is available
         if (symptomManagementApi != null) {
             // Use CallableTask to invoke the API call in a background thread
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 // Set the physician ID and other information from the UI input
                 physician.setId(physicianId);
                 physician.setFirstName(binding.adminPhysicianEditFirstName.getText().toString());
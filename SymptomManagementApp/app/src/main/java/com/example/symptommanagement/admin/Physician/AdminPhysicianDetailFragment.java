@@ -140,6 +140,15 @@ public class AdminPhysicianDetailFragment extends Fragment {
         super.onSaveInstanceState(outState);
     }
 
+    /**
+     * Cancels the API calls of this fragment that have not returned yet, their results are no longer needed.
+     */
+    @Override
+    public void onDestroy() {
+        CallableTask.cancelAll(this);
+        super.onDestroy();
+    }
+
     /**
      * Load the physician details from the API.
      * This method fetches the details of the physician with the given ID from the API
@@ -153,7 +162,7 @@ public class AdminPhysicianDetailFragment extends Fragment {
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
             // Use CallableTask to fetch the physician details from the API asynchronously
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 Log.d(LOG_TAG, "getting single Physician id : " + mPhysicianId);
                 return symptomManagementApi.getPhysician(mPhysicianId);
             }, new TaskCallback<Physician>() {
@@ -196,7 +205,7 @@ public class AdminPhysicianDetailFragment extends Fragment {
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
             // Use CallableTask to delete the physician from the API asynchronously
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 Log.d(LOG_TAG, "deleting Physician id : " + mPhysicianId);
                 return symptomManagementApi.deletePhysician(mPhysicianId);
             }, new TaskCallback<Physician>() {
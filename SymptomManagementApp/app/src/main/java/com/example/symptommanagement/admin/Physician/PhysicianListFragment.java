@@ -212,6 +212,15 @@ public class PhysicianListFragment extends ListFragment {
         }
     }
 
+    /**
+     * Cancels the API calls of this fragment that have not returned yet, their results are no longer needed.
+     */
+    @Override
+    public void onDestroy() {
+        CallableTask.cancelAll(this);
+        super.onDestroy();
+    }
+
     /**
      * Set whether the list items are activated on click.
      * When setting CHOICE_MODE_SINGLE, ListView will automatically give items the 'activated' state when touched.
@@ -261,7 +270,7 @@ public class PhysicianListFragment extends ListFragment {
 
         if (symptomManagementApi != null) {
             // Fetch the list of physicians from the server using CallableTask
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(this, () -> {
                 Log.d(LOG_TAG, "getting all physicians");
                 return symptomManagementApi.getPhysicianList();
             }, new TaskCallback<Collection<Physician>>() {
@@ -0,0 +1,50 @@
+package com.example.symptommanagement.client;
+
+import retrofit.client.Client;
+import retrofit.client.Request;
+import retrofit.client.Response;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An HTTP client that counts the bytes of the request and response bodies it transfers, so the sync
+ * can tell how much data it used. The counts come from the declared body lengths, headers and bodies
+ * of unknown length are not counted.
+ */
+public class ByteCountingClient implements Client {
+
+    private static final AtomicLong bytesTransferred = new AtomicLong();
+
+    private final Client client;
+
+    /**
+     * Constructor for ByteCountingClient.
+     *
+     * @param client The client doing the actual requests.
+     */
+    public ByteCountingClient(Client client) {
+        this.client = client;
+    }
+
+    @Override
+    public Response execute(Request request) throws IOException {
+        if (request.getBody() != null && request.getBody().length() > 0L) {
+            bytesTransferred.addAndGet(request.getBody().length());
+        }
+        Response response = client.execute(request);
+        if (response.getBody() != null && response.getBody().length() > 0L) {
+            bytesTransferred.addAndGet(response.getBody().length());
+        }
+        return response;
+    }
+
+    /**
+     * Get the number of body bytes sent and received since the app started.
+     *
+     * @return the number of bytes transferred
+     */
+    public static long getBytesTransferred() {
+        return bytesTransferred.get();
+    }
+}
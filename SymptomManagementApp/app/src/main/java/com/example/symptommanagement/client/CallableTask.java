@@ -1,79 +1,336 @@
 package com.example.symptommanagement.client;
 
-import android.os.AsyncTask;
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
 
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * AsyncTask that executes a given Callable in the background and provides a callback
+ * Task that executes a given Callable in the background and provides a callback
  * mechanism to handle the result or error in the main/UI thread.
+ * <p>
+ * The tasks run on a small shared thread pool instead of the serial AsyncTask executor, so a slow call
+ * does not hold up the others. Tasks the user is waiting for ({@link Priority#UI}) are started before
+ * background tasks such as thumbnail downloads. A task can be given an owner: when the owning Activity
+ * is destroyed, or the owner calls {@link #cancelAll(Object)}, its waiting tasks are dropped and no
+ * callback is delivered. A call that is already running is allowed to finish, so an update is never
+ * cut off half way. The owner is only referenced until its tasks have delivered or been cancelled.
  *
  * @param <T> The type of the result returned by the Callable.
  */
-public class CallableTask<T> extends AsyncTask<Void, Double, T> {
+public class CallableTask<T> implements Runnable, Comparable<CallableTask<?>> {
 
     private static final String TAG = CallableTask.class.getName();
 
+    /**
+     * The priority of a task, tasks of a higher priority are started first.
+     */
+    public enum Priority {
+        /**
+         * The user is waiting for the result.
+         */
+        UI,
+        /**
+         * Work the user is not waiting for, such as loading thumbnails ahead of time.
+         */
+        BACKGROUND
+    }
+
+    /**
+     * The default number of threads running tasks, changed with {@link #setPoolSize(int, int)}.
+     */
+    public static final int DEFAULT_THREAD_COUNT =
+            Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The default number of tasks that may wait for a thread, changed with {@link #setPoolSize(int, int)}.
+     */
+    public static final int DEFAULT_MAX_QUEUED_TASKS = 64;
+
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    private static volatile int maxQueuedTasks = DEFAULT_MAX_QUEUED_TASKS;
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static final AtomicLong sequence = new AtomicLong();
+    private static final Map<Object, Set<CallableTask<?>>> tasksByOwner = new IdentityHashMap<>();
+    private static boolean lifecycleCallbacksRegistered = false;
+
     /**
      * Invokes the given Callable using a CallableTask instance and executes it asynchronously.
      *
      * @param call     The Callable to be executed.
      * @param callback The callback interface to handle the result or error of the Callable.
      * @param <V>      The type of the result returned by the Callable.
+     * @return the task, which can be cancelled
+     */
+    public static <V> CallableTask<V> invoke(Callable<V> call, TaskCallback<V> callback) {
+        return invoke(null, Priority.UI, call, callback);
+    }
+
+    /**
+     * Invokes the given Callable for an owner, the task is cancelled when its owner goes away.
+     *
+     * @param owner    The Activity or Fragment the task belongs to.
+     * @param call     The Callable to be executed.
+     * @param callback The callback interface to handle the result or error of the Callable.
+     * @param <V>      The type of the result returned by the Callable.
+     * @return the task, which can be cancelled
+     */
+    public static <V> CallableTask<V> invoke(Object owner, Callable<V> call, TaskCallback<V> callback) {
+        return invoke(owner, Priority.UI, call, callback);
+    }
+
+    /**
+     * Invokes the given Callable for an owner with a priority.
+     *
+     * @param owner    The Activity or Fragment the task belongs to, or null if it has none.
+     * @param priority The priority of the task.
+     * @param call     The Callable to be executed.
+     * @param callback The callback interface to handle the result or error of the Callable.
+     * @param <V>      The type of the result returned by the Callable.
+     * @return the task, which can be cancelled
+     */
+    public static <V> CallableTask<V> invoke(Object owner, Priority priority, Callable<V> call,
+                                             TaskCallback<V> callback) {
+        CallableTask<V> task = new CallableTask<>(owner, priority, call, callback);
+        task.execute();
+        return task;
+    }
+
+    /**
+     * Sets the number of threads running tasks and the number of tasks that may wait for one, for a
+     * device that needs more or fewer than the defaults. Tasks already running or waiting are kept.
+     *
+     * @param threadCount    The number of threads, at least one.
+     * @param maxQueuedTasks The number of tasks that may wait for a thread, at least one.
+     */
+    public static synchronized void setPoolSize(int threadCount, int maxQueuedTasks) {
+        int threads = Math.max(1, threadCount);
+        // the core size may not exceed the maximum, so the order depends on the direction
+        if (threads > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(threads);
+            executor.setCorePoolSize(threads);
+        } else {
+            executor.setCorePoolSize(threads);
+            executor.setMaximumPoolSize(threads);
+        }
+        CallableTask.maxQueuedTasks = Math.max(1, maxQueuedTasks);
+    }
+
+    /**
+     * Cancels all the tasks of an owner that have not delivered their result yet. A Fragment
+     * owner calls this when it is destroyed, Activity owners are cancelled automatically.
+     *
+     * @param owner The owner of the tasks.
      */
-    public static <V> void invoke(Callable<V> call, TaskCallback<V> callback) {
-        new CallableTask<>(call, callback).execute();
+    public static void cancelAll(Object owner) {
+        Set<CallableTask<?>> tasks;
+        synchronized (tasksByOwner) {
+            tasks = tasksByOwner.remove(owner);
+        }
+        if (tasks == null) return;
+        for (CallableTask<?> task : tasks) {
+            task.cancel();
+        }
     }
 
+    private final Object owner;
+
+    private final Priority priority;
+
+    private final long order = sequence.getAndIncrement();
+
     private final Callable<T> callable;
 
     private final TaskCallback<T> callback;
 
-    private Exception error;
+    private volatile boolean cancelled = false;
+
+    private long submitted;
 
     /**
      * Constructs a new CallableTask with the given Callable and TaskCallback.
      *
+     * @param owner    The owner of the task, or null if it has none.
+     * @param priority The priority of the task.
      * @param callable The Callable to be executed.
      * @param callback The callback interface to handle the result or error of the Callable.
      */
-    public CallableTask(Callable<T> callable, TaskCallback<T> callback) {
+    private CallableTask(Object owner, Priority priority, Callable<T> callable, TaskCallback<T> callback) {
+        this.owner = owner;
+        this.priority = priority;
         this.callable = callable;
         this.callback = callback;
     }
 
     /**
-     * Executes the Callable in the background thread.
-     * This method is automatically called by the AsyncTask framework.
+     * Cancels the task. A waiting task is removed from the queue, and the callback is not called.
+     */
+    public void cancel() {
+        cancelled = true;
+        executor.remove(this);
+        unregister();
+    }
+
+    /**
+     * Checks if the task has been cancelled.
      *
-     * @param ts Not used in this implementation.
-     * @return The result returned by the Callable, or null in case of an error.
+     * @return true if the task was cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Executes the Callable in a pool thread and posts the result to the main thread.
      */
     @Override
-    protected T doInBackground(Void... ts) {
+    public void run() {
+        if (cancelled) return;
+        long started = SystemClock.elapsedRealtime();
         T result = null;
+        Exception error = null;
         try {
             result = callable.call();
         } catch (Exception e) {
-            Log.e(TAG, "Error invoking callable in AsyncTask callable: " + callable, e);
+            Log.e(TAG, "Error invoking callable in task: " + callable, e);
             error = e;
         }
-        return result;
+        long finished = SystemClock.elapsedRealtime();
+        Log.d(TAG, priority + " task " + callback.getClass().getName() + " waited " + (started - submitted)
+                + " ms, ran " + (finished - started) + " ms" + (error != null ? " and failed." : "."));
+        deliver(result, error);
     }
 
     /**
-     * Handles the result of the background execution.
-     * This method is automatically called by the AsyncTask framework.
-     *
-     * @param r The result returned by doInBackground or null in case of an error.
+     * Orders the tasks in the queue, by priority and then first come, first served.
      */
     @Override
-    protected void onPostExecute(T r) {
-        if (error != null) {
-            callback.error(error);
-        } else {
-            callback.success(r);
+    public int compareTo(CallableTask<?> other) {
+        int result = priority.compareTo(other.priority);
+        return (result != 0) ? result : Long.compare(order, other.order);
+    }
+
+    private void execute() {
+        if (owner != null) {
+            register();
+        }
+        submitted = SystemClock.elapsedRealtime();
+        if (executor.getQueue().size() >= maxQueuedTasks) {
+            deliver(null, new RejectedExecutionException("Too many tasks waiting, try again later."));
+            return;
         }
+        executor.execute(this);
+    }
+
+    private void deliver(final T result, final Exception error) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                unregister();
+                if (cancelled) return;
+                if (error != null) {
+                    callback.error(error);
+                } else {
+                    callback.success(result);
+                }
+            }
+        });
+    }
+
+    private void register() {
+        if (owner instanceof Activity) {
+            registerLifecycleCallbacks(((Activity) owner).getApplication());
+        }
+        synchronized (tasksByOwner) {
+            Set<CallableTask<?>> tasks = tasksByOwner.get(owner);
+            if (tasks == null) {
+                tasks = new HashSet<>();
+                tasksByOwner.put(owner, tasks);
+            }
+            tasks.add(this);
+        }
+    }
+
+    private void unregister() {
+        if (owner == null) return;
+        synchronized (tasksByOwner) {
+            Set<CallableTask<?>> tasks = tasksByOwner.get(owner);
+            if (tasks != null) {
+                tasks.remove(this);
+                if (tasks.isEmpty()) tasksByOwner.remove(owner);
+            }
+        }
+    }
+
+    private static synchronized void registerLifecycleCallbacks(Application application) {
+        if (lifecycleCallbacksRegistered || application == null) return;
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+                cancelAll(activity);
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityStarted(Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+        });
+        lifecycleCallbacksRegistered = true;
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "CallableTask #" + count.incrementAndGet());
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            }
+        };
+        // core == max, the pool grows to the thread count and further tasks wait in the priority queue
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(DEFAULT_THREAD_COUNT, DEFAULT_THREAD_COUNT,
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), threadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
     }
 }
@@ -2,11 +2,16 @@ package com.example.symptommanagement.client;
 
 import android.content.Context;
 import android.util.Log;
+import com.example.symptommanagement.BuildConfig;
 import com.example.symptommanagement.LoginActivity;
 import com.example.symptommanagement.client.oauth.SecuredRestBuilder;
 import com.example.symptommanagement.client.oauth.unsafe.EasyHttpClient;
 import retrofit.RestAdapter;
+import retrofit.RetrofitError;
 import retrofit.client.ApacheClient;
+import retrofit.client.Client;
+
+import java.util.UUID;
 
 /**
  * SymptomManagementService is a utility class that provides access to the SymptomManagementApi service
@@ -20,6 +25,13 @@ public class SymptomManagementService {
     public final static String SERVER_ADDRESS = "https://10.0.2.2:8443";
     private static String user = "";
     private static String password = "";
+    private static final int HTTP_CONFLICT = 409;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    private static int connectTimeout = EasyHttpClient.DEFAULT_CONNECT_TIMEOUT;
+    private static int readTimeout = EasyHttpClient.DEFAULT_READ_TIMEOUT;
+    private static RestAdapter.LogLevel logLevel =
+            BuildConfig.DEBUG ? RestAdapter.LogLevel.BASIC : RestAdapter.LogLevel.NONE;
+    private static Client client;
 
     /**
      * Retrieves the SymptomManagementApi service instance or shows the login screen if not available.
@@ -102,14 +114,14 @@ public class SymptomManagementService {
      * @return The initialized SymptomManagementApi service instance if successful, otherwise null.
      */
     public static synchronized SymptomManagementApi init(String server, String user, String pass) {
-        Log.d(LOG_TAG, "Getting service Server : " + server + " mUser : " + user + " mPassword : " + pass);
+        Log.d(LOG_TAG, "Getting service Server : " + server + " mUser : " + user);
         symptomManagementApi = new SecuredRestBuilder()
                 .setLoginEndpoint(server + SymptomManagementApi.TOKEN_PATH)
                 .setUsername(user)
                 .setPassword(pass)
                 .setClientId(CLIENT_ID)
-                .setClient(new ApacheClient(new EasyHttpClient()))
-                .setEndpoint(server).setLogLevel(RestAdapter.LogLevel.FULL).build()
+                .setClient(getClient())
+                .setEndpoint(server).setLogLevel(logLevel).build()
                 .create(SymptomManagementApi.class);
 
         if (symptomManagementApi == null) {
@@ -118,6 +130,78 @@ public class SymptomManagementService {
         return symptomManagementApi;
     }
 
+    /**
+     * Retrieves the HTTP client shared by every service instance. It keeps its connections alive and
+     * resumes TLS sessions, so a new login or a repeated sync does not have to connect from scratch,
+     * and counts the bytes it transfers for the sync statistics.
+     *
+     * @return The shared HTTP client.
+     */
+    private static synchronized Client getClient() {
+        if (client == null) {
+            client = new ByteCountingClient(new ApacheClient(new EasyHttpClient(connectTimeout, readTimeout)));
+        }
+        return client;
+    }
+
+    /**
+     * Sets the connect and read timeouts of the HTTP client. The next service created uses them.
+     *
+     * @param connectTimeout The connect timeout in milliseconds.
+     * @param readTimeout    The read timeout in milliseconds.
+     */
+    public static synchronized void setTimeouts(int connectTimeout, int readTimeout) {
+        SymptomManagementService.connectTimeout = connectTimeout;
+        SymptomManagementService.readTimeout = readTimeout;
+        client = null;
+        symptomManagementApi = null;
+    }
+
+    /**
+     * Sets how much of each request and response is logged. Release builds log nothing and debug builds
+     * only the request line and status by default, FULL logs the whole body of every call.
+     *
+     * @param level The log level.
+     */
+    public static synchronized void setLogLevel(RestAdapter.LogLevel level) {
+        logLevel = level;
+        symptomManagementApi = null;
+    }
+
+    /**
+     * Creates a new idempotency key for an update request. The key identifies one update, a retry of an
+     * update that timed out must send the key of the first attempt so the server does not apply it twice.
+     *
+     * @return The request ID to send along with the update.
+     */
+    public static String createRequestId() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * Checks if a request failed because the server record was changed by another user since it was
+     * read (409 Conflict). The record must be fetched again before the change can be sent.
+     *
+     * @param e The exception the request failed with.
+     * @return true if the request failed with a version conflict
+     */
+    public static boolean isConflict(Exception e) {
+        return e instanceof RetrofitError && ((RetrofitError) e).getResponse() != null
+                && ((RetrofitError) e).getResponse().getStatus() == HTTP_CONFLICT;
+    }
+
+    /**
+     * Checks if a conditional request failed because the record has not changed since the version
+     * the client already has (304 Not Modified). The cached copy can be used as it is.
+     *
+     * @param e The exception the request failed with.
+     * @return true if the record was not modified
+     */
+    public static boolean isNotModified(Exception e) {
+        return e instanceof RetrofitError && ((RetrofitError) e).getResponse() != null
+                && ((RetrofitError) e).getResponse().getStatus() == HTTP_NOT_MODIFIED;
+    }
+
     /**
      * Resets the SymptomManagementApi service and clears the stored username and password.
      */
@@ -48,14 +48,14 @@ public class SecuredRestBuilder extends RestAdapter.Builder {
         private final String clientSecret;
 
         /**
-         * Flag to track if the user is logged in and an access token is available.
+         * The obtained access token after successful authentication, or null if a new one is needed.
          */
-        private boolean loggedIn = false;
+        private String accessToken;
 
         /**
-         * The obtained access token after successful authentication.
+         * The time the access token expires, in milliseconds since the epoch.
          */
-        private String accessToken;
+        private long expiresAt;
 
         /**
          * Constructs an {@code OAuthHandler} with the necessary OAuth 2.0 authentication parameters.
@@ -79,23 +79,44 @@ public class SecuredRestBuilder extends RestAdapter.Builder {
 
         /**
          * This method intercepts HTTP requests made by Retrofit and adds the OAuth 2.0 bearer token
-         * to the "Authorization" header of the request. If the token is not yet obtained, it sends
-         * a password grant request to the token issuing endpoint to obtain the token.
+         * to the "Authorization" header of the request. If there is no valid token, it sends
+         * a password grant request to the token issuing endpoint to obtain one.
          *
          * @param request The request facade representing the HTTP request.
          */
         @Override
         public void intercept(RequestFacade request) {
-            if (!loggedIn) {
+            request.addHeader(AUTHORIZATION_HEADER, BEARER + getToken());
+        }
+
+        /**
+         * Get a valid access token, obtaining a new one when there is none or it is about to expire.
+         * The method is synchronized, so when many requests start together only the first one goes to the
+         * token issuing endpoint and the others wait for its token instead of each asking for their own.
+         *
+         * @return The access token.
+         */
+        public synchronized String getToken() {
+            if (accessToken == null || System.currentTimeMillis() >= expiresAt - REFRESH_MARGIN) {
                 try {
                     accessToken = getAccessToken(client, tokenIssuingEndpoint, username, password, clientId, clientSecret);
-                    request.addHeader("Authorization", "Bearer " + accessToken);
-                    loggedIn = true;
                 } catch (Exception e) {
+                    accessToken = null;
                     throw new SecuredRestException(e);
                 }
-            } else {
-                request.addHeader("Authorization", "Bearer " + accessToken);
+            }
+            return accessToken;
+        }
+
+        /**
+         * Drops an access token the server has rejected, so the next request obtains a new one. A token
+         * that has already been replaced by another request is left alone.
+         *
+         * @param token The rejected access token.
+         */
+        public synchronized void invalidate(String token) {
+            if (token != null && token.equals(accessToken)) {
+                accessToken = null;
             }
         }
 
@@ -139,11 +160,84 @@ public class SecuredRestBuilder extends RestAdapter.Builder {
                         + resp.getStatus() + " - " + resp.getReason());
             } else {
                 String body = IOUtils.toString(resp.getBody().in());
-                return new Gson().fromJson(body, JsonObject.class).get("access_token").getAsString();
+                JsonObject token = new Gson().fromJson(body, JsonObject.class);
+                long expiresIn = token.has("expires_in") ? token.get("expires_in").getAsLong() : DEFAULT_EXPIRES_IN;
+                expiresAt = System.currentTimeMillis() + expiresIn * 1000L;
+                return token.get("access_token").getAsString();
             }
         }
     }
 
+    /**
+     * The inner class {@code OAuthRetryClient} wraps the client that executes the REST calls. When the
+     * server rejects the access token of a call with 401 Unauthorized, for example after a restart, the
+     * token is dropped and the call is sent once more with a new token.
+     */
+    private static class OAuthRetryClient implements Client {
+
+        private final Client client;
+
+        private final OAuthHandler oAuthHandler;
+
+        /**
+         * Constructs an {@code OAuthRetryClient}.
+         *
+         * @param client       The HTTP client implementation used to make requests.
+         * @param oAuthHandler The handler holding the access token.
+         */
+        public OAuthRetryClient(Client client, OAuthHandler oAuthHandler) {
+            this.client = client;
+            this.oAuthHandler = oAuthHandler;
+        }
+
+        /**
+         * Executes the request, and retries it one time with a new access token if the token was rejected.
+         *
+         * @param request The request to execute.
+         * @return The response of the server.
+         * @throws IOException If an I/O error occurs during the request.
+         */
+        @Override
+        public Response execute(Request request) throws IOException {
+            Response response = client.execute(request);
+            if (response.getStatus() != HTTP_UNAUTHORIZED) {
+                return response;
+            }
+            String rejected = null;
+            List<Header> headers = new ArrayList<>();
+            for (Header header : request.getHeaders()) {
+                if (AUTHORIZATION_HEADER.equalsIgnoreCase(header.getName())
+                        && header.getValue() != null && header.getValue().startsWith(BEARER)) {
+                    rejected = header.getValue().substring(BEARER.length());
+                } else {
+                    headers.add(header);
+                }
+            }
+            if (rejected == null) {
+                return response;
+            }
+            oAuthHandler.invalidate(rejected);
+            headers.add(new Header(AUTHORIZATION_HEADER, BEARER + oAuthHandler.getToken()));
+            return client.execute(new Request(request.getMethod(), request.getUrl(), headers, request.getBody()));
+        }
+    }
+
+    private static final String AUTHORIZATION_HEADER = "Authorization";
+
+    private static final String BEARER = "Bearer ";
+
+    private static final int HTTP_UNAUTHORIZED = 401;
+
+    /**
+     * Token lifetime assumed when the token response does not include expires_in, in seconds.
+     */
+    private static final long DEFAULT_EXPIRES_IN = 60 * 60;
+
+    /**
+     * A new token is obtained this long before the current one expires, in milliseconds.
+     */
+    private static final long REFRESH_MARGIN = 5 * 60 * 1000L;
+
     /**
      * The username for OAuth authentication.
      */
@@ -355,7 +449,8 @@ public class SecuredRestBuilder extends RestAdapter.Builder {
 
     /**
      * Overrides the {@link RestAdapter.Builder#build()} method to add OAuth 2.0 authentication
-     * request interceptor before building the {@link RestAdapter}.
+     * request interceptor, and the client retrying calls with a rejected token, before building
+     * the {@link RestAdapter}.
      *
      * @return The constructed {@link RestAdapter} with OAuth 2.0 authentication.
      * @throws SecuredRestException If either the username or password is null.
@@ -373,6 +468,7 @@ public class SecuredRestBuilder extends RestAdapter.Builder {
         }
         OAuthHandler oAuthHandler = new OAuthHandler(client, loginUrl, username, password, clientId, clientSecret);
         setRequestInterceptor(oAuthHandler);
+        super.setClient(new OAuthRetryClient(client, oAuthHandler));
 
         return super.build();
     }
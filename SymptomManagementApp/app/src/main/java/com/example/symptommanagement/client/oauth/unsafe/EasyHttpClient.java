@@ -26,9 +26,13 @@ import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
 import org.apache.http.conn.scheme.*;
 import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.params.BasicHttpParams;
@@ -82,6 +86,22 @@ public class EasyHttpClient extends DefaultHttpClient {
      */
     private final static int HTTPS_PORT = 443;
 
+    /**
+     * Default connect and read timeouts in milliseconds
+     */
+    public final static int DEFAULT_CONNECT_TIMEOUT = 15 * 1000;
+    public final static int DEFAULT_READ_TIMEOUT = 30 * 1000;
+
+    /**
+     * Maximum number of pooled connections, all requests go to the same server
+     */
+    private final static int MAX_CONNECTIONS = 4;
+
+    /**
+     * How long an idle connection is kept open when the server does not say
+     */
+    private final static long DEFAULT_KEEP_ALIVE = 30 * 1000L;
+
     protected int lastStatusCode;
 
     protected String lastReasonPhrase;
@@ -91,6 +111,21 @@ public class EasyHttpClient extends DefaultHttpClient {
      * Accept-Encoding gzip flag and also decompresses the response from the server.
      */
     public EasyHttpClient() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Constructor with the connect and read timeouts. The client keeps a small pool of
+     * connections alive between requests, so one instance should be shared by all the callers.
+     *
+     * @param connectTimeout the connect timeout in milliseconds
+     * @param readTimeout    the read timeout in milliseconds
+     */
+    public EasyHttpClient(int connectTimeout, int readTimeout) {
+        HttpConnectionParams.setConnectionTimeout(getParams(), connectTimeout);
+        HttpConnectionParams.setSoTimeout(getParams(), readTimeout);
+        HttpConnectionParams.setStaleCheckingEnabled(getParams(), true);
+
         addRequestInterceptor(new HttpRequestInterceptor() {
             public void process(final HttpRequest request,
                                 final HttpContext context) throws HttpException, IOException {
@@ -143,6 +178,8 @@ public class EasyHttpClient extends DefaultHttpClient {
         HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
         HttpProtocolParams.setContentCharset(params, "utf-8");
         params.setBooleanParameter("http.protocol.expect-continue", false);
+        ConnManagerParams.setMaxTotalConnections(params, MAX_CONNECTIONS);
+        ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(MAX_CONNECTIONS));
 
         SchemeRegistry registry = new SchemeRegistry();
         registry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), HTTP_PORT));
@@ -151,6 +188,21 @@ public class EasyHttpClient extends DefaultHttpClient {
         return new ThreadSafeClientConnManager(params, registry);
     }
 
+    /**
+     * Keeps idle connections open for as long as the server allows in its Keep-Alive header,
+     * or for a short default time, so the next request does not have to connect again.
+     */
+    @Override
+    protected ConnectionKeepAliveStrategy createConnectionKeepAliveStrategy() {
+        return new DefaultConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = super.getKeepAliveDuration(response, context);
+                return duration > 0 ? duration : DEFAULT_KEEP_ALIVE;
+            }
+        };
+    }
+
     /**
      * Make a get request to the specified url
      *
@@ -203,7 +255,10 @@ class GzipEntityWrapper extends HttpEntityWrapper {
  * certificate
  */
 class EasySSLSocketFactory implements SocketFactory, LayeredSocketFactory {
-    private SSLContext sslcontext = null;
+    /**
+     * Shared by all factories, the TLS sessions cached in the context can be resumed by new connections
+     */
+    private static SSLContext sslcontext = null;
 
     private static SSLContext createEasySSLContext() throws IOException {
         try {
@@ -216,11 +271,11 @@ class EasySSLSocketFactory implements SocketFactory, LayeredSocketFactory {
         }
     }
 
-    private SSLContext getSSLContext() throws IOException {
-        if (this.sslcontext == null) {
-            this.sslcontext = createEasySSLContext();
+    private static synchronized SSLContext getSSLContext() throws IOException {
+        if (sslcontext == null) {
+            sslcontext = createEasySSLContext();
         }
-        return this.sslcontext;
+        return sslcontext;
     }
 
     /**
@@ -235,7 +290,7 @@ class EasySSLSocketFactory implements SocketFactory, LayeredSocketFactory {
         int soTimeout = HttpConnectionParams.getSoTimeout(params);
 
         InetSocketAddress remoteAddress = new InetSocketAddress(host, port);
-        SSLSocket sslsock = (SSLSocket) ((sock != null) ? sock : createSocket());
+        Socket plainsock = (sock != null) ? sock : createSocket();
 
         if ((localAddress != null) || (localPort > 0)) {
             // we need to bind explicitly
@@ -244,10 +299,13 @@ class EasySSLSocketFactory implements SocketFactory, LayeredSocketFactory {
             }
             InetSocketAddress isa = new InetSocketAddress(localAddress,
                     localPort);
-            sslsock.bind(isa);
+            plainsock.bind(isa);
         }
 
-        sslsock.connect(remoteAddress, connTimeout);
+        plainsock.connect(remoteAddress, connTimeout);
+        plainsock.setSoTimeout(soTimeout);
+        // layering TLS with the host and port lets the session cache resume an earlier session
+        SSLSocket sslsock = (SSLSocket) createSocket(plainsock, host, port, true);
         sslsock.setSoTimeout(soTimeout);
         return sslsock;
     }
@@ -256,7 +314,8 @@ class EasySSLSocketFactory implements SocketFactory, LayeredSocketFactory {
      * @see org.apache.http.conn.scheme.SocketFactory#createSocket()
      */
     public Socket createSocket() throws IOException {
-        return getSSLContext().getSocketFactory().createSocket();
+        // connected plain first, connectSocket layers TLS on top of it
+        return new Socket();
     }
 
     /**
@@ -0,0 +1,43 @@
+package com.example.symptommanagement.data;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents a physician's response to the alert of a patient: a status note attached to the patient
+ * in the physician's list. A note created after an alert was raised marks the alert as contacted.
+ * <p>
+ * The acknowledgements are queued in {@link PendingAcknowledgements} and sent to the server together.
+ */
+@Data
+@NoArgsConstructor
+public class AlertAcknowledgement {
+
+    /**
+     * The ID of the patient the physician responded to.
+     */
+    private String patientId;
+
+    /**
+     * The status note of the physician.
+     */
+    private String note;
+
+    /**
+     * The timestamp of when the physician responded.
+     */
+    private long created;
+
+    /**
+     * Creates an acknowledgement.
+     *
+     * @param patientId The ID of the patient.
+     * @param note      The status note of the physician.
+     * @param created   The timestamp of when the physician responded.
+     */
+    public AlertAcknowledgement(String patientId, String note, long created) {
+        this.patientId = patientId;
+        this.note = note;
+        this.created = created;
+    }
+}
@@ -14,6 +14,9 @@ public class HistoryLog {
     private String info;
     private long created;
 
+    // a status log the patient took an image with
+    private boolean image;
+
     public enum LogType {
         GENERIC(0),
         PAIN_LOG(10),
@@ -0,0 +1,219 @@
+package com.example.symptommanagement.data;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.ToLongFunction;
+
+/**
+ * The history of a patient's logs, newest first, merged from the check-in, pain, medication, and status logs.
+ * <p>
+ * Each of the four log types is put in order on its own, and the history is merged from their heads one
+ * page at a time, as the list scrolls down. Logs created at the same time are all kept. A row only
+ * becomes a {@link HistoryLog} with its info text when {@link #get(int)} is called for it, which the
+ * adapter does for the rows on screen.
+ */
+public class HistoryLogList {
+
+    /**
+     * The number of rows merged at a time.
+     */
+    public static final int PAGE_SIZE = 50;
+
+    private static final int CHECK_IN = 0;
+    private static final int PAIN = 1;
+    private static final int MEDICATION = 2;
+    private static final int STATUS = 3;
+
+    private final String patientId;
+    private final CheckInLog[] checkInLogs;
+    private final PainLog[] painLogs;
+    private final MedicationLog[] medLogs;
+    private final StatusLog[] statusLogs;
+    private final long[][] created;
+
+    // the next log of each type to be merged
+    private final int[] heads = new int[4];
+
+    // the merged rows, the type in the high bits and the index in that type's array in the low bits
+    private long[] rows = new long[0];
+    private int size = 0;
+    private final int total;
+
+    /**
+     * Creates the history of a patient, with the first page merged.
+     *
+     * @param patient The patient.
+     */
+    public HistoryLogList(Patient patient) {
+        patientId = patient.getId();
+        checkInLogs = newestFirst(patient.getCheckinLog(), new CheckInLog[0], CheckInLog::getCreated);
+        painLogs = newestFirst(patient.getPainLog(), new PainLog[0], PainLog::getCreated);
+        medLogs = newestFirst(patient.getMedLog(), new MedicationLog[0], MedicationLog::getCreated);
+        statusLogs = newestFirst(patient.getStatusLog(), new StatusLog[0], StatusLog::getCreated);
+        created = new long[][]{
+                createdTimes(checkInLogs, CheckInLog::getCreated),
+                createdTimes(painLogs, PainLog::getCreated),
+                createdTimes(medLogs, MedicationLog::getCreated),
+                createdTimes(statusLogs, StatusLog::getCreated)};
+        total = checkInLogs.length + painLogs.length + medLogs.length + statusLogs.length;
+        loadMore();
+    }
+
+    /**
+     * Get the ID of the patient the history belongs to.
+     *
+     * @return the patient ID
+     */
+    public String getPatientId() {
+        return patientId;
+    }
+
+    /**
+     * Get the number of rows merged so far.
+     *
+     * @return the number of rows that can be shown
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the number of logs in the whole history.
+     *
+     * @return the number of logs
+     */
+    public int getTotalCount() {
+        return total;
+    }
+
+    /**
+     * Checks if there are logs that have not been merged yet.
+     *
+     * @return true if more rows can be loaded
+     */
+    public boolean hasMore() {
+        return size < total;
+    }
+
+    /**
+     * Merges the next page of rows.
+     *
+     * @return the number of rows added
+     */
+    public int loadMore() {
+        int count = Math.min(PAGE_SIZE, total - size);
+        if (count <= 0) return 0;
+        if (rows.length < size + count) {
+            rows = Arrays.copyOf(rows, Math.max(size + count, rows.length * 2));
+        }
+        for (int i = 0; i < count; i++) {
+            // take the newest of the four heads, with only four types a scan is cheaper than a heap
+            int newest = -1;
+            for (int type = 0; type < heads.length; type++) {
+                if (heads[type] < created[type].length && (newest < 0
+                        || created[type][heads[type]] > created[newest][heads[newest]])) {
+                    newest = type;
+                }
+            }
+            rows[size++] = ((long) newest << 32) | heads[newest];
+            heads[newest]++;
+        }
+        return count;
+    }
+
+    /**
+     * Get the creation time of a row.
+     *
+     * @param position The position of the row, less than {@link #size()}.
+     * @return the creation time of the log
+     */
+    public long getCreated(int position) {
+        long row = rows[position];
+        return created[(int) (row >>> 32)][(int) row];
+    }
+
+    /**
+     * Get a row of the history, the info text is formatted now.
+     *
+     * @param position The position of the row, less than {@link #size()}.
+     * @return the history log of the row
+     */
+    public HistoryLog get(int position) {
+        long row = rows[position];
+        int index = (int) row;
+        HistoryLog h = new HistoryLog();
+        switch ((int) (row >>> 32)) {
+            case CHECK_IN: {
+                h.setCreated(checkInLogs[index].getCreated());
+                h.setType(HistoryLog.LogType.CHECK_IN_LOG);
+                h.setInfo("Checked In with Reminder.");
+                break;
+            }
+            case PAIN: {
+                PainLog p = painLogs[index];
+                h.setCreated(p.getCreated());
+                h.setType(p.getCheckinId() > 0L ? HistoryLog.LogType.CHECK_IN_PAIN_LOG : HistoryLog.LogType.PAIN_LOG);
+                String severity = (p.getSeverity() == PainLog.Severity.SEVERE) ? "SEVERE"
+                        : (p.getSeverity() == PainLog.Severity.MODERATE) ? "Moderate" : "Well-Controlled";
+                String eating = (p.getEating() == PainLog.Eating.NOT_EATING) ? "NOT EATING"
+                        : (p.getEating() == PainLog.Eating.SOME_EATING) ? "Some Eating" : "Eating";
+                h.setInfo("Pain : " + severity + " -- " + eating);
+                break;
+            }
+            case MEDICATION: {
+                MedicationLog m = medLogs[index];
+                h.setCreated(m.getCreated());
+                h.setType(m.getCheckinId() > 0L ? HistoryLog.LogType.CHECK_IN_MED_LOG : HistoryLog.LogType.MED_LOG);
+                String taken = m.getTakenDateFormattedString(" hh:mm a 'on' E, MMM d yyyy");
+                h.setInfo(m.getMed().getName() + " taken " + taken);
+                break;
+            }
+            default: {
+                StatusLog s = statusLogs[index];
+                h.setCreated(s.getCreated());
+                h.setType(HistoryLog.LogType.STATUS_LOG);
+                h.setImage(s.getImage_location() != null && !s.getImage_location().isEmpty());
+                h.setInfo("Note: " + s.getNote() + " " + (h.isImage() ? " - Image Taken By Patient" : ""));
+                break;
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Get the logs of one type newest first. The logs usually arrive in order already, then they are
+     * only copied or reversed instead of sorted.
+     */
+    private static <T> T[] newestFirst(Collection<T> logs, T[] empty, ToLongFunction<T> created) {
+        if (logs == null || logs.isEmpty()) return empty;
+        T[] array = logs.toArray(empty);
+        boolean ascending = true;
+        boolean descending = true;
+        for (int i = 1; i < array.length && (ascending || descending); i++) {
+            long previous = created.applyAsLong(array[i - 1]);
+            long current = created.applyAsLong(array[i]);
+            if (current < previous) ascending = false;
+            if (current > previous) descending = false;
+        }
+        if (descending) return array;
+        if (ascending) {
+            for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+                T swap = array[i];
+                array[i] = array[j];
+                array[j] = swap;
+            }
+            return array;
+        }
+        Arrays.sort(array, Comparator.comparingLong(created).reversed());
+        return array;
+    }
+
+    private static <T> long[] createdTimes(T[] logs, ToLongFunction<T> created) {
+        long[] times = new long[logs.length];
+        for (int i = 0; i < logs.length; i++) {
+            times[i] = created.applyAsLong(logs[i]);
+        }
+        return times;
+    }
+}
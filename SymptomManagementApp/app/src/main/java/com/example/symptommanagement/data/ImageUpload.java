@@ -0,0 +1,36 @@
+package com.example.symptommanagement.data;
+
+import lombok.Data;
+
+/**
+ * Represents the progress of the upload of the image of a status log, as reported by the server.
+ * An interrupted upload continues from the number of bytes received.
+ */
+@Data
+public class ImageUpload {
+
+    /**
+     * The ID of the patient the status log belongs to.
+     */
+    private String patientId;
+
+    /**
+     * The creation time of the status log, which identifies it among the patient's logs.
+     */
+    private long created;
+
+    /**
+     * The number of bytes of the image received so far.
+     */
+    private long received;
+
+    /**
+     * The size of the whole image in bytes, or 0 until the upload is complete.
+     */
+    private long total;
+
+    /**
+     * Whether the whole image has been received by the server.
+     */
+    private boolean complete;
+}
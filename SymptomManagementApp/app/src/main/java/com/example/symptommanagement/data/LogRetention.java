@@ -0,0 +1,130 @@
+package com.example.symptommanagement.data;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps the log history stored on the device within a retention window.
+ * <p>
+ * The cloud is the source of truth for the complete history, the device only needs the recent logs.
+ * Compaction deletes the logs older than the window in small batches, so each delete holds the write
+ * lock only briefly. Logs that have not been uploaded yet are never deleted, whatever their age.
+ */
+public class LogRetention {
+
+    private static final String LOG_TAG = LogRetention.class.getSimpleName();
+
+    /**
+     * The default number of days of logs kept on the device.
+     */
+    public static final int DEFAULT_RETENTION_DAYS = 90;
+
+    private static final String RETENTION_DAYS_KEY = "log_retention_days";
+    private static final long DAY = 24 * 60 * 60 * 1000L;
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    /**
+     * Retrieves the number of days of logs kept on the device.
+     *
+     * @param context The context for accessing shared preferences.
+     * @return the retention window in days
+     */
+    public static int getRetentionDays(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getInt(RETENTION_DAYS_KEY, DEFAULT_RETENTION_DAYS);
+    }
+
+    /**
+     * Sets the number of days of logs kept on the device.
+     *
+     * @param context The context for accessing shared preferences.
+     * @param days    The retention window in days, at least one.
+     */
+    public static synchronized void setRetentionDays(Context context, int days) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = prefs.edit();
+        editor.putInt(RETENTION_DAYS_KEY, Math.max(1, days));
+        editor.apply();
+    }
+
+    /**
+     * Get the creation time before which logs are outside the retention window.
+     *
+     * @param context The context for accessing shared preferences.
+     * @return the oldest creation time kept
+     */
+    public static long getCutoff(Context context) {
+        return System.currentTimeMillis() - getRetentionDays(context) * DAY;
+    }
+
+    /**
+     * Deletes the logs outside the retention window of every patient stored on the device.
+     * This runs many deletes, so it must not be called on the UI thread.
+     *
+     * @param context The context.
+     * @return the number of logs deleted
+     */
+    public static synchronized int compact(Context context) {
+        long cutoff = getCutoff(context);
+        int deleted = 0;
+        for (String id : getPatientIds(context)) {
+            deleted += compactTable(context, id, cutoff,
+                    PatientCPContract.CheckInLogEntry.CONTENT_URI, PatientCPContract.CheckInLogEntry.TABLE_NAME);
+            deleted += compactTable(context, id, cutoff,
+                    PatientCPContract.PainLogEntry.CONTENT_URI, PatientCPContract.PainLogEntry.TABLE_NAME);
+            deleted += compactTable(context, id, cutoff,
+                    PatientCPContract.MedLogEntry.CONTENT_URI, PatientCPContract.MedLogEntry.TABLE_NAME);
+            deleted += compactTable(context, id, cutoff,
+                    PatientCPContract.StatusLogEntry.CONTENT_URI, PatientCPContract.StatusLogEntry.TABLE_NAME);
+        }
+        Log.d(LOG_TAG, "Compaction deleted " + deleted + " logs created before " + cutoff);
+        return deleted;
+    }
+
+    /**
+     * Deletes the old logs of one patient from one table, one batch at a time.
+     */
+    private static int compactTable(Context context, String id, long cutoff, Uri uri, String table) {
+        // only logs the cloud already has may go
+        long uploaded = SyncWatermarks.get(context, id, table, SyncWatermarks.Direction.UPLOAD);
+        long before = Math.min(cutoff, uploaded + 1);
+        String selection = PatientCPContract.PainLogEntry._ID + " IN (SELECT "
+                + PatientCPContract.PainLogEntry._ID + " FROM " + table
+                + " WHERE " + PatientCPContract.PainLogEntry.COLUMN_PATIENT_ID + " = ?"
+                + " AND " + PatientCPContract.PainLogEntry.COLUMN_CREATED + " < ?"
+                + " LIMIT " + DELETE_BATCH_SIZE + ")";
+        String[] selectionArgs = {id, Long.toString(before)};
+
+        ContentResolver resolver = context.getContentResolver();
+        int deleted = 0;
+        int count;
+        do {
+            count = resolver.delete(uri, selection, selectionArgs);
+            deleted += count;
+        } while (count == DELETE_BATCH_SIZE);
+        return deleted;
+    }
+
+    private static Set<String> getPatientIds(Context context) {
+        Set<String> ids = new HashSet<String>();
+        Cursor cursor = context.getContentResolver().query(PatientCPContract.PatientEntry.CONTENT_URI,
+                new String[]{PatientCPContract.PatientEntry.COLUMN_PATIENT_ID}, null, null, null);
+        if (cursor == null) return ids;
+        try {
+            while (cursor.moveToNext()) {
+                ids.add(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return ids;
+    }
+}
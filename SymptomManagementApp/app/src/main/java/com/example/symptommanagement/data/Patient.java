@@ -20,6 +20,12 @@ public class Patient {
      */
     private String id;
 
+    /**
+     * The server version of the patient record, sent back with updates so the server can detect
+     * concurrent changes.
+     */
+    private Long version;
+
     /**
      * Local transient DB Id
      */
@@ -36,6 +36,12 @@ public class PatientCPContract {
     public final static String PREFS_PATH = "pref";
     public final static String CREDENTIAL_PATH = "credential";
     public final static String CHECK_IN_LOG_PATH = "checkinlog";
+    public final static String PATIENT_CACHE_PATH = "patientcache";
+
+    /**
+     * Provider method running the database housekeeping, call it from a background thread.
+     */
+    public final static String METHOD_MAINTENANCE = "maintenance";
 
     /*
      * Inner class representing the "patient" table in the database.
@@ -530,4 +536,42 @@ public class PatientCPContract {
             return ContentUris.withAppendedId(CONTENT_URI, id);
         }
     }
+
+    /*
+     * Inner class representing the "patient_cache" table in the database.
+     * It holds the patient records recently viewed by a physician, see PatientCache.
+     */
+    public static final class PatientCacheEntry implements BaseColumns {
+
+        /*
+         * The content URI for accessing cached patient records.
+         */
+        public static final Uri CONTENT_URI =
+                BASE_CONTENT_URI.buildUpon().appendPath(PATIENT_CACHE_PATH).build();
+
+        /*
+         * The MIME type for a list of cached patient records.
+         */
+        public static final String CONTENT_TYPE =
+                "vnd.android.cursor.dir/" + CONTENT_AUTHORITY + "/" + PATIENT_CACHE_PATH;
+
+        /*
+         * The MIME type for a single cached patient record.
+         */
+        public static final String CONTENT_ITEM_TYPE =
+                "vnd.android.cursor.item/" + CONTENT_AUTHORITY + "/" + PATIENT_CACHE_PATH;
+
+        /*
+         * The name of the table in the database.
+         */
+        public static final String TABLE_NAME = "patient_cache";
+
+        /*
+         * Column names in the "patient_cache" table.
+         */
+        public static final String COLUMN_PATIENT_ID = "patient_id"; // Server ID
+        public static final String COLUMN_VERSION = "version"; // Server version of the record
+        public static final String COLUMN_RECORD = "record"; // The whole patient record as JSON
+        public static final String COLUMN_LAST_ACCESS = "last_access";
+    }
 }
@@ -0,0 +1,196 @@
+package com.example.symptommanagement.data;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+import android.net.Uri;
+
+import java.util.Collection;
+
+import static com.example.symptommanagement.data.PatientCPContract.*;
+
+/**
+ * Maps the rows of a content provider cursor to data objects.
+ * <p>
+ * Each mapper queries an explicit projection, so the column indices are fixed by the position
+ * of the column in the projection and are never looked up by name. Selections use bound
+ * arguments, the SQL text stays the same for every id and SQLite reuses the compiled statement
+ * from its statement cache instead of parsing it again.
+ *
+ * @param <T> the type of the data objects
+ */
+public abstract class PatientCPRowMapper<T> {
+
+    private final String[] projection;
+
+    /**
+     * Creates a mapper reading the given columns.
+     *
+     * @param projection the columns, in the order {@link #map} reads them
+     */
+    protected PatientCPRowMapper(String... projection) {
+        this.projection = projection;
+    }
+
+    /**
+     * Get the columns read by this mapper.
+     *
+     * @return the projection to query
+     */
+    public String[] getProjection() {
+        return projection;
+    }
+
+    /**
+     * Creates a data object from the current row of a cursor queried with {@link #getProjection()}.
+     *
+     * @param cursor the cursor positioned on a row
+     * @return the data object
+     */
+    public abstract T map(Cursor cursor);
+
+    /**
+     * Queries the content provider and adds a data object for every row to the results.
+     *
+     * @param resolver      the content resolver
+     * @param uri           the content uri of the table
+     * @param selection     the selection, using ? for the arguments
+     * @param selectionArgs the arguments bound to the selection
+     * @param sortOrder     the sort order, or null
+     * @param results       the collection receiving the data objects
+     * @param <C>           the type of the collection
+     * @return the results collection
+     */
+    public <C extends Collection<? super T>> C queryInto(ContentResolver resolver, Uri uri, String selection,
+                                                         String[] selectionArgs, String sortOrder, C results) {
+        Cursor cursor = resolver.query(uri, projection, selection, selectionArgs, sortOrder);
+        if (cursor == null) return results;
+        try {
+            while (cursor.moveToNext()) {
+                results.add(map(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+        return results;
+    }
+
+    /**
+     * Queries the content provider for the first matching row.
+     *
+     * @param resolver      the content resolver
+     * @param uri           the content uri of the table
+     * @param selection     the selection, using ? for the arguments
+     * @param selectionArgs the arguments bound to the selection
+     * @return the data object of the first row, or null if nothing matched
+     */
+    public T queryFirst(ContentResolver resolver, Uri uri, String selection, String[] selectionArgs) {
+        Cursor cursor = resolver.query(uri, projection, selection, selectionArgs, null);
+        if (cursor == null) return null;
+        try {
+            return cursor.moveToFirst() ? map(cursor) : null;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    public static final PatientCPRowMapper<CheckInLog> CHECK_IN_LOG = new PatientCPRowMapper<CheckInLog>(
+            CheckInLogEntry.COLUMN_CHECKIN_ID,
+            CheckInLogEntry.COLUMN_CREATED) {
+        @Override
+        public CheckInLog map(Cursor cursor) {
+            CheckInLog log = new CheckInLog();
+            log.setCheckinId(cursor.getLong(0));
+            log.setCreated(cursor.getLong(1));
+            return log;
+        }
+    };
+
+    public static final PatientCPRowMapper<PainLog> PAIN_LOG = new PatientCPRowMapper<PainLog>(
+            PainLogEntry.COLUMN_EATING,
+            PainLogEntry.COLUMN_SEVERITY,
+            PainLogEntry.COLUMN_CHECKIN_ID,
+            PainLogEntry.COLUMN_CREATED) {
+        @Override
+        public PainLog map(Cursor cursor) {
+            PainLog log = new PainLog();
+            log.setEating(PainLog.Eating.findByValue(cursor.getInt(0)));
+            log.setSeverity(PainLog.Severity.findByValue(cursor.getInt(1)));
+            log.setCheckinId(cursor.getLong(2));
+            log.setCreated(cursor.getLong(3));
+            return log;
+        }
+    };
+
+    public static final PatientCPRowMapper<MedicationLog> MED_LOG = new PatientCPRowMapper<MedicationLog>(
+            MedLogEntry.COLUMN_MED_ID,
+            MedLogEntry.COLUMN_MED_NAME,
+            MedLogEntry.COLUMN_TAKEN,
+            MedLogEntry.COLUMN_CHECKIN_ID,
+            MedLogEntry.COLUMN_CREATED) {
+        @Override
+        public MedicationLog map(Cursor cursor) {
+            MedicationLog log = new MedicationLog();
+            log.setMed(new Medication());
+            log.getMed().setId(cursor.getString(0));
+            log.getMed().setName(cursor.getString(1));
+            log.setTaken(cursor.getLong(2));
+            log.setCheckinId(cursor.getLong(3));
+            log.setCreated(cursor.getLong(4));
+            return log;
+        }
+    };
+
+    public static final PatientCPRowMapper<StatusLog> STATUS_LOG = new PatientCPRowMapper<StatusLog>(
+            StatusLogEntry.COLUMN_NOTE,
+            StatusLogEntry.COLUMN_IMAGE,
+            StatusLogEntry.COLUMN_CREATED) {
+        @Override
+        public StatusLog map(Cursor cursor) {
+            StatusLog log = new StatusLog();
+            log.setNote(cursor.getString(0));
+            log.setImage_location(cursor.getString(1));
+            log.setCreated(cursor.getLong(2));
+            return log;
+        }
+    };
+
+    public static final PatientCPRowMapper<Reminder> REMINDER = new PatientCPRowMapper<Reminder>(
+            ReminderEntry._ID,
+            ReminderEntry.COLUMN_NAME,
+            ReminderEntry.COLUMN_HOUR,
+            ReminderEntry.COLUMN_MINUTES,
+            ReminderEntry.COLUMN_ON,
+            ReminderEntry.COLUMN_CREATED) {
+        @Override
+        public Reminder map(Cursor cursor) {
+            Reminder item = new Reminder();
+            item.setDbId(cursor.getLong(0));
+            item.setName(cursor.getString(1));
+            item.setHour(cursor.getInt(2));
+            item.setMinutes(cursor.getInt(3));
+            item.setOn(cursor.getInt(4) != 0);
+            item.setCreated(cursor.getLong(5));
+            return item;
+        }
+    };
+
+    public static final PatientCPRowMapper<UserCredential> CREDENTIAL = new PatientCPRowMapper<UserCredential>(
+            CredentialEntry._ID,
+            CredentialEntry.COLUMN_USER_ID,
+            CredentialEntry.COLUMN_USER_NAME,
+            CredentialEntry.COLUMN_USER_TYPE_VALUE,
+            CredentialEntry.COLUMN_LAST_LOGIN) {
+        @Override
+        public UserCredential map(Cursor cursor) {
+            UserCredential credential = new UserCredential();
+            credential.setDbId(cursor.getLong(0));
+            credential.setUserId(cursor.getString(1));
+            credential.setUserName(cursor.getString(2));
+            credential.setUserRoleValue(cursor.getInt(3));
+            credential.setLastLogin(cursor.getLong(4));
+            credential.setPassword("pass");  //TODO: check why password is not saved?
+            credential.setUserRole(UserCredential.UserRole.findByValue(credential.getUserRoleValue()));
+            return credential;
+        }
+    };
+}
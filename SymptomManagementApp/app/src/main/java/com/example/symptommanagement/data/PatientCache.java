@@ -0,0 +1,199 @@
+package com.example.symptommanagement.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.preference.PreferenceManager;
+import android.util.Log;
+import android.util.LruCache;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * Keeps the patient records a physician has recently viewed, so switching between patients shows
+ * the record at once instead of downloading the full history again.
+ * <p>
+ * The most recent records are held in memory, and a larger number in the content provider so they
+ * survive a restart of the app. Both are least recently used caches with sizes kept in the shared
+ * preferences. A cached record may be out of date, the caller shows it and then asks the server for
+ * a newer version with {@link #getETag(Patient)}.
+ */
+public class PatientCache {
+
+    private static final String LOG_TAG = PatientCache.class.getSimpleName();
+
+    /**
+     * The default number of patient records kept in memory.
+     */
+    public static final int DEFAULT_MEMORY_SIZE = 8;
+
+    /**
+     * The default number of patient records kept on the device.
+     */
+    public static final int DEFAULT_DEVICE_SIZE = 50;
+
+    private static final String MEMORY_SIZE_KEY = "patient_cache_memory_size";
+    private static final String DEVICE_SIZE_KEY = "patient_cache_device_size";
+
+    private static final String[] RECORD_PROJECTION = {PatientCPContract.PatientCacheEntry.COLUMN_RECORD};
+    private static final String[] PATIENT_ID_PROJECTION = {PatientCPContract.PatientCacheEntry.COLUMN_PATIENT_ID};
+    private static final String PATIENT_SELECTION = PatientCPContract.PatientCacheEntry.COLUMN_PATIENT_ID + " = ?";
+
+    private static final Gson gson = new Gson();
+    private static LruCache<String, Patient> memory;
+
+    /**
+     * Get the patient record from memory only. This is safe to call on the UI thread.
+     *
+     * @param context   The context for accessing shared preferences.
+     * @param patientId The ID of the patient.
+     * @return the cached patient record, or null if it is not in memory
+     */
+    public static Patient getFromMemory(Context context, String patientId) {
+        return getMemory(context).get(patientId);
+    }
+
+    /**
+     * Get the patient record from memory, or else from the device, and mark it as recently used.
+     * This reads and writes the database, so it must not be called on the UI thread.
+     *
+     * @param context   The context.
+     * @param patientId The ID of the patient.
+     * @return the cached patient record, or null if it is not cached
+     */
+    public static Patient get(Context context, String patientId) {
+        Patient patient = getFromMemory(context, patientId);
+        if (patient != null) {
+            touch(context, patientId);
+            return patient;
+        }
+
+        String[] selectionArgs = {patientId};
+        Cursor cursor = context.getContentResolver().query(PatientCPContract.PatientCacheEntry.CONTENT_URI,
+                RECORD_PROJECTION, PATIENT_SELECTION, selectionArgs, null);
+        if (cursor == null) return null;
+        try {
+            if (!cursor.moveToFirst()) return null;
+            patient = gson.fromJson(cursor.getString(0), Patient.class);
+        } catch (JsonParseException e) {
+            Log.e(LOG_TAG, "Dropping unreadable cached patient " + patientId, e);
+            context.getContentResolver().delete(PatientCPContract.PatientCacheEntry.CONTENT_URI,
+                    PATIENT_SELECTION, selectionArgs);
+            return null;
+        } finally {
+            cursor.close();
+        }
+
+        touch(context, patientId);
+        getMemory(context).put(patientId, patient);
+        return patient;
+    }
+
+    /**
+     * Marks a cached patient record as recently used, so trimming the device cache keeps it. Call it
+     * whenever the physician is shown the cached copy, including a copy from memory or one the server
+     * confirmed is up to date. This writes to the database, so it must not be called on the UI thread.
+     *
+     * @param context   The context.
+     * @param patientId The ID of the patient.
+     */
+    public static void touch(Context context, String patientId) {
+        ContentValues values = new ContentValues();
+        values.put(PatientCPContract.PatientCacheEntry.COLUMN_LAST_ACCESS, System.currentTimeMillis());
+        context.getContentResolver().update(PatientCPContract.PatientCacheEntry.CONTENT_URI, values,
+                PATIENT_SELECTION, new String[]{patientId});
+    }
+
+    /**
+     * Stores a patient record in memory and on the device, replacing the cached copy. The least
+     * recently used records beyond the device size are deleted, from memory as well, so a record is
+     * never held in memory without its copy on the device. This writes to the database,
+     * so it must not be called on the UI thread.
+     *
+     * @param context The context.
+     * @param patient The patient record retrieved from the server.
+     */
+    public static synchronized void put(Context context, Patient patient) {
+        if (patient == null || patient.getId() == null) return;
+        getMemory(context).put(patient.getId(), patient);
+
+        ContentValues values = new ContentValues();
+        values.put(PatientCPContract.PatientCacheEntry.COLUMN_PATIENT_ID, patient.getId());
+        values.put(PatientCPContract.PatientCacheEntry.COLUMN_VERSION, patient.getVersion());
+        values.put(PatientCPContract.PatientCacheEntry.COLUMN_RECORD, gson.toJson(patient));
+        values.put(PatientCPContract.PatientCacheEntry.COLUMN_LAST_ACCESS, System.currentTimeMillis());
+        context.getContentResolver().insert(PatientCPContract.PatientCacheEntry.CONTENT_URI, values);
+
+        // everything after the newest records that fit is deleted
+        String trimmed = PatientCPContract.PatientCacheEntry._ID + " IN (SELECT "
+                + PatientCPContract.PatientCacheEntry._ID
+                + " FROM " + PatientCPContract.PatientCacheEntry.TABLE_NAME
+                + " ORDER BY " + PatientCPContract.PatientCacheEntry.COLUMN_LAST_ACCESS + " DESC, "
+                + PatientCPContract.PatientCacheEntry._ID + " DESC"
+                + " LIMIT -1 OFFSET " + getDeviceSize(context) + ")";
+        Cursor cursor = context.getContentResolver().query(PatientCPContract.PatientCacheEntry.CONTENT_URI,
+                PATIENT_ID_PROJECTION, trimmed, null, null);
+        if (cursor == null) return;
+        try {
+            if (cursor.getCount() == 0) return;
+            while (cursor.moveToNext()) {
+                getMemory(context).remove(cursor.getString(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        context.getContentResolver().delete(PatientCPContract.PatientCacheEntry.CONTENT_URI, trimmed, null);
+    }
+
+    /**
+     * Get the entity tag of a cached record, sent to the server so it only returns the record
+     * when it has changed.
+     *
+     * @param patient The cached patient record, or null.
+     * @return the entity tag, or null if the record is not known to the server
+     */
+    public static String getETag(Patient patient) {
+        if (patient == null || patient.getVersion() == null) return null;
+        return "\"" + patient.getVersion() + "\"";
+    }
+
+    /**
+     * Removes every cached patient record, when the physician logs out.
+     *
+     * @param context The context.
+     */
+    public static synchronized void clear(Context context) {
+        getMemory(context).evictAll();
+        context.getContentResolver().delete(PatientCPContract.PatientCacheEntry.CONTENT_URI, null, null);
+    }
+
+    /**
+     * Sets the number of patient records kept in memory and on the device.
+     *
+     * @param context    The context for accessing shared preferences.
+     * @param memorySize The number of records kept in memory, at least one.
+     * @param deviceSize The number of records kept on the device, at least one.
+     */
+    public static synchronized void setSizes(Context context, int memorySize, int deviceSize) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = prefs.edit();
+        editor.putInt(MEMORY_SIZE_KEY, Math.max(1, memorySize));
+        editor.putInt(DEVICE_SIZE_KEY, Math.max(1, deviceSize));
+        editor.apply();
+        getMemory(context).resize(Math.max(1, memorySize));
+    }
+
+    private static int getDeviceSize(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getInt(DEVICE_SIZE_KEY, DEFAULT_DEVICE_SIZE);
+    }
+
+    private static synchronized LruCache<String, Patient> getMemory(Context context) {
+        if (memory == null) {
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+            memory = new LruCache<>(prefs.getInt(MEMORY_SIZE_KEY, DEFAULT_MEMORY_SIZE));
+        }
+        return memory;
+    }
+}
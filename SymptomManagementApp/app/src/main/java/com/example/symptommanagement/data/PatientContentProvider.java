@@ -1,14 +1,20 @@
 package com.example.symptommanagement.data;
 
-import android.content.ContentProvider;
-import android.content.ContentUris;
-import android.content.ContentValues;
-import android.content.UriMatcher;
+import android.content.*;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
 import android.support.annotation.NonNull;
+import android.support.annotation.Nullable;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import static com.example.symptommanagement.data.PatientCPContract.*;
 
@@ -18,6 +24,8 @@ import static com.example.symptommanagement.data.PatientCPContract.*;
  */
 public class PatientContentProvider extends ContentProvider {
 
+    private static final String LOG_TAG = PatientContentProvider.class.getSimpleName();
+
     /**
      * Define the UriMatcher for matching URIs to their corresponding integer codes
      */
@@ -28,6 +36,11 @@ public class PatientContentProvider extends ContentProvider {
      */
     private PatientDBHelper openHelper;
 
+    /**
+     * The URIs changed by the batch being applied on the current thread, notified after it commits
+     */
+    private final ThreadLocal<Set<Uri>> pendingNotifications = new ThreadLocal<>();
+
     /**
      * Define integer codes for each table to be used by the UriMatcher
      */
@@ -49,6 +62,7 @@ public class PatientContentProvider extends ContentProvider {
     private static final int CREDENTIAL_ID = 910;
     private static final int CHECK_IN_LOG = 1100;
     private static final int CHECK_IN_LOG_ID = 1111;
+    private static final int PATIENT_CACHE = 1200;
 
     /**
      * Called when the content provider is created.
@@ -248,6 +262,16 @@ public class PatientContentProvider extends ContentProvider {
                         null,
                         sortOrder);
                 break;
+            case PATIENT_CACHE:
+                retCursor = openHelper.getReadableDatabase().query(
+                        PatientCacheEntry.TABLE_NAME,
+                        projection,
+                        selection,
+                        selectionArgs,
+                        null,
+                        null,
+                        sortOrder);
+                break;
             case STATUS_LOG_ID:
                 retCursor = openHelper.getReadableDatabase().query(
                         StatusLogEntry.TABLE_NAME,
@@ -310,6 +334,8 @@ public class PatientContentProvider extends ContentProvider {
                 return MedLogEntry.CONTENT_ITEM_TYPE;
             case STATUS_LOG:
                 return StatusLogEntry.CONTENT_TYPE;
+            case PATIENT_CACHE:
+                return PatientCacheEntry.CONTENT_TYPE;
             case STATUS_LOG_ID:
                 return StatusLogEntry.CONTENT_ITEM_TYPE;
             default:
@@ -410,6 +436,15 @@ public class PatientContentProvider extends ContentProvider {
                 }
                 break;
             }
+            case PATIENT_CACHE: {
+                long _id = db.insert(PatientCacheEntry.TABLE_NAME, null, contentValues);
+                if (_id > 0) {
+                    returnUri = ContentUris.withAppendedId(PatientCacheEntry.CONTENT_URI, _id);
+                } else {
+                    throw new SQLException("Failed to insert row into " + uri);
+                }
+                break;
+            }
             case STATUS_LOG: {
                 long _id = db.insert(StatusLogEntry.TABLE_NAME, null, contentValues);
                 if (_id > 0) {
@@ -423,7 +458,7 @@ public class PatientContentProvider extends ContentProvider {
                 throw new UnsupportedOperationException("Unknown uri: + uri");
 
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        notifyChange(uri);
         return returnUri;
     }
 
@@ -467,6 +502,9 @@ public class PatientContentProvider extends ContentProvider {
             case MED_LOG:
                 rowsDeleted = db.delete(MedLogEntry.TABLE_NAME, selection, selectionArgs);
                 break;
+            case PATIENT_CACHE:
+                rowsDeleted = db.delete(PatientCacheEntry.TABLE_NAME, selection, selectionArgs);
+                break;
             case STATUS_LOG:
                 rowsDeleted = db.delete(StatusLogEntry.TABLE_NAME, selection, selectionArgs);
                 break;
@@ -475,7 +513,7 @@ public class PatientContentProvider extends ContentProvider {
 
         }
         if (selection == null || rowsDeleted != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
         return rowsDeleted;
     }
@@ -508,17 +546,22 @@ public class PatientContentProvider extends ContentProvider {
             case REMINDER_ID:
                 rowsUpdated = db.update(ReminderEntry.TABLE_NAME, values, selection, selectionArgs);
                 break;
+            case PATIENT_CACHE:
+                rowsUpdated = db.update(PatientCacheEntry.TABLE_NAME, values, selection, selectionArgs);
+                break;
             default:
                 throw new UnsupportedOperationException("Unknown uri: + uri");
         }
         if (rowsUpdated != 0) {
-            getContext().getContentResolver().notifyChange(uri, null);
+            notifyChange(uri);
         }
         return rowsUpdated;
     }
 
     /**
-     * Perform a bulk insert operation.
+     * Perform a bulk insert operation. All rows are inserted in a single transaction through one
+     * compiled INSERT statement, and a single change notification is sent if any row was inserted.
+     * Rows that already exist are ignored by the tables' UNIQUE constraints and are not counted.
      *
      * @param uri    The content URI representing the table to insert rows into.
      * @param values An array of ContentValues objects to be inserted.
@@ -526,114 +569,188 @@ public class PatientContentProvider extends ContentProvider {
      */
     @Override
     public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
-        int returnCount = 0;
-        final SQLiteDatabase db = openHelper.getWritableDatabase();
+        String table;
         switch (sUriMatcher.match(uri)) {
             case PRESCRIPTION:
-                db.beginTransaction();
-                try {
-                    for (ContentValues value : values) {
-                        long _id = db.insert(PrescriptionEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
-                            returnCount++;
-                        }
-                    }
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
-                }
+                table = PrescriptionEntry.TABLE_NAME;
                 break;
             case PHYSICIAN:
-                db.beginTransaction();
-                try {
-                    for (ContentValues value : values) {
-                        long _id = db.insert(PhysicianEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
-                            returnCount++;
-                        }
-                    }
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
-                }
+                table = PhysicianEntry.TABLE_NAME;
                 break;
             case REMINDER:
-                db.beginTransaction();
-                try {
-                    for (ContentValues value : values) {
-                        long _id = db.insert(ReminderEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
-                            returnCount++;
-                        }
-                    }
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
-                }
+                table = ReminderEntry.TABLE_NAME;
                 break;
             case CHECK_IN_LOG:
-                db.beginTransaction();
-                try {
-                    for (ContentValues value : values) {
-                        long _id = db.insert(CheckInLogEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
-                            returnCount++;
-                        }
-                    }
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
-                }
+                table = CheckInLogEntry.TABLE_NAME;
                 break;
             case PAIN_LOG:
-                db.beginTransaction();
-                try {
-                    for (ContentValues value : values) {
-                        long _id = db.insert(PainLogEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
-                            returnCount++;
-                        }
-                    }
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
-                }
+                table = PainLogEntry.TABLE_NAME;
                 break;
             case MED_LOG:
-                db.beginTransaction();
-                try {
-                    for (ContentValues value : values) {
-                        long _id = db.insert(MedLogEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
-                            returnCount++;
-                        }
-                    }
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
-                }
+                table = MedLogEntry.TABLE_NAME;
                 break;
             case STATUS_LOG:
-                db.beginTransaction();
-                try {
-                    for (ContentValues value : values) {
-                        long _id = db.insert(StatusLogEntry.TABLE_NAME, null, value);
-                        if (_id != -1) {
-                            returnCount++;
-                        }
-                    }
-                    db.setTransactionSuccessful();
-                } finally {
-                    db.endTransaction();
-                }
+                table = StatusLogEntry.TABLE_NAME;
                 break;
             default:
                 return super.bulkInsert(uri, values);
         }
-        getContext().getContentResolver().notifyChange(uri, null);
+        if (values.length == 0) {
+            return 0;
+        }
+
+        int returnCount = 0;
+        final SQLiteDatabase db = openHelper.getWritableDatabase();
+        db.beginTransactionNonExclusive();
+        try {
+            // Compile the INSERT once for the columns of the first row and reuse it for every row
+            String[] columns = values[0].keySet().toArray(new String[0]);
+            SQLiteStatement statement = db.compileStatement(buildInsertSql(table, columns));
+            try {
+                for (ContentValues value : values) {
+                    long _id;
+                    if (value.size() == columns.length && value.keySet().containsAll(Arrays.asList(columns))) {
+                        bindValues(statement, columns, value);
+                        try {
+                            _id = statement.executeInsert();
+                        } catch (SQLException e) {
+                            // Like db.insert, a row breaking a constraint is logged and skipped
+                            Log.e(LOG_TAG, "Error inserting " + value + " into " + table, e);
+                            _id = -1;
+                        }
+                    } else {
+                        // A row with different columns cannot use the compiled statement
+                        _id = db.insert(table, null, value);
+                    }
+                    if (_id != -1) {
+                        returnCount++;
+                    }
+                }
+            } finally {
+                statement.close();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        if (returnCount > 0) {
+            notifyChange(uri);
+        }
         return returnCount;
     }
 
+    /**
+     * Apply a batch of operations in a single transaction. The change notifications of the operations
+     * are collected and sent once per URI after the transaction has been committed.
+     *
+     * @param operations The operations to apply.
+     * @return The results of the operations.
+     * @throws OperationApplicationException If any operation fails, in which case none are applied.
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        final SQLiteDatabase db = openHelper.getWritableDatabase();
+        Set<Uri> changedUris = new HashSet<>();
+        pendingNotifications.set(changedUris);
+        ContentProviderResult[] results;
+        db.beginTransactionNonExclusive();
+        try {
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            pendingNotifications.remove();
+        }
+        for (Uri uri : changedUris) {
+            notifyChange(uri);
+        }
+        return results;
+    }
+
+    /**
+     * Calls a provider method. {@link PatientCPContract#METHOD_MAINTENANCE} runs the database
+     * housekeeping on the calling thread.
+     *
+     * @param method The name of the method.
+     * @param arg    Not used.
+     * @param extras Not used.
+     * @return The result of the method, or null if the method is unknown.
+     */
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        if (METHOD_MAINTENANCE.equals(method)) {
+            return openHelper.runMaintenance();
+        }
+        return super.call(method, arg, extras);
+    }
+
+    /**
+     * Notify the observers of a URI that its data has changed. While a batch is being applied on this
+     * thread the notification is held back until the batch has been committed.
+     *
+     * @param uri The URI whose data has changed.
+     */
+    private void notifyChange(Uri uri) {
+        Set<Uri> pending = pendingNotifications.get();
+        if (pending != null) {
+            pending.add(uri);
+        } else {
+            getContext().getContentResolver().notifyChange(uri, null);
+        }
+    }
+
+    /**
+     * Builds the SQL of an INSERT statement with a parameter for each column.
+     *
+     * @param table   The table to insert into.
+     * @param columns The columns to insert.
+     * @return The INSERT statement.
+     */
+    private static String buildInsertSql(String table, String[] columns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (");
+        StringBuilder params = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(',');
+                params.append(',');
+            }
+            sql.append(columns[i]);
+            params.append('?');
+        }
+        return sql.append(") VALUES (").append(params).append(')').toString();
+    }
+
+    /**
+     * Binds the values of a row to the parameters of a compiled statement.
+     *
+     * @param statement The compiled statement.
+     * @param columns   The columns in the order of the statement's parameters.
+     * @param values    The values of the row.
+     */
+    private static void bindValues(SQLiteStatement statement, String[] columns, ContentValues values) {
+        statement.clearBindings();
+        for (int i = 0; i < columns.length; i++) {
+            Object value = values.get(columns[i]);
+            int index = i + 1;
+            if (value == null) {
+                statement.bindNull(index);
+            } else if (value instanceof Float || value instanceof Double) {
+                statement.bindDouble(index, ((Number) value).doubleValue());
+            } else if (value instanceof Number) {
+                statement.bindLong(index, ((Number) value).longValue());
+            } else if (value instanceof Boolean) {
+                statement.bindLong(index, (Boolean) value ? 1 : 0);
+            } else if (value instanceof byte[]) {
+                statement.bindBlob(index, (byte[]) value);
+            } else {
+                statement.bindString(index, value.toString());
+            }
+        }
+    }
+
     /**
      * Builds the UriMatcher for the PatientContentProvider.
      * It matches each URI to the corresponding integer code.
@@ -663,6 +780,7 @@ public class PatientContentProvider extends ContentProvider {
         matcher.addURI(authority, PatientCPContract.MED_LOG_PATH + "/#", MED_LOG_ID);
         matcher.addURI(authority, PatientCPContract.STATUS_LOG_PATH, STATUS_LOG);
         matcher.addURI(authority, PatientCPContract.STATUS_LOG_PATH + "/#", STATUS_LOG_ID);
+        matcher.addURI(authority, PatientCPContract.PATIENT_CACHE_PATH, PATIENT_CACHE);
 
         return matcher;
     }
@@ -1,8 +1,12 @@
 package com.example.symptommanagement.data;
 
 import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Bundle;
+import android.util.Log;
 
 import static com.example.symptommanagement.data.PatientCPContract.*;
 
@@ -13,15 +17,66 @@ import static com.example.symptommanagement.data.PatientCPContract.*;
 public class PatientDBHelper extends SQLiteOpenHelper {
 
     /**
-     * Database version. Increment this when making changes to the database schema.
+     * Database version. Increment this when making changes to the database schema and add
+     * the migration for the new version to {@link #onUpgrade}.
+     * <ul>
+     * <li>1 - initial schema</li>
+     * <li>2 - integer timestamp columns and indexes for the queries of {@link PatientDataManager}</li>
+     * <li>3 - case insensitive index on the credential user name</li>
+     * <li>4 - cache of the patient records viewed by a physician</li>
+     * <li>5 - hourly log rollups for the charts</li>
+     * <li>6 - log rollups dropped, the charts count the cached record in memory</li>
+     * </ul>
      */
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 6;
 
     /**
      * Database name.
      */
     public static final String DATABASE_NAME = "patient.db";
 
+    /**
+     * The table of log rollups added in version 5 and dropped in version 6.
+     */
+    private static final String LOG_ROLLUP_TABLE = "log_rollup";
+
+    /**
+     * Names of the secondary indexes used by the patient data queries.
+     */
+    public static final String CHECK_IN_LOG_INDEX = "checkinlogs_patient_created_idx";
+    public static final String PAIN_LOG_INDEX = "painlogs_patient_created_idx";
+    public static final String MED_LOG_INDEX = "medlogs_patient_created_idx";
+    public static final String REMINDER_CREATED_INDEX = "reminders_created_idx";
+    public static final String CREDENTIAL_USER_NAME_INDEX = "credential_user_name_idx";
+
+    /**
+     * Page cache of the writing connection in KiB. Syncs write the log tables and their indexes
+     * in large batches, the default of 2 MiB makes them spill pages to disk half way through.
+     * The WAL reader connections keep the default, their queries read a few index ranges.
+     */
+    private static final int PAGE_CACHE_KIB = 8 * 1024;
+
+    /**
+     * Compiled statements kept by every connection of the pool, enough for every query and insert of
+     * the provider.
+     */
+    private static final int SQL_CACHE_SIZE = 50;
+
+    /**
+     * The database is only vacuumed when at least this many pages, and a quarter of all pages, are free.
+     */
+    private static final long VACUUM_MIN_FREE_PAGES = 256;
+
+    /**
+     * Keys of the maintenance results.
+     */
+    public static final String RESULT_CHECKPOINTED_PAGES = "checkpointed_pages";
+    public static final String RESULT_VACUUMED = "vacuumed";
+
+    private static final String LOG_TAG = PatientDBHelper.class.getSimpleName();
+
+    private final Context context;
+
     /**
      * Constructor for the PatientDBHelper.
      *
@@ -29,181 +84,346 @@ public class PatientDBHelper extends SQLiteOpenHelper {
      */
     public PatientDBHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        this.context = context;
+        // The sync adapter writes while the UI reads, with WAL the readers get their own
+        // connections and see the last commit instead of waiting for the write to finish.
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    /**
+     * Called when the database connection is being configured, before it is created or upgraded.
+     * It sizes the statement cache, which is part of the database configuration and applies to every
+     * connection of the pool, and the page cache. This is only called for the primary connection, the
+     * one that writes, so the PRAGMA only sizes the page cache of the writes; SQLiteOpenHelper has no
+     * hook to run a PRAGMA on the WAL reader connections it opens later.
+     *
+     * @param sqLiteDatabase The SQLite database.
+     */
+    @Override
+    public void onConfigure(SQLiteDatabase sqLiteDatabase) {
+        sqLiteDatabase.setMaxSqlCacheSize(SQL_CACHE_SIZE);
+        // a negative cache size is in KiB instead of pages, for this connection only
+        sqLiteDatabase.execSQL("PRAGMA cache_size = -" + PAGE_CACHE_KIB);
+    }
+
+    /**
+     * Housekeeping of the database file. It checkpoints the write-ahead log back into the database
+     * and truncates it, and vacuums the database when logs have been deleted and a large part of it
+     * is free pages. This is slow, so it must not be called on the UI thread.
+     *
+     * @return the number of pages checkpointed and if the database was vacuumed
+     */
+    public Bundle runMaintenance() {
+        SQLiteDatabase db = getWritableDatabase();
+        Bundle result = new Bundle();
+
+        // returns a row of (busy, log pages, checkpointed pages)
+        Cursor cursor = db.rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null);
+        try {
+            if (cursor.moveToFirst()) {
+                result.putLong(RESULT_CHECKPOINTED_PAGES, cursor.getLong(2));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        long pageCount = DatabaseUtils.longForQuery(db, "PRAGMA page_count", null);
+        long freePages = DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+        boolean vacuum = freePages >= VACUUM_MIN_FREE_PAGES && freePages * 4 >= pageCount;
+        if (vacuum) {
+            Log.d(LOG_TAG, "Vacuuming the database, " + freePages + " of " + pageCount + " pages are free.");
+            db.execSQL("VACUUM");
+        }
+        result.putBoolean(RESULT_VACUUMED, vacuum);
+        return result;
     }
 
     /**
      * Called when the database is created for the first time.
-     * It creates all the necessary tables for patient-related data.
+     * It creates all the necessary tables and indexes for patient-related data.
      *
      * @param sqLiteDatabase The SQLite database.
      */
     @Override
     public void onCreate(SQLiteDatabase sqLiteDatabase) {
-        // Create the table to store patient information.
-        final String SQL_CREATE_PATIENT_TABLE = "CREATE TABLE " + PatientEntry.TABLE_NAME + " (" +
+        // Create the tables in the current schema.
+        sqLiteDatabase.execSQL(createPatientTable(PatientEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createCredentialTable(CredentialEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createPrescriptionTable(PrescriptionEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createPhysicianTable(PhysicianEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createCheckInLogTable(CheckInLogEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createPainLogTable(PainLogEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createMedLogTable(MedLogEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createStatusLogTable(StatusLogEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createReminderTable(ReminderEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createPrefsTable(PrefsEntry.TABLE_NAME));
+        sqLiteDatabase.execSQL(createPatientCacheTable(PatientCacheEntry.TABLE_NAME));
+        createIndexes(sqLiteDatabase);
+
+        // The log tables are empty, so the sync has to start again from the beginning.
+        SyncWatermarks.clear(context);
+    }
+
+    /**
+     * Called when the database needs to be upgraded.
+     * It applies the migration of every version between the old and the new one in order, so
+     * the data stored on the device is kept. SQLiteOpenHelper runs this in a single transaction.
+     *
+     * @param sqLiteDatabase The SQLite database.
+     * @param oldVersion     The old version of the database.
+     * @param newVersion     The new version of the database.
+     */
+    @Override
+    public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
+        for (int version = oldVersion + 1; version <= newVersion; version++) {
+            switch (version) {
+                case 2:
+                    upgradeToVersion2(sqLiteDatabase);
+                    break;
+                case 3:
+                    createIndexes(sqLiteDatabase);
+                    break;
+                case 4:
+                    sqLiteDatabase.execSQL(createPatientCacheTable(PatientCacheEntry.TABLE_NAME));
+                    break;
+                case 5:
+                    // The log rollups of version 5 are dropped again by version 6
+                    break;
+                case 6:
+                    sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + LOG_ROLLUP_TABLE);
+                    break;
+                default:
+                    throw new IllegalStateException("No migration to database version " + version);
+            }
+        }
+    }
+
+    /**
+     * Version 2 stores the timestamps as INTEGER instead of REAL and adds the indexes.
+     * SQLite cannot change the type of a column, so the tables holding timestamps are rebuilt.
+     *
+     * @param sqLiteDatabase The SQLite database.
+     */
+    private void upgradeToVersion2(SQLiteDatabase sqLiteDatabase) {
+        rebuildTable(sqLiteDatabase, PatientEntry.TABLE_NAME, createPatientTable(PatientEntry.TABLE_NAME + "_new"));
+        rebuildTable(sqLiteDatabase, CredentialEntry.TABLE_NAME, createCredentialTable(CredentialEntry.TABLE_NAME + "_new"));
+        rebuildTable(sqLiteDatabase, CheckInLogEntry.TABLE_NAME, createCheckInLogTable(CheckInLogEntry.TABLE_NAME + "_new"));
+        rebuildTable(sqLiteDatabase, PainLogEntry.TABLE_NAME, createPainLogTable(PainLogEntry.TABLE_NAME + "_new"));
+        rebuildTable(sqLiteDatabase, MedLogEntry.TABLE_NAME, createMedLogTable(MedLogEntry.TABLE_NAME + "_new"));
+        rebuildTable(sqLiteDatabase, StatusLogEntry.TABLE_NAME, createStatusLogTable(StatusLogEntry.TABLE_NAME + "_new"));
+        rebuildTable(sqLiteDatabase, ReminderEntry.TABLE_NAME, createReminderTable(ReminderEntry.TABLE_NAME + "_new"));
+        rebuildTable(sqLiteDatabase, PrefsEntry.TABLE_NAME, createPrefsTable(PrefsEntry.TABLE_NAME + "_new"));
+        createIndexes(sqLiteDatabase);
+    }
+
+    /**
+     * Rebuilds a table with a new definition and copies its rows over. The new definition
+     * must have the same columns in the same order, the INTEGER affinity of the new columns
+     * converts the stored REAL values.
+     *
+     * @param sqLiteDatabase The SQLite database.
+     * @param table          The name of the table to rebuild.
+     * @param createSql      The statement creating the new table as table + "_new".
+     */
+    private static void rebuildTable(SQLiteDatabase sqLiteDatabase, String table, String createSql) {
+        sqLiteDatabase.execSQL(createSql);
+        sqLiteDatabase.execSQL("INSERT INTO " + table + "_new SELECT * FROM " + table);
+        sqLiteDatabase.execSQL("DROP TABLE " + table);
+        sqLiteDatabase.execSQL("ALTER TABLE " + table + "_new RENAME TO " + table);
+    }
+
+    /**
+     * Creates the secondary indexes. The unique constraints already index the lookups by
+     * patient id (and created), these cover the remaining access paths. Every index is created
+     * IF NOT EXISTS, so a migration adding an index can simply run this again.
+     * <p>
+     * The log indexes hold every column the log queries read, so the history of a patient is
+     * read from the index alone, in created order. The status log is left out because its notes
+     * would make the index as large as the table.
+     *
+     * @param sqLiteDatabase The SQLite database.
+     */
+    private static void createIndexes(SQLiteDatabase sqLiteDatabase) {
+        sqLiteDatabase.execSQL("CREATE INDEX IF NOT EXISTS " + CHECK_IN_LOG_INDEX + " ON " +
+                CheckInLogEntry.TABLE_NAME + " (" +
+                CheckInLogEntry.COLUMN_PATIENT_ID + ", " +
+                CheckInLogEntry.COLUMN_CREATED + ", " +
+                CheckInLogEntry.COLUMN_CHECKIN_ID + ");");
+        sqLiteDatabase.execSQL("CREATE INDEX IF NOT EXISTS " + PAIN_LOG_INDEX + " ON " +
+                PainLogEntry.TABLE_NAME + " (" +
+                PainLogEntry.COLUMN_PATIENT_ID + ", " +
+                PainLogEntry.COLUMN_CREATED + ", " +
+                PainLogEntry.COLUMN_SEVERITY + ", " +
+                PainLogEntry.COLUMN_EATING + ", " +
+                PainLogEntry.COLUMN_CHECKIN_ID + ");");
+        sqLiteDatabase.execSQL("CREATE INDEX IF NOT EXISTS " + MED_LOG_INDEX + " ON " +
+                MedLogEntry.TABLE_NAME + " (" +
+                MedLogEntry.COLUMN_PATIENT_ID + ", " +
+                MedLogEntry.COLUMN_CREATED + ", " +
+                MedLogEntry.COLUMN_MED_ID + ", " +
+                MedLogEntry.COLUMN_MED_NAME + ", " +
+                MedLogEntry.COLUMN_TAKEN + ", " +
+                MedLogEntry.COLUMN_CHECKIN_ID + ");");
+        // reminders are looked up by their created time alone
+        sqLiteDatabase.execSQL("CREATE INDEX IF NOT EXISTS " + REMINDER_CREATED_INDEX + " ON " +
+                ReminderEntry.TABLE_NAME + " (" +
+                ReminderEntry.COLUMN_CREATED + ");");
+        // offline login looks the user name up ignoring case
+        sqLiteDatabase.execSQL("CREATE INDEX IF NOT EXISTS " + CREDENTIAL_USER_NAME_INDEX + " ON " +
+                CredentialEntry.TABLE_NAME + " (" +
+                CredentialEntry.COLUMN_USER_NAME + " COLLATE NOCASE);");
+    }
+
+    // Table to store patient information.
+    private static String createPatientTable(String table) {
+        return "CREATE TABLE " + table + " (" +
                 PatientEntry._ID + " INTEGER PRIMARY KEY," +
                 PatientEntry.COLUMN_PATIENT_ID + " TEXT UNIQUE NOT NULL, " +
                 PatientEntry.COLUMN_FIRST_NAME + " TEXT, " +
                 PatientEntry.COLUMN_LAST_NAME + " TEXT, " +
-                PatientEntry.COLUMN_LAST_LOGIN + " REAL, " +
+                PatientEntry.COLUMN_LAST_LOGIN + " INTEGER, " +
                 PatientEntry.COLUMN_BIRTHDATE + " TEXT, " +
                 PatientEntry.COLUMN_ACTIVE + " INTEGER, " +
                 PatientEntry.COLUMN_PROCESS_STATUS + " INTEGER, " +
-                PatientEntry.COLUMN_PROCESSED + " REAL, " +
+                PatientEntry.COLUMN_PROCESSED + " INTEGER, " +
                 "UNIQUE (" + PatientEntry.COLUMN_PATIENT_ID + ") ON CONFLICT REPLACE " +
                 " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_PATIENT_TABLE);
+    }
 
-        // Create the table to store user credentials (e.g., username and password).
-        final String SQL_CREATE_CREDENTIAL_TABLE = "CREATE TABLE " + CredentialEntry.TABLE_NAME + " (" +
+    // Table to store user credentials (e.g., username and password).
+    private static String createCredentialTable(String table) {
+        return "CREATE TABLE " + table + " (" +
                 CredentialEntry._ID + " INTEGER PRIMARY KEY," +
                 CredentialEntry.COLUMN_USER_ID + " TEXT UNIQUE NOT NULL, " +
                 CredentialEntry.COLUMN_USER_NAME + " TEXT, " +
                 CredentialEntry.COLUMN_PASSWORD + " TEXT, " +
-                CredentialEntry.COLUMN_LAST_LOGIN + " REAL, " +
-                CredentialEntry.COLUMN_USER_TYPE_VALUE + " REAL, " +
+                CredentialEntry.COLUMN_LAST_LOGIN + " INTEGER, " +
+                CredentialEntry.COLUMN_USER_TYPE_VALUE + " INTEGER, " +
                 "UNIQUE (" + CredentialEntry.COLUMN_USER_ID + ") ON CONFLICT REPLACE " +
                 " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_CREDENTIAL_TABLE);
-
-        // Create other tables for prescriptions, physicians, check-in logs, pain logs, etc.
-        final String SQL_CREATE_PRESCRIPTION_TABLE =
-                "CREATE TABLE " + PrescriptionEntry.TABLE_NAME + " (" +
-                        PrescriptionEntry._ID + " INTEGER PRIMARY KEY," +
-                        PrescriptionEntry.COLUMN_PATIENT_ID + " TEXT  NOT NULL, " +
-                        PrescriptionEntry.COLUMN_MEDICATION_ID + " TEXT NOT NULL, " +
-                        PrescriptionEntry.COLUMN_NAME + " TEXT NOT NULL, " +
-                        " UNIQUE (" + PrescriptionEntry.COLUMN_PATIENT_ID + ", "
-                        + PrescriptionEntry.COLUMN_MEDICATION_ID
-                        + ") ON CONFLICT IGNORE " +
-                        " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_PRESCRIPTION_TABLE);
-
-        final String SQL_CREATE_PHYSICIAN_TABLE =
-                "CREATE TABLE " + PhysicianEntry.TABLE_NAME + " (" +
-                        PhysicianEntry._ID + " INTEGER PRIMARY KEY," +
-                        PhysicianEntry.COLUMN_PATIENT_ID + " TEXT  NOT NULL, " +
-                        PhysicianEntry.COLUMN_PHYSICIAN_ID + " TEXT NOT NULL, " +
-                        PhysicianEntry.COLUMN_NAME + " TEXT NOT NULL, " +
-                        " UNIQUE (" + PhysicianEntry.COLUMN_PATIENT_ID + ", "
-                        + PhysicianEntry.COLUMN_PHYSICIAN_ID
-                        + ") ON CONFLICT IGNORE " +
-                        " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_PHYSICIAN_TABLE);
-
-        final String SQL_CREATE_CHECK_IN_LOG_TABLE =
-                "CREATE TABLE " + CheckInLogEntry.TABLE_NAME + " (" +
-                        CheckInLogEntry._ID + " INTEGER PRIMARY KEY," +
-                        CheckInLogEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
-                        CheckInLogEntry.COLUMN_CHECKIN_ID + " REAL, " +
-                        CheckInLogEntry.COLUMN_CREATED + " REAL NOT NULL, " +
-                        " UNIQUE (" + CheckInLogEntry.COLUMN_PATIENT_ID + ", "
-                        + CheckInLogEntry.COLUMN_CREATED
-                        + ") ON CONFLICT IGNORE " +
-                        " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_CHECK_IN_LOG_TABLE);
-
-        final String SQL_CREATE_PAIN_LOG_TABLE =
-                "CREATE TABLE " + PainLogEntry.TABLE_NAME + " (" +
-                        PainLogEntry._ID + " INTEGER PRIMARY KEY," +
-                        PainLogEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
-                        PainLogEntry.COLUMN_PAIN_LOG_ID + " BIGINT, " +
-                        PainLogEntry.COLUMN_SEVERITY + " INTEGER, " +
-                        PainLogEntry.COLUMN_EATING + " INTEGER, " +
-                        PainLogEntry.COLUMN_CHECKIN_ID + " REAL, " +
-                        PainLogEntry.COLUMN_CREATED + " REAL NOT NULL, " +
-                        " UNIQUE (" + PainLogEntry.COLUMN_PATIENT_ID + ", "
-                        + PainLogEntry.COLUMN_CREATED
-                        + ") ON CONFLICT IGNORE " +
-                        " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_PAIN_LOG_TABLE);
-
-        final String SQL_CREATE_MED_LOG_TABLE =
-                "CREATE TABLE " + MedLogEntry.TABLE_NAME + " (" +
-                        MedLogEntry._ID + " INTEGER PRIMARY KEY," +
-                        MedLogEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
-                        MedLogEntry.COLUMN_MED_ID + " BIGINT, " +
-                        MedLogEntry.COLUMN_MED_NAME + " TEXT NOT NULL, " +
-                        MedLogEntry.COLUMN_TAKEN + " REAL NOT NULL, " +
-                        MedLogEntry.COLUMN_CHECKIN_ID + " REAL, " +
-                        MedLogEntry.COLUMN_CREATED + " REAL NOT NULL, " +
-                        " UNIQUE (" + MedLogEntry.COLUMN_PATIENT_ID + ", "
-                        + MedLogEntry.COLUMN_CREATED
-                        + ") ON CONFLICT IGNORE " +
-                        " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_MED_LOG_TABLE);
-
-        final String SQL_CREATE_STATUS_LOG_TABLE =
-                "CREATE TABLE " + StatusLogEntry.TABLE_NAME + " (" +
-                        StatusLogEntry._ID + " INTEGER PRIMARY KEY," +
-                        StatusLogEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
-                        StatusLogEntry.COLUMN_STATUS_LOG_ID + " BIGINT, " +
-                        StatusLogEntry.COLUMN_NOTE + " TEXT, " +
-                        StatusLogEntry.COLUMN_IMAGE + " TEXT, " +
-                        StatusLogEntry.COLUMN_CREATED + " REAL NOT NULL, " +
-                        " UNIQUE (" + StatusLogEntry.COLUMN_PATIENT_ID + ", "
-                        + StatusLogEntry.COLUMN_CREATED
-                        + ") ON CONFLICT IGNORE " +
-                        " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_STATUS_LOG_TABLE);
-
-        final String SQL_CREATE_REMINDER_TABLE =
-                "CREATE TABLE " + ReminderEntry.TABLE_NAME + " (" +
-                        ReminderEntry._ID + " INTEGER PRIMARY KEY," +
-                        ReminderEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
-                        ReminderEntry.COLUMN_REMINDER_ID + " BIGINT, " +
-                        ReminderEntry.COLUMN_NAME + " TEXT, " +
-                        ReminderEntry.COLUMN_TYPE + " TEXT, " +
-                        ReminderEntry.COLUMN_DAY + " INTEGER, " +
-                        ReminderEntry.COLUMN_HOUR + " INTEGER, " +
-                        ReminderEntry.COLUMN_MINUTES + " INTEGER, " +
-                        ReminderEntry.COLUMN_CREATED + " REAL NOT NULL, " +
-                        ReminderEntry.COLUMN_ALARM + " TEXT, " +
-                        ReminderEntry.COLUMN_ON + " INTEGER  NOT NULL, " +
-                        " UNIQUE (" + ReminderEntry.COLUMN_PATIENT_ID + ", "
-                        + ReminderEntry.COLUMN_CREATED
-                        + ") ON CONFLICT REPLACE " +
-                        " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_REMINDER_TABLE);
-
-        final String SQL_CREATE_PREFS_TABLE =
-                "CREATE TABLE " + PrefsEntry.TABLE_NAME + " (" +
-                        PrefsEntry._ID + " INTEGER PRIMARY KEY," +
-                        PrefsEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
-                        PrefsEntry.COLUMN_PREF_ID + " BIGINT, " +
-                        PrefsEntry.COLUMN_NOTIFICATION + " INTEGER, " +
-                        PrefsEntry.COLUMN_TIMEZONE + " TEXT, " +
-                        PrefsEntry.COLUMN_CREATED + " REAL NOT NULL, " +
-                        " UNIQUE (" + PrefsEntry.COLUMN_PATIENT_ID + ", "
-                        + PrefsEntry.COLUMN_CREATED
-                        + ") ON CONFLICT IGNORE " +
-                        " );";
-        sqLiteDatabase.execSQL(SQL_CREATE_PREFS_TABLE);
     }
 
-    /**
-     * Called when the database needs to be upgraded.
-     * It drops the existing tables and recreates them with the updated schema.
-     *
-     * @param sqLiteDatabase The SQLite database.
-     * @param oldVersion     The old version of the database.
-     * @param newVersion     The new version of the database.
-     */
-    @Override
-    public void onUpgrade(SQLiteDatabase sqLiteDatabase, int oldVersion, int newVersion) {
-        // Drop all the existing tables.
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + PatientEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + CredentialEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + PrescriptionEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + PhysicianEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + CheckInLogEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + PainLogEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + MedLogEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + StatusLogEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + ReminderEntry.TABLE_NAME);
-        sqLiteDatabase.execSQL("DROP TABLE IF EXISTS " + PrefsEntry.TABLE_NAME);
-
-        // Recreate the tables with the updated schema.
-        onCreate(sqLiteDatabase);
+    private static String createPrescriptionTable(String table) {
+        return "CREATE TABLE " + table + " (" +
+                PrescriptionEntry._ID + " INTEGER PRIMARY KEY," +
+                PrescriptionEntry.COLUMN_PATIENT_ID + " TEXT  NOT NULL, " +
+                PrescriptionEntry.COLUMN_MEDICATION_ID + " TEXT NOT NULL, " +
+                PrescriptionEntry.COLUMN_NAME + " TEXT NOT NULL, " +
+                " UNIQUE (" + PrescriptionEntry.COLUMN_PATIENT_ID + ", "
+                + PrescriptionEntry.COLUMN_MEDICATION_ID
+                + ") ON CONFLICT IGNORE " +
+                " );";
+    }
+
+    private static String createPhysicianTable(String table) {
+        return "CREATE TABLE " + table + " (" +
+                PhysicianEntry._ID + " INTEGER PRIMARY KEY," +
+                PhysicianEntry.COLUMN_PATIENT_ID + " TEXT  NOT NULL, " +
+                PhysicianEntry.COLUMN_PHYSICIAN_ID + " TEXT NOT NULL, " +
+                PhysicianEntry.COLUMN_NAME + " TEXT NOT NULL, " +
+                " UNIQUE (" + PhysicianEntry.COLUMN_PATIENT_ID + ", "
+                + PhysicianEntry.COLUMN_PHYSICIAN_ID
+                + ") ON CONFLICT IGNORE " +
+                " );";
+    }
+
+    private static String createCheckInLogTable(String table) {
+        return "CREATE TABLE " + table + " (" +
+                CheckInLogEntry._ID + " INTEGER PRIMARY KEY," +
+                CheckInLogEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
+                CheckInLogEntry.COLUMN_CHECKIN_ID + " INTEGER, " +
+                CheckInLogEntry.COLUMN_CREATED + " INTEGER NOT NULL, " +
+                " UNIQUE (" + CheckInLogEntry.COLUMN_PATIENT_ID + ", "
+                + CheckInLogEntry.COLUMN_CREATED
+                + ") ON CONFLICT IGNORE " +
+                " );";
+    }
+
+    private static String createPainLogTable(String table) {
+        return "CREATE TABLE " + table + " (" +
+                PainLogEntry._ID + " INTEGER PRIMARY KEY," +
+                PainLogEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
+                PainLogEntry.COLUMN_PAIN_LOG_ID + " BIGINT, " +
+                PainLogEntry.COLUMN_SEVERITY + " INTEGER, " +
+                PainLogEntry.COLUMN_EATING + " INTEGER, " +
+                PainLogEntry.COLUMN_CHECKIN_ID + " INTEGER, " +
+                PainLogEntry.COLUMN_CREATED + " INTEGER NOT NULL, " +
+                " UNIQUE (" + PainLogEntry.COLUMN_PATIENT_ID + ", "
+                + PainLogEntry.COLUMN_CREATED
+                + ") ON CONFLICT IGNORE " +
+                " );";
+    }
+
+    private static String createMedLogTable(String table) {
+        return "CREATE TABLE " + table + " (" +
+                MedLogEntry._ID + " INTEGER PRIMARY KEY," +
+                MedLogEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
+                MedLogEntry.COLUMN_MED_ID + " BIGINT, " +
+                MedLogEntry.COLUMN_MED_NAME + " TEXT NOT NULL, " +
+                MedLogEntry.COLUMN_TAKEN + " INTEGER NOT NULL, " +
+                MedLogEntry.COLUMN_CHECKIN_ID + " INTEGER, " +
+                MedLogEntry.COLUMN_CREATED + " INTEGER NOT NULL, " +
+                " UNIQUE (" + MedLogEntry.COLUMN_PATIENT_ID + ", "
+                + MedLogEntry.COLUMN_CREATED
+                + ") ON CONFLICT IGNORE " +
+                " );";
+    }
+
+    private static String createStatusLogTable(String table) {
+        return "CREATE TABLE " + table + " (" +
+                StatusLogEntry._ID + " INTEGER PRIMARY KEY," +
+                StatusLogEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
+                StatusLogEntry.COLUMN_STATUS_LOG_ID + " BIGINT, " +
+                StatusLogEntry.COLUMN_NOTE + " TEXT, " +
+                StatusLogEntry.COLUMN_IMAGE + " TEXT, " +
+                StatusLogEntry.COLUMN_CREATED + " INTEGER NOT NULL, " +
+                " UNIQUE (" + StatusLogEntry.COLUMN_PATIENT_ID + ", "
+                + StatusLogEntry.COLUMN_CREATED
+                + ") ON CONFLICT IGNORE " +
+                " );";
+    }
+
+    private static String createReminderTable(String table) {
+        return "CREATE TABLE " + table + " (" +
+                ReminderEntry._ID + " INTEGER PRIMARY KEY," +
+                ReminderEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
+                ReminderEntry.COLUMN_REMINDER_ID + " BIGINT, " +
+                ReminderEntry.COLUMN_NAME + " TEXT, " +
+                ReminderEntry.COLUMN_TYPE + " TEXT, " +
+                ReminderEntry.COLUMN_DAY + " INTEGER, " +
+                ReminderEntry.COLUMN_HOUR + " INTEGER, " +
+                ReminderEntry.COLUMN_MINUTES + " INTEGER, " +
+                ReminderEntry.COLUMN_CREATED + " INTEGER NOT NULL, " +
+                ReminderEntry.COLUMN_ALARM + " TEXT, " +
+                ReminderEntry.COLUMN_ON + " INTEGER  NOT NULL, " +
+                " UNIQUE (" + ReminderEntry.COLUMN_PATIENT_ID + ", "
+                + ReminderEntry.COLUMN_CREATED
+                + ") ON CONFLICT REPLACE " +
+                " );";
+    }
+
+    private static String createPrefsTable(String table) {
+        return "CREATE TABLE " + table + " (" +
+                PrefsEntry._ID + " INTEGER PRIMARY KEY," +
+                PrefsEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
+                PrefsEntry.COLUMN_PREF_ID + " BIGINT, " +
+                PrefsEntry.COLUMN_NOTIFICATION + " INTEGER, " +
+                PrefsEntry.COLUMN_TIMEZONE + " TEXT, " +
+                PrefsEntry.COLUMN_CREATED + " INTEGER NOT NULL, " +
+                " UNIQUE (" + PrefsEntry.COLUMN_PATIENT_ID + ", "
+                + PrefsEntry.COLUMN_CREATED
+                + ") ON CONFLICT IGNORE " +
+                " );";
+    }
+
+    private static String createPatientCacheTable(String table) {
+        return "CREATE TABLE " + table + " (" +
+                PatientCacheEntry._ID + " INTEGER PRIMARY KEY," +
+                PatientCacheEntry.COLUMN_PATIENT_ID + " TEXT NOT NULL, " +
+                PatientCacheEntry.COLUMN_VERSION + " INTEGER, " +
+                PatientCacheEntry.COLUMN_RECORD + " TEXT NOT NULL, " +
+                PatientCacheEntry.COLUMN_LAST_ACCESS + " INTEGER NOT NULL, " +
+                " UNIQUE (" + PatientCacheEntry.COLUMN_PATIENT_ID + ") ON CONFLICT REPLACE " +
+                " );";
     }
 }
@@ -1,17 +1,23 @@
 package com.example.symptommanagement.data;
 
 
+import android.content.ContentProviderOperation;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.database.SQLException;
 import android.net.Uri;
+import android.os.RemoteException;
 import android.util.Log;
 import com.example.symptommanagement.LoginUtility;
 import com.example.symptommanagement.patient.Reminder.ReminderManager;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.Vector;
 
@@ -19,6 +25,13 @@ public class PatientDataManager {
 
     private final static String LOG_TAG = PatientDataManager.class.getSimpleName();
 
+    // every log table names its patient and created columns the same way
+    private final static String LOG_SELECTION = PatientCPContract.PainLogEntry.COLUMN_PATIENT_ID + " = ? AND "
+            + PatientCPContract.PainLogEntry.COLUMN_CREATED + " > ?";
+
+    // enough to count the matching rows
+    private final static String[] ID_PROJECTION = {PatientCPContract.ReminderEntry._ID};
+
     /**
      * This method is important to saving patient data from the cloud to CP
      * Not currently saving or updating all the information ...
@@ -27,8 +40,9 @@ public class PatientDataManager {
      *
      * @param context
      * @param patient
+     * @return the number of new logs inserted
      */
-    public static synchronized void processPatientToCP(Context context, Patient patient) {
+    public static synchronized int processPatientToCP(Context context, Patient patient) {
         storePatient(context, patient);
 
         // put the prescriptions in the CP (could have been changed by Physician)
@@ -42,7 +56,10 @@ public class PatientDataManager {
         // ... this could have been changed on another device
         // This works OK because logs are insert only no editing/updating
         // just combine the device and the cloud logs together.
-        updateLogsToCP(context, patient);
+        // Every cloud log is offered to the insert, a late log created before the newest one stored here
+        // (uploaded from another device or after being offline) must still be added. The duplicates are
+        // ignored by the UNIQUE constraint of each log table.
+        int inserted = updateLogsToCP(context, patient);
 
         // what about reminders... this is a catch 22 since they can be edited on the device
         // we can't just insert / update cloud data because it can lose changes
@@ -65,6 +82,7 @@ public class PatientDataManager {
         // we aren't using the prefs either so not bothering to update them  ..  these have the
         // same problem that the reminders have and the local storage should
         // rule over the cloud storage
+        return inserted;
     }
 
     /**
@@ -75,12 +93,25 @@ public class PatientDataManager {
      * @param patient
      */
     public synchronized static void processCPtoPatient(Context mContext, Patient patient) {
+        processCPtoPatient(mContext, patient, 0);
+    }
+
+    /**
+     * Same as {@link #processCPtoPatient(Context, Patient)}, but sends at most the given number of the
+     * oldest new logs of each table, the rest go with the following syncs.
+     *
+     * @param mContext
+     * @param patient
+     * @param maxLogs  the most logs sent per table, 0 sends them all
+     */
+    public synchronized static void processCPtoPatient(Context mContext, Patient patient, int maxLogs) {
 
         // updating the last login information in case it has changed
         updateLastLoginFromCP(mContext, patient);
 
-        // updating the logs
-        getLogsFromCP(mContext, patient);
+        // updating the logs, only the ones that have not been uploaded yet are sent
+        // the cloud keeps the logs it already has when it merges the update
+        getNewLogsFromCP(mContext, patient, maxLogs);
 
         // updating reminders which are stored in the prefs
         if (patient.getPrefs() == null) patient.setPrefs(new PatientPrefs());
@@ -88,99 +119,175 @@ public class PatientDataManager {
     }
 
     public static synchronized void getLogsFromCP(Context context, Patient patient) {
-        patient.setCheckinLog(getUpdatedCheckInLogs(context, patient.getId()));
-        patient.setPainLog(getUpdatedPainLogs(context, patient.getId()));
-        patient.setMedLog(getUpdatedMedLogs(context, patient.getId()));
-        patient.setStatusLog(getUpdatedStatusLogs(context, patient.getId()));
+        patient.setCheckinLog(getUpdatedCheckInLogs(context, patient.getId(), 0L, 0));
+        patient.setPainLog(getUpdatedPainLogs(context, patient.getId(), 0L, 0));
+        patient.setMedLog(getUpdatedMedLogs(context, patient.getId(), 0L, 0));
+        patient.setStatusLog(getUpdatedStatusLogs(context, patient.getId(), 0L, 0));
     }
 
-    private static synchronized Set<CheckInLog> getUpdatedCheckInLogs(Context context, String id) {
-        Set<CheckInLog> logs = new HashSet<CheckInLog>();
-        String selection = PatientCPContract.CheckInLogEntry.COLUMN_PATIENT_ID + "=" + "\'" + id + "\'";
-        Cursor cursor = context.getContentResolver().query(
-                PatientCPContract.CheckInLogEntry.CONTENT_URI, null, selection, null, null);
-        while (cursor.moveToNext()) {
-            CheckInLog log = new CheckInLog();
-            log.setCheckinId(cursor.getLong(cursor.getColumnIndex(PatientCPContract.CheckInLogEntry.COLUMN_CHECKIN_ID)));
-            log.setCreated(cursor.getLong(cursor.getColumnIndex(PatientCPContract.CheckInLogEntry.COLUMN_CREATED)));
-            logs.add(log);
-        }
-        cursor.close();
-        return logs;
+    /**
+     * Loads only the logs created after the upload high-water mark of each table, these are the
+     * logs the cloud has not received yet.
+     *
+     * @param context
+     * @param patient
+     */
+    public static synchronized void getNewLogsFromCP(Context context, Patient patient) {
+        getNewLogsFromCP(context, patient, 0);
     }
 
-    private static synchronized Set<PainLog> getUpdatedPainLogs(Context context, String id) {
-        Set<PainLog> logs = new HashSet<PainLog>();
-        String selection = PatientCPContract.PainLogEntry.COLUMN_PATIENT_ID + "=" + "\'" + id + "\'";
-        Cursor cursor = context.getContentResolver().query(
-                PatientCPContract.PainLogEntry.CONTENT_URI, null, selection, null, null);
-        while (cursor.moveToNext()) {
-            PainLog log = new PainLog();
-            log.setEating(PainLog.Eating.findByValue(cursor.getInt(cursor.getColumnIndex(PatientCPContract.PainLogEntry.COLUMN_EATING))));
-            log.setSeverity(PainLog.Severity.findByValue(cursor.getInt(cursor.getColumnIndex(PatientCPContract.PainLogEntry.COLUMN_SEVERITY))));
-            log.setCheckinId(cursor.getLong(cursor.getColumnIndex(PatientCPContract.PainLogEntry.COLUMN_CHECKIN_ID)));
-            log.setCreated(cursor.getLong(cursor.getColumnIndex(PatientCPContract.PainLogEntry.COLUMN_CREATED)));
-            logs.add(log);
-        }
-        cursor.close();
-        return logs;
+    /**
+     * Loads at most the given number of logs created after the upload high-water mark of each table,
+     * oldest first. The mark only moves past the logs that were sent, so the next sync continues
+     * with the ones left out.
+     *
+     * @param context
+     * @param patient
+     * @param maxLogs the most logs loaded per table, 0 loads them all
+     */
+    public static synchronized void getNewLogsFromCP(Context context, Patient patient, int maxLogs) {
+        String id = patient.getId();
+        patient.setCheckinLog(getUpdatedCheckInLogs(context, id,
+                getUploadMark(context, id, PatientCPContract.CheckInLogEntry.TABLE_NAME), maxLogs));
+        patient.setPainLog(getUpdatedPainLogs(context, id,
+                getUploadMark(context, id, PatientCPContract.PainLogEntry.TABLE_NAME), maxLogs));
+        patient.setMedLog(getUpdatedMedLogs(context, id,
+                getUploadMark(context, id, PatientCPContract.MedLogEntry.TABLE_NAME), maxLogs));
+        patient.setStatusLog(getUpdatedStatusLogs(context, id,
+                getUploadMark(context, id, PatientCPContract.StatusLogEntry.TABLE_NAME), maxLogs));
     }
 
-    private static synchronized Set<MedicationLog> getUpdatedMedLogs(Context context, String id) {
-        Set<MedicationLog> logs = new HashSet<MedicationLog>();
-        String selection = PatientCPContract.MedLogEntry.COLUMN_PATIENT_ID + "=" + "\'" + id + "\'";
-        Cursor cursor = context.getContentResolver().query(
-                PatientCPContract.MedLogEntry.CONTENT_URI, null, selection, null, null);
-        while (cursor.moveToNext()) {
-            MedicationLog log = new MedicationLog();
-            log.setMed(new Medication());
-            log.getMed().setId(cursor.getString(cursor.getColumnIndex(PatientCPContract.MedLogEntry.COLUMN_MED_ID)));
-            log.getMed().setName(cursor.getString(cursor.getColumnIndex(PatientCPContract.MedLogEntry.COLUMN_MED_NAME)));
-            log.setTaken(cursor.getLong(cursor.getColumnIndex(PatientCPContract.MedLogEntry.COLUMN_TAKEN)));
-            log.setCheckinId(cursor.getLong(cursor.getColumnIndex(PatientCPContract.MedLogEntry.COLUMN_CHECKIN_ID)));
-            log.setCreated(cursor.getLong(cursor.getColumnIndex(PatientCPContract.MedLogEntry.COLUMN_CREATED)));
-            logs.add(log);
-        }
+    /**
+     * Checks if any log of a patient has not been uploaded yet, without loading the logs.
+     *
+     * @param context
+     * @param id      the patient id
+     * @return true if there are logs to upload
+     */
+    public static synchronized boolean hasNewLogs(Context context, String id) {
+        if (id == null || id.isEmpty()) return false;
+        return hasLogsSince(context, PatientCPContract.CheckInLogEntry.CONTENT_URI, id,
+                getUploadMark(context, id, PatientCPContract.CheckInLogEntry.TABLE_NAME))
+                || hasLogsSince(context, PatientCPContract.PainLogEntry.CONTENT_URI, id,
+                getUploadMark(context, id, PatientCPContract.PainLogEntry.TABLE_NAME))
+                || hasLogsSince(context, PatientCPContract.MedLogEntry.CONTENT_URI, id,
+                getUploadMark(context, id, PatientCPContract.MedLogEntry.TABLE_NAME))
+                || hasLogsSince(context, PatientCPContract.StatusLogEntry.CONTENT_URI, id,
+                getUploadMark(context, id, PatientCPContract.StatusLogEntry.TABLE_NAME));
+    }
+
+    private static boolean hasLogsSince(Context context, Uri uri, String id, long since) {
+        Cursor cursor = context.getContentResolver()
+                .query(uri, ID_PROJECTION, LOG_SELECTION, createLogSelectionArgs(id, since), createLogSortOrder(1));
+        if (cursor == null) return false;
+        boolean found = cursor.getCount() > 0;
         cursor.close();
-        return logs;
+        return found;
     }
 
-    private static synchronized Set<StatusLog> getUpdatedStatusLogs(Context context, String id) {
-        Set<StatusLog> logs = new HashSet<StatusLog>();
-        String selection = PatientCPContract.StatusLogEntry.COLUMN_PATIENT_ID + "=" + "\'" + id + "\'";
-        Cursor cursor = context.getContentResolver().query(
-                PatientCPContract.StatusLogEntry.CONTENT_URI, null, selection, null, null);
-        while (cursor.moveToNext()) {
-            StatusLog log = new StatusLog();
-            log.setNote(cursor.getString(cursor.getColumnIndex(PatientCPContract.StatusLogEntry.COLUMN_NOTE)));
-            log.setImage_location(cursor.getString(cursor.getColumnIndex(PatientCPContract.StatusLogEntry.COLUMN_IMAGE)));
-            log.setCreated(cursor.getLong(cursor.getColumnIndex(PatientCPContract.StatusLogEntry.COLUMN_CREATED)));
-            logs.add(log);
+    /**
+     * Moves the upload high-water marks past the logs of a patient record the cloud has accepted.
+     * Call this only after the upload succeeded, otherwise the logs would never be sent again.
+     *
+     * @param context
+     * @param patient the patient record that was uploaded
+     */
+    public static synchronized void recordLogsUploaded(Context context, Patient patient) {
+        String id = patient.getId();
+        long newest = 0L;
+        if (patient.getCheckinLog() != null) {
+            for (CheckInLog l : patient.getCheckinLog()) newest = Math.max(newest, l.getCreated());
         }
-        cursor.close();
-        return logs;
+        advanceUploadMark(context, id, PatientCPContract.CheckInLogEntry.TABLE_NAME, newest);
+        newest = 0L;
+        if (patient.getPainLog() != null) {
+            for (PainLog l : patient.getPainLog()) newest = Math.max(newest, l.getCreated());
+        }
+        advanceUploadMark(context, id, PatientCPContract.PainLogEntry.TABLE_NAME, newest);
+        newest = 0L;
+        if (patient.getMedLog() != null) {
+            for (MedicationLog l : patient.getMedLog()) newest = Math.max(newest, l.getCreated());
+        }
+        advanceUploadMark(context, id, PatientCPContract.MedLogEntry.TABLE_NAME, newest);
+        newest = 0L;
+        if (patient.getStatusLog() != null) {
+            for (StatusLog l : patient.getStatusLog()) newest = Math.max(newest, l.getCreated());
+        }
+        advanceUploadMark(context, id, PatientCPContract.StatusLogEntry.TABLE_NAME, newest);
+    }
+
+    private static long getUploadMark(Context context, String id, String table) {
+        return SyncWatermarks.get(context, id, table, SyncWatermarks.Direction.UPLOAD);
+    }
+
+    private static void advanceUploadMark(Context context, String id, String table, long created) {
+        SyncWatermarks.advance(context, id, table, SyncWatermarks.Direction.UPLOAD, created);
+    }
+
+    private static String[] createLogSelectionArgs(String id, long since) {
+        return new String[]{id, Long.toString(since)};
+    }
+
+    // the content provider hands the sort order to the database as it is, so it can carry the limit
+    private static String createLogSortOrder(int limit) {
+        if (limit <= 0) return null;
+        return PatientCPContract.PainLogEntry.COLUMN_CREATED + " ASC LIMIT " + limit;
+    }
+
+    private static synchronized Set<CheckInLog> getUpdatedCheckInLogs(Context context, String id, long since,
+                                                                      int limit) {
+        return PatientCPRowMapper.CHECK_IN_LOG.queryInto(context.getContentResolver(),
+                PatientCPContract.CheckInLogEntry.CONTENT_URI, LOG_SELECTION, createLogSelectionArgs(id, since),
+                createLogSortOrder(limit), new HashSet<CheckInLog>());
+    }
+
+    private static synchronized Set<PainLog> getUpdatedPainLogs(Context context, String id, long since,
+                                                                int limit) {
+        return PatientCPRowMapper.PAIN_LOG.queryInto(context.getContentResolver(),
+                PatientCPContract.PainLogEntry.CONTENT_URI, LOG_SELECTION, createLogSelectionArgs(id, since),
+                createLogSortOrder(limit), new HashSet<PainLog>());
+    }
+
+    private static synchronized Set<MedicationLog> getUpdatedMedLogs(Context context, String id, long since,
+                                                                     int limit) {
+        return PatientCPRowMapper.MED_LOG.queryInto(context.getContentResolver(),
+                PatientCPContract.MedLogEntry.CONTENT_URI, LOG_SELECTION, createLogSelectionArgs(id, since),
+                createLogSortOrder(limit), new HashSet<MedicationLog>());
+    }
+
+    private static synchronized Set<StatusLog> getUpdatedStatusLogs(Context context, String id, long since,
+                                                                    int limit) {
+        return PatientCPRowMapper.STATUS_LOG.queryInto(context.getContentResolver(),
+                PatientCPContract.StatusLogEntry.CONTENT_URI, LOG_SELECTION, createLogSelectionArgs(id, since),
+                createLogSortOrder(limit), new HashSet<StatusLog>());
+    }
+
+    /**
+     * Finds the status logs with an image created after a time, oldest first, so their images can be
+     * uploaded in order.
+     *
+     * @param context
+     * @param id      the patient id
+     * @param since   the creation time of the last image uploaded
+     * @return the status logs with an image
+     */
+    public static synchronized List<StatusLog> findStatusImagesSince(Context context, String id, long since) {
+        return PatientCPRowMapper.STATUS_LOG.queryInto(context.getContentResolver(),
+                PatientCPContract.StatusLogEntry.CONTENT_URI,
+                LOG_SELECTION + " AND " + PatientCPContract.StatusLogEntry.COLUMN_IMAGE + " <> ''",
+                createLogSelectionArgs(id, since),
+                PatientCPContract.StatusLogEntry.COLUMN_CREATED + " ASC", new ArrayList<StatusLog>());
     }
 
     // if we don't have internet but patient has been logged in on this device previously we can keep working
     public static synchronized UserCredential getUserCredentials(Context context, String id) {
         if (id == null || id.isEmpty()) return null;
-        UserCredential credential = null;
-        String selection = PatientCPContract.CredentialEntry.COLUMN_USER_ID + "=" + "\'" + id + "\'";
-        Cursor cursor = context.getContentResolver().query(
-                PatientCPContract.CredentialEntry.CONTENT_URI, null, selection, null, null);
-        if (cursor.moveToNext()) {
-            credential = new UserCredential();
-            credential.setDbId(cursor.getLong(cursor.getColumnIndex(PatientCPContract.CredentialEntry._ID)));
-            credential.setUserId(cursor.getString(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_USER_ID)));
-            credential.setUserName(cursor.getString(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_USER_NAME)));
-            credential.setUserRoleValue(cursor.getInt(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_USER_TYPE_VALUE)));
-            credential.setLastLogin(cursor.getLong(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_LAST_LOGIN)));
-            credential.setPassword(cursor.getString(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_PASSWORD)));
-            credential.setPassword("pass");  //TODO: check why password is not saved?
-            credential.setUserRole(UserCredential.UserRole.findByValue(credential.getUserRoleValue()));
+        UserCredential credential = PatientCPRowMapper.CREDENTIAL.queryFirst(context.getContentResolver(),
+                PatientCPContract.CredentialEntry.CONTENT_URI,
+                PatientCPContract.CredentialEntry.COLUMN_USER_ID + " = ?", new String[]{id});
+        if (credential != null) {
             Log.d(LOG_TAG, "This credential is what we are working with now OKEY DOKEY.." + credential.toString());
         }
-        cursor.close();
         return credential;
     }
 
@@ -189,34 +296,18 @@ public class PatientDataManager {
         if (username == null || username.isEmpty() || password == null || password.isEmpty())
             return null;
         Log.d(LOG_TAG, "... Inputs are good.. now doing a query.");
-        UserCredential credential = null;
-        // get all the stored credentials on this device .. should not be significant number
-        Cursor cursor = context.getContentResolver().query(
-                PatientCPContract.CredentialEntry.CONTENT_URI, null, null, null, null);
-        while (cursor.moveToNext()) {
-            credential = new UserCredential();
-            credential.setDbId(cursor.getLong(cursor.getColumnIndex(PatientCPContract.CredentialEntry._ID)));
-            credential.setUserId(cursor.getString(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_USER_ID)));
-            credential.setUserName(cursor.getString(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_USER_NAME)));
-            credential.setUserRoleValue(cursor.getInt(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_USER_TYPE_VALUE)));
-            credential.setLastLogin(cursor.getLong(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_LAST_LOGIN)));
-            credential.setPassword(cursor.getString(cursor.getColumnIndex(PatientCPContract.CredentialEntry.COLUMN_PASSWORD)));
-            credential.setPassword("pass");  //TODO: check why password is not saved?
-            credential.setUserRole(UserCredential.UserRole.findByValue(credential.getUserRoleValue()));
-            // find input has a match in the CP
-            Log.d(LOG_TAG, "Checking this credential ... " + credential.toString());
-            if (credential.getUserName().toLowerCase().contentEquals(username.toLowerCase())) {
-                Log.d(LOG_TAG, "Credential User name matches.. " + credential.getUserName());
-                //if(credential.getPassword().contentEquals(password)) {
-                //Log.d(LOG_TAG, "Password matches ... " + credential.getPassword());
-                // TODO: remove this debug before putting out there
-                return credential;
-                // }
-            } else {
-                Log.d(LOG_TAG, "Credential Not a match for username and password.");
-            }
+        // user names are matched ignoring case, the NOCASE index makes this a single row lookup
+        UserCredential credential = PatientCPRowMapper.CREDENTIAL.queryFirst(context.getContentResolver(),
+                PatientCPContract.CredentialEntry.CONTENT_URI,
+                PatientCPContract.CredentialEntry.COLUMN_USER_NAME + " = ? COLLATE NOCASE", new String[]{username});
+        if (credential != null) {
+            Log.d(LOG_TAG, "Credential User name matches.. " + credential.getUserName());
+            //if(credential.getPassword().contentEquals(password)) {
+            //Log.d(LOG_TAG, "Password matches ... " + credential.getPassword());
+            // TODO: remove this debug before putting out there
+        } else {
+            Log.d(LOG_TAG, "No stored credential matches this username.");
         }
-        cursor.close();
         return credential;
     }
 
@@ -229,85 +320,89 @@ public class PatientDataManager {
         Log.d(LOG_TAG, "New Credential Inserted in local DB Id is : " + Long.toString(objectId));
     }
 
-    private synchronized static void updateLogsToCP(Context context, Patient patient) {
+    private synchronized static int updateLogsToCP(Context context, Patient patient) {
         Log.d(LOG_TAG, "Updating patient LOGs to CP ...id is : " + patient.getId());
-        updateCheckInLogToCP(context, patient);
-        updatePainLogToCP(context, patient);
-        updateMedLogToCP(context, patient);
-        updateStatusLogToCP(context, patient);
+        return updateCheckInLogToCP(context, patient)
+                + updatePainLogToCP(context, patient)
+                + updateMedLogToCP(context, patient)
+                + updateStatusLogToCP(context, patient);
     }
 
-    private synchronized static void updateCheckInLogToCP(Context context, Patient patient) {
-        if (patient.getCheckinLog() == null) return;
+    private synchronized static int updateCheckInLogToCP(Context context, Patient patient) {
+        if (patient.getCheckinLog() == null) return 0;
         String id = patient.getId();
+        long since = LogRetention.getCutoff(context);
         Vector<ContentValues> cVVector = new Vector<ContentValues>(patient.getCheckinLog().size());
         for (CheckInLog p : patient.getCheckinLog()) {
+            // logs older than the retention window are left in the cloud
+            if (p.getCreated() <= since) continue;
             ContentValues cv = PatientCPcvHelper.createValuesObject(id, p);
             cVVector.add(cv);
         }
+        if (cVVector.isEmpty()) return 0;
         ContentValues[] cvArray = new ContentValues[cVVector.size()];
         cVVector.toArray(cvArray);
-        context.getContentResolver().bulkInsert(PatientCPContract.CheckInLogEntry.CONTENT_URI, cvArray);
+        return context.getContentResolver().bulkInsert(PatientCPContract.CheckInLogEntry.CONTENT_URI, cvArray);
     }
 
-    private synchronized static void updatePainLogToCP(Context context, Patient patient) {
-        if (patient.getPainLog() == null) return;
+    private synchronized static int updatePainLogToCP(Context context, Patient patient) {
+        if (patient.getPainLog() == null) return 0;
         String id = patient.getId();
+        long since = LogRetention.getCutoff(context);
         Vector<ContentValues> cVVector = new Vector<ContentValues>(patient.getPainLog().size());
         for (PainLog p : patient.getPainLog()) {
+            // logs older than the retention window are left in the cloud
+            if (p.getCreated() <= since) continue;
             ContentValues cv = PatientCPcvHelper.createValuesObject(id, p);
             cVVector.add(cv);
         }
+        if (cVVector.isEmpty()) return 0;
         ContentValues[] cvArray = new ContentValues[cVVector.size()];
         cVVector.toArray(cvArray);
-        context.getContentResolver().bulkInsert(PatientCPContract.PainLogEntry.CONTENT_URI, cvArray);
+        return context.getContentResolver().bulkInsert(PatientCPContract.PainLogEntry.CONTENT_URI, cvArray);
     }
 
-    private synchronized static void updateMedLogToCP(Context context, Patient patient) {
-        if (patient.getMedLog() == null) return;
+    private synchronized static int updateMedLogToCP(Context context, Patient patient) {
+        if (patient.getMedLog() == null) return 0;
         String id = patient.getId();
+        long since = LogRetention.getCutoff(context);
         Vector<ContentValues> cVVector = new Vector<ContentValues>(patient.getMedLog().size());
         for (MedicationLog l : patient.getMedLog()) {
+            // logs older than the retention window are left in the cloud
+            if (l.getCreated() <= since) continue;
             ContentValues cv = PatientCPcvHelper.createValuesObject(id, l);
             cVVector.add(cv);
         }
+        if (cVVector.isEmpty()) return 0;
         ContentValues[] cvArray = new ContentValues[cVVector.size()];
         cVVector.toArray(cvArray);
-        context.getContentResolver().bulkInsert(PatientCPContract.MedLogEntry.CONTENT_URI, cvArray);
+        return context.getContentResolver().bulkInsert(PatientCPContract.MedLogEntry.CONTENT_URI, cvArray);
     }
 
-    private synchronized static void updateStatusLogToCP(Context context, Patient patient) {
-        if (patient.getStatusLog() == null) return;
+    private synchronized static int updateStatusLogToCP(Context context, Patient patient) {
+        if (patient.getStatusLog() == null) return 0;
         String id = patient.getId();
+        long since = LogRetention.getCutoff(context);
         Vector<ContentValues> cVVector = new Vector<ContentValues>(patient.getStatusLog().size());
         for (StatusLog l : patient.getStatusLog()) {
+            // logs older than the retention window are left in the cloud
+            if (l.getCreated() <= since) continue;
             ContentValues cv = PatientCPcvHelper.createValuesObject(id, l);
             cVVector.add(cv);
         }
+        if (cVVector.isEmpty()) return 0;
         ContentValues[] cvArray = new ContentValues[cVVector.size()];
         cVVector.toArray(cvArray);
         // db ensures that there are not duplicates
-        context.getContentResolver().bulkInsert(PatientCPContract.StatusLogEntry.CONTENT_URI, cvArray);
+        return context.getContentResolver().bulkInsert(PatientCPContract.StatusLogEntry.CONTENT_URI, cvArray);
     }
 
     public static synchronized Collection<Reminder> loadReminderList(Context context, String id) {
-        Collection<Reminder> reminders = new HashSet<Reminder>();
         // search the local storage for the item id
-        String selection = PatientCPContract.PatientEntry.COLUMN_PATIENT_ID + "=" + "\'" + id + "\'";
-        Cursor cursor = context.getContentResolver()
-                .query(PatientCPContract.ReminderEntry.CONTENT_URI, null, selection, null, null);
-        while (cursor.moveToNext()) {
-            Reminder item = new Reminder();
-            item.setDbId(cursor.getLong(cursor.getColumnIndex(PatientCPContract.ReminderEntry._ID)));
-            item.setName(cursor.getString(cursor.getColumnIndex(PatientCPContract.ReminderEntry.COLUMN_NAME)));
-            item.setHour(cursor.getInt(cursor.getColumnIndex(PatientCPContract.ReminderEntry.COLUMN_HOUR)));
-            item.setMinutes(cursor.getInt(cursor.getColumnIndex(PatientCPContract.ReminderEntry.COLUMN_MINUTES)));
-            item.setOn((cursor.getInt(cursor.getColumnIndex(PatientCPContract.ReminderEntry.COLUMN_ON)) == 0 ? false : true));
-            item.setCreated(cursor.getLong(cursor.getColumnIndex(PatientCPContract.ReminderEntry.COLUMN_CREATED)));
-            reminders.add(item);
-        }
-        cursor.close();
-        return reminders;
+        return PatientCPRowMapper.REMINDER.queryInto(context.getContentResolver(),
+                PatientCPContract.ReminderEntry.CONTENT_URI,
+                PatientCPContract.ReminderEntry.COLUMN_PATIENT_ID + " = ?", new String[]{id},
+                null, new HashSet<Reminder>());
     }
 
     public static synchronized Collection<Reminder> loadSortedReminderList(Context context, String id) {
@@ -326,9 +421,11 @@ public class PatientDataManager {
         }
 
         String id = patient.getId();
+        // One query for the reminders already on the device instead of one per reminder
+        Set<Long> onDevice = findReminderCreatedTimes(context, id);
         Vector<ContentValues> cVVector = new Vector<ContentValues>(patient.getPrefs().getAlerts().size());
         for (Reminder r : patient.getPrefs().getAlerts()) {
-            if (isReminderInCP(context, r)) {
+            if (r.getCreated() > 0 && onDevice.contains(r.getCreated())) {
                 updateSingleReminder(context, patient.getId(), r);
             } else {
                 ContentValues cv = PatientCPcvHelper.createInsertValuesObject(id, r);
@@ -340,14 +437,41 @@ public class PatientDataManager {
             cVVector.toArray(cvArray);
             context.getContentResolver().bulkInsert(PatientCPContract.ReminderEntry.CONTENT_URI, cvArray);
         }
+        if (id.equals(LoginUtility.getLoginId(context))) {
+            // Schedule the reminders of the logged in patient that were copied to the device
+            ReminderManager.startPatientReminders(context, id);
+        }
+    }
+
+    /**
+     * Finds the creation times of the reminders of a patient stored on the device.
+     *
+     * @param context
+     * @param id      the patient id
+     * @return the creation times of the reminders
+     */
+    private static Set<Long> findReminderCreatedTimes(Context context, String id) {
+        Set<Long> created = new HashSet<>();
+        Cursor cursor = context.getContentResolver().query(PatientCPContract.ReminderEntry.CONTENT_URI,
+                new String[]{PatientCPContract.ReminderEntry.COLUMN_CREATED},
+                PatientCPContract.ReminderEntry.COLUMN_PATIENT_ID + " = ?", new String[]{id}, null);
+        if (cursor == null) return created;
+        try {
+            while (cursor.moveToNext()) {
+                created.add(cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        return created;
     }
 
     public static synchronized boolean isReminderInCP(Context context, Reminder reminder) {
         if (reminder == null || reminder.getCreated() <= 0) return false;
-        String selection = PatientCPContract.ReminderEntry.COLUMN_CREATED + "=" + "\'"
-                + reminder.getCreated() + "\'";
+        String selection = PatientCPContract.ReminderEntry.COLUMN_CREATED + " = ?";
         Cursor cursor = context.getContentResolver()
-                .query(PatientCPContract.ReminderEntry.CONTENT_URI, null, selection, null, null);
+                .query(PatientCPContract.ReminderEntry.CONTENT_URI, ID_PROJECTION, selection,
+                        new String[]{Long.toString(reminder.getCreated())}, null);
         boolean found = (cursor.getCount() > 0) ? true : false;
         cursor.close();
         Log.d(LOG_TAG, "Does Reminder " + reminder + " exist in DB? " + Boolean.toString(found));
@@ -356,10 +480,9 @@ public class PatientDataManager {
 
     public static synchronized int howManyRemindersOnDevice(Context context, String id) {
         if (id == null || id.isEmpty()) return -1; // invalid id
-        String selection = PatientCPContract.ReminderEntry.COLUMN_PATIENT_ID
-                + "=" + "\'" + id + "\'";
+        String selection = PatientCPContract.ReminderEntry.COLUMN_PATIENT_ID + " = ?";
         Cursor cursor = context.getContentResolver()
-                .query(PatientCPContract.ReminderEntry.CONTENT_URI, null, selection, null, null);
+                .query(PatientCPContract.ReminderEntry.CONTENT_URI, ID_PROJECTION, selection, new String[]{id}, null);
         int found = cursor.getCount();
         cursor.close();
         Log.d(LOG_TAG, "How Many Reminders  exist in DB for this patient [" + id + "]? "
@@ -367,6 +490,25 @@ public class PatientDataManager {
         return found;
     }
 
+    /**
+     * Counts the check-ins of a patient created at or after a time, without loading the logs.
+     *
+     * @param context
+     * @param id      the patient id
+     * @param since   the earliest creation time counted
+     * @return the number of check-ins
+     */
+    public static synchronized int howManyCheckInsSince(Context context, String id, long since) {
+        if (id == null || id.isEmpty()) return 0;
+        Cursor cursor = context.getContentResolver()
+                .query(PatientCPContract.CheckInLogEntry.CONTENT_URI, ID_PROJECTION, LOG_SELECTION,
+                        createLogSelectionArgs(id, since - 1L), null);
+        if (cursor == null) return 0;
+        int found = cursor.getCount();
+        cursor.close();
+        return found;
+    }
+
     public static synchronized int updateSingleReminder(Context context, String id, Reminder reminder) {
         if (id == null || id.isEmpty() || reminder == null) return 0;
         Log.d(LOG_TAG, "Updating a single REMINDER for this patient." + id
@@ -414,22 +556,30 @@ public class PatientDataManager {
 
         String mPatientId = LoginUtility.getLoginId(context);
         Log.d(LOG_TAG, "SYNC is Updating Prescriptions for patient : " + mPatientId);
-        // delete all of the patient's prescriptions because doctor can delete them
+        // delete all of the patient's prescriptions because doctor can delete them, and insert the
+        // current ones in the same batch so the prescriptions are replaced in one transaction
         String selection = PatientCPContract.PatientEntry.COLUMN_PATIENT_ID + "=" + "\'" + mPatientId + "\'";
-        int deleted = context.getContentResolver()
-                .delete(PatientCPContract.PrescriptionEntry.CONTENT_URI, selection, null);
-        Log.d(LOG_TAG, "Deleted prescription count is :" + Integer.toString(deleted));
-        //insert all of the prescriptions at once
-        Vector<ContentValues> cVVector = new Vector<ContentValues>(prescriptions.size());
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(prescriptions.size() + 1);
+        operations.add(ContentProviderOperation.newDelete(PatientCPContract.PrescriptionEntry.CONTENT_URI)
+                .withSelection(selection, null).build());
+        Set<String> medicationIds = new HashSet<>();
         for (Medication m : prescriptions) {
+            if (!medicationIds.add(m.getId())) {
+                // A duplicate would be ignored by the table and fail the whole batch
+                continue;
+            }
             Log.d(LOG_TAG, "Adding a prescription : " + m.toDebugString());
             ContentValues cv = PatientCPcvHelper.createValuesObject(mPatientId, m);
-            cVVector.add(cv);
+            operations.add(ContentProviderOperation.newInsert(PatientCPContract.PrescriptionEntry.CONTENT_URI)
+                    .withValues(cv).build());
+        }
+        Log.d(LOG_TAG, "We have this many prescriptions to replace : " + prescriptions.size());
+        try {
+            context.getContentResolver().applyBatch(PatientCPContract.CONTENT_AUTHORITY, operations);
+        } catch (RemoteException | OperationApplicationException | SQLException e) {
+            // the batch is rolled back, the prescriptions stored before are kept
+            Log.e(LOG_TAG, "Unable to replace the prescriptions : " + e.getMessage());
         }
-        ContentValues[] cvArray = new ContentValues[cVVector.size()];
-        cVVector.toArray(cvArray);
-        Log.d(LOG_TAG, "We have this many prescriptions to bulk insert : " + cVVector.size());
-        context.getContentResolver().bulkInsert(PatientCPContract.PrescriptionEntry.CONTENT_URI, cvArray);
     }
 
     public static synchronized Collection<Medication> getPrescriptionsFromCP(Context context, String id) {
@@ -0,0 +1,112 @@
+package com.example.symptommanagement.data;
+
+import lombok.Data;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Represents the server maintained summary of one patient as seen by one physician. It carries just
+ * enough to render a row in the physician's patient list without scanning the patient logs or alerts.
+ */
+@Data
+public class PatientSummary {
+
+    /**
+     * Unique identifier for the summary.
+     */
+    private String id;
+
+    /**
+     * ID of the physician this summary belongs to.
+     */
+    private String physicianId;
+
+    /**
+     * ID of the patient being summarized.
+     */
+    private String patientId;
+
+    /**
+     * The first name of the patient.
+     */
+    private String firstName;
+
+    /**
+     * The last name of the patient.
+     */
+    private String lastName;
+
+    /**
+     * The timestamp of the patient's last login.
+     */
+    private long lastLogin;
+
+    /**
+     * The current severity level of the patient's condition.
+     */
+    private int severityLevel;
+
+    /**
+     * Timestamp of the most recent pain log.
+     */
+    private long lastPainLog;
+
+    /**
+     * Timestamp of the most recent check-in.
+     */
+    private long lastCheckIn;
+
+    /**
+     * Timestamp indicating when the currently open alert was created (0 if there is none).
+     */
+    private long alertCreated;
+
+    /**
+     * Timestamp indicating when the physician was contacted about the open alert.
+     */
+    private long physicianContacted;
+
+    /**
+     * Indicates if there is an alert the physician has not responded to yet.
+     *
+     * @return true if the alert is still open
+     */
+    public boolean isAlertOpen() {
+        return alertCreated > 0L && physicianContacted <= 0L;
+    }
+
+    /**
+     * Get the severity level of the open alert for this patient.
+     *
+     * @return The severity level, or PAIN_SEVERITY_LEVEL_0 if there is no open alert.
+     */
+    public int getAlertSeverityLevel() {
+        return isAlertOpen() ? severityLevel : Alert.PAIN_SEVERITY_LEVEL_0;
+    }
+
+    /**
+     * Get the full name of the patient.
+     *
+     * @return The full name of the patient (first name + last name).
+     */
+    public String getName() {
+        String name = "";
+        if (firstName != null && !firstName.isEmpty()) name += firstName;
+        if (!name.isEmpty()) name += " ";
+        if (lastName != null && !lastName.isEmpty()) name += lastName;
+        return name;
+    }
+
+    /**
+     * Formats the given timestamp (dt) into a human-readable date string.
+     *
+     * @param dt The timestamp to be formatted.
+     * @return The formatted date string, or an empty string if there is no timestamp.
+     */
+    public String getFormattedDate(long dt) {
+        if (dt <= 0L) return "";
+        SimpleDateFormat format = new SimpleDateFormat("E, MMM d yyyy 'at' hh:mm a");
+        return format.format(new Date(dt));
+    }
+}
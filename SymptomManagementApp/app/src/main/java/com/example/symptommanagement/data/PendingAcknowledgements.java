@@ -0,0 +1,102 @@
+package com.example.symptommanagement.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Keeps the alert acknowledgements of the physician that have not been sent to the server yet in
+ * shared preferences.
+ * <p>
+ * A physician triaging alerts responds to many patients in a row. The acknowledgements are queued
+ * here and sent together in one request, and the ones that could not be sent survive a restart of
+ * the app until the next sync sends them along with the request for the alerts.
+ */
+public class PendingAcknowledgements {
+
+    private static final String LOG_TAG = PendingAcknowledgements.class.getSimpleName();
+
+    private static final String KEY = "pending_alert_acknowledgements";
+    private static final String OPERATION = "acknowledge_alerts_";
+
+    private static final Gson gson = new Gson();
+
+    /**
+     * Adds an acknowledgement to the queue.
+     *
+     * @param context         The context for accessing shared preferences.
+     * @param acknowledgement The acknowledgement to send.
+     */
+    public static synchronized void add(Context context, AlertAcknowledgement acknowledgement) {
+        List<AlertAcknowledgement> pending = get(context);
+        pending.add(acknowledgement);
+        save(context, pending);
+    }
+
+    /**
+     * Retrieves the acknowledgements waiting to be sent, oldest first.
+     *
+     * @param context The context for accessing shared preferences.
+     * @return a copy of the queue, empty if nothing is waiting
+     */
+    public static synchronized List<AlertAcknowledgement> get(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String json = prefs.getString(KEY, null);
+        if (json == null) return new ArrayList<>();
+        try {
+            return new ArrayList<>(Arrays.asList(gson.fromJson(json, AlertAcknowledgement[].class)));
+        } catch (JsonParseException e) {
+            Log.e(LOG_TAG, "Dropping unreadable alert acknowledgements.", e);
+            save(context, new ArrayList<>());
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * Retrieves the request ID to send a batch of acknowledgements with. A batch that was sent before
+     * without an answer is sent again with the same ID, so the server does not apply it twice.
+     *
+     * @param context     The context for accessing shared preferences.
+     * @param physicianId The ID of the physician acknowledging the alerts.
+     * @param pending     The acknowledgements being sent.
+     * @return the request ID
+     */
+    public static synchronized String getRequestId(Context context, String physicianId,
+                                                   List<AlertAcknowledgement> pending) {
+        return PendingRequestIds.get(context, OPERATION + physicianId, pending);
+    }
+
+    /**
+     * Removes the acknowledgements the server has received, together with the request ID they were sent
+     * with. Acknowledgements queued while they were being sent stay in the queue.
+     *
+     * @param context     The context for accessing shared preferences.
+     * @param physicianId The ID of the physician acknowledging the alerts.
+     * @param sent        The acknowledgements that were sent.
+     * @param requestId   The request ID they were sent with.
+     */
+    public static synchronized void remove(Context context, String physicianId, List<AlertAcknowledgement> sent,
+                                           String requestId) {
+        List<AlertAcknowledgement> pending = get(context);
+        if (pending.removeAll(sent)) save(context, pending);
+        PendingRequestIds.clear(context, OPERATION + physicianId, requestId);
+    }
+
+    private static void save(Context context, List<AlertAcknowledgement> pending) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = prefs.edit();
+        if (pending.isEmpty()) {
+            editor.remove(KEY);
+        } else {
+            editor.putString(KEY, gson.toJson(pending));
+        }
+        editor.apply();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.symptommanagement.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+import com.example.symptommanagement.client.SymptomManagementService;
+import com.google.gson.Gson;
+
+import java.nio.charset.Charset;
+import java.util.UUID;
+
+/**
+ * Keeps the idempotency keys of the updates the sync is sending in shared preferences, until the server
+ * has confirmed them.
+ * <p>
+ * An update that timed out may or may not have been applied, so it is sent again with the same key and
+ * the server answers it from its cache instead of applying it twice. The key belongs to one attempt at
+ * sending one content: it is kept only while the content stays the same, and removed once the server
+ * confirms it, so an identical update sent later is a new request the server processes again.
+ */
+public class PendingRequestIds {
+
+    private static final String KEY_PREFIX = "pending_request_id_";
+    private static final String SEPARATOR = ":";
+
+    private static final Gson gson = new Gson();
+
+    /**
+     * Retrieves the key of an update, the one of the unconfirmed attempt to send the same content or a
+     * new one.
+     *
+     * @param context   The context for accessing shared preferences.
+     * @param operation The name of the update, like the record it changes.
+     * @param body      The content of the update.
+     * @return the request ID to send with the update
+     */
+    public static synchronized String get(Context context, String operation, Object body) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String fingerprint = createFingerprint(body);
+        String stored = prefs.getString(KEY_PREFIX + operation, null);
+        if (stored != null && stored.startsWith(fingerprint + SEPARATOR)) {
+            return stored.substring(fingerprint.length() + SEPARATOR.length());
+        }
+        String requestId = SymptomManagementService.createRequestId();
+        prefs.edit().putString(KEY_PREFIX + operation, fingerprint + SEPARATOR + requestId).apply();
+        return requestId;
+    }
+
+    /**
+     * Removes the key of an update the server has confirmed.
+     *
+     * @param context   The context for accessing shared preferences.
+     * @param operation The name of the update.
+     * @param requestId The request ID the update was sent with.
+     */
+    public static synchronized void clear(Context context, String operation, String requestId) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String stored = prefs.getString(KEY_PREFIX + operation, null);
+        if (stored != null && stored.endsWith(SEPARATOR + requestId)) {
+            prefs.edit().remove(KEY_PREFIX + operation).apply();
+        }
+    }
+
+    private static String createFingerprint(Object body) {
+        String json = gson.toJson(body);
+        return UUID.nameUUIDFromBytes(json.getBytes(Charset.forName("UTF-8"))).toString();
+    }
+}
@@ -19,6 +19,12 @@ public class Physician {
      */
     private String id;
 
+    /**
+     * The server version of the physician record, sent back with updates so the server can detect
+     * concurrent changes.
+     */
+    private Long version;
+
     /**
      * The first name of the physician.
      */
@@ -0,0 +1,83 @@
+package com.example.symptommanagement.data;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.preference.PreferenceManager;
+
+/**
+ * Keeps the sync high-water marks of the patient log tables in shared preferences.
+ * <p>
+ * A high-water mark is the latest log creation time that has been synced in one direction for one
+ * table. Logs are insert only, so everything created at or before the mark has already been
+ * transferred and the sync only has to look at newer rows.
+ * <p>
+ * Only uploads are marked. The logs created on this device reach the cloud in order of creation, but
+ * the cloud can receive a log late, from another device or after that device was offline, so a log
+ * downloaded later may be older than every log stored here. The download offers every cloud log to
+ * the insert instead and the duplicates are ignored.
+ */
+public class SyncWatermarks {
+
+    /**
+     * The direction a table is synced in.
+     */
+    public enum Direction {
+        /**
+         * From the local content provider up to the cloud.
+         */
+        UPLOAD
+    }
+
+    private static final String KEY_PREFIX = "sync_watermark_";
+
+    /**
+     * Retrieves the high-water mark of a table.
+     *
+     * @param context   The context for accessing shared preferences.
+     * @param patientId The ID of the patient the logs belong to.
+     * @param table     The name of the log table.
+     * @param direction The direction of the sync.
+     * @return the latest creation time synced, or 0 if nothing has been synced yet
+     */
+    public static synchronized long get(Context context, String patientId, String table, Direction direction) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getLong(createKey(patientId, table, direction), 0L);
+    }
+
+    /**
+     * Moves the high-water mark of a table forward. A mark never moves backwards.
+     *
+     * @param context   The context for accessing shared preferences.
+     * @param patientId The ID of the patient the logs belong to.
+     * @param table     The name of the log table.
+     * @param direction The direction of the sync.
+     * @param created   The creation time of the newest log that was synced.
+     */
+    public static synchronized void advance(Context context, String patientId, String table,
+                                            Direction direction, long created) {
+        if (created <= get(context, patientId, table, direction)) return;
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = prefs.edit();
+        editor.putLong(createKey(patientId, table, direction), created);
+        editor.apply();
+    }
+
+    /**
+     * Removes all high-water marks so the next sync transfers every log again. This must be
+     * called whenever the local log tables are recreated.
+     *
+     * @param context The context for accessing shared preferences.
+     */
+    public static synchronized void clear(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        SharedPreferences.Editor editor = prefs.edit();
+        for (String key : prefs.getAll().keySet()) {
+            if (key.startsWith(KEY_PREFIX)) editor.remove(key);
+        }
+        editor.apply();
+    }
+
+    private static String createKey(String patientId, String table, Direction direction) {
+        return KEY_PREFIX + direction.name().toLowerCase() + "_" + table + "_" + patientId;
+    }
+}
@@ -0,0 +1,319 @@
+package com.example.symptommanagement.data.graphics;
+
+import android.graphics.Canvas;
+import com.androidplot.Plot;
+import com.androidplot.PlotListener;
+import com.androidplot.xy.XYSeries;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A plot series backed by primitive arrays that only hands the plot as many points as it can show.
+ * <p>
+ * The series keeps every point of the patient's history, sorted by x, but the plot only draws a sample
+ * of the visible window, about one point per pixel. A {@link Sample} is computed with
+ * {@link #sample(double, double, int)}, which only reads the arrays and may run on a worker thread,
+ * and is then shown with {@link #show(Sample)}. The plot renders on its own thread, so the shown sample
+ * is locked while a frame is drawn, the same way as the AndroidPlot SimpleXYSeries does it.
+ * <p>
+ * A series may also have a coarse copy with fewer points, like the lowest and highest value of each
+ * hour. When a pixel of the window spans at least the step of the coarse copy, the sample is taken from
+ * it instead, which gives the same extremes without reading every point.
+ */
+public class DownsampledXYSeries implements XYSeries, PlotListener {
+
+    /**
+     * How the points of the visible window are reduced to fit the pixel width.
+     */
+    public enum Mode {
+        /**
+         * Largest-Triangle-Three-Buckets, keeps the shape of a line.
+         */
+        LTTB,
+        /**
+         * The lowest and highest point of each bucket, keeps the extremes of a bar chart.
+         */
+        MIN_MAX,
+        /**
+         * Every point is shown, for series whose x values are not in order.
+         */
+        NONE
+    }
+
+    /**
+     * The points of a series to be drawn, the arrays are not changed once the sample is created.
+     */
+    public static class Sample {
+        private final double[] x;
+        private final double[] y;
+        private final int size;
+        private final double minX;
+        private final double maxX;
+
+        private Sample(double[] x, double[] y, int size, double minX, double maxX) {
+            this.x = x;
+            this.y = y;
+            this.size = size;
+            this.minX = minX;
+            this.maxX = maxX;
+        }
+
+        /**
+         * Get the number of points in the sample.
+         *
+         * @return the number of points
+         */
+        public int size() {
+            return size;
+        }
+    }
+
+    private final String title;
+    private final double[] x;
+    private final double[] y;
+    private final Mode mode;
+    private final DownsampledXYSeries coarse;
+    private final double coarseStep;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock(true);
+    private Sample shown;
+
+    /**
+     * Creates a series, nothing is shown until a sample is shown.
+     *
+     * @param title The title of the series in the legend.
+     * @param x     The x values, in ascending order unless the mode is NONE.
+     * @param y     The y values.
+     * @param mode  How the points are reduced.
+     */
+    public DownsampledXYSeries(String title, double[] x, double[] y, Mode mode) {
+        this(title, x, y, mode, null, null, 0);
+    }
+
+    /**
+     * Creates a series with a coarse copy that wide windows are sampled from, nothing is shown until a
+     * sample is shown.
+     *
+     * @param title      The title of the series in the legend.
+     * @param x          The x values, in ascending order.
+     * @param y          The y values.
+     * @param mode       How the points are reduced.
+     * @param coarseX    The x values of the coarse copy, in ascending order, or null if there is none.
+     * @param coarseY    The y values of the coarse copy.
+     * @param coarseStep The x distance the points of the coarse copy stand for.
+     */
+    public DownsampledXYSeries(String title, double[] x, double[] y, Mode mode,
+                               double[] coarseX, double[] coarseY, double coarseStep) {
+        this.title = title;
+        this.x = x;
+        this.y = y;
+        this.mode = mode;
+        this.coarse = (coarseX == null || coarseX.length == 0) ? null
+                : new DownsampledXYSeries(title, coarseX, coarseY, mode);
+        this.coarseStep = coarseStep;
+        this.shown = new Sample(x, y, 0, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Get the number of points in the series, not only those shown.
+     *
+     * @return the number of points
+     */
+    public int getPointCount() {
+        return x.length;
+    }
+
+    /**
+     * Checks if the shown sample was taken for this window.
+     *
+     * @param minX The lowest x value of the window.
+     * @param maxX The highest x value of the window.
+     * @return true if the series has to be sampled again for the window
+     */
+    public boolean needsSample(double minX, double maxX) {
+        lock.readLock().lock();
+        try {
+            return shown.minX != minX || shown.maxX != maxX;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes a sample of the points in a window. This does not change the series, so it may run on a
+     * worker thread while the plot is drawn.
+     *
+     * @param minX      The lowest x value of the window.
+     * @param maxX      The highest x value of the window.
+     * @param threshold The number of points the sample may have, usually the width of the plot in pixels.
+     * @return the sample
+     */
+    public Sample sample(double minX, double maxX, int threshold) {
+        if (mode == Mode.NONE) {
+            return new Sample(x, y, x.length, minX, maxX);
+        }
+        if (coarse != null && (maxX - minX) / Math.max(threshold, 1) >= coarseStep) {
+            return coarse.sample(minX, maxX, threshold);
+        }
+        // keep the point on either side of the window, so the line runs to the edge
+        int from = Math.max(0, lowerBound(x, minX) - 1);
+        int to = Math.min(x.length, upperBound(x, maxX) + 1);
+        int count = to - from;
+        if (count <= Math.max(threshold, 2)) {
+            return new Sample(Arrays.copyOfRange(x, from, to), Arrays.copyOfRange(y, from, to), count, minX, maxX);
+        }
+        return (mode == Mode.LTTB)
+                ? largestTriangleThreeBuckets(from, to, Math.max(threshold, 3), minX, maxX)
+                : minMax(from, to, Math.max(threshold / 2, 1), minX, maxX);
+    }
+
+    /**
+     * Shows a sample of the series, the plot draws it the next time it is redrawn.
+     *
+     * @param sample The sample.
+     */
+    public void show(Sample sample) {
+        lock.writeLock().lock();
+        try {
+            shown = sample;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public int size() {
+        return shown.size;
+    }
+
+    @Override
+    public Number getX(int index) {
+        return shown.x[index];
+    }
+
+    @Override
+    public Number getY(int index) {
+        return shown.y[index];
+    }
+
+    @Override
+    public void onBeforeDraw(Plot source, Canvas canvas) {
+        lock.readLock().lock();
+    }
+
+    @Override
+    public void onAfterDraw(Plot source, Canvas canvas) {
+        lock.readLock().unlock();
+    }
+
+    /**
+     * Reduces the points with the Largest-Triangle-Three-Buckets algorithm: the first and last point are
+     * kept, and from each bucket in between the point forming the largest triangle with the point kept
+     * from the previous bucket and the average of the next bucket.
+     */
+    private Sample largestTriangleThreeBuckets(int from, int to, int threshold, double minX, double maxX) {
+        double[] sampleX = new double[threshold];
+        double[] sampleY = new double[threshold];
+        double bucketSize = (double) (to - from - 2) / (threshold - 2);
+
+        int kept = from;
+        sampleX[0] = x[from];
+        sampleY[0] = y[from];
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // the average of the next bucket
+            int nextStart = from + 1 + (int) ((bucket + 1) * bucketSize);
+            int nextEnd = Math.min(to, from + 1 + (int) ((bucket + 2) * bucketSize));
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            int start = from + 1 + (int) (bucket * bucketSize);
+            int end = nextStart;
+            double maxArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((x[kept] - averageX) * (y[i] - y[kept])
+                        - (x[kept] - x[i]) * (averageY - y[kept]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = i;
+                }
+            }
+            sampleX[bucket + 1] = x[chosen];
+            sampleY[bucket + 1] = y[chosen];
+            kept = chosen;
+        }
+        sampleX[threshold - 1] = x[to - 1];
+        sampleY[threshold - 1] = y[to - 1];
+        return new Sample(sampleX, sampleY, threshold, minX, maxX);
+    }
+
+    /**
+     * Reduces the points to the lowest and highest point of each bucket, in the order they occur.
+     */
+    private Sample minMax(int from, int to, int buckets, double minX, double maxX) {
+        double[] sampleX = new double[buckets * 2];
+        double[] sampleY = new double[buckets * 2];
+        double bucketSize = (double) (to - from) / buckets;
+        int size = 0;
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int start = from + (int) (bucket * bucketSize);
+            int end = Math.min(to, from + (int) ((bucket + 1) * bucketSize));
+            if (start >= end) continue;
+            int low = start;
+            int high = start;
+            for (int i = start + 1; i < end; i++) {
+                if (y[i] < y[low]) low = i;
+                if (y[i] > y[high]) high = i;
+            }
+            int first = Math.min(low, high);
+            int second = Math.max(low, high);
+            sampleX[size] = x[first];
+            sampleY[size++] = y[first];
+            if (second != first) {
+                sampleX[size] = x[second];
+                sampleY[size++] = y[second];
+            }
+        }
+        return new Sample(sampleX, sampleY, size, minX, maxX);
+    }
+
+    /**
+     * Get the index of the first value that is not less than the key.
+     */
+    private static int lowerBound(double[] values, double key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Get the index of the first value that is greater than the key.
+     */
+    private static int upperBound(double[] values, double key) {
+        int low = 0;
+        int high = values.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.symptommanagement.data.graphics;
+
+import com.example.symptommanagement.data.MedicationLog;
+import com.example.symptommanagement.data.PainLog;
+import com.example.symptommanagement.data.Patient;
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+
+/**
+ * The graph data of a patient, held in primitive arrays sorted by time.
+ * <p>
+ * The data is built once from the logs of the patient with {@link #build(Patient)}, which sorts
+ * the history, counts the severity and eating values, and keeps the lowest and highest level of each
+ * hour the bar chart downsamples a wide window from. It takes a while for a long history, so it is
+ * built on a worker thread. The plots then create their series from these arrays, so switching between
+ * them does not go through the logs again.
+ */
+@Getter
+public class PatientPlotData {
+
+    /**
+     * The length of the hours the levels are ranged over, in milliseconds.
+     */
+    public static final long HOUR = 60 * 60 * 1000L;
+
+    /**
+     * The ID of the patient the data belongs to.
+     */
+    private final String patientId;
+
+    /**
+     * The creation time of each pain log, in ascending order.
+     */
+    private final double[] painTimes;
+
+    /**
+     * The severity value of each pain log.
+     */
+    private final double[] severityValues;
+
+    /**
+     * The eating value of each pain log.
+     */
+    private final double[] eatingValues;
+
+    /**
+     * The times of the 3-point moving averages, every pain log except the first and last.
+     */
+    private final double[] averageTimes;
+
+    /**
+     * The 3-point moving average of the severity values.
+     */
+    private final double[] severityAverages;
+
+    /**
+     * The 3-point moving average of the eating values, on the scale of the line plot.
+     */
+    private final double[] eatingAverages;
+
+    /**
+     * The hour of the day of the severity values, a point is kept once for each minute and value.
+     */
+    private final double[] severityHours;
+    private final double[] severityByHour;
+
+    /**
+     * The hour of the day of the eating values, a point is kept once for each minute and value.
+     */
+    private final double[] eatingHours;
+    private final double[] eatingByHour;
+
+    /**
+     * The time each medication was taken, in ascending order.
+     */
+    private final long[] medicationTimes;
+
+    /**
+     * The counts of the severity values.
+     */
+    private int severeCount = 0;
+    private int moderateCount = 0;
+    private int controlledCount = 0;
+
+    /**
+     * The counts of the eating values.
+     */
+    private int notEatingCount = 0;
+    private int eatingSomeCount = 0;
+    private int eatingOkCount = 0;
+
+    /**
+     * The start of each hour with pain logs and its lowest and highest severity value, the hour is
+     * there twice when the values differ. The hours are in ascending order.
+     */
+    private final double[] severityRangeTimes;
+    private final double[] severityRanges;
+
+    /**
+     * The start of each hour with pain logs and its lowest and highest eating value.
+     */
+    private final double[] eatingRangeTimes;
+    private final double[] eatingRanges;
+
+    /**
+     * Builds the graph data from the logs of a patient. This sorts the whole history, so it should not
+     * be called on the UI thread.
+     *
+     * @param patient The patient.
+     * @return the graph data
+     */
+    public static PatientPlotData build(Patient patient) {
+        return new PatientPlotData(patient);
+    }
+
+    /**
+     * Get the start of the day of a time.
+     *
+     * @param time The time in milliseconds.
+     * @return the time at midnight of the same day
+     */
+    public static long startOfDay(double time) {
+        Calendar cal = Calendar.getInstance();
+        cal.setTimeInMillis((long) time);
+        cal.set(Calendar.HOUR_OF_DAY, 0);
+        cal.set(Calendar.MINUTE, 0);
+        cal.set(Calendar.SECOND, 0);
+        cal.set(Calendar.MILLISECOND, 0);
+        return cal.getTimeInMillis();
+    }
+
+    /**
+     * Checks if there are pain logs to plot.
+     *
+     * @return true if the patient has pain logs
+     */
+    public boolean hasPainLogs() {
+        return painTimes.length > 0;
+    }
+
+    private PatientPlotData(Patient patient) {
+        patientId = patient.getId();
+
+        // sort the pain logs by time through an index, each value packed with the time
+        Collection<PainLog> painLogs = patient.getPainLog();
+        int count = (painLogs == null) ? 0 : painLogs.size();
+        long[] times = new long[count];
+        int[] severity = new int[count];
+        int[] eating = new int[count];
+        long[] order = new long[count];
+        int index = 0;
+        if (painLogs != null) {
+            for (PainLog log : painLogs) {
+                times[index] = log.getCreated();
+                severity[index] = log.getSeverity().getValue();
+                eating[index] = log.getEating().getValue();
+                index++;
+            }
+        }
+        Integer[] sorted = new Integer[count];
+        for (int i = 0; i < count; i++) sorted[i] = i;
+        Arrays.sort(sorted, (a, b) -> Long.compare(times[a], times[b]));
+
+        painTimes = new double[count];
+        severityValues = new double[count];
+        eatingValues = new double[count];
+        for (int i = 0; i < count; i++) {
+            int from = sorted[i];
+            painTimes[i] = times[from];
+            severityValues[i] = severity[from];
+            eatingValues[i] = eating[from];
+            countSeverity(severity[from]);
+            countEating(eating[from]);
+        }
+
+        double[][] severityRange = rangeByHour(painTimes, severityValues);
+        severityRangeTimes = severityRange[0];
+        severityRanges = severityRange[1];
+        double[][] eatingRange = rangeByHour(painTimes, eatingValues);
+        eatingRangeTimes = eatingRange[0];
+        eatingRanges = eatingRange[1];
+
+        int averages = Math.max(0, count - 2);
+        averageTimes = new double[averages];
+        severityAverages = new double[averages];
+        eatingAverages = new double[averages];
+        for (int i = 1; i < count - 1; i++) {
+            averageTimes[i - 1] = painTimes[i];
+            severityAverages[i - 1] = (severityValues[i - 1] + severityValues[i] + severityValues[i + 1]) / 3.0;
+            eatingAverages[i - 1] = (eatingScale(eatingValues[i - 1]) + eatingScale(eatingValues[i])
+                    + eatingScale(eatingValues[i + 1])) / 3.0;
+        }
+
+        // a scatter point at the same minute and value hides the other, so each is kept once
+        long[] severityKeys = new long[count];
+        long[] eatingKeys = new long[count];
+        Calendar cal = Calendar.getInstance();
+        for (int i = 0; i < count; i++) {
+            cal.setTimeInMillis((long) painTimes[i]);
+            long minute = cal.get(Calendar.HOUR_OF_DAY) * 60 + cal.get(Calendar.MINUTE);
+            severityKeys[i] = minute * 1000 + (long) severityValues[i];
+            eatingKeys[i] = minute * 1000 + (long) eatingValues[i];
+        }
+        severityKeys = distinct(severityKeys);
+        eatingKeys = distinct(eatingKeys);
+        severityHours = new double[severityKeys.length];
+        severityByHour = new double[severityKeys.length];
+        for (int i = 0; i < severityKeys.length; i++) {
+            severityHours[i] = (severityKeys[i] / 1000) / 60.0;
+            severityByHour[i] = severityKeys[i] % 1000;
+        }
+        eatingHours = new double[eatingKeys.length];
+        eatingByHour = new double[eatingKeys.length];
+        for (int i = 0; i < eatingKeys.length; i++) {
+            eatingHours[i] = (eatingKeys[i] / 1000) / 60.0;
+            eatingByHour[i] = eatingKeys[i] % 1000;
+        }
+
+        Collection<MedicationLog> medicationLogs = patient.getMedLog();
+        medicationTimes = new long[(medicationLogs == null) ? 0 : medicationLogs.size()];
+        index = 0;
+        if (medicationLogs != null) {
+            for (MedicationLog m : medicationLogs) {
+                medicationTimes[index++] = m.getTaken();
+            }
+        }
+        Arrays.sort(medicationTimes);
+    }
+
+    /**
+     * Maps an eating value to the scale of the line plot, between the severity levels.
+     */
+    private static double eatingScale(double value) {
+        return (value == 100) ? 100 : (value == 200) ? 150 : 200;
+    }
+
+    /**
+     * Get the lowest and highest value of each hour, as points at the start of the hour. The point is
+     * there once if the values of the hour are the same.
+     *
+     * @param times  The times, in ascending order.
+     * @param values The value at each time.
+     * @return the times and the values of the points
+     */
+    private static double[][] rangeByHour(double[] times, double[] values) {
+        double[] rangeTimes = new double[times.length * 2];
+        double[] ranges = new double[times.length * 2];
+        int size = 0;
+        int from = 0;
+        while (from < times.length) {
+            long hour = ((long) times[from] / HOUR) * HOUR;
+            double low = values[from];
+            double high = values[from];
+            int to = from + 1;
+            while (to < times.length && (long) times[to] < hour + HOUR) {
+                low = Math.min(low, values[to]);
+                high = Math.max(high, values[to]);
+                to++;
+            }
+            rangeTimes[size] = hour;
+            ranges[size++] = low;
+            if (high != low) {
+                rangeTimes[size] = hour;
+                ranges[size++] = high;
+            }
+            from = to;
+        }
+        return new double[][]{Arrays.copyOf(rangeTimes, size), Arrays.copyOf(ranges, size)};
+    }
+
+    /**
+     * Get the distinct values of an array in ascending order.
+     */
+    private static long[] distinct(long[] values) {
+        Arrays.sort(values);
+        int size = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) {
+                values[size++] = values[i];
+            }
+        }
+        return Arrays.copyOf(values, size);
+    }
+
+    private void countSeverity(int value) {
+        if (PainLog.Severity.SEVERE.getValue() == value) {
+            severeCount++;
+        } else if (PainLog.Severity.MODERATE.getValue() == value) {
+            moderateCount++;
+        } else if (PainLog.Severity.WELL_CONTROLLED.getValue() == value) {
+            controlledCount++;
+        }
+    }
+
+    private void countEating(int value) {
+        if (PainLog.Eating.NOT_EATING.getValue() == value) {
+            notEatingCount++;
+        } else if (PainLog.Eating.SOME_EATING.getValue() == value) {
+            eatingSomeCount++;
+        } else if (PainLog.Eating.EATING.getValue() == value) {
+            eatingOkCount++;
+        }
+    }
+}
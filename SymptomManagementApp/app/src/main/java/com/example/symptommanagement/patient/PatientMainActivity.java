@@ -18,6 +18,7 @@ import com.example.symptommanagement.databinding.ActivityPatientMainBinding;
 import com.example.symptommanagement.patient.Reminder.ReminderManager;
 import com.example.symptommanagement.physician.HistoryLogFragment;
 import com.example.symptommanagement.sync.SymptomManagementSyncAdapter;
+import com.example.symptommanagement.sync.SyncScheduler;
 
 /**
  * Main activity for the patient user. Manages fragments for medication log, pain log, status log,
@@ -460,19 +461,13 @@ public class PatientMainActivity
         Log.d(LOG_TAG, "Attempting to " + (reminder.isOn() ? "activate" : "deactivate") +
                 " the alarm for reminder " + reminder.getName());
 
-        // Check the reminder status and activate or deactivate the alarm accordingly
-        if (reminder.isOn()) {
-            Log.d(LOG_TAG, "Activating Reminder " + reminder.getName());
-            ReminderManager.cancelSingleReminderAlarm(this, reminder);
-            ReminderManager.setSingleReminderAlarm(this, reminder);
-        } else {
-            Log.d(LOG_TAG, "Deactivating Reminder " + reminder.getName());
-            ReminderManager.cancelSingleReminderAlarm(this, reminder);
-        }
+        // Add the reminder to the schedule or remove it, depending on its status
+        ReminderManager.setSingleReminderAlarm(this, reminder);
 
         // Print the updated list of alarms and update the reminder in the data manager
         ReminderManager.printAlarms(this, LoginUtility.getLoginId(this));
         PatientDataManager.updateSingleReminder(context, patientId, reminder);
+        SyncScheduler.recordLocalChange(context);
     }
 
     /**
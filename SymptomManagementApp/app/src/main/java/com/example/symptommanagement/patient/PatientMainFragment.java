@@ -8,13 +8,11 @@ import android.view.View;
 import android.view.ViewGroup;
 import com.example.symptommanagement.LoginUtility;
 import com.example.symptommanagement.R;
-import com.example.symptommanagement.data.HistoryLog;
 import com.example.symptommanagement.data.Patient;
 import com.example.symptommanagement.data.PatientDataManager;
 import com.example.symptommanagement.data.Reminder;
 import com.example.symptommanagement.databinding.FragmentPatientMainBinding;
 import com.example.symptommanagement.patient.Reminder.ReminderManager;
-import com.example.symptommanagement.physician.PatientManager;
 
 import java.util.Calendar;
 import java.util.Collection;
@@ -188,25 +186,13 @@ public class PatientMainFragment extends Fragment {
      * @return A string containing the number of check-ins completed.
      */
     private String getNumCheckIns() {
-        // Create a temporary patient object and set its ID to the patient's login ID
-        Patient tempPatient = new Patient();
         String mPatientId = LoginUtility.getLoginId(getActivity());
-        tempPatient.setId(mPatientId);
-
-        // Retrieve the logs for the patient from the content provider and create a log list
-        PatientDataManager.getLogsFromCP(getActivity(), tempPatient);
-        HistoryLog[] logList = PatientManager.createLogList(tempPatient);
 
         // Get the start time of today in milliseconds since epoch
         long start_of_day = new ReminderManager().getStartOfToday();
 
-        // Count the number of check-in logs completed today
-        int count = 0;
-        for (HistoryLog h : logList) {
-            if (h.getType() == HistoryLog.LogType.CHECK_IN_LOG && h.getCreated() >= start_of_day) {
-                count++;
-            }
-        }
+        // Count the check-in logs completed today in the content provider
+        int count = PatientDataManager.howManyCheckInsSince(getActivity(), mPatientId, start_of_day);
 
         // Format and return the check-in count message
         if (count == 0) {
@@ -171,7 +171,7 @@ public class PatientMedicationLogFragment extends Fragment {
         }
 
         // Immediately sync the changes with the server
-        SymptomManagementSyncAdapter.syncImmediately(getActivity());
+        SymptomManagementSyncAdapter.syncLocalChange(getActivity());
 
         // Notify the adapter that the dataset has changed so that the UI can be updated
         mAdapter.notifyDataSetChanged();
@@ -183,7 +183,7 @@ public class PatientPainLogFragment extends Fragment {
         }
 
         // Trigger an immediate sync with the server to update data
-        SymptomManagementSyncAdapter.syncImmediately(getActivity());
+        SymptomManagementSyncAdapter.syncLocalChange(getActivity());
 
         // Notify the hosting activity that the pain log entry is complete and provide the check-in ID
         boolean isCheckIn = ((Callbacks) getActivity()).onPainLogComplete(log.getCheckinId());
@@ -244,7 +244,7 @@ public class PatientStatusLogFragment extends Fragment {
         }
 
         // Trigger immediate synchronization with the server
-        SymptomManagementSyncAdapter.syncImmediately(getActivity());
+        SymptomManagementSyncAdapter.syncLocalChange(getActivity());
 
         // Go back to the previous activity
         getActivity().onBackPressed();
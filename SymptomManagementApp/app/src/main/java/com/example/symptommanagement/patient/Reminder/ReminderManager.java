@@ -5,7 +5,9 @@ import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Build;
+import android.preference.PreferenceManager;
 import android.util.Log;
 import com.example.symptommanagement.data.PatientDataManager;
 import com.example.symptommanagement.data.Reminder;
@@ -14,13 +16,30 @@ import lombok.Data;
 
 import java.util.*;
 
+/**
+ * Schedules the check-in reminders of the patient.
+ * <p>
+ * Only one alarm is pending at a time, set for the next reminder that is due. The reminders that are
+ * on are kept in an index sorted by their time of day, so the next one is found, and a reminder is
+ * added or removed, in O(log n) without reading the database. The index and the time of the pending
+ * alarm are kept in shared preferences, so they survive the process being killed, and the alarm is set
+ * again after the device restarts or its clock changes.
+ */
 public class ReminderManager {
 
     private static final String LOG_TAG = ReminderManager.class.getSimpleName();
-    private static AlarmManager alarmManager = null;
-    private static Collection<ActivatedAlarm> activatedAlarms = null;
-    private static int nextAvailableResponseCode = 1;
     private static final long MILLISECONDS_IN_A_DAY = 86400000;
+    private static final int MINUTES_IN_A_DAY = 24 * 60;
+
+    private static final int ALARM_REQUEST_CODE = 0;
+    private static final String SCHEDULE_KEY = "reminder_schedule";
+    private static final String NEXT_ALARM_KEY = "reminder_next_alarm";
+
+    private static AlarmManager alarmManager = null;
+
+    // The reminders that are on, sorted by time of day, and the same reminders by creation time
+    private static TreeSet<ScheduledReminder> schedule = null;
+    private static Map<Long, ScheduledReminder> scheduledByCreated = null;
 
     /**
      * Gets the AlarmManager instance from the system service if not already initialized.
@@ -36,15 +55,26 @@ public class ReminderManager {
     }
 
     /**
-     * Gets the collection of activated alarms, initializing it if not already done.
+     * Gets the index of the reminders that are on, reading it from the shared preferences the first
+     * time after the process started.
      *
-     * @return The collection of activated alarms.
+     * @param context The application context.
+     * @return The reminders sorted by time of day.
      */
-    private static Collection<ActivatedAlarm> getActivatedAlarms() {
-        if (activatedAlarms == null) {
-            activatedAlarms = new HashSet<>();
+    private static TreeSet<ScheduledReminder> getSchedule(Context context) {
+        if (schedule == null) {
+            schedule = new TreeSet<>();
+            scheduledByCreated = new HashMap<>();
+            SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+            for (String entry : prefs.getStringSet(SCHEDULE_KEY, Collections.<String>emptySet())) {
+                ScheduledReminder s = ScheduledReminder.parse(entry);
+                if (s != null) {
+                    schedule.add(s);
+                    scheduledByCreated.put(s.getReminderCreated(), s);
+                }
+            }
         }
-        return activatedAlarms;
+        return schedule;
     }
 
     /**
@@ -96,67 +126,135 @@ public class ReminderManager {
     }
 
     /**
-     * Starts patient reminders by setting up alarms for the active reminders.
+     * Starts patient reminders: the index is rebuilt from the reminders on the device and the alarm is
+     * set for the next one due.
      *
      * @param context The application context.
      * @param id      The patient ID to retrieve reminders.
      */
-    public static void startPatientReminders(Context context, String id) {
+    public static synchronized void startPatientReminders(Context context, String id) {
         Collection<Reminder> reminders = PatientDataManager.loadReminderList(context, id);
-
-        if (reminders == null || reminders.isEmpty()) {
-            return;
-        }
-        Log.d(LOG_TAG, "There are " + reminders.size() + " reminders for id: " + id);
-        Reminder[] reminderArray = reminders.toArray(new Reminder[0]);
-        for (Reminder r : reminderArray) {
-            Log.d(LOG_TAG, "Checking reminder " + r.getName() + " it is " + (r.isOn() ? "ON" : "OFF"));
-            if (r.isOn()) {
-                setSingleReminderAlarm(context, r);
+        getSchedule(context).clear();
+        scheduledByCreated.clear();
+        if (reminders != null) {
+            Log.d(LOG_TAG, "There are " + reminders.size() + " reminders for id: " + id);
+            for (Reminder r : reminders) {
+                if (r.isOn()) {
+                    ScheduledReminder s = new ScheduledReminder(getMinuteOfDay(r), r.getCreated());
+                    schedule.add(s);
+                    scheduledByCreated.put(s.getReminderCreated(), s);
+                }
             }
         }
+        saveSchedule(context);
+        scheduleNextAlarm(context);
     }
 
     /**
-     * Sets a single reminder alarm for the specified reminder.
-     * <p>
-     * This method is responsible for setting up a repeating alarm for the given reminder if it is active (ON).
-     * If the reminder is not active, the method cancels any existing alarm associated with the reminder.
+     * Sets the alarm of a reminder that was added or changed. A reminder that is on takes its place
+     * in the index, one that is off is removed from it, and the pending alarm is moved if the next
+     * reminder due has changed.
      *
      * @param context The application context.
      * @param r       The reminder to set the alarm for.
      */
-    public static void setSingleReminderAlarm(Context context, Reminder r) {
-        // Log the attempt to set the alarm and its status
+    public static synchronized void setSingleReminderAlarm(Context context, Reminder r) {
         Log.d(LOG_TAG, "Attempting to set Alarm for " + r.getName()
                 + " is " + (r.isOn() ? "ON" : "OFF."));
+        unschedule(context, r.getCreated());
+        if (r.isOn()) {
+            ScheduledReminder s = new ScheduledReminder(getMinuteOfDay(r), r.getCreated());
+            schedule.add(s);
+            scheduledByCreated.put(s.getReminderCreated(), s);
+        }
+        saveSchedule(context);
+        scheduleNextAlarm(context);
+    }
 
-        // If the reminder is not active, cancel the alarm and return
-        if (!r.isOn()) {
-            cancelSingleReminderAlarm(context, r);
+    /**
+     * Cancels the alarm of a reminder that was turned off or deleted.
+     *
+     * @param context  The application context.
+     * @param reminder The Reminder for which the alarm should be canceled.
+     */
+    public static synchronized void cancelSingleReminderAlarm(Context context, Reminder reminder) {
+        if (!unschedule(context, reminder.getCreated())) {
+            Log.d(LOG_TAG, "Tried to cancel this reminder but did not find it. " + reminder);
             return;
         }
+        saveSchedule(context);
+        scheduleNextAlarm(context);
+    }
 
-        // Create a new ActivatedAlarm with the current nextAvailableResponseCode and add it to the activatedAlarms
-        ActivatedAlarm activatedAlarm = new ActivatedAlarm(r.getCreated(), nextAvailableResponseCode++);
-        getActivatedAlarms().add(activatedAlarm);
+    /**
+     * Cancels all patient reminders, the index is emptied and the pending alarm cancelled.
+     *
+     * @param context The application context.
+     */
+    public static synchronized void cancelPatientReminders(Context context) {
+        getSchedule(context).clear();
+        scheduledByCreated.clear();
+        saveSchedule(context);
+        scheduleNextAlarm(context);
+    }
 
-        // Create a PendingIntent to be used for the alarm
-        PendingIntent alarmIntent = createReminderPendingIntent(context, activatedAlarm.getResponseCode());
+    /**
+     * Sets the pending alarm for the next reminder due after the current minute, or cancels it when no
+     * reminder is on. This is called when the alarm goes off, and when the device restarts or its
+     * clock changes, since the pending alarm does not survive a restart.
+     *
+     * @param context The application context.
+     */
+    public static synchronized void scheduleNextAlarm(Context context) {
+        long next = findNextAlarmTime(context, System.currentTimeMillis());
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        PendingIntent alarmIntent = createReminderPendingIntent(context, next);
+        if (next <= 0L) {
+            Log.d(LOG_TAG, "No reminders are on, cancelling the alarm.");
+            getAlarmManager(context).cancel(alarmIntent);
+            alarmIntent.cancel();
+            prefs.edit().remove(NEXT_ALARM_KEY).apply();
+            return;
+        }
+        if (next == prefs.getLong(NEXT_ALARM_KEY, 0L) && isAlarmActivated(context)) {
+            // The next reminder due has not changed, avoid setting the same alarm again
+            return;
+        }
+        Log.d(LOG_TAG, "Setting the next reminder alarm at " + new Date(next));
+        setExactAlarm(context, next, alarmIntent);
+        prefs.edit().putLong(NEXT_ALARM_KEY, next).apply();
+    }
 
-        // Log the creation of a new alarm for the reminder
-        Log.d(LOG_TAG, "Creating a new Alarm with Interval DAY for reminder " + r.getName());
+    /**
+     * Finds the time of the next reminder due after the minute of the given time.
+     *
+     * @param context The application context.
+     * @param now     The current time in milliseconds.
+     * @return The time of the next reminder in milliseconds, or 0 if no reminder is on.
+     */
+    public static synchronized long findNextAlarmTime(Context context, long now) {
+        TreeSet<ScheduledReminder> reminders = getSchedule(context);
+        if (reminders.isEmpty()) return 0L;
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(now);
+        int minuteOfDay = calendar.get(Calendar.HOUR_OF_DAY) * 60 + calendar.get(Calendar.MINUTE);
 
-        // Calculate the alarm time in milliseconds from the hour and minutes
-        long alarmTimeMillis = getAlarmTime(r.getHour(), r.getMinutes());
+        // The first reminder later today, or else the first one tomorrow
+        ScheduledReminder next = reminders.higher(new ScheduledReminder(minuteOfDay, Long.MAX_VALUE));
+        boolean tomorrow = next == null;
+        if (tomorrow) next = reminders.first();
 
-        // Set the alarm using setExact() to trigger at the specified alarm time
-        setExactAlarm(context, alarmTimeMillis, alarmIntent);
+        calendar.set(Calendar.HOUR_OF_DAY, next.getMinuteOfDay() / 60);
+        calendar.set(Calendar.MINUTE, next.getMinuteOfDay() % 60);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        if (tomorrow) calendar.add(Calendar.DAY_OF_MONTH, 1);
+        return calendar.getTimeInMillis();
     }
 
     // Method to set the alarm using setExact()
     private static void setExactAlarm(Context context, long alarmTimeMillis, PendingIntent alarmIntent) {
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        AlarmManager alarmManager = getAlarmManager(context);
 
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
             alarmManager.setExactAndAllowWhileIdle(
@@ -180,235 +278,133 @@ public class ReminderManager {
     }
 
     /**
-     * Gets the time in milliseconds representing the next alarm time.
-     * <p>
-     * This method calculates the time in milliseconds for the next alarm based on the provided hour and minutes.
-     * If the alarm time for the current day has already passed, the next alarm time will be set for the next day.
+     * Removes a reminder from the index.
      *
-     * @param hour    The hour of the reminder.
-     * @param minutes The minutes of the reminder.
-     * @return The time in milliseconds representing the next alarm time.
+     * @return true if the reminder was in the index
      */
-    private static long getAlarmTime(int hour, int minutes) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTimeInMillis(System.currentTimeMillis());
-        calendar.set(Calendar.HOUR_OF_DAY, hour);
-        calendar.set(Calendar.MINUTE, minutes);
-
-        // Check if the alarm time for the current day has already passed
-        Calendar testCalendar = Calendar.getInstance();
-        testCalendar.setTimeInMillis(System.currentTimeMillis());
-        if (calendar.getTimeInMillis() <= testCalendar.getTimeInMillis()) {
-            // If so, set the next alarm time for the next day
-            long nextDay = calendar.getTimeInMillis() + MILLISECONDS_IN_A_DAY;
-            calendar.setTimeInMillis(nextDay);
-        }
-
-        return calendar.getTimeInMillis();
+    private static boolean unschedule(Context context, long reminderCreated) {
+        getSchedule(context);
+        ScheduledReminder s = scheduledByCreated.remove(reminderCreated);
+        return s != null && schedule.remove(s);
     }
 
     /**
-     * Cancels all patient reminders by deactivating the associated alarms.
-     * <p>
-     * This method cancels all patient reminders by iterating through the activated alarms and
-     * canceling their associated PendingIntent alarms. If an alarm is successfully canceled,
-     * it is removed from the collection of activated alarms.
-     *
-     * @param context The application context.
+     * Writes the index to the shared preferences.
      */
-    public static void cancelPatientReminders(Context context) {
-        ActivatedAlarm[] alarmArray = getActivatedAlarms().toArray(new ActivatedAlarm[0]);
-        for (ActivatedAlarm a : alarmArray) {
-            if (isAlarmActivated(context, a)) {
-                PendingIntent alarmIntent = createReminderPendingIntent(context, a.getResponseCode());
-                cancelSingleReminderAlarm(alarmIntent);
-                if (!isAlarmActivated(context, a)) {
-                    // The alarm was successfully deactivated, remove it from the collection
-                    Log.d(LOG_TAG, "The alarm was successfully deactivated.");
-                    getActivatedAlarms().remove(a);
-                    return;
-                }
-            }
+    private static void saveSchedule(Context context) {
+        Set<String> entries = new HashSet<>();
+        for (ScheduledReminder s : getSchedule(context)) {
+            entries.add(s.toString());
         }
-        // The alarm was not deactivated; it may not have been activated or might not exist
-        Log.d(LOG_TAG, "The alarm was not deactivated. It may not have been activated or might not exist.");
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        prefs.edit().putStringSet(SCHEDULE_KEY, entries).apply();
     }
 
-    /**
-     * Cancels a single reminder alarm given its PendingIntent.
-     * <p>
-     * This method cancels the alarm represented by the provided PendingIntent using the alarmManager.
-     *
-     * @param alarmIntent The PendingIntent of the alarm to be canceled.
-     */
-    public static void cancelSingleReminderAlarm(PendingIntent alarmIntent) {
-        if (alarmManager != null) {
-            Log.d(LOG_TAG, "Actually Canceling the alarm!");
-            alarmManager.cancel(alarmIntent);
-        }
+    private static int getMinuteOfDay(Reminder r) {
+        return Math.max(0, Math.min(MINUTES_IN_A_DAY - 1, r.getHour() * 60 + r.getMinutes()));
     }
 
     /**
-     * Cancels a single reminder alarm associated with the given Reminder.
-     * <p>
-     * This method cancels the reminder alarm by iterating through the activated alarms
-     * and matching the reminder's activation time to the activated alarms. If a matching
-     * activated alarm is found, its associated alarm is canceled using the alarmManager.
-     * The activated alarm is also removed from the collection of activated alarms.
+     * Creates the PendingIntent of the reminder alarm. There is only one, so setting it again replaces
+     * the pending alarm.
      *
-     * @param context  The application context.
-     * @param reminder The Reminder for which the alarm should be canceled.
+     * @param context   The application context.
+     * @param alarmTime The time the alarm is set for, passed on to the receiver.
+     * @return The PendingIntent for the reminder alarm.
      */
-    public static synchronized void cancelSingleReminderAlarm(Context context, Reminder reminder) {
-        if (getActivatedAlarms() == null || getActivatedAlarms().size() == 0) {
-            return;
-        }
-
-        ActivatedAlarm[] alarmArray = getActivatedAlarms().toArray(new ActivatedAlarm[0]);
-
-        for (ActivatedAlarm s : alarmArray) {
-            if (s.matches(reminder)) {
-                Log.d(LOG_TAG, "Found Activated Alarm for the Reminder " + reminder.getName() + " - Canceling");
-                cancelSingleReminderAlarm(createReminderPendingIntent(context, s.getResponseCode()));
-                getActivatedAlarms().remove(s);
-            }
-            Log.d(LOG_TAG, "Tried to cancel this reminder but did not find it. " +
-                    "Not necessarily an error ... may just be canceling before restarting on edit."
-                    + reminder);
-        }
+    public static synchronized PendingIntent createReminderPendingIntent(Context context, long alarmTime) {
+        Intent intent = new Intent(context, ReminderReceiver.class);
+        intent.putExtra(ReminderReceiver.ALARM_TIME_EXTRA, alarmTime);
+        return PendingIntent.getBroadcast(context, ALARM_REQUEST_CODE, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
     }
 
     /**
-     * Creates a PendingIntent for the reminder alarm using the given responseCode.
-     * <p>
-     * This method creates a PendingIntent for the reminder alarm with the given responseCode
-     * and associates it with the ReminderReceiver class.
+     * Checks if the reminder alarm is pending.
      *
-     * @param context      The application context.
-     * @param responseCode The response code to associate with the PendingIntent.
-     * @return The PendingIntent for the reminder alarm.
+     * @param context The application context.
+     * @return True if the alarm is pending, false otherwise.
      */
-    public static synchronized PendingIntent createReminderPendingIntent(Context context, int responseCode) {
+    public static boolean isAlarmActivated(Context context) {
         Intent intent = new Intent(context, ReminderReceiver.class);
-        return PendingIntent.getBroadcast(context, responseCode, intent, 0);
+        PendingIntent alarmIntent = PendingIntent.getBroadcast(context, ALARM_REQUEST_CODE, intent,
+                PendingIntent.FLAG_NO_CREATE | PendingIntent.FLAG_IMMUTABLE);
+        return alarmIntent != null;
     }
 
     /**
-     * Checks if the alarm associated with the given Reminder is currently activated.
-     * <p>
-     * This method checks if the reminder is present in the collection of activated alarms,
-     * and if it is, it retrieves the associated alarm's response code and uses the
-     * `isAlarmActivated(Context context, int requestCode)` method to determine if the alarm
-     * is currently activated.
+     * Checks if a Reminder will go off, that is it is in the index and the alarm is pending.
      *
      * @param context  The application context.
      * @param reminder The Reminder for which to check the alarm activation status.
      * @return True if the alarm is activated for the Reminder, false otherwise.
      */
-    public static boolean isAlarmActivated(Context context, Reminder reminder) {
-        Collection<ActivatedAlarm> activatedAlarms = getActivatedAlarms();
-        if (activatedAlarms != null && !activatedAlarms.isEmpty()) {
-            for (ActivatedAlarm activatedAlarm : activatedAlarms) {
-                if (activatedAlarm.matches(reminder)) {
-                    return isAlarmActivated(context, activatedAlarm.getResponseCode());
-                }
-            }
-        }
-        return false;
+    public static synchronized boolean isAlarmActivated(Context context, Reminder reminder) {
+        getSchedule(context);
+        return scheduledByCreated.containsKey(reminder.getCreated()) && isAlarmActivated(context);
     }
 
     /**
-     * Checks if the alarm associated with the given ActivatedAlarm is currently activated.
-     * <p>
-     * This method uses the response code of the ActivatedAlarm to check if the alarm
-     * is currently activated.
-     *
-     * @param context        The application context.
-     * @param activatedAlarm The ActivatedAlarm for which to check the alarm activation status.
-     * @return True if the alarm is activated for the ActivatedAlarm, false otherwise.
-     */
-    public static boolean isAlarmActivated(Context context, ActivatedAlarm activatedAlarm) {
-        return isAlarmActivated(context, activatedAlarm.getResponseCode());
-    }
-
-    /**
-     * Checks if an alarm with the given requestCode is currently activated.
-     * <p>
-     * This method checks if a PendingIntent with the provided requestCode exists,
-     * indicating that the associated alarm is currently activated.
-     *
-     * @param context     The application context.
-     * @param requestCode The request code associated with the PendingIntent.
-     * @return True if the alarm is activated, false otherwise.
-     */
-    public static boolean isAlarmActivated(Context context, int requestCode) {
-        Intent intent = new Intent(context, ReminderReceiver.class);
-        PendingIntent alarmIntent = PendingIntent.getBroadcast(context, requestCode, intent, PendingIntent.FLAG_NO_CREATE);
-        return alarmIntent != null;
-    }
-
-    /**
-     * Inner class representing an activated alarm.
-     * It holds the creation time of the reminder and the associated response code.
+     * A reminder in the index: its time of day and the creation time identifying it. Reminders are
+     * ordered by time of day, and reminders at the same minute by creation time.
      */
     @Data
     @AllArgsConstructor
-    public static class ActivatedAlarm {
+    public static class ScheduledReminder implements Comparable<ScheduledReminder> {
+        private int minuteOfDay;
         private long reminderCreated;
-        private int responseCode;
+
+        @Override
+        public int compareTo(ScheduledReminder other) {
+            int c = Integer.compare(minuteOfDay, other.minuteOfDay);
+            return c != 0 ? c : Long.compare(reminderCreated, other.reminderCreated);
+        }
+
+        @Override
+        public String toString() {
+            return minuteOfDay + ":" + reminderCreated;
+        }
 
         /**
-         * Checks if this ActivatedAlarm matches the given Reminder based on the creation time.
+         * Reads a reminder written by {@link #toString()}.
          *
-         * @param reminder The Reminder to compare with this ActivatedAlarm.
-         * @return True if the reminder's creation time matches this ActivatedAlarm's creation time, false otherwise.
+         * @param entry The stored entry.
+         * @return The reminder, or null if the entry cannot be read.
          */
-        public boolean matches(Reminder reminder) {
-            Log.d(LOG_TAG, "Does " + reminderCreated + " = "
-                    + reminder.getCreated() + " "
-                    + (reminderCreated == reminder.getCreated()));
-            return reminderCreated == reminder.getCreated();
+        static ScheduledReminder parse(String entry) {
+            int separator = entry.indexOf(':');
+            try {
+                return new ScheduledReminder(Integer.parseInt(entry.substring(0, separator)),
+                        Long.parseLong(entry.substring(separator + 1)));
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                Log.e(LOG_TAG, "Dropping unreadable scheduled reminder " + entry);
+                return null;
+            }
         }
     }
 
     /**
-     * Generates a string containing information about the activated alarms associated with a patient's reminders.
-     * <p>
-     * This method prints the names of the reminders for which the alarms are activated.
+     * Generates a string describing the reminders that are on and the next alarm.
      *
      * @param context The application context.
      * @param id      The ID of the patient.
-     * @return A string containing information about the activated alarms.
+     * @return A string containing information about the scheduled reminders.
      */
-    public static String printAlarms(Context context, String id) {
+    public static synchronized String printAlarms(Context context, String id) {
         if (id == null || id.isEmpty()) {
             return "Invalid ID: Unable to print alarms.";
         }
-        Collection<ActivatedAlarm> activatedAlarms = getActivatedAlarms();
-        if (activatedAlarms == null || activatedAlarms.isEmpty()) {
+        TreeSet<ScheduledReminder> reminders = getSchedule(context);
+        if (reminders.isEmpty()) {
             return "No alarms set.";
         }
-
-        Collection<Reminder> reminders = PatientDataManager.loadReminderList(context, id);
-        if (reminders == null || reminders.isEmpty()) {
-            return "No reminders to print.";
-        }
-
-        Reminder[] reminderArray = reminders.toArray(new Reminder[0]);
-        int count = 0;
-        String answer = "The activated alarms are: \n";
-        for (ActivatedAlarm activatedAlarm : activatedAlarms) {
-            String info = "Activated Alarm " + count++;
-            for (Reminder r : reminderArray) {
-                if (activatedAlarm.matches(r)) {
-                    info += " name = " + r.getName() + "\n";
-                    break;
-                }
-            }
-            answer += info;
+        String answer = "The scheduled reminders are: \n";
+        for (ScheduledReminder s : reminders) {
+            answer += String.format(Locale.US, "%02d:%02d", s.getMinuteOfDay() / 60, s.getMinuteOfDay() % 60)
+                    + " created " + s.getReminderCreated() + "\n";
         }
-        Log.d(LOG_TAG, "There are " + reminders.size() + " reminders in the database. There are " + activatedAlarms.size() + " alarms activated.");
-        Log.d(LOG_TAG, "There are " + activatedAlarms.size() + " alarms set at this time.");
+        long next = PreferenceManager.getDefaultSharedPreferences(context).getLong(NEXT_ALARM_KEY, 0L);
+        answer += "Next alarm: " + (next > 0L && isAlarmActivated(context) ? new Date(next) : "none");
         Log.d(LOG_TAG, answer);
         return answer;
     }
@@ -1,65 +1,45 @@
 package com.example.symptommanagement.patient.Reminder;
 
-import android.app.AlarmManager;
-import android.app.PendingIntent;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.os.Build;
+import android.util.Log;
 
 /**
  * ReminderReceiver is a BroadcastReceiver responsible for receiving reminders and starting the
- * ReminderService to display the check-in notification.
+ * ReminderService to display the check-in notification. It then sets the alarm for the next reminder.
+ * <p>
+ * It also receives the restart of the device and changes of its clock, which the pending alarm does not
+ * survive or follow, and sets the alarm again from the reminders kept by the ReminderManager.
  */
 public class ReminderReceiver extends BroadcastReceiver {
 
+    private static final String LOG_TAG = ReminderReceiver.class.getSimpleName();
+
+    /**
+     * The extra holding the time the alarm was set for.
+     */
+    public static final String ALARM_TIME_EXTRA = "alarm_time";
+
     /**
      * This method is called when a reminder is received. It starts the ReminderService to display
-     * the check-in notification.
+     * the check-in notification and schedules the next reminder.
      *
      * @param context The context in which the receiver is running.
      * @param intent  The intent containing the reminder information.
      */
     @Override
     public void onReceive(Context context, Intent intent) {
-        // Start the ReminderService to display the check-in notification
-        Intent intentReminderService = new Intent(context, ReminderService.class);
-        context.startService(intentReminderService);
-        rescheduleAlarm(context, intent);
-    }
-
-    private void rescheduleAlarm(Context context, Intent intent) {
-        PendingIntent alarmIntent = PendingIntent.getBroadcast(
-                context,
-                0,
-                intent,
-                PendingIntent.FLAG_UPDATE_CURRENT
-        );
-
-        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
-
-        // Calculate the time for the next alarm (24 hours later)
-        long currentTimeMillis = System.currentTimeMillis();
-        long nextAlarmTimeMillis = currentTimeMillis + AlarmManager.INTERVAL_DAY;
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            alarmManager.setExactAndAllowWhileIdle(
-                    AlarmManager.RTC_WAKEUP,
-                    nextAlarmTimeMillis,
-                    alarmIntent
-            );
-        } else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
-            alarmManager.setExact(
-                    AlarmManager.RTC_WAKEUP,
-                    nextAlarmTimeMillis,
-                    alarmIntent
-            );
+        String action = intent.getAction();
+        if (Intent.ACTION_BOOT_COMPLETED.equals(action) || Intent.ACTION_TIME_CHANGED.equals(action)
+                || Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            Log.d(LOG_TAG, "Rescheduling the reminders after " + action);
         } else {
-            alarmManager.set(
-                    AlarmManager.RTC_WAKEUP,
-                    nextAlarmTimeMillis,
-                    alarmIntent
-            );
+            Log.d(LOG_TAG, "Reminder alarm set for " + intent.getLongExtra(ALARM_TIME_EXTRA, 0L) + " went off.");
+            // Start the ReminderService to display the check-in notification
+            Intent intentReminderService = new Intent(context, ReminderService.class);
+            context.startService(intentReminderService);
         }
+        ReminderManager.scheduleNextAlarm(context);
     }
 }
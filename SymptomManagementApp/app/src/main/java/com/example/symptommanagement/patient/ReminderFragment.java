@@ -17,6 +17,7 @@ import com.example.symptommanagement.data.PatientDataManager;
 import com.example.symptommanagement.data.Reminder;
 import com.example.symptommanagement.databinding.FragmentReminderBinding;
 import com.example.symptommanagement.patient.Reminder.ReminderManager;
+import com.example.symptommanagement.sync.SyncScheduler;
 
 import java.util.Collection;
 
@@ -153,6 +154,7 @@ public class ReminderFragment extends Fragment {
         // Insert the reminder data into the database
         Uri uri = getActivity().getContentResolver().insert(ReminderEntry.CONTENT_URI, cv);
         long objectId = ContentUris.parseId(uri);
+        SyncScheduler.recordLocalChange(getActivity());
 
         // Check if the insert was successful
         if (objectId < 0) {
@@ -204,6 +206,7 @@ public class ReminderFragment extends Fragment {
 
             // Log the number of rows deleted for debugging purposes
             Log.v(LOG_TAG, "Reminder rows deleted: " + rowsDeleted);
+            SyncScheduler.recordLocalChange(getActivity());
         }
 
         // Log the deletion of the reminder
@@ -252,6 +255,7 @@ public class ReminderFragment extends Fragment {
 
             // Log the number of rows updated for debugging purposes
             Log.v(LOG_TAG, "Reminder rows updated: " + rowsUpdated);
+            SyncScheduler.recordLocalChange(getActivity());
         }
 
         // Log the update of the reminder
@@ -260,10 +264,7 @@ public class ReminderFragment extends Fragment {
         // Print the alarms for debugging purposes
         ReminderManager.printAlarms(getActivity(), LoginUtility.getLoginId(getActivity()));
 
-        // Cancel the current alarm for the reminder
-        ReminderManager.cancelSingleReminderAlarm(getActivity(), remindersArr[position]);
-
-        // Set a new alarm for the updated reminder
+        // Move the reminder to its new time in the schedule
         ReminderManager.setSingleReminderAlarm(getActivity(), remindersArr[position]);
 
         // Print the alarms again for debugging purposes
@@ -1,25 +1,58 @@
 package com.example.symptommanagement.physician;
 
 import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+import android.util.LruCache;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
 import com.example.symptommanagement.R;
+import com.example.symptommanagement.client.CallableTask;
+import com.example.symptommanagement.client.SymptomManagementApi;
+import com.example.symptommanagement.client.SymptomManagementService;
+import com.example.symptommanagement.client.TaskCallback;
 import com.example.symptommanagement.data.HistoryLog;
+import com.example.symptommanagement.data.HistoryLogList;
 import com.example.symptommanagement.databinding.ListItemPatientHistoryLogBinding;
+import retrofit.client.Response;
+
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
 
 /**
- * Custom ArrayAdapter for displaying HistoryLog objects in a ListView.
- * This adapter efficiently handles view recycling using the ViewHolder pattern.
+ * Custom adapter for displaying a patient's HistoryLogList in a ListView.
+ * This adapter efficiently handles view recycling using the ViewHolder pattern. The rows are
+ * formatted when they are shown, and the next page of the history is merged as the list
+ * scrolls near its end. A status log with an image shows the thumbnail the patient uploaded in
+ * place of its icon, fetched from the server when the row is first shown.
  */
-public class HistoryLogAdapter extends ArrayAdapter<HistoryLog> {
+public class HistoryLogAdapter extends BaseAdapter {
+
+    /**
+     * The number of rows from the end of the merged rows at which the next page is loaded.
+     */
+    private static final int PREFETCH_DISTANCE = 10;
+
+    /**
+     * The number of thumbnails kept in memory.
+     */
+    private static final int THUMBNAIL_CACHE_SIZE = 30;
+
+    private static final String LOG_TAG = HistoryLogAdapter.class.getSimpleName();
 
     private final Context context;
-    private final HistoryLog[] logs;
-    private ListItemPatientHistoryLogBinding binding;
+    private final HistoryLogList logs;
+    private boolean loading = false;
+
+    // thumbnails by the creation time of their status log, and the ones already asked for
+    private final LruCache<Long, Bitmap> thumbnails = new LruCache<>(THUMBNAIL_CACHE_SIZE);
+    private final Set<Long> requested = new HashSet<>();
 
     /**
      * ViewHolder class to hold views for each list item
@@ -57,20 +90,35 @@ public class HistoryLogAdapter extends ArrayAdapter<HistoryLog> {
      * Constructor for the HistoryLogAdapter.
      *
      * @param context The application context.
-     * @param logs    An array of HistoryLog objects to be displayed.
+     * @param logs    The history of the patient to be displayed.
      */
-    public HistoryLogAdapter(Context context, HistoryLog[] logs) {
-        super(context, R.layout.list_item_patient_history_log, logs);
+    public HistoryLogAdapter(Context context, HistoryLogList logs) {
         this.context = context;
         this.logs = logs;
     }
 
+    @Override
+    public int getCount() {
+        return logs.size();
+    }
+
+    @Override
+    public HistoryLog getItem(int position) {
+        return logs.get(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
     /**
      * Get the view for a specific position in the list.
      * <p>
      * This method is responsible for creating or reusing a view for a specific position
      * in the list. It uses a ViewHolder pattern to efficiently manage the views and avoid
      * frequent calls to findViewById(), thus improving the performance of the ListView.
+     * When the position is close to the last merged row, the next page is loaded.
      *
      * @param position    The position of the item in the list.
      * @param convertView The recycled view to populate.
@@ -83,34 +131,75 @@ public class HistoryLogAdapter extends ArrayAdapter<HistoryLog> {
         if (convertView == null) {
             // Inflating the custom list item layout using LayoutInflater
             LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-            binding = ListItemPatientHistoryLogBinding.inflate(inflater, parent, false);
-            View rowView = binding.getRoot();
-
-            // Initializing the ViewHolder with views and setting the corresponding HistoryLog object
-            final ViewHolder viewHolder = new ViewHolder(rowView);
-            viewHolder.log = logs[position];
-            viewHolder.info.setText(logs[position].getInfo());
-            viewHolder.created.setText(logs[position].getFormattedCreatedDate());
-            viewHolder.typeIcon.setImageResource(getImageResourceForLogType(logs[position].getType()));
+            View rowView = ListItemPatientHistoryLogBinding.inflate(inflater, parent, false).getRoot();
 
             // Setting the ViewHolder as a tag for the rowView to enable efficient view recycling
-            rowView.setTag(viewHolder);
+            rowView.setTag(new ViewHolder(rowView));
             view = rowView;
         } else {
             // If convertView is not null (recycling view), retrieve the ViewHolder from its tag
             view = convertView;
         }
 
-        // Updating the ViewHolder with the appropriate HistoryLog object's data
+        // Updating the ViewHolder with the HistoryLog formatted for this row
         ViewHolder holder = (ViewHolder) view.getTag();
-        holder.info.setText(logs[position].getInfo());
-        holder.created.setText(logs[position].getFormattedCreatedDate());
-        holder.log = logs[position];
-        holder.typeIcon.setImageResource(getImageResourceForLogType(logs[position].getType()));
+        HistoryLog log = logs.get(position);
+        holder.info.setText(log.getInfo());
+        holder.created.setText(log.getFormattedCreatedDate());
+        holder.log = log;
+        Bitmap thumbnail = log.isImage() ? thumbnails.get(log.getCreated()) : null;
+        if (thumbnail != null) {
+            holder.typeIcon.setImageBitmap(thumbnail);
+        } else {
+            holder.typeIcon.setImageResource(getImageResourceForLogType(log.getType()));
+            if (log.isImage()) loadThumbnail(log.getCreated());
+        }
 
+        if (!loading && logs.hasMore() && position >= logs.size() - PREFETCH_DISTANCE) {
+            // the list must not see the count change while it lays out, so the page is added after
+            loading = true;
+            parent.post(() -> {
+                loading = false;
+                if (logs.loadMore() > 0) {
+                    notifyDataSetChanged();
+                }
+            });
+        }
         return view;
     }
 
+    /**
+     * Fetches the thumbnail of a status log image from the server, once. An image the patient has not
+     * uploaded yet is asked for again when the history is shown the next time.
+     *
+     * @param created The creation time of the status log.
+     */
+    private void loadThumbnail(long created) {
+        if (!requested.add(created)) return;
+        String patientId = logs.getPatientId();
+        // the thumbnails of a long history wait behind the calls the physician is waiting for
+        CallableTask.invoke(context, CallableTask.Priority.BACKGROUND, () -> {
+            SymptomManagementApi api = SymptomManagementService.getService();
+            if (api == null) return null;
+            Response response = api.getThumbnail(patientId, created);
+            try (InputStream in = response.getBody().in()) {
+                return BitmapFactory.decodeStream(in);
+            }
+        }, new TaskCallback<Bitmap>() {
+            @Override
+            public void success(Bitmap result) {
+                if (result == null) return;
+                thumbnails.put(created, result);
+                notifyDataSetChanged();
+            }
+
+            @Override
+            public void error(Exception e) {
+                Log.d(LOG_TAG, "No thumbnail for the status log at " + created + ": " + e.getMessage());
+            }
+        });
+    }
+
     /**
      * Get the resource ID of the icon corresponding to the given log type.
      *
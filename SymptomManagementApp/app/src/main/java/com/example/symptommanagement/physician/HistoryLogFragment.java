@@ -6,7 +6,7 @@ import android.app.ListFragment;
 import android.os.Bundle;
 import android.util.Log;
 import com.example.symptommanagement.R;
-import com.example.symptommanagement.data.HistoryLog;
+import com.example.symptommanagement.data.HistoryLogList;
 import com.example.symptommanagement.data.Patient;
 
 /**
@@ -44,9 +44,9 @@ public class HistoryLogFragment extends ListFragment {
     private static boolean allowBackup = false;
 
     /**
-     * Array of history logs to be displayed
+     * History logs to be displayed, merged a page at a time
      */
-    private static HistoryLog[] logList;
+    private static HistoryLogList logList;
 
     /**
      * Called when the fragment is being created.
@@ -111,7 +111,7 @@ public class HistoryLogFragment extends ListFragment {
     public void onResume() {
         super.onResume();
         patient = ((Callbacks) getActivity()).getPatientForHistory();
-        if (patient != null) Log.d(LOG_TAG, "History Patient is " + patient.toString());
+        if (patient != null) Log.d(LOG_TAG, "History Patient is " + patient.getId());
         displayLogList(patient);
     }
 
@@ -125,7 +125,7 @@ public class HistoryLogFragment extends ListFragment {
             Log.e(LOG_TAG, "Trying to set history log patient to null.");
             return;
         }
-        Log.d(LOG_TAG, "New Patient has arrived!" + patient.toString());
+        Log.d(LOG_TAG, "New Patient has arrived! " + patient.getId());
         HistoryLogFragment.patient = patient;
         displayLogList(HistoryLogFragment.patient);
     }
@@ -137,18 +137,16 @@ public class HistoryLogFragment extends ListFragment {
      */
     private void displayLogList(Patient patient) {
         if (patient != null) {
-            // Create the array of history logs for the patient
-            logList = PatientManager.createLogList(HistoryLogFragment.patient);
-            if (logList != null) {
-                try {
-                    // Set the list adapter to display the history logs
-                    setListAdapter(new HistoryLogAdapter(getActivity(), logList));
-                } catch (Exception e) {
-                    // Handle the case when a null pointer exception occurs on rotation
-                    Log.e(LOG_TAG, "This gets a null pointer on rotation sometimes. sigh!");
-                    logList = new HistoryLog[0];
-                    setListAdapter(new HistoryLogAdapter(getActivity(), logList));
-                }
+            // Create the history of the patient, only the first page is merged now
+            logList = new HistoryLogList(HistoryLogFragment.patient);
+            try {
+                // Set the list adapter to display the history logs
+                setListAdapter(new HistoryLogAdapter(getActivity(), logList));
+            } catch (Exception e) {
+                // Handle the case when a null pointer exception occurs on rotation
+                Log.e(LOG_TAG, "This gets a null pointer on rotation sometimes. sigh!");
+                logList = new HistoryLogList(new Patient());
+                setListAdapter(new HistoryLogAdapter(getActivity(), logList));
             }
         }
     }
@@ -50,7 +50,7 @@ public class MedicationManager {
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
             // Invoke the API service asynchronously using CallableTask
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(activity, () -> {
                 // If the medication ID is not provided, it's a new medication (add)
                 // Otherwise, update the existing medication
                 if (medication.getId() == null || medication.getId().isEmpty()) {
@@ -91,7 +91,7 @@ public class MedicationManager {
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
             // Invoke the API service asynchronously using CallableTask
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(activity, () -> {
                 Log.d(LOG_TAG, "Getting the list of all medications");
                 // Call the API to get all medications
                 return symptomManagementApi.getMedicationList();
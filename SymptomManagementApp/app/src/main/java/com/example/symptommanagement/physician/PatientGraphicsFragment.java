@@ -3,8 +3,10 @@ package com.example.symptommanagement.physician;
 import android.app.Activity;
 import android.app.Fragment;
 import android.content.res.Resources;
+import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.DashPathEffect;
+import android.graphics.RectF;
 import android.os.Bundle;
 import android.support.annotation.NonNull;
 import android.util.DisplayMetrics;
@@ -15,19 +17,18 @@ import android.view.ViewGroup;
 import android.widget.CheckBox;
 import android.widget.LinearLayout;
 import com.androidplot.Plot;
+import com.androidplot.PlotListener;
 import com.androidplot.pie.PieChart;
 import com.androidplot.pie.Segment;
 import com.androidplot.pie.SegmentFormatter;
 import com.androidplot.ui.AnchorPosition;
 import com.androidplot.xy.*;
 import com.example.symptommanagement.R;
-import com.example.symptommanagement.data.MedicationLog;
-import com.example.symptommanagement.data.PainLog;
+import com.example.symptommanagement.client.CallableTask;
+import com.example.symptommanagement.client.TaskCallback;
 import com.example.symptommanagement.data.Patient;
-import com.example.symptommanagement.data.graphics.EatingPlotPoint;
-import com.example.symptommanagement.data.graphics.MedicationPlotPoint;
-import com.example.symptommanagement.data.graphics.SeverityPlotPoint;
-import com.example.symptommanagement.data.graphics.TimePoint;
+import com.example.symptommanagement.data.graphics.DownsampledXYSeries;
+import com.example.symptommanagement.data.graphics.PatientPlotData;
 import com.example.symptommanagement.databinding.FragmentPatientGraphicsBinding;
 
 import java.text.FieldPosition;
@@ -112,62 +113,22 @@ public class PatientGraphicsFragment extends Fragment {
     /**
      * Series to plot eating data over time
      */
-    private SimpleXYSeries eatingSeries = null;  // by time
+    private DownsampledXYSeries eatingSeries = null;  // by time
 
     /**
      * Series to plot eating data aggregated by hour
      */
-    private SimpleXYSeries eatingSeriesByHour = null;
-
-    /**
-     * Series to plot eating data aggregated by day
-     */
-    private SimpleXYSeries eatingSeriesByDay = null;
-
-    /**
-     * Count of data points where the patient is not eating
-     */
-    private int notEatingCount = 0;
-
-    /**
-     * Count of data points where the patient is eating some food
-     */
-    private int eatingSomeCount = 0;
-
-    /**
-     * Count of data points where the patient is eating OK
-     */
-    private int eatingOkCount = 0;
+    private DownsampledXYSeries eatingSeriesByHour = null;
 
     /**
      * Series to plot severity data over time
      */
-    private SimpleXYSeries severitySeries = null; // by time
+    private DownsampledXYSeries severitySeries = null; // by time
 
     /**
      * Series to plot severity data aggregated by hour
      */
-    private SimpleXYSeries severitySeriesByHour = null;
-
-    /**
-     * Series to plot severity data aggregated by day
-     */
-    private SimpleXYSeries severitySeriesByDay = null;
-
-    /**
-     * Count of data points with severe pain severity
-     */
-    private int severeCount = 0;
-
-    /**
-     * Count of data points with moderate pain severity
-     */
-    private int moderateCount = 0;
-
-    /**
-     * Count of data points with controlled pain severity
-     */
-    private int controlledCount = 0;
+    private DownsampledXYSeries severitySeriesByHour = null;
 
     /**
      * PieChart to display data in a pie chart
@@ -209,11 +170,19 @@ public class PatientGraphicsFragment extends Fragment {
     private PatientGraph graph = PatientGraph.LINE_PLOT;
 
     /**
-     * Lists to store plot points for severity, eating, and medication data
+     * The severity, eating, and medication data of the patient, built on a worker thread
      */
-    private List<SeverityPlotPoint> severityPoints = null;
-    private List<EatingPlotPoint> eatingPoints = null;
-    private List<MedicationPlotPoint> medicationPoints = null;
+    private PatientPlotData plotData = null;
+
+    /**
+     * The task building the plot data, while it is running
+     */
+    private CallableTask<PatientPlotData> plotDataTask = null;
+
+    /**
+     * True while the series are sampled for a new zoom or pan window
+     */
+    private boolean sampling = false;
 
     /**
      * Layout to display the XY plot
@@ -298,6 +267,17 @@ public class PatientGraphicsFragment extends Fragment {
         xyChartLayout = rootView.findViewById(R.id.xy_chart_layout);
         simplePatientXYPlot = rootView.findViewById(R.id.patientGraphicsPlot);
         commonAndroidPlotSetting();
+        // Sample the series again when a zoom or pan changes the visible window
+        simplePatientXYPlot.addListener(new PlotListener() {
+            @Override
+            public void onBeforeDraw(Plot source, Canvas canvas) {
+            }
+
+            @Override
+            public void onAfterDraw(Plot source, Canvas canvas) {
+                source.post(() -> sampleVisibleWindow());
+            }
+        });
         xyChartLayout.setVisibility(View.INVISIBLE); // Set XY plot layout initially invisible
         pieChartLayout = rootView.findViewById(R.id.pie_chart_layout);
         pie = rootView.findViewById(R.id.PatientPieChart); // Get reference to the PieChart view
@@ -340,6 +320,15 @@ public class PatientGraphicsFragment extends Fragment {
         restartGraph();
     }
 
+    /**
+     * Cancels building the plot data when the fragment goes away, the result is no longer needed.
+     */
+    @Override
+    public void onDestroy() {
+        CallableTask.cancelAll(this);
+        super.onDestroy();
+    }
+
     /**
      * Restarts the graph based on the selected graph type (e.g., line plot, bar chart, etc.).
      * The visibility of the XY chart layout is updated accordingly, and the corresponding graph creation method is called.
@@ -372,55 +361,56 @@ public class PatientGraphicsFragment extends Fragment {
 
     /**
      * Handles the click event for the "Line Plot" button.
-     * If the patient data is ready for graphing, sets the graph type to line plot and creates the line plot.
+     * Sets the graph type to line plot and creates the line plot if the patient data is ready for graphing.
      */
     public void onClickLinePlot() {
         Log.d(LOG_TAG, "Line Plot Clicked");
+        graph = PatientGraph.LINE_PLOT;
         if (patientReadyForGraphing()) {
-            graph = PatientGraph.LINE_PLOT;
             createLinePlot();
         }
     }
 
     /**
      * Handles the click event for the "Bar Chart" button.
-     * If the patient data is ready for graphing, sets the graph type to bar chart and creates the bar chart.
+     * Sets the graph type to bar chart and creates the bar chart if the patient data is ready for graphing.
      */
     public void onClickBarPlot() {
         Log.d(LOG_TAG, "Bar Chart Clicked");
+        graph = PatientGraph.BAR_CHART;
         if (patientReadyForGraphing()) {
-            graph = PatientGraph.BAR_CHART;
             createBarChart();
         }
     }
 
     /**
      * Handles the click event for the "Scatter Plot" button.
-     * If the patient data is ready for graphing, sets the graph type to scatter plot and creates the scatter plot.
+     * Sets the graph type to scatter plot and creates the scatter plot if the patient data is ready for graphing.
      */
     public void onClickScatterPlot() {
         Log.d(LOG_TAG, "Scatter Plot Clicked");
+        graph = PatientGraph.SCATTER_CHART;
         if (patientReadyForGraphing()) {
-            graph = PatientGraph.SCATTER_CHART;
             createScatterPlot();
         }
     }
 
     /**
      * Handles the click event for the "Pie Chart" button.
-     * If the patient data is ready for graphing, sets the graph type to pie chart and creates the pie chart.
+     * Sets the graph type to pie chart and creates the pie chart if the patient data is ready for graphing.
      */
     public void onClickPiePlot() {
         Log.d(LOG_TAG, "Pie Plot Clicked");
+        graph = PatientGraph.PIE_CHART;
         if (patientReadyForGraphing()) {
-            graph = PatientGraph.PIE_CHART;
             createPieChart();
         }
     }
 
     /**
      * Checks if the patient data is ready for graphing. If not, retrieves the patient data from the hosting activity
-     * and generates data lists for graphing based on the patient's pain logs and medication logs.
+     * and starts building the plot data from the patient's pain logs and medication logs. The graph is restarted
+     * when the plot data is ready.
      *
      * @return true if the patient data is ready for graphing, false otherwise.
      */
@@ -432,15 +422,14 @@ public class PatientGraphicsFragment extends Fragment {
                 Log.d(LOG_TAG, "NO Patient Data for Graphing!");
                 return false;
             }
-            if (patientId == null) {
-                patientId = patient.getId();
-            }
-            if (!patient.getId().contentEquals(patientId) ||
-                    severityPoints == null || eatingPoints == null || medicationPoints == null) {
+            patientId = patient.getId();
+        }
+        if (plotData == null || !plotData.getPatientId().contentEquals(patientId)) {
+            if (plotDataTask == null) {
                 Log.d(LOG_TAG, "This is a new patient so we need to recalculate the series.");
                 generatePatientDataLists(patient);
             }
-            Log.d(LOG_TAG, "Current Patient to be Graphed : " + patient);
+            return false;
         }
         return true;
     }
@@ -455,49 +444,96 @@ public class PatientGraphicsFragment extends Fragment {
             Log.e(LOG_TAG, "Trying to set graphing patient to null.");
             return;
         }
-        Log.d(LOG_TAG, "New Patient has arrived!" + patient);
+        Log.d(LOG_TAG, "New Patient has arrived! " + patient.getId());
         this.patient = patient;
         patientId = patient.getId();
         generatePatientDataLists(this.patient);
-        restartGraph();
     }
 
     /**
-     * Generates data lists for graphing based on the patient's pain logs and medication logs.
+     * Builds the plot data from the patient's pain logs and medication logs on a worker thread,
+     * and restarts the graph when it is ready. A build still running for an older patient is cancelled.
      *
      * @param patient The patient data for graphing.
      */
-    private void generatePatientDataLists(Patient patient) {
+    private void generatePatientDataLists(final Patient patient) {
         if (patient == null) return;
-        resetCounts();
-        Collection<PainLog> painLogs = patient.getPainLog();
-
-        if (painLogs != null && painLogs.size() > 0) {
-            severityPoints = new ArrayList<>();
-            eatingPoints = new ArrayList<>();
-            for (PainLog log : painLogs) {
-                Log.d(LOG_TAG, "Adding Pain Log to Graph Data " + log.toString());
-                severityPoints.add(new SeverityPlotPoint(log.getCreated(), log.getSeverity().getValue()));
-                updateSeverityCounts(log.getSeverity().getValue());
-                eatingPoints.add((new EatingPlotPoint(log.getCreated(), log.getEating().getValue())));
-                updateEatingCounts(log.getEating().getValue());
+        if (plotDataTask != null) {
+            plotDataTask.cancel();
+        }
+        plotDataTask = CallableTask.invoke(this, () -> PatientPlotData.build(patient),
+                new TaskCallback<PatientPlotData>() {
+                    @Override
+                    public void success(PatientPlotData result) {
+                        plotDataTask = null;
+                        Log.d(LOG_TAG, "Plot data ready, " + result.getPainTimes().length + " pain logs and "
+                                + result.getMedicationTimes().length + " medication logs.");
+                        plotData = result;
+                        if (isAdded()) {
+                            restartGraph();
+                        }
+                    }
+
+                    @Override
+                    public void error(Exception e) {
+                        plotDataTask = null;
+                        Log.e(LOG_TAG, "Unable to build the plot data.", e);
+                    }
+                });
+    }
 
+    /**
+     * Samples the time series again when the visible window of the plot has changed, after a zoom or pan.
+     * The samples are taken on a worker thread and the plot is redrawn when they are ready. Only the
+     * points inside the window are read, and each series keeps about one point per pixel.
+     */
+    private void sampleVisibleWindow() {
+        if (sampling || !isAdded() || xyChartLayout.getVisibility() != View.VISIBLE) return;
+        final double minX = simplePatientXYPlot.getCalculatedMinX().doubleValue();
+        final double maxX = simplePatientXYPlot.getCalculatedMaxX().doubleValue();
+        final List<DownsampledXYSeries> series = new ArrayList<>();
+        for (DownsampledXYSeries s : new DownsampledXYSeries[]{severitySeries, eatingSeries}) {
+            if (s != null && simplePatientXYPlot.getSeriesSet().contains(s) && s.needsSample(minX, maxX)) {
+                series.add(s);
             }
         }
-        Collection<MedicationLog> medicationLogs = patient.getMedLog();
-        if (medicationLogs != null && medicationLogs.size() > 0) {
-            medicationPoints = new ArrayList<>();
-            for (MedicationLog m : medicationLogs) {
-                Log.d(LOG_TAG, "Adding Medication Log to Graph Data " + m.toString());
-                medicationPoints.add(new MedicationPlotPoint(m.getTaken(),
-                        m.getMed().getId(), m.getMed().getName()));
+        if (series.isEmpty()) return;
+
+        final int width = getPlotWidth();
+        sampling = true;
+        CallableTask.invoke(this, () -> {
+            List<DownsampledXYSeries.Sample> samples = new ArrayList<>();
+            for (DownsampledXYSeries s : series) {
+                samples.add(s.sample(minX, maxX, width));
             }
-        }
-        if (severityPoints != null && eatingPoints != null && medicationPoints != null) {
-            Log.d(LOG_TAG, "Severity Points : " + severityPoints);
-            Log.d(LOG_TAG, "Eating Points : " + eatingPoints.toString());
-            Log.d(LOG_TAG, "Med Log Points : " + medicationPoints.toString());
-        }
+            return samples;
+        }, new TaskCallback<List<DownsampledXYSeries.Sample>>() {
+            @Override
+            public void success(List<DownsampledXYSeries.Sample> result) {
+                sampling = false;
+                for (int i = 0; i < series.size(); i++) {
+                    series.get(i).show(result.get(i));
+                }
+                simplePatientXYPlot.redraw();
+            }
+
+            @Override
+            public void error(Exception e) {
+                sampling = false;
+                Log.e(LOG_TAG, "Unable to sample the series.", e);
+            }
+        });
+    }
+
+    /**
+     * Get the width of the plot grid in pixels, the number of points a series can show.
+     *
+     * @return the width in pixels
+     */
+    private int getPlotWidth() {
+        RectF grid = simplePatientXYPlot.getGraphWidget().getGridRect();
+        int width = (grid != null) ? (int) grid.width() : simplePatientXYPlot.getWidth();
+        return (width > 0) ? width : getResources().getDisplayMetrics().widthPixels;
     }
 
     /**
@@ -574,50 +610,27 @@ public class PatientGraphicsFragment extends Fragment {
     private void createBarChart() {
         setLayout(PatientGraph.BAR_CHART); // Set the layout for the bar chart
 
-        int count = 0;
-        if (severityPoints != null) {
-            count++;
-        }
-        if (eatingPoints != null) {
-            count++;
-        }
-        if (count == 0) {
+        if (plotData == null || !plotData.hasPainLogs()) {
             // If there is no data, log a message, and redraw the plot
             Log.d(LOG_TAG, "NO DATA to work with on the graphing!");
             simplePatientXYPlot.redraw();
             return;
         }
 
-        long minDate = -1;
-        long maxDate = minDate;
-        Log.d(LOG_TAG, "Creating data to plot");
-
-        // Check for severity data and create corresponding data series
-        if (severityPoints != null) {
-            severitySeries = new SimpleXYSeries("Severity Level");
-            severityPoints.sort(new TimePointSorter());
-            for (SeverityPlotPoint s : severityPoints) {
-                if (minDate < 0) {
-                    minDate = s.getActualDate();
-                }
-                if (maxDate < s.getActualDate()) {
-                    maxDate = s.getActualDate();
-                }
-                severitySeries.addLast(s.getTimeValue(), s.getSeverityValue());
-            }
-        }
+        // The series are sampled to the visible window once the plot is drawn, a wide window from the
+        // lowest and highest levels of each hour
+        double[] times = plotData.getPainTimes();
+        long minDate = PatientPlotData.startOfDay(times[0]);
+        long maxDate = PatientPlotData.startOfDay(times[times.length - 1]);
+        severitySeries = new DownsampledXYSeries("Severity Level", times, plotData.getSeverityValues(),
+                DownsampledXYSeries.Mode.MIN_MAX, plotData.getSeverityRangeTimes(),
+                plotData.getSeverityRanges(), PatientPlotData.HOUR);
+        eatingSeries = new DownsampledXYSeries("Eating Ability", times, plotData.getEatingValues(),
+                DownsampledXYSeries.Mode.MIN_MAX, plotData.getEatingRangeTimes(),
+                plotData.getEatingRanges(), PatientPlotData.HOUR);
         Log.d(LOG_TAG, "Min Date: " + minDate + " Max Date: " + maxDate + " num days is " +
                 (maxDate - minDate) / MS_IN_A_DAY + 1L);
 
-        // Check for eating data and create corresponding data series
-        if (eatingPoints != null) {
-            eatingSeries = new SimpleXYSeries("Eating Ability");
-            eatingPoints.sort(new TimePointSorter());
-            for (EatingPlotPoint eat : eatingPoints) {
-                eatingSeries.addLast(eat.getTimeValue(), eat.getEatingValue());
-            }
-        }
-
         simplePatientXYPlot.setRangeStep(XYStepMode.INCREMENT_BY_VAL, 100);
         simplePatientXYPlot.setRangeBoundaries(0, 300, BoundaryMode.FIXED);
         simplePatientXYPlot.getGraphWidget().setTicksPerRangeLabel(1);
@@ -695,14 +708,14 @@ public class PatientGraphicsFragment extends Fragment {
         commonAndroidPlotSetting();
 
         // Add severity series to the plot if it has data and is set to be shown
-        if (severitySeries.size() > 0 && showSeverity) {
+        if (severitySeries.getPointCount() > 0 && showSeverity) {
             BarFormatter bf1 = new BarFormatter(getResources().getColor(R.color.sm_severity), Color.TRANSPARENT);
             bf1.getFillPaint().setAlpha(200);
             simplePatientXYPlot.addSeries(severitySeries, bf1);
         }
 
         // Add eating series to the plot if it has data and is set to be shown
-        if (eatingSeries.size() > 0 && showEating) {
+        if (eatingSeries.getPointCount() > 0 && showEating) {
             BarFormatter bf1 = new BarFormatter(getResources().getColor(R.color.sm_eating), Color.TRANSPARENT);
             bf1.getFillPaint().setAlpha(200);
             simplePatientXYPlot.addSeries(eatingSeries, bf1);
@@ -728,65 +741,23 @@ public class PatientGraphicsFragment extends Fragment {
         // Set the layout for the line plot
         setLayout(PatientGraph.LINE_PLOT);
 
-        int count = 0;
-        // Check if there is severity data
-        if (severityPoints != null) {
-            count++;
-        }
-        // Check if there is eating data
-        if (eatingPoints != null) {
-            count++;
-        }
-        if (count == 0) {
+        if (plotData == null || !plotData.hasPainLogs()) {
             // If there is no data, log a message, and return without plotting
             Log.d(LOG_TAG, "NO DATA to work with on the graphing!");
             return;
         }
 
-        long minDate = -1;
-        long maxDate = minDate;
-        Log.d(LOG_TAG, "Creating data to plot");
-
-        // Check for severity data and create corresponding data series as 3-day averages
-        if (severityPoints != null) {
-            severitySeries = new SimpleXYSeries("Severity Level(3-day Avg)");
-            severityPoints.sort(new TimePointSorter());
-            SeverityPlotPoint[] sevArray =
-                    severityPoints.toArray(new SeverityPlotPoint[0]);
-            for (int i = 1; i < (severityPoints.size() - 1); i++) {
-                double movingAverage = (sevArray[i - 1].getSeverityValue()
-                        + sevArray[i].getSeverityValue()
-                        + sevArray[i + 1].getSeverityValue()) / 3.0;
-                if (minDate < 0) {
-                    minDate = sevArray[i].getActualDate();
-                }
-                if (maxDate < sevArray[i].getActualDate()) {
-                    maxDate = sevArray[i].getActualDate();
-                }
-                severitySeries.addLast(sevArray[i].getTimeValue(), movingAverage);
-            }
-        }
+        // The 3-day averages are sampled to the visible window once the plot is drawn
+        double[] times = plotData.getAverageTimes();
+        long minDate = (times.length > 0) ? PatientPlotData.startOfDay(times[0]) : -1;
+        long maxDate = (times.length > 0) ? PatientPlotData.startOfDay(times[times.length - 1]) : -1;
+        severitySeries = new DownsampledXYSeries("Severity Level(3-day Avg)", times,
+                plotData.getSeverityAverages(), DownsampledXYSeries.Mode.LTTB);
+        eatingSeries = new DownsampledXYSeries("Eating Ability(3-day Avg)", times,
+                plotData.getEatingAverages(), DownsampledXYSeries.Mode.LTTB);
         Log.d(LOG_TAG, "Min Date: " + minDate + " Max Date: " + maxDate + " num days is " +
                 (maxDate - minDate) / MS_IN_A_DAY + 1L);
 
-        // Check for eating data and create corresponding data series as 3-day averages
-        if (eatingPoints != null) {
-            eatingSeries = new SimpleXYSeries("Eating Ability(3-day Avg)");
-            eatingPoints.sort(new TimePointSorter());
-            EatingPlotPoint[] eatArray =
-                    eatingPoints.toArray(new EatingPlotPoint[0]);
-            for (int i = 1; i < (eatingPoints.size() - 1); i++) {
-                long value1 = (eatArray[i - 1].getEatingValue() == 100) ? 100 :
-                        (eatArray[i - 1].getEatingValue() == 200) ? 150 : 200;
-                long value2 = (eatArray[i].getEatingValue() == 100) ? 100 :
-                        (eatArray[i].getEatingValue() == 200) ? 150 : 200;
-                long value3 = (eatArray[i + 1].getEatingValue() == 100) ? 100 :
-                        (eatArray[i + 1].getEatingValue() == 200) ? 150 : 200;
-                double movingAverage = (value1 + value2 + value3) / 3.0;
-                eatingSeries.addLast(eatArray[i].getTimeValue(), movingAverage);
-            }
-        }
-
         simplePatientXYPlot.setRangeStep(XYStepMode.INCREMENT_BY_VAL, 50);
         simplePatientXYPlot.setRangeBoundaries(100, 300, BoundaryMode.FIXED);
         simplePatientXYPlot.getGraphWidget().setTicksPerRangeLabel(1); // Label every tick
@@ -863,7 +834,7 @@ public class PatientGraphicsFragment extends Fragment {
         commonAndroidPlotSetting();
 
         // Add severity series to the plot if it has data and is set to be shown
-        if (severitySeries.size() > 0 && showSeverity) {
+        if (severitySeries.getPointCount() > 0 && showSeverity) {
             LineAndPointFormatter severityLineFormat = new LineAndPointFormatter(
                     getResources().getColor(R.color.sm_severity), null,
                     getResources().getColor(R.color.sm_severity), null);
@@ -872,7 +843,7 @@ public class PatientGraphicsFragment extends Fragment {
         }
 
         // Add eating series to the plot if it has data and is set to be shown
-        if (eatingSeries.size() > 0 && showEating) {
+        if (eatingSeries.getPointCount() > 0 && showEating) {
             LineAndPointFormatter eatingLineFormat = new LineAndPointFormatter(
                     getResources().getColor(R.color.sm_eating), null,
                     getResources().getColor(R.color.sm_eating), null);
@@ -891,47 +862,20 @@ public class PatientGraphicsFragment extends Fragment {
         // Set the layout for the scatter plot
         setLayout(PatientGraph.SCATTER_CHART);
 
-        int count = 0;
-        // Check if there is severity data
-        if (severityPoints != null) {
-            count++;
-        }
-        // Check if there is eating data
-        if (eatingPoints != null) {
-            count++;
-        }
-        if (count == 0) {
+        if (plotData == null || !plotData.hasPainLogs()) {
             // If there is no data, log a message, redraw the plot, and return
             Log.d(LOG_TAG, "NO DATA to work with on the graphing!");
             simplePatientXYPlot.redraw();
             return;
         }
 
-        Log.d(LOG_TAG, "Creating data to plot");
-
-        // Check for severity data and create corresponding data series by hour and day of the week
-        if (severityPoints != null) {
-            severitySeriesByHour = new SimpleXYSeries("Severity By Hour");
-            severitySeriesByDay = new SimpleXYSeries("Severity by Day of Week");
-            for (SeverityPlotPoint s : severityPoints) {
-                double valueHour = s.getHour() + (s.getMinutes() / 60.0);
-                severitySeriesByHour.addLast(valueHour, s.getSeverityValue());
-                double valueDay = s.getDayOfWeek() + (s.getHour() / 24.0);
-                severitySeriesByDay.addLast(valueDay, s.getSeverityValue());
-            }
-        }
-
-        // Check for eating data and create corresponding data series by hour and day of the week
-        if (eatingPoints != null) {
-            eatingSeriesByHour = new SimpleXYSeries("Eating Ability By Hour");
-            eatingSeriesByDay = new SimpleXYSeries("Eating Ability By Day of Week");
-            for (EatingPlotPoint eat : eatingPoints) {
-                double valueHour = eat.getHour() + (eat.getMinutes() / 60.0);
-                eatingSeriesByHour.addLast(valueHour, eat.getEatingValue());
-                double valueDay = eat.getDayOfWeek() + (eat.getHour() / 24.0);
-                eatingSeriesByDay.addLast(valueDay, eat.getEatingValue());
-            }
-        }
+        // Each point is shown once for each minute of the day and value, so the series are small
+        severitySeriesByHour = new DownsampledXYSeries("Severity By Hour", plotData.getSeverityHours(),
+                plotData.getSeverityByHour(), DownsampledXYSeries.Mode.NONE);
+        severitySeriesByHour.show(severitySeriesByHour.sample(0, 24, 0));
+        eatingSeriesByHour = new DownsampledXYSeries("Eating Ability By Hour", plotData.getEatingHours(),
+                plotData.getEatingByHour(), DownsampledXYSeries.Mode.NONE);
+        eatingSeriesByHour.show(eatingSeriesByHour.sample(0, 24, 0));
 
         simplePatientXYPlot.setDomainStep(XYStepMode.INCREMENT_BY_VAL, 1);
         simplePatientXYPlot.setDomainBoundaries(0, 23, BoundaryMode.FIXED);
@@ -1018,14 +962,14 @@ public class PatientGraphicsFragment extends Fragment {
         Log.d(LOG_TAG, "setting up the drawing information");
 
         // Add severity series by hour to the plot if it has data and is set to be shown
-        if (severitySeriesByHour.size() > 0 && showSeverity) {
+        if (severitySeriesByHour.getPointCount() > 0 && showSeverity) {
             LineAndPointFormatter severityPointFormat = new LineAndPointFormatter(
                     null, getResources().getColor(R.color.sm_severity), null, null);
             simplePatientXYPlot.addSeries(severitySeriesByHour, severityPointFormat);
         }
 
         // Add eating series by hour to the plot if it has data and is set to be shown
-        if (eatingSeriesByHour.size() > 0 && showEating) {
+        if (eatingSeriesByHour.getPointCount() > 0 && showEating) {
             LineAndPointFormatter eatingPointFormat = new LineAndPointFormatter(
                     null, getResources().getColor(R.color.sm_eating), null, null);
             simplePatientXYPlot.addSeries(eatingSeriesByHour, eatingPointFormat);
@@ -1043,13 +987,13 @@ public class PatientGraphicsFragment extends Fragment {
         setLayout(PatientGraph.PIE_CHART); // Set the layout for the pie chart
 
         // Create segments for each category of severity and eating
-        painSevere = new Segment("Severe", severeCount);
-        painModerate = new Segment("Moderate", moderateCount);
-        painControlled = new Segment("Well-Controlled", controlledCount);
+        painSevere = new Segment("Severe", plotData.getSevereCount());
+        painModerate = new Segment("Moderate", plotData.getModerateCount());
+        painControlled = new Segment("Well-Controlled", plotData.getControlledCount());
 
-        eatingNone = new Segment("Not Eating", notEatingCount);
-        eatingSome = new Segment("Some", eatingSomeCount);
-        eatingOK = new Segment("Eating OK", eatingOkCount);
+        eatingNone = new Segment("Not Eating", plotData.getNotEatingCount());
+        eatingSome = new Segment("Some", plotData.getEatingSomeCount());
+        eatingOK = new Segment("Eating OK", plotData.getEatingOkCount());
 
         // Create segment formatters and configure them with colors and styles
         sf1 = new SegmentFormatter();
@@ -1149,64 +1093,4 @@ public class PatientGraphicsFragment extends Fragment {
         // Clear the pie chart
         pie.clear();
     }
-
-    /**
-     * A private static nested class used for sorting TimePoint objects based on their time values.
-     */
-    private static class TimePointSorter implements Comparator<TimePoint> {
-
-        /**
-         * Compares two TimePoint objects based on their time values.
-         *
-         * @param x The first TimePoint object to compare.
-         * @param y The second TimePoint object to compare.
-         * @return A negative integer, zero, or a positive integer as the first argument
-         * is less than, equal to, or greater than the second argument.
-         */
-        public int compare(TimePoint x, TimePoint y) {
-            return Long.compare(x.getTimeValue(), y.getTimeValue());
-        }
-    }
-
-    /**
-     * Resets the counts of severity and eating categories.
-     */
-    private void resetCounts() {
-        notEatingCount = 0;
-        eatingSomeCount = 0;
-        eatingOkCount = 0;
-        severeCount = 0;
-        moderateCount = 0;
-        controlledCount = 0;
-    }
-
-    /**
-     * Updates the count for the given severity value.
-     *
-     * @param value The severity value to be updated.
-     */
-    private void updateSeverityCounts(int value) {
-        if (PainLog.Severity.SEVERE.getValue() == value) {
-            severeCount++;
-        } else if (PainLog.Severity.MODERATE.getValue() == value) {
-            moderateCount++;
-        } else if (PainLog.Severity.WELL_CONTROLLED.getValue() == value) {
-            controlledCount++;
-        }
-    }
-
-    /**
-     * Updates the count for the given eating value.
-     *
-     * @param value The eating value to be updated.
-     */
-    private void updateEatingCounts(int value) {
-        if (PainLog.Eating.NOT_EATING.getValue() == value) {
-            notEatingCount++;
-        } else if (PainLog.Eating.SOME_EATING.getValue() == value) {
-            eatingSomeCount++;
-        } else if (PainLog.Eating.EATING.getValue() == value) {
-            eatingOkCount++;
-        }
-    }
 }
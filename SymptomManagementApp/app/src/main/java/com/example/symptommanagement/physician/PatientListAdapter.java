@@ -11,19 +11,19 @@ import android.widget.LinearLayout;
 import android.widget.TextView;
 import com.example.symptommanagement.R;
 import com.example.symptommanagement.data.Alert;
-import com.example.symptommanagement.data.Patient;
+import com.example.symptommanagement.data.PatientSummary;
 import com.example.symptommanagement.databinding.ListItemPatientListBinding;
-import com.example.symptommanagement.sync.SymptomManagementSyncAdapter;
 
 /**
- * The PatientListAdapter is an ArrayAdapter used to populate a list of patients with their
- * information in a custom layout. It efficiently manages the list view and uses a ViewHolder
- * pattern for better performance during scrolling.
+ * The PatientListAdapter is an ArrayAdapter used to populate a list of patients from their server
+ * maintained summaries in a custom layout. Each row shows the patient's name, last check-in and last
+ * pain log, and the open alert. It efficiently manages the list view and uses a ViewHolder pattern
+ * for better performance during scrolling.
  */
-public class PatientListAdapter extends ArrayAdapter<Patient> {
+public class PatientListAdapter extends ArrayAdapter<PatientSummary> {
 
     private final Context context;
-    private final Patient[] patients;
+    private final PatientSummary[] summaries;
     private ListItemPatientListBinding binding;
 
     /**
@@ -44,19 +44,19 @@ public class PatientListAdapter extends ArrayAdapter<Patient> {
             thisLayout = view.findViewById(R.id.patient_list_item);
         }
 
-        Patient patient; // Reference to the associated Patient object for this ViewHolder
+        PatientSummary summary; // Reference to the associated PatientSummary object for this ViewHolder
     }
 
     /**
      * Constructor for creating the PatientListAdapter.
      *
-     * @param context  The context of the activity or fragment using this adapter.
-     * @param patients An array of Patient objects to display in the list.
+     * @param context   The context of the activity or fragment using this adapter.
+     * @param summaries An array of PatientSummary objects to display in the list.
      */
-    public PatientListAdapter(Context context, Patient[] patients) {
-        super(context, R.layout.list_item_patient_list, patients);
+    public PatientListAdapter(Context context, PatientSummary[] summaries) {
+        super(context, R.layout.list_item_patient_list, summaries);
         this.context = context;
-        this.patients = patients;
+        this.summaries = summaries;
     }
 
     /**
@@ -76,19 +76,7 @@ public class PatientListAdapter extends ArrayAdapter<Patient> {
             LayoutInflater inflater = (LayoutInflater) context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
             binding = ListItemPatientListBinding.inflate(inflater, parent, false);
             View rowView = binding.getRoot();
-            final ViewHolder viewHolder = new ViewHolder(rowView);
-            viewHolder.patient = patients[position];
-            viewHolder.patientName.setText(patients[position].getName());
-            viewHolder.lastLog.setText(patients[position].getFormattedLastLogged());
-            // Set the visibility and background color based on the patient's alert severity level
-            int severity = SymptomManagementSyncAdapter.findPatientAlertSeverityLevel(patients[position]);
-            viewHolder.alertIcon.setVisibility(severity > Alert.PAIN_SEVERITY_LEVEL_0
-                    ? ImageView.VISIBLE : ImageView.INVISIBLE);
-            int bgColor = (severity > Alert.PAIN_SEVERITY_LEVEL_0
-                    ? getContext().getResources().getColor(R.color.sm_pale_yellow)
-                    : getContext().getResources().getColor(R.color.white));
-            viewHolder.thisLayout.setBackgroundColor(bgColor);
-            rowView.setTag(viewHolder);
+            rowView.setTag(new ViewHolder(rowView));
             view = rowView;
         } else {
             view = convertView;
@@ -96,17 +84,54 @@ public class PatientListAdapter extends ArrayAdapter<Patient> {
 
         ViewHolder holder = (ViewHolder) view.getTag();
         // Update the views with the patient's information
-        holder.patientName.setText(patients[position].getName());
-        holder.lastLog.setText(patients[position].getFormattedLastLogged());
-        holder.patient = patients[position];
-        // Update the visibility and background color based on the patient's alert severity level
-        int severity = SymptomManagementSyncAdapter.findPatientAlertSeverityLevel(patients[position]);
+        bindSummary(holder, summaries[position]);
+        return view;
+    }
+
+    /**
+     * Shows a patient summary in a row: the name, the last check-in and pain log (or the last login
+     * while the patient has logged nothing), and the alert icon and background color of the open alert.
+     *
+     * @param holder  The ViewHolder of the row.
+     * @param summary The PatientSummary to show.
+     */
+    private void bindSummary(ViewHolder holder, PatientSummary summary) {
+        holder.summary = summary;
+        holder.patientName.setText(summary.getName());
+        holder.lastLog.setText(getLastLogText(summary));
+        int severity = summary.getAlertSeverityLevel();
         holder.alertIcon.setVisibility(severity > Alert.PAIN_SEVERITY_LEVEL_0
                 ? ImageView.VISIBLE : ImageView.INVISIBLE);
         int bgColor = (severity > Alert.PAIN_SEVERITY_LEVEL_0
                 ? getContext().getResources().getColor(R.color.sm_pale_yellow)
                 : getContext().getResources().getColor(R.color.white));
         holder.thisLayout.setBackgroundColor(bgColor);
-        return view;
+    }
+
+    /**
+     * Builds the text of the last logs of a patient, one line for the check-in and one for the pain
+     * log, falling back to the last login when the patient has logged neither.
+     *
+     * @param summary The PatientSummary of the patient.
+     * @return The text to show below the patient's name.
+     */
+    private String getLastLogText(PatientSummary summary) {
+        StringBuilder text = new StringBuilder();
+        if (summary.getLastCheckIn() > 0L) {
+            text.append(context.getString(R.string.patient_list_last_check_in,
+                    summary.getFormattedDate(summary.getLastCheckIn())));
+        }
+        if (summary.getLastPainLog() > 0L) {
+            if (text.length() > 0) {
+                text.append('\n');
+            }
+            text.append(context.getString(R.string.patient_list_last_pain_log,
+                    summary.getFormattedDate(summary.getLastPainLog())));
+        }
+        if (text.length() == 0 && summary.getLastLogin() > 0L) {
+            text.append(context.getString(R.string.patient_list_last_login,
+                    summary.getFormattedDate(summary.getLastLogin())));
+        }
+        return text.toString();
     }
 }
@@ -2,6 +2,7 @@ package com.example.symptommanagement.physician;
 
 
 import android.app.Activity;
+import android.content.Context;
 import android.util.Log;
 import android.widget.Toast;
 import com.example.symptommanagement.client.CallableTask;
@@ -9,17 +10,14 @@ import com.example.symptommanagement.client.SymptomManagementApi;
 import com.example.symptommanagement.client.SymptomManagementService;
 import com.example.symptommanagement.client.TaskCallback;
 import com.example.symptommanagement.data.*;
+import retrofit.RetrofitError;
 
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.TreeSet;
 
 /**
  * The PatientManager class provides static methods to interact with patient data and perform operations
  * related to patients, such as fetching patient information from the cloud, updating patient records,
- * and searching for patients by name. It also includes a method to create a sorted list of history logs
- * for a specific patient.
+ * and searching for patients by name.
  */
 public class PatientManager {
 
@@ -38,7 +36,9 @@ public class PatientManager {
     }
 
     /**
-     * Retrieves a patient's information from the cloud using the patient ID.
+     * Retrieves a patient's information using the patient ID. A cached copy of the patient is shown
+     * right away, and then replaced if the cloud has a newer version. Only patients that are not
+     * cached have to wait for the download.
      *
      * @param activity  The activity or fragment calling this method.
      * @param patientId The ID of the patient to retrieve from the cloud.
@@ -50,24 +50,84 @@ public class PatientManager {
             return;
         }
         Log.d(LOG_TAG, "getting Patient ID : " + patientId);
-        final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
-        if (SymptomManagementService.getService() != null) {
-            CallableTask.invoke(() -> symptomManagementApi.getPatient(patientId), new TaskCallback<Patient>() {
-                @Override
-                public void success(Patient result) {
-                    Log.d(LOG_TAG, "Found Patient :" + result.toString());
+        final Context context = activity.getApplicationContext();
+        Patient cached = PatientCache.getFromMemory(context, patientId);
+        if (cached != null) {
+            Log.d(LOG_TAG, "Showing the Patient from memory, checking the cloud for changes.");
+            ((Callbacks) activity).setPatient(cached);
+            revalidatePatient(activity, patientId, cached);
+            return;
+        }
+        // the copy stored on the device is read off the UI thread
+        CallableTask.invoke(activity, () -> PatientCache.get(context, patientId), new TaskCallback<Patient>() {
+            @Override
+            public void success(Patient result) {
+                if (result != null) {
+                    Log.d(LOG_TAG, "Showing the Patient stored on the device, checking the cloud for changes.");
                     ((Callbacks) activity).setPatient(result);
                 }
+                revalidatePatient(activity, patientId, result);
+            }
 
-                @Override
-                public void error(Exception e) {
-                    Toast.makeText(activity,
-                            "Unable to fetch the Patient data. " +
-                                    "Please check Internet connection and try again.",
-                            Toast.LENGTH_LONG).show();
-                }
-            });
+            @Override
+            public void error(Exception e) {
+                revalidatePatient(activity, patientId, null);
+            }
+        });
+    }
+
+    /**
+     * Asks the cloud for the patient, sending the version of the cached copy so the whole record is only
+     * downloaded when it has changed. A changed record is cached and sent to the activity.
+     *
+     * @param activity  The activity or fragment calling this method.
+     * @param patientId The ID of the patient to retrieve from the cloud.
+     * @param cached    The cached copy of the patient shown now, or null if there is none.
+     */
+    private static void revalidatePatient(final Activity activity, final String patientId, final Patient cached) {
+        final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
+        if (symptomManagementApi == null) {
+            return;
         }
+        final Context context = activity.getApplicationContext();
+        CallableTask.invoke(activity, () -> {
+            if (cached != null) {
+                // the physician is looking at the cached copy, so it stays on the device
+                PatientCache.touch(context, patientId);
+            }
+            try {
+                Patient result = symptomManagementApi.getPatient(patientId, PatientCache.getETag(cached));
+                PatientCache.put(context, result);
+                return result;
+            } catch (RetrofitError e) {
+                if (cached != null && SymptomManagementService.isNotModified(e)) {
+                    return cached;
+                }
+                throw e;
+            }
+        }, new TaskCallback<Patient>() {
+            @Override
+            public void success(Patient result) {
+                if (result == cached) {
+                    Log.d(LOG_TAG, "The cached Patient is up to date.");
+                    return;
+                }
+                Log.d(LOG_TAG, "Found Patient :" + result.toString());
+                ((Callbacks) activity).setPatient(result);
+            }
+
+            @Override
+            public void error(Exception e) {
+                if (cached != null) {
+                    Log.d(LOG_TAG, "Unable to check the cloud, showing the cached Patient.");
+                    return;
+                }
+                Toast.makeText(activity,
+                        "Unable to fetch the Patient data. " +
+                                "Please check Internet connection and try again.",
+                        Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
     /**
@@ -85,9 +145,13 @@ public class PatientManager {
         }
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
-            CallableTask.invoke(() -> {
+            final Context context = activity.getApplicationContext();
+            final String requestId = SymptomManagementService.createRequestId();
+            CallableTask.invoke(activity, () -> {
                 Log.d(LOG_TAG, "Updating single Patient id : " + patientRecord.getId());
-                return symptomManagementApi.updatePatient(patientRecord.getId(), patientRecord);
+                Patient result = symptomManagementApi.updatePatient(patientRecord.getId(), requestId, patientRecord);
+                PatientCache.put(context, result);
+                return result;
             }, new TaskCallback<Patient>() {
                 @Override
                 public void success(Patient result) {
@@ -118,7 +182,7 @@ public class PatientManager {
         }
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(activity, () -> {
                 Log.d(LOG_TAG, "Searching for full name on the server : " + fullName);
                 return symptomManagementApi.findByPatientName(fullName);
             }, new TaskCallback<Collection<Patient>>() {
@@ -146,94 +210,24 @@ public class PatientManager {
     }
 
     /**
-     * Creates a sorted list of history logs for a specific patient. The history logs include
-     * check-in logs, pain logs, medication logs, and status logs.
+     * Searches the cloud for patients while the physician types. Only the ID, names and birthdate of
+     * the patients are returned, the physician selects one to get the full record.
      *
-     * @param mPatient The patient for whom to generate the history log list.
-     * @return An array of HistoryLog objects sorted in descending order of created timestamp.
+     * @param owner    The fragment waiting for the result, its search is dropped when it goes away.
+     * @param text     The text typed so far.
+     * @param limit    The most patients to return.
+     * @param callback The callback receiving the matching patients.
+     * @return the search, which can be cancelled when the text changes, or null if there is no service
      */
-    public static synchronized HistoryLog[] createLogList(Patient mPatient) {
-        // Use a TreeSet with a custom comparator to sort the logs based on the created timestamp
-        HistoryLogSorter sorter = new HistoryLogSorter();
-        TreeSet<HistoryLog> sortedLogs = new TreeSet<>(Collections.reverseOrder(sorter));
-
-        // Collect and create history logs for check-in logs
-        Collection<CheckInLog> checkinLogs = mPatient.getCheckinLog();
-        if (checkinLogs != null) {
-            for (CheckInLog p : checkinLogs) {
-                HistoryLog h = new HistoryLog();
-                h.setCreated(p.getCreated());
-                h.setType(HistoryLog.LogType.CHECK_IN_LOG);
-                String info = "Checked In with Reminder.";
-                h.setInfo(info);
-                sortedLogs.add(h);
-            }
-        }
-
-        // Collect and create history logs for pain logs
-        Collection<PainLog> painLogs = mPatient.getPainLog();
-        if (painLogs != null) {
-            for (PainLog p : painLogs) {
-                HistoryLog h = new HistoryLog();
-                h.setCreated(p.getCreated());
-                HistoryLog.LogType hType =
-                        (p.getCheckinId() > 0L ? HistoryLog.LogType.CHECK_IN_PAIN_LOG : HistoryLog.LogType.PAIN_LOG);
-                h.setType(hType);
-                String severity = (p.getSeverity() == PainLog.Severity.SEVERE) ? "SEVERE"
-                        : (p.getSeverity() == PainLog.Severity.MODERATE) ? "Moderate" : "Well-Controlled";
-                String eating = (p.getEating() == PainLog.Eating.NOT_EATING) ? "NOT EATING"
-                        : (p.getEating() == PainLog.Eating.SOME_EATING) ? "Some Eating" : "Eating";
-                String info = "Pain : " + severity + " -- " + eating;
-                h.setInfo(info);
-                sortedLogs.add(h);
-            }
-        }
-
-        // Collect and create history logs for medication logs
-        Collection<MedicationLog> medLogs = mPatient.getMedLog();
-        if (medLogs != null) {
-            for (MedicationLog m : medLogs) {
-                HistoryLog h = new HistoryLog();
-                h.setCreated(m.getCreated());
-                HistoryLog.LogType hType =
-                        (m.getCheckinId() > 0L ? HistoryLog.LogType.CHECK_IN_MED_LOG : HistoryLog.LogType.MED_LOG);
-                h.setType(hType);
-                String name = m.getMed().getName();
-                String taken = m.getTakenDateFormattedString(" hh:mm a 'on' E, MMM d yyyy");
-                String info = name + " taken " + taken;
-                h.setInfo(info);
-                sortedLogs.add(h);
-            }
-        }
-
-        // Collect and create history logs for status logs
-        Collection<StatusLog> statusLogs = mPatient.getStatusLog();
-        if (statusLogs != null) {
-            for (StatusLog s : statusLogs) {
-                HistoryLog h = new HistoryLog();
-                h.setCreated(s.getCreated());
-                h.setType(HistoryLog.LogType.STATUS_LOG);
-                String image = (s.getImage_location() != null && !s.getImage_location().isEmpty())
-                        ? " - Image Taken By Patient" : "";
-                String info = "Note: " + s.getNote() + " " + image;
-                h.setInfo(info);
-                sortedLogs.add(h);
-            }
-        }
-
-        // Convert the sorted logs to an array and return
-        if (sortedLogs.size() == 0) {
-            return new HistoryLog[0];
-        }
-        return sortedLogs.toArray(new HistoryLog[0]);
-    }
-
-    /**
-     * The HistoryLogSorter class is a comparator used to sort HistoryLog objects based on their created timestamp.
-     */
-    public static class HistoryLogSorter implements Comparator<HistoryLog> {
-        public int compare(HistoryLog x, HistoryLog y) {
-            return Long.compare(x.getCreated(), y.getCreated());
+    public static CallableTask<Collection<Patient>> searchPatients(Object owner, final String text, final int limit,
+                                                                   TaskCallback<Collection<Patient>> callback) {
+        final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
+        if (symptomManagementApi == null) {
+            return null;
         }
+        return CallableTask.invoke(owner, () -> {
+            Log.d(LOG_TAG, "Searching for patients on the server : " + text);
+            return symptomManagementApi.searchPatients(text, limit);
+        }, callback);
     }
 }
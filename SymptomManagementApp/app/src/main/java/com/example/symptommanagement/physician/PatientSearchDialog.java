@@ -4,13 +4,30 @@ import android.app.AlertDialog;
 import android.app.Dialog;
 import android.app.DialogFragment;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.Editable;
+import android.text.TextWatcher;
+import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.widget.ArrayAdapter;
 import com.example.symptommanagement.R;
+import com.example.symptommanagement.client.CallableTask;
+import com.example.symptommanagement.client.TaskCallback;
+import com.example.symptommanagement.data.Patient;
 import com.example.symptommanagement.databinding.DialogPatientSearchBinding;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 /**
  * A dialog fragment for searching patients by name.
+ * <p>
+ * The patients matching the names typed so far are listed below the names. The server is only asked
+ * once the physician stops typing for a moment, and a search that is still running when the names
+ * change again is cancelled, so the list never shows the results of older text.
  */
 public class PatientSearchDialog extends DialogFragment {
 
@@ -19,9 +36,33 @@ public class PatientSearchDialog extends DialogFragment {
      */
     public final static String FRAGMENT_TAG = "fragment_patient_search_dialog";
 
+    private final static String LOG_TAG = PatientSearchDialog.class.getSimpleName();
+
+    /**
+     * The time to wait after the last key typed before searching, in milliseconds.
+     */
+    public static final long SEARCH_DELAY = 300L;
+
+    /**
+     * The shortest text that is searched for.
+     */
+    public static final int MIN_SEARCH_LENGTH = 2;
+
+    /**
+     * The most patients listed.
+     */
+    public static final int MAX_RESULTS = 10;
+
     // View binding for the dialog
     private DialogPatientSearchBinding binding;
 
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Runnable searchRunnable = this::search;
+    private final List<Patient> results = new ArrayList<>();
+    private ArrayAdapter<String> resultsAdapter;
+    private CallableTask<Collection<Patient>> searchTask;
+    private String searchedText = "";
+
     /**
      * Callback interface to handle name selection.
      */
@@ -33,6 +74,13 @@ public class PatientSearchDialog extends DialogFragment {
          * @param firstName The selected first name.
          */
         void onNameSelected(String lastName, String firstName);
+
+        /**
+         * Called when a patient is selected from the search results.
+         *
+         * @param patient The selected patient, holding only the ID, names and birthdate.
+         */
+        void onPatientSelected(Patient patient);
     }
 
     /**
@@ -74,6 +122,32 @@ public class PatientSearchDialog extends DialogFragment {
         binding.patientSearchLastName.setText(lastName);
         binding.patientSearchFirstName.setTag(firstName);
 
+        // Search again whenever the physician stops typing
+        TextWatcher watcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                handler.removeCallbacks(searchRunnable);
+                handler.postDelayed(searchRunnable, SEARCH_DELAY);
+            }
+        };
+        binding.patientSearchFirstName.addTextChangedListener(watcher);
+        binding.patientSearchLastName.addTextChangedListener(watcher);
+
+        resultsAdapter = new ArrayAdapter<>(getActivity(), android.R.layout.simple_list_item_1, new ArrayList<>());
+        binding.patientSearchResults.setAdapter(resultsAdapter);
+        binding.patientSearchResults.setOnItemClickListener((parent, v, position, id) -> {
+            ((Callbacks) getActivity()).onPatientSelected(results.get(position));
+            dismiss();
+        });
+
         // Create an AlertDialog using the AlertDialog.Builder
         AlertDialog.Builder builder = new AlertDialog.Builder(getActivity())
                 .setTitle(title)
@@ -96,4 +170,56 @@ public class PatientSearchDialog extends DialogFragment {
         // Create and return the dialog
         return builder.create();
     }
+
+    /**
+     * Lifecycle method: Called when the dialog is destroyed. The pending and running searches are dropped.
+     */
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacks(searchRunnable);
+        CallableTask.cancelAll(this);
+        super.onDestroy();
+    }
+
+    /**
+     * Search for the names typed, unless they were searched for already.
+     */
+    private void search() {
+        if (binding == null) return;
+        String text = (binding.patientSearchFirstName.getText() + " "
+                + binding.patientSearchLastName.getText()).trim();
+        if (text.equals(searchedText)) return;
+        searchedText = text;
+        if (searchTask != null) searchTask.cancel();
+        searchTask = null;
+        if (text.length() < MIN_SEARCH_LENGTH) {
+            showResults(new ArrayList<>());
+            return;
+        }
+        searchTask = PatientManager.searchPatients(this, text, MAX_RESULTS, new TaskCallback<Collection<Patient>>() {
+            @Override
+            public void success(Collection<Patient> result) {
+                showResults(result);
+            }
+
+            @Override
+            public void error(Exception e) {
+                Log.d(LOG_TAG, "Unable to search for patients. Please check Internet connection.");
+            }
+        });
+    }
+
+    /**
+     * Show the patients found, each with the name and birthdate.
+     *
+     * @param found The patients found.
+     */
+    private void showResults(Collection<Patient> found) {
+        results.clear();
+        if (found != null) results.addAll(found);
+        resultsAdapter.clear();
+        for (Patient p : results) {
+            resultsAdapter.add(p.getName() + (p.getBirthdate() == null ? "" : " (" + p.getBirthdate() + ")"));
+        }
+    }
 }
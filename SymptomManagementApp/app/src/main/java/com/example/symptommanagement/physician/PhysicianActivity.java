@@ -9,8 +9,11 @@ import android.view.MenuItem;
 import android.widget.Toast;
 import com.example.symptommanagement.LoginActivity;
 import com.example.symptommanagement.R;
+import com.example.symptommanagement.data.AlertAcknowledgement;
 import com.example.symptommanagement.data.Medication;
 import com.example.symptommanagement.data.Patient;
+import com.example.symptommanagement.data.PatientSummary;
+import com.example.symptommanagement.data.PendingAcknowledgements;
 import com.example.symptommanagement.data.Physician;
 import com.example.symptommanagement.data.StatusLog;
 
@@ -280,6 +283,24 @@ public abstract class PhysicianActivity
         if (listFrag != null && listFrag instanceof PhysicianListPatientsFragment) {
             ((PhysicianListPatientsFragment) listFrag).updatePhysician(PhysicianActivity.physician);
         }
+
+        // Refresh the patient summaries, they reflect any status notes just saved for this physician
+        PhysicianManager.getPatientSummaries(this, physician.getId());
+    }
+
+    /**
+     * Set the patient summaries of the current physician. The summaries are handed to the
+     * PhysicianListPatientsFragment so the patient list can show the alert state of each patient.
+     *
+     * @param summaries The patient summaries retrieved from the server.
+     */
+    @Override
+    public void setPatientSummaries(Collection<PatientSummary> summaries) {
+        Fragment listFrag;
+        listFrag = getFragmentManager().findFragmentByTag(PhysicianListPatientsFragment.FRAGMENT_TAG);
+        if (listFrag != null && listFrag instanceof PhysicianListPatientsFragment) {
+            ((PhysicianListPatientsFragment) listFrag).updatePatientSummaries(summaries);
+        }
     }
 
     /**
@@ -446,8 +467,12 @@ public abstract class PhysicianActivity
             Log.e(LOG_TAG, "INVALID IDS -- Unable to update the Dr.'s Status Log");
             return;
         }
+        AlertAcknowledgement acknowledgement =
+                new AlertAcknowledgement(patientId, statusLog.getNote(), statusLog.getCreated());
+        // Keep the local copy current, the server attaches the same note when the batch arrives
         if (PhysicianManager.attachPhysicianStatusLog(physician, patientId, statusLog)) {
-            PhysicianManager.savePhysician(this, physician);
+            PendingAcknowledgements.add(this, acknowledgement);
+            PhysicianManager.acknowledgeAlerts(this, physician.getId());
         }
     }
 
@@ -567,6 +592,16 @@ public abstract class PhysicianActivity
                 Toast.LENGTH_LONG).show();
     }
 
+    /**
+     * Callback when a patient is selected from the search results.
+     *
+     * @param patient The selected patient.
+     */
+    @Override
+    public void onPatientSelected(Patient patient) {
+        successfulSearch(patient);
+    }
+
     /**
      * Display a toast when a successful search is performed.
      *
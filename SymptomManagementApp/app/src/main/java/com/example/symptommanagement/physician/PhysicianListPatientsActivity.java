@@ -227,6 +227,20 @@ public class PhysicianListPatientsActivity extends PhysicianActivity {
         PatientManager.findPatientByName(this, getName(lastName, firstName));
     }
 
+    /**
+     * Handle the selection of a patient from the search results.
+     *
+     * @param patient The selected patient, holding only the ID, names and birthdate.
+     */
+    @Override
+    public void onPatientSelected(Patient patient) {
+        successfulSearch(patient);
+        if (twoPane) {
+            // The detail fragments need the full record, the detail activity gets it itself
+            PatientManager.getPatient(this, patient.getId());
+        }
+    }
+
     /**
      * Handle a successful patient search based on the two-pane mode.
      *
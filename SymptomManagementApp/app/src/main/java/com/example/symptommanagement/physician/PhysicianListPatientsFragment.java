@@ -8,14 +8,18 @@ import android.view.View;
 import android.widget.ListView;
 import com.example.symptommanagement.LoginUtility;
 import com.example.symptommanagement.R;
+import com.example.symptommanagement.data.Alert;
 import com.example.symptommanagement.data.Patient;
+import com.example.symptommanagement.data.PatientSummary;
 import com.example.symptommanagement.data.Physician;
+import com.example.symptommanagement.sync.SymptomManagementSyncAdapter;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
 
 /**
- * A fragment to display a list of patients assigned to a physician.
+ * A fragment to display a list of patients assigned to a physician, from the patient summaries the
+ * server maintains for the physician.
  * Implements the ListFragment to provide a standard list UI with patient items.
  * Uses the Callbacks interface to communicate with the hosting activity.
  */
@@ -49,8 +53,9 @@ public class PhysicianListPatientsFragment extends ListFragment {
 
     static String physicianId;
     static Physician physician;
-    static Patient[] patientList = new Patient[0];
-    static Collection<Patient> tempList = new HashSet<>();
+    static PatientSummary[] patientList = new PatientSummary[0];
+    static Collection<PatientSummary> tempList = new ArrayList<>();
+    static Collection<PatientSummary> summaries;
 
     private static final String STATE_ACTIVATED_POSITION = "activated_position";
     private int activatedPosition = ListView.INVALID_POSITION;
@@ -150,11 +155,32 @@ public class PhysicianListPatientsFragment extends ListFragment {
         displayPatientList(PhysicianListPatientsFragment.physician);
     }
 
+    /**
+     * Method to update the patient summaries the patient list is built from. Each summary is one row
+     * of the list, and the patient list is redisplayed with them.
+     *
+     * @param patientSummaries The patient summaries of the current physician.
+     */
+    public void updatePatientSummaries(Collection<PatientSummary> patientSummaries) {
+        if (patientSummaries == null) {
+            Log.e(LOG_TAG, "Trying to set patient summaries to null.");
+            return;
+        }
+
+        summaries = new ArrayList<>(patientSummaries);
+
+        // Redisplay the patient list with the new summaries
+        if (physician != null && isAdded()) {
+            displayPatientList(physician);
+        }
+    }
+
     /**
      * Displays the patient list associated with the given physician. It takes a Physician object as a parameter,
-     * and if the provided physician is not null, it retrieves the list of patients from the physician. It then
-     * converts the patient list to an array, sets it as the data source for the ListFragment's ListView using
-     * a custom adapter (PatientListAdapter), and scrolls to the first item in the list if it's not empty.
+     * and if the provided physician is not null, it builds the list from the patient summaries of the physician,
+     * or from the patients of the physician until the summaries have arrived. It then converts the list to an
+     * array, sets it as the data source for the ListFragment's ListView using a custom adapter
+     * (PatientListAdapter), and scrolls to the first item in the list if it's not empty.
      *
      * @param physician The Physician object whose associated patient list is to be displayed.
      */
@@ -168,12 +194,17 @@ public class PhysicianListPatientsFragment extends ListFragment {
         // Log the creation of the patient list for the physician
         Log.d(LOG_TAG, "Creating list of all patients assigned to physician");
 
-        // Get the patient list from the physician
-        if (physician.getPatients() != null) {
-            tempList = physician.getPatients();
-            patientList = tempList.toArray(new Patient[0]);
-            activatedPosition = (tempList.size() > 0) ? 0 : ListView.INVALID_POSITION;
+        // Get the patient list from the summaries, or from the physician until they have arrived
+        if (summaries != null) {
+            tempList = new ArrayList<>(summaries);
+        } else if (physician.getPatients() != null) {
+            tempList = new ArrayList<>();
+            for (Patient patient : physician.getPatients()) {
+                tempList.add(createSummary(patient));
+            }
         }
+        patientList = tempList.toArray(new PatientSummary[0]);
+        activatedPosition = (tempList.size() > 0) ? 0 : ListView.INVALID_POSITION;
 
         // Set the patient list as the data source for the ListFragment's ListView
         setListAdapter(new PatientListAdapter(getActivity(), patientList));
@@ -187,7 +218,8 @@ public class PhysicianListPatientsFragment extends ListFragment {
     /**
      * Adds a patient to the temporary patient list and updates the displayed patient list. It takes a Patient
      * object as a parameter and checks if the tempList (temporary patient list) and the provided patient are not null.
-     * If they are not null, the patient is added to the tempList, and the patientList (array) is updated with the
+     * If they are not null, a summary of the patient is added to the tempList until the server has summarized the
+     * patient, and the patientList (array) is updated with the
      * contents of the tempList. The updated patient list is then set as the data source for the ListFragment's
      * ListView using the PatientListAdapter, and the ListView is scrolled to the newly added patient's position
      * in the list.
@@ -197,8 +229,8 @@ public class PhysicianListPatientsFragment extends ListFragment {
     public void temporaryAddToList(Patient patient) {
         // Use the current patient list and add one to it
         if (tempList != null && patient != null) {
-            tempList.add(patient);
-            patientList = tempList.toArray(new Patient[0]);
+            tempList.add(createSummary(patient));
+            patientList = tempList.toArray(new PatientSummary[0]);
         }
 
         // Set the updated patient list as the data source for the ListFragment's ListView
@@ -215,9 +247,31 @@ public class PhysicianListPatientsFragment extends ListFragment {
         }
     }
 
+    /**
+     * Creates the summary of a patient the server has not summarized yet, from the patient and the alert the
+     * sync adapter found for the patient.
+     *
+     * @param patient The Patient object.
+     * @return The PatientSummary showing the patient in the list.
+     */
+    private PatientSummary createSummary(Patient patient) {
+        PatientSummary summary = new PatientSummary();
+        summary.setPatientId(patient.getId());
+        summary.setFirstName(patient.getFirstName());
+        summary.setLastName(patient.getLastName());
+        summary.setLastLogin(patient.getLastLogin());
+        Alert alert = SymptomManagementSyncAdapter.findPatientAlert(patient);
+        if (alert != null) {
+            summary.setSeverityLevel(alert.getSeverityLevel());
+            summary.setAlertCreated(alert.getCreated());
+            summary.setPhysicianContacted(alert.getPhysicianContacted());
+        }
+        return summary;
+    }
+
     /**
      * Callback method invoked when an item in the patient list is clicked. It takes the position of the clicked
-     * item and retrieves the corresponding Patient object from the ListAdapter. It then notifies the hosting activity
+     * item and retrieves the corresponding PatientSummary object from the ListAdapter. It then notifies the hosting activity
      * (if it implements the Callbacks interface) that a patient is selected by calling the onItemSelected method
      * with the physicianId and the selected patient as parameters.
      *
@@ -230,8 +284,13 @@ public class PhysicianListPatientsFragment extends ListFragment {
     public void onListItemClick(ListView listView, View view, int position, long id) {
         super.onListItemClick(listView, view, position, id);
         setActivatedPosition(position);
-        Patient patient = (Patient) getListAdapter().getItem(position);
-        Log.d(LOG_TAG, "Patient selected is " + patient.toString());
+        PatientSummary summary = (PatientSummary) getListAdapter().getItem(position);
+        Log.d(LOG_TAG, "Patient selected is " + summary.toString());
+        Patient patient = new Patient();
+        patient.setId(summary.getPatientId());
+        patient.setFirstName(summary.getFirstName());
+        patient.setLastName(summary.getLastName());
+        patient.setLastLogin(summary.getLastLogin());
         physicianId = LoginUtility.getLoginId(getActivity());
         // Notify the hosting activity that a patient is selected
         ((Callbacks) getActivity()).onItemSelected(physicianId, patient);
@@ -6,11 +6,18 @@ import com.example.symptommanagement.client.CallableTask;
 import com.example.symptommanagement.client.SymptomManagementApi;
 import com.example.symptommanagement.client.SymptomManagementService;
 import com.example.symptommanagement.client.TaskCallback;
+import com.example.symptommanagement.data.Alert;
+import com.example.symptommanagement.data.AlertAcknowledgement;
 import com.example.symptommanagement.data.Patient;
+import com.example.symptommanagement.data.PatientSummary;
 import com.example.symptommanagement.data.Physician;
+import com.example.symptommanagement.data.PendingAcknowledgements;
 import com.example.symptommanagement.data.StatusLog;
+import com.example.symptommanagement.sync.SymptomManagementSyncAdapter;
 
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
 
 /**
  * This class manages interactions with the server for Physician-related operations.
@@ -27,10 +34,20 @@ public class PhysicianManager {
          * @param physician The Physician object to be set.
          */
         void setPhysician(Physician physician);
+
+        /**
+         * Callback method to set the retrieved patient summaries of the physician.
+         *
+         * @param summaries The PatientSummary objects to be set.
+         */
+        void setPatientSummaries(Collection<PatientSummary> summaries);
     }
 
     private static final String LOG_TAG = PhysicianManager.class.getSimpleName();
 
+    // The batch of alert acknowledgements on its way to the server, a cancelled one no longer counts
+    private static CallableTask<Collection<Alert>> acknowledging;
+
     /**
      * Attach a StatusLog to a specific Physician and Patient.
      *
@@ -71,7 +88,7 @@ public class PhysicianManager {
         Log.d(LOG_TAG, "Getting Physician ID Key is : " + id);
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
-            CallableTask.invoke(() -> {
+            CallableTask.invoke(activity, () -> {
                 Log.d(LOG_TAG, "getting single physician with id : " + id);
                 return symptomManagementApi.getPhysician(id);
             }, new TaskCallback<Physician>() {
@@ -91,6 +108,39 @@ public class PhysicianManager {
         }
     }
 
+    /**
+     * Retrieve the patient summaries of a specific Physician from the server.
+     *
+     * @param activity The context of the calling activity.
+     * @param id       The ID of the Physician whose patient summaries to retrieve.
+     */
+    public static synchronized void getPatientSummaries(final Context activity, final String id) {
+        if (id == null) {
+            Log.e(LOG_TAG, "Tried to get patient summaries without a valid physician ID.");
+            return;
+        }
+        final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
+        if (symptomManagementApi != null) {
+            CallableTask.invoke(activity, () -> {
+                Log.d(LOG_TAG, "getting patient summaries for physician with id : " + id);
+                return symptomManagementApi.getPatientSummaries(id);
+            }, new TaskCallback<Collection<PatientSummary>>() {
+                @Override
+                public void success(Collection<PatientSummary> result) {
+                    Log.d(LOG_TAG, "Found Patient Summaries :" + result.size());
+                    ((Callbacks) activity).setPatientSummaries(result);
+                }
+
+                @Override
+                public void error(Exception e) {
+                    Log.d(LOG_TAG,
+                            "Unable to fetch the patient summaries. " +
+                                    "Please check Internet connection.");
+                }
+            });
+        }
+    }
+
     /**
      * Save a Physician object to the server.
      *
@@ -105,9 +155,10 @@ public class PhysicianManager {
         Log.d(LOG_TAG, "Updating Physician to Cloud. ID Key is : " + physician.getId());
         final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
         if (symptomManagementApi != null) {
-            CallableTask.invoke(() -> {
+            final String requestId = SymptomManagementService.createRequestId();
+            CallableTask.invoke(activity, () -> {
                 Log.d(LOG_TAG, "Saving physician with status notes : " + physician.getId());
-                return symptomManagementApi.updatePhysician(physician.getId(), physician);
+                return symptomManagementApi.updatePhysician(physician.getId(), requestId, physician);
             }, new TaskCallback<Physician>() {
                 @Override
                 public void success(Physician result) {
@@ -117,6 +168,12 @@ public class PhysicianManager {
 
                 @Override
                 public void error(Exception e) {
+                    if (SymptomManagementService.isConflict(e)) {
+                        // Another user changed the physician, fetch the current record
+                        Log.d(LOG_TAG, "Physician was changed by another user, getting the current record.");
+                        getPhysician(activity, physician.getId());
+                        return;
+                    }
                     Log.d(LOG_TAG,
                             "Unable to update status logs for the Physician. " +
                                     "Please check Internet connection.");
@@ -124,4 +181,63 @@ public class PhysicianManager {
             });
         }
     }
+
+    /**
+     * Send the queued alert acknowledgements of a Physician to the server in one request. While a batch
+     * is being sent, new acknowledgements wait in the queue and go out together when it returns, so a
+     * physician responding to many patients in a row makes a few requests instead of one for each.
+     * The alerts returned replace the ones of the last sync, and the patient summaries are refreshed.
+     *
+     * @param activity    The context of the calling activity.
+     * @param physicianId The ID of the Physician acknowledging the alerts.
+     */
+    public static synchronized void acknowledgeAlerts(final Context activity, final String physicianId) {
+        if (physicianId == null) {
+            Log.e(LOG_TAG, "Tried to acknowledge alerts without a valid physician ID.");
+            return;
+        }
+        if (acknowledging != null && !acknowledging.isCancelled()) {
+            Log.d(LOG_TAG, "Alert acknowledgements are being sent, queuing the new ones.");
+            return;
+        }
+        final List<AlertAcknowledgement> pending = PendingAcknowledgements.get(activity);
+        if (pending.isEmpty()) return;
+        final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
+        if (symptomManagementApi != null) {
+            acknowledging = CallableTask.invoke(activity, () -> {
+                Log.d(LOG_TAG, "Sending " + pending.size() + " alert acknowledgements for : " + physicianId);
+                String requestId = PendingAcknowledgements.getRequestId(activity, physicianId, pending);
+                Collection<Alert> result = symptomManagementApi.acknowledgeAlerts(physicianId, requestId, pending);
+                PendingAcknowledgements.remove(activity, physicianId, pending, requestId);
+                return result;
+            }, new TaskCallback<Collection<Alert>>() {
+                @Override
+                public void success(Collection<Alert> result) {
+                    Log.d(LOG_TAG, "Acknowledged alerts, current alerts : " + result.size());
+                    SymptomManagementSyncAdapter.setAlerts(result);
+                    finishAcknowledging(activity, physicianId);
+                    getPatientSummaries(activity, physicianId);
+                }
+
+                @Override
+                public void error(Exception e) {
+                    // The acknowledgements stay queued, the next sync sends them
+                    Log.d(LOG_TAG,
+                            "Unable to send the alert acknowledgements. " +
+                                    "Please check Internet connection.");
+                    synchronized (PhysicianManager.class) {
+                        acknowledging = null;
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Helper method to end a batch of alert acknowledgements and send the ones queued meanwhile.
+     */
+    private static synchronized void finishAcknowledging(Context activity, String physicianId) {
+        acknowledging = null;
+        acknowledgeAlerts(activity, physicianId);
+    }
 }
@@ -0,0 +1,238 @@
+package com.example.symptommanagement.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.SyncResult;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import android.net.Uri;
+import android.preference.PreferenceManager;
+import android.util.Log;
+import com.example.symptommanagement.R;
+import com.example.symptommanagement.client.SymptomManagementApi;
+import com.example.symptommanagement.data.ImageUpload;
+import com.example.symptommanagement.data.PatientCPContract;
+import com.example.symptommanagement.data.PatientDataManager;
+import com.example.symptommanagement.data.StatusLog;
+import com.example.symptommanagement.data.SyncWatermarks;
+import retrofit.RetrofitError;
+import retrofit.mime.TypedByteArray;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+
+/**
+ * Uploads the images the patient took with the status logs, so the physicians can see them.
+ * <p>
+ * The camera images are far larger than a physician needs, so each one is scaled down and compressed
+ * once into the app's files before it is sent. The compressed file is sent in chunks, and an upload
+ * that was interrupted asks the server how much it has received and continues from there. The images
+ * are uploaded oldest first, and an upload high-water mark in {@link SyncWatermarks} records the last
+ * one that is done. The mark only passes an image once it is uploaded, rejected, or gone from the device.
+ */
+public class StatusImageUploader {
+
+    private final static String LOG_TAG = StatusImageUploader.class.getSimpleName();
+
+    /**
+     * The longest side of an uploaded image in pixels.
+     */
+    public static final int MAX_DIMENSION = 1280;
+
+    /**
+     * The JPEG quality of an uploaded image.
+     */
+    public static final int JPEG_QUALITY = 80;
+
+    /**
+     * The number of bytes sent in one request.
+     */
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final String UPLOAD_DIRECTORY = "image_uploads";
+    private static final String IMAGE_MARK = PatientCPContract.StatusLogEntry.TABLE_NAME + "_images";
+    private static final String CHUNK_MIME_TYPE = "application/octet-stream";
+
+    /**
+     * Checks if images may be uploaded now. When the patient has asked to save mobile data, or the device
+     * has Data Saver or the battery saver on, images are only uploaded on an unmetered network or while
+     * the device is charging.
+     *
+     * @param context The context.
+     * @return true if the images may be uploaded
+     */
+    public static boolean isUploadAllowed(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        boolean unmeteredOnly = prefs.getBoolean(context.getString(R.string.pref_upload_images_unmetered_key),
+                Boolean.parseBoolean(context.getString(R.string.pref_upload_images_unmetered_default)));
+        if (!unmeteredOnly && !SyncScheduler.isSavingResources(context)) return true;
+        return SyncScheduler.isLargeTransferAllowed(context);
+    }
+
+    /**
+     * Uploads the images of the status logs that have not been uploaded yet, oldest first. A network
+     * error stops the upload, the next sync continues where it stopped. So does an image that cannot be
+     * compressed now, which is counted as a soft error in the sync result. An image that is gone from the
+     * device, that the server rejects, or whose upload on the server does not match the compressed copy,
+     * is skipped so it does not hold up the others.
+     *
+     * @param context              The context.
+     * @param symptomManagementApi The service to use.
+     * @param patientId            The ID of the patient.
+     * @param syncResult           The result of the sync, receiving the images skipped.
+     * @return the number of images uploaded
+     * @throws RetrofitError if the server could not be reached
+     */
+    public static int uploadPending(Context context, SymptomManagementApi symptomManagementApi, String patientId,
+                                    SyncResult syncResult) {
+        long since = SyncWatermarks.get(context, patientId, IMAGE_MARK, SyncWatermarks.Direction.UPLOAD);
+        int uploaded = 0;
+        for (StatusLog log : PatientDataManager.findStatusImagesSince(context, patientId, since)) {
+            File file;
+            try {
+                file = prepare(context, patientId, log);
+            } catch (FileNotFoundException e) {
+                file = null;
+            } catch (IOException | SecurityException e) {
+                // the image is still there, the mark stays before it so the next sync tries it again
+                Log.e(LOG_TAG, "Unable to compress the image of status log " + log.getCreated(), e);
+                syncResult.stats.numIoExceptions++;
+                break;
+            }
+            if (file == null) {
+                Log.e(LOG_TAG, "The image of status log " + log.getCreated() + " is gone or unreadable, skipping it.");
+                syncResult.stats.numSkippedEntries++;
+            } else {
+                try {
+                    upload(symptomManagementApi, patientId, log.getCreated(), file);
+                    uploaded++;
+                } catch (RetrofitError e) {
+                    if (e.getResponse() == null || e.getResponse().getStatus() != HttpURLConnection.HTTP_BAD_REQUEST) {
+                        throw e;
+                    }
+                    // the server will never take this image, trying it again would hold up the others
+                    Log.e(LOG_TAG, "The server rejected the image of status log " + log.getCreated(), e);
+                    syncResult.stats.numSkippedEntries++;
+                } catch (IllegalStateException e) {
+                    // the upload on the server cannot be continued from this copy, skip it like a rejected one
+                    Log.e(LOG_TAG, "Unable to continue the upload of status log " + log.getCreated(), e);
+                    syncResult.stats.numIoExceptions++;
+                }
+                if (!file.delete()) Log.d(LOG_TAG, "Unable to delete " + file);
+            }
+            SyncWatermarks.advance(context, patientId, IMAGE_MARK, SyncWatermarks.Direction.UPLOAD, log.getCreated());
+        }
+        return uploaded;
+    }
+
+    /**
+     * Sends a compressed image in chunks, starting from what the server has received already.
+     */
+    private static void upload(SymptomManagementApi symptomManagementApi, String patientId, long created,
+                               File file) {
+        long total = file.length();
+        ImageUpload upload = symptomManagementApi.getImageUpload(patientId, created);
+        byte[] buffer = new byte[CHUNK_SIZE];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            while (!upload.isComplete()) {
+                long offset = upload.getReceived();
+                if (offset >= total) {
+                    throw new IllegalStateException("The server has more of the image than was sent");
+                }
+                in.seek(offset);
+                int length = in.read(buffer, 0, (int) Math.min(CHUNK_SIZE, total - offset));
+                TypedByteArray chunk = new TypedByteArray(CHUNK_MIME_TYPE, Arrays.copyOf(buffer, length));
+                upload = symptomManagementApi.uploadImageChunk(patientId, created, offset, total, chunk);
+                if (!upload.isComplete() && upload.getReceived() <= offset) {
+                    throw new IllegalStateException("The server did not take the chunk at " + offset + " of " + created);
+                }
+                Log.v(LOG_TAG, "Uploaded " + upload.getReceived() + " of " + total + " bytes of " + created);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read the compressed image " + file, e);
+        }
+    }
+
+    /**
+     * Get the compressed copy of the image of a status log, creating it the first time. The copy is kept
+     * until the upload is done, so a resumed upload sends the same bytes.
+     *
+     * @return the compressed image, or null if the image on the device is not an image
+     * @throws FileNotFoundException if the image is gone from the device
+     * @throws IOException           if the image could not be read or compressed now
+     */
+    private static File prepare(Context context, String patientId, StatusLog log) throws IOException {
+        File directory = new File(context.getFilesDir(), UPLOAD_DIRECTORY);
+        File file = new File(directory, patientId + "_" + log.getCreated() + ".jpg");
+        if (file.exists()) return file;
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        Bitmap bitmap = decodeScaled(context, Uri.parse(log.getImage_location()));
+        if (bitmap == null) return null;
+        File partial = new File(directory, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(partial)) {
+            bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out);
+        } finally {
+            bitmap.recycle();
+        }
+        if (!partial.renameTo(file)) {
+            throw new IOException("Unable to rename " + partial + " to " + file);
+        }
+        return file;
+    }
+
+    /**
+     * Decodes an image no larger than {@link #MAX_DIMENSION}, turned upright. The image is subsampled
+     * while it is decoded, so the full camera resolution is never held in memory.
+     *
+     * @return the image, or null if the file is not an image
+     */
+    private static Bitmap decodeScaled(Context context, Uri uri) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            BitmapFactory.decodeStream(in, null, options);
+        }
+        int longest = Math.max(options.outWidth, options.outHeight);
+        if (longest <= 0) return null;
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = 1;
+        while (longest / (options.inSampleSize * 2) >= MAX_DIMENSION) {
+            options.inSampleSize *= 2;
+        }
+
+        Bitmap bitmap;
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            bitmap = BitmapFactory.decodeStream(in, null, options);
+        }
+        if (bitmap == null) return null;
+
+        int orientation;
+        try (InputStream in = context.getContentResolver().openInputStream(uri)) {
+            orientation = new ExifInterface(in).getAttributeInt(ExifInterface.TAG_ORIENTATION,
+                    ExifInterface.ORIENTATION_NORMAL);
+        }
+        Matrix matrix = new Matrix();
+        float scale = Math.min(1f, (float) MAX_DIMENSION / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+        matrix.postScale(scale, scale);
+        if (orientation == ExifInterface.ORIENTATION_ROTATE_90) matrix.postRotate(90);
+        else if (orientation == ExifInterface.ORIENTATION_ROTATE_180) matrix.postRotate(180);
+        else if (orientation == ExifInterface.ORIENTATION_ROTATE_270) matrix.postRotate(270);
+        if (matrix.isIdentity()) return bitmap;
+
+        Bitmap upright = Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+        if (upright != bitmap) bitmap.recycle();
+        return upright;
+    }
+}
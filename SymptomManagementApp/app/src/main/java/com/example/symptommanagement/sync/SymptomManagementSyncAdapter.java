@@ -6,6 +6,7 @@ import android.app.NotificationManager;
 import android.app.PendingIntent;
 import android.content.*;
 import android.os.Bundle;
+import android.os.RemoteException;
 import android.support.v4.app.NotificationCompat;
 import android.support.v4.app.TaskStackBuilder;
 import android.util.Log;
@@ -13,31 +14,47 @@ import android.widget.Toast;
 import com.example.symptommanagement.LoginActivity;
 import com.example.symptommanagement.LoginUtility;
 import com.example.symptommanagement.R;
-import com.example.symptommanagement.client.CallableTask;
+import com.example.symptommanagement.client.ByteCountingClient;
 import com.example.symptommanagement.client.SymptomManagementApi;
 import com.example.symptommanagement.client.SymptomManagementService;
-import com.example.symptommanagement.client.TaskCallback;
 import com.example.symptommanagement.data.Alert;
+import com.example.symptommanagement.data.AlertAcknowledgement;
+import com.example.symptommanagement.data.LogRetention;
 import com.example.symptommanagement.data.Patient;
+import com.example.symptommanagement.data.PatientCache;
+import com.example.symptommanagement.data.PatientCPContract;
 import com.example.symptommanagement.data.PatientDataManager;
+import com.example.symptommanagement.data.PendingAcknowledgements;
+import com.example.symptommanagement.data.PendingRequestIds;
 import com.example.symptommanagement.data.UserCredential;
+import retrofit.RetrofitError;
+import retrofit.converter.ConversionException;
 
+import java.net.HttpURLConnection;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Custom implementation of AbstractThreadedSyncAdapter to handle data synchronization
  * between the local database and the remote server.
+ * <p>
+ * The periodic sync interval is adapted by {@link SyncScheduler} to what each sync finds.
  */
 public class SymptomManagementSyncAdapter extends AbstractThreadedSyncAdapter {
 
     private final static String LOG_TAG = SymptomManagementSyncAdapter.class.getSimpleName();
     private static final int SYMPTOM_MANAGEMENT_NOTIFICATION_ID = 1111;
     private final Context context;
-    private static final int SYNC_INTERVAL = 60 * 20;
-    private static final int SYNC_FLEXTIME = SYNC_INTERVAL / 3;
-    private String patientId;
-    private Patient patient;
-    private String physicianId;
+    private static final long MAINTENANCE_INTERVAL = 6 * 60 * 60 * 1000L;
+    private static long lastMaintenance = 0L;
+    private static final long MIN_SYNC_SPACING = 60 * 1000L;
+    private static final int MAX_CONFLICT_RETRIES = 1;
+    private static final int MAX_LOGS_PER_METERED_SYNC = 100;
+    private static final String PATIENT_UPDATE_OPERATION = "patient_update_";
+    private static final AtomicBoolean syncInProgress = new AtomicBoolean(false);
+    private static long lastCompletedSync = 0L;
     private static Collection<Alert> alerts;
 
     public SymptomManagementSyncAdapter(Context context, boolean autoInitialize) {
@@ -81,7 +98,8 @@ public class SymptomManagementSyncAdapter extends AbstractThreadedSyncAdapter {
      */
     private static void onAccountCreated(Account newAccount, Context context) {
         // Configure periodic sync
-        configurePeriodicSync(context, SYNC_INTERVAL, SYNC_FLEXTIME);
+        int interval = SyncScheduler.getInterval(context);
+        configurePeriodicSync(context, interval, SyncScheduler.getFlexTime(interval));
 
         // Enable automatic sync for the sync account
         ContentResolver.setSyncAutomatically(newAccount, context.getString(R.string.content_authority), true);
@@ -105,6 +123,17 @@ public class SymptomManagementSyncAdapter extends AbstractThreadedSyncAdapter {
         ContentResolver.requestSync(getSyncAccount(context), context.getString(R.string.content_authority), bundle);
     }
 
+    /**
+     * Record a change the user made on the device and sync it with the server right away, like a new
+     * check-in or log.
+     *
+     * @param context The application context.
+     */
+    public static void syncLocalChange(Context context) {
+        SyncScheduler.recordLocalChange(context);
+        syncImmediately(context);
+    }
+
     /**
      * Configure the periodic sync interval and flex time.
      *
@@ -132,6 +161,11 @@ public class SymptomManagementSyncAdapter extends AbstractThreadedSyncAdapter {
 
     /**
      * Called when a data synchronization is triggered.
+     * <p>
+     * The whole sync runs here on the sync thread and blocks until it is done: the patient record is
+     * fetched, merged into the content provider and sent back before this method returns. The framework
+     * does not start the next sync before this one has finished, and the results and errors reported in
+     * the SyncResult let it back off when the server cannot be reached.
      *
      * @param account               The Sync Account.
      * @param bundle                Bundle containing additional sync information.
@@ -144,235 +178,358 @@ public class SymptomManagementSyncAdapter extends AbstractThreadedSyncAdapter {
                               ContentProviderClient contentProviderClient, SyncResult syncResult) {
         Log.d(LOG_TAG, "Starting onPerformSync");
 
-        // Check if the user is logged in
-        if (LoginUtility.isLoggedIn(getContext())) {
-            // Determine the role of the user (patient or physician) and process the appropriate sync
-            if (LoginUtility.getUserRole(getContext()) == UserCredential.UserRole.PATIENT) {
-                Log.d(LOG_TAG, "SYNC Processing for PATIENT.");
-                processPatientSync();
-            } else if (LoginUtility.getUserRole(getContext()) == UserCredential.UserRole.PHYSICIAN) {
-                Log.d(LOG_TAG, "SYNC Processing for PHYSICIAN.");
-                processPhysicianSync();
+        // Back off while the server is unreachable or has asked us to slow down
+        long delay = SyncBackoff.getRemainingDelaySeconds();
+        if (delay > 0L) {
+            Log.d(LOG_TAG, "Backing off, skipping this sync for another " + delay + " seconds.");
+            syncResult.delayUntil = delay;
+            return;
+        }
+
+        // Several automatic requests in a row only need one sync, a manual request always syncs
+        boolean manual = bundle != null && bundle.getBoolean(ContentResolver.SYNC_EXTRAS_MANUAL, false);
+        if (!manual && System.currentTimeMillis() - lastCompletedSync < MIN_SYNC_SPACING) {
+            Log.d(LOG_TAG, "Synced less than " + MIN_SYNC_SPACING / 1000L + " seconds ago, skipping this sync.");
+            return;
+        }
+        if (!syncInProgress.compareAndSet(false, true)) {
+            Log.d(LOG_TAG, "Another sync is still running, skipping this sync.");
+            return;
+        }
+
+        long bytesBefore = ByteCountingClient.getBytesTransferred();
+        SyncScheduler.Outcome outcome = null;
+        try {
+            // Check if the user is logged in
+            if (LoginUtility.isLoggedIn(getContext())) {
+                // Determine the role of the user (patient or physician) and process the appropriate sync
+                if (LoginUtility.getUserRole(getContext()) == UserCredential.UserRole.PATIENT) {
+                    Log.d(LOG_TAG, "SYNC Processing for PATIENT.");
+                    outcome = processPatientSync(syncResult, manual);
+                } else if (LoginUtility.getUserRole(getContext()) == UserCredential.UserRole.PHYSICIAN) {
+                    Log.d(LOG_TAG, "SYNC Processing for PHYSICIAN.");
+                    outcome = processPhysicianSync(syncResult);
+                }
+            } else {
+                Log.d(LOG_TAG, "Not Logged In, no SYNC needed.");
             }
+
+            // The sync runs in the background, a good place for the occasional database housekeeping
+            runDatabaseMaintenance(contentProviderClient);
+        } finally {
+            syncInProgress.set(false);
+        }
+
+        if (syncResult.hasError()) {
+            // Let the framework wait as long as our own backoff does before it retries
+            syncResult.delayUntil = SyncBackoff.getRemainingDelaySeconds();
         } else {
-            Log.d(LOG_TAG, "Not Logged In, no SYNC needed.");
+            lastCompletedSync = System.currentTimeMillis();
+            if (outcome != null) {
+                // Stretch or tighten the periodic sync depending on what this sync found
+                SyncScheduler.recordSync(context, outcome, ByteCountingClient.getBytesTransferred() - bytesBefore);
+            }
         }
+        Log.d(LOG_TAG, "Finished onPerformSync: " + syncResult);
     }
 
     /**
-     * Process data synchronization for a patient user.
+     * Every few hours delete the logs outside the retention window, then checkpoint and,
+     * if needed, vacuum the local database to reclaim their space.
+     *
+     * @param contentProviderClient The content provider client of the sync.
      */
-    private void processPatientSync() {
-        // Check if the user is logged in and is a patient
-        if (LoginUtility.isLoggedIn(getContext())
-                && LoginUtility.getUserRole(getContext()) == UserCredential.UserRole.PATIENT) {
-            // Get the patient ID for the logged-in patient user
-            patientId = LoginUtility.getLoginId(context);
-        } else {
-            // If the user is not logged in or not a patient, return without proceeding with sync
+    private void runDatabaseMaintenance(ContentProviderClient contentProviderClient) {
+        long now = System.currentTimeMillis();
+        if (now - lastMaintenance < MAINTENANCE_INTERVAL) {
             return;
         }
-
-        // Log that the patient sync is being processed
-        Log.d(LOG_TAG, "Logged In and Processing Patient sync : " + patientId);
-
-        // Initiate retrieval of patient record from the cloud
-        getPatientRecordFromCloud();
+        lastMaintenance = now;
+        LogRetention.compact(context);
+        try {
+            Bundle result = contentProviderClient.call(PatientCPContract.METHOD_MAINTENANCE, null, null);
+            Log.d(LOG_TAG, "Database maintenance done: " + result);
+        } catch (RemoteException e) {
+            Log.e(LOG_TAG, "Database maintenance failed.", e);
+        }
     }
 
     /**
-     * Get the patient's record from the cloud server.
+     * Process data synchronization for a patient user: fetch the record from the cloud, merge it
+     * into the content provider and send the merged record back.
+     * <p>
+     * A periodic sync with nothing to send asks for the record only if it changed since the last sync.
+     * When it has not, there is nothing to merge or send back and the sync ends after one small request.
+     * On a metered network a long backlog of logs is sent a batch at a time, oldest first.
      *
-     * @return The Patient object retrieved from the server.
+     * @param syncResult The result of the sync operation.
+     * @param manual     Whether the user or a local change requested this sync.
+     * @return what the sync found, or null if the service is not available or the record kept conflicting
      */
-    private Patient getPatientRecordFromCloud() {
-        // Check if the user is logged in and has the role of a patient
-        if (LoginUtility.isLoggedIn(getContext())
-                && LoginUtility.getUserRole(getContext()) == UserCredential.UserRole.PATIENT) {
-            // Get the patient ID for the logged-in patient user
-            patientId = LoginUtility.getLoginId(context);
-            physicianId = null;
-        } else {
-            // If the user is not logged in or is not a patient, return null without proceeding with the sync
+    private SyncScheduler.Outcome processPatientSync(SyncResult syncResult, boolean manual) {
+        // Get the patient ID for the logged-in patient user
+        String patientId = LoginUtility.getLoginId(context);
+        Log.d(LOG_TAG, "Logged In and Processing Patient sync : " + patientId);
+
+        // Get the SymptomManagementApi instance to perform the cloud requests
+        SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
+        if (symptomManagementApi == null) {
+            Log.d(LOG_TAG, "NO SERVICE... is the internet offline?");
+            syncResult.stats.numIoExceptions++;
             return null;
         }
 
-        // Log the patient ID being used for the cloud request
-        Log.d(LOG_TAG, "getPatientRecordFromCloud - Patient ID is : " + patientId);
-
-        // Get the SymptomManagementApi instance to perform the cloud request
-        final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
-
-        // Check if the SymptomManagementApi instance is available
-        if (symptomManagementApi != null) {
-            // Use CallableTask to perform the asynchronous request to retrieve patient data from the cloud
-            CallableTask.invoke(() -> {
-                Log.d(LOG_TAG, "getting single Patient id : " + patientId);
-                Patient result = null;
-                try {
-                    // Perform the request to get the patient record using the patient ID
-                    result = symptomManagementApi.getPatient(patientId);
-                } catch (Exception e) {
-                    Log.d(LOG_TAG, "Service Failed getting Patient from the cloud. Keep on going.");
-                    //e.printStackTrace();
-                }
-                return result;
-            }, new TaskCallback<Patient>() {
-                @Override
-                public void success(Patient result) {
-                    if (result == null) {
-                        return;
-                    }
-                    // Log the retrieved patient data
-                    Log.d(LOG_TAG, "Found Patient: " + result);
-                    // Store the retrieved patient object in the 'patient' member field
-                    patient = result;
-                    Log.d(LOG_TAG, "Got a patient, now we can process.");
-                    // Proceed with processing the patient data from the cloud
-                    processPatientFromCloud(patient);
+        // Only a periodic sync with nothing to send may skip the merge when the record has not changed
+        long localChange = SyncScheduler.getLocalChange(context);
+        String etag = null;
+        if (!manual && localChange == 0L && !PatientDataManager.hasNewLogs(context, patientId)) {
+            etag = SyncScheduler.getPatientETag(context, patientId);
+        }
+        int maxLogs = SyncScheduler.isLargeTransferAllowed(context) ? 0 : MAX_LOGS_PER_METERED_SYNC;
+
+        // A conflict means the record changed on the server after we fetched it, fetch it again and retry once
+        for (int attempt = 0; attempt <= MAX_CONFLICT_RETRIES; attempt++) {
+            Patient patient = getPatientRecordFromCloud(symptomManagementApi, patientId, attempt == 0 ? etag : null,
+                    syncResult);
+            if (patient == null) {
+                if (syncResult.hasError()) {
+                    return null;
                 }
+                // Not modified, our copy is current and we have nothing to send but the deferred images
+                Log.d(LOG_TAG, "Patient record not modified, nothing to sync.");
+                SyncScheduler.recordNoOpAvoided(context);
+                uploadStatusImages(symptomManagementApi, patientId, syncResult);
+                return SyncScheduler.Outcome.UNCHANGED;
+            }
 
-                @Override
-                public void error(Exception e) {
-                    Log.e(LOG_TAG, "Sync unable to UPDATE Patient record from the internet." +
-                            " No Internet? Try again later because all data is stored locally.");
+            // Store the new logs from the cloud and add the local changes to the record
+            int inserted = PatientDataManager.processPatientToCP(context, patient);
+            syncResult.stats.numInserts += inserted;
+            PatientDataManager.processCPtoPatient(context, patient, maxLogs);
+            boolean sendsLogs = hasLogs(patient);
+
+            if (sendPatientRecordToCloud(symptomManagementApi, patientId, patient, syncResult)) {
+                if (!syncResult.hasError()) {
+                    SyncScheduler.clearLocalChange(context, localChange);
+                    uploadStatusImages(symptomManagementApi, patientId, syncResult);
                 }
-            });
-        } else {
-            Log.d(LOG_TAG, "NO SERVICE... is the internet offline?");
+                // A record returned for our ETag was changed by someone else
+                return inserted > 0 || sendsLogs || localChange != 0L || etag != null
+                        ? SyncScheduler.Outcome.CHANGED : SyncScheduler.Outcome.UNCHANGED;
+            }
         }
-        // Return the retrieved patient object (can be null if not logged in or not a patient)
-        return patient;
+
+        // The record changed on the server again, the local changes are kept for the next sync
+        Log.w(LOG_TAG, "Patient record was still changed by another user after " + MAX_CONFLICT_RETRIES
+                + " retries, the update is sent again with the next sync.");
+        syncResult.stats.numConflictDetectedExceptions++;
+        return null;
     }
 
     /**
-     * Process the patient's record retrieved from the cloud.
+     * Checks if a patient record carries any logs to send.
      *
-     * @param patient The Patient object retrieved from the cloud server.
+     * @param patient The patient record.
+     * @return true if the record has logs
      */
-    private void processPatientFromCloud(Patient patient) {
-        // Process and store the retrieved patient data into the local ContentProvider
-        PatientDataManager.processPatientToCP(context, patient);
+    private static boolean hasLogs(Patient patient) {
+        return (patient.getCheckinLog() != null && !patient.getCheckinLog().isEmpty())
+                || (patient.getPainLog() != null && !patient.getPainLog().isEmpty())
+                || (patient.getMedLog() != null && !patient.getMedLog().isEmpty())
+                || (patient.getStatusLog() != null && !patient.getStatusLog().isEmpty());
+    }
 
-        // Process and update the patient object with data from the local ContentProvider
-        PatientDataManager.processCPtoPatient(context, patient);
+    /**
+     * Upload the images of the patient's status logs that the cloud does not have yet. When the patient
+     * or the device saves mobile data or battery they wait for an unmetered network or the charger.
+     *
+     * @param symptomManagementApi The service to use.
+     * @param patientId            The ID of the patient.
+     * @param syncResult           The result of the sync operation.
+     */
+    private void uploadStatusImages(SymptomManagementApi symptomManagementApi, String patientId,
+                                    SyncResult syncResult) {
+        if (!StatusImageUploader.isUploadAllowed(context)) {
+            Log.d(LOG_TAG, "Waiting for an unmetered network or the charger to upload the images.");
+            return;
+        }
+        try {
+            syncResult.stats.numUpdates += StatusImageUploader.uploadPending(context, symptomManagementApi, patientId,
+                    syncResult);
+            SyncBackoff.recordSuccess();
+        } catch (Exception e) {
+            recordSyncError(syncResult, e, "Sync unable to UPLOAD the status log images." +
+                    " The upload continues where it stopped with the next sync.");
+        }
+    }
 
-        // Send the patient record back to the cloud server
-        sendPatientRecordToCloud(patient);
+    /**
+     * Get the patient's record from the cloud server.
+     *
+     * @param symptomManagementApi The service to use.
+     * @param patientId            The ID of the patient.
+     * @param etag                 The ETag of the record synced last, or null to always get the record.
+     * @param syncResult           The result of the sync operation.
+     * @return The Patient object retrieved from the server, or null if it has not been modified or could
+     * not be retrieved, the latter recorded as an error in the sync result.
+     */
+    private Patient getPatientRecordFromCloud(SymptomManagementApi symptomManagementApi, String patientId,
+                                              String etag, SyncResult syncResult) {
+        Log.d(LOG_TAG, "getting single Patient id : " + patientId);
+        try {
+            Patient result = etag == null ? symptomManagementApi.getPatient(patientId)
+                    : symptomManagementApi.getPatient(patientId, etag);
+            SyncBackoff.recordSuccess();
+            Log.d(LOG_TAG, "Found Patient: " + result);
+            return result;
+        } catch (Exception e) {
+            if (SymptomManagementService.isNotModified(e)) {
+                SyncBackoff.recordSuccess();
+                return null;
+            }
+            recordSyncError(syncResult, e, "Sync unable to GET Patient record from the internet." +
+                    " No Internet? Try again later because all data is stored locally.");
+            return null;
+        }
     }
 
     /**
      * Send the patient's record to the cloud server.
      *
-     * @param patientRecord The Patient object to be sent to the cloud server.
+     * @param symptomManagementApi The service to use.
+     * @param patientId            The ID of the patient.
+     * @param patientRecord        The Patient object to be sent to the cloud server.
+     * @param syncResult           The result of the sync operation.
+     * @return false if the record changed on the server and has to be fetched again, true otherwise
      */
-    private void sendPatientRecordToCloud(final Patient patientRecord) {
-        // Get the patient ID of the logged-in user
-        patientId = LoginUtility.getLoginId(context);
-
-        // Get the SymptomManagementApi instance for making API calls to the cloud server
-        final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
-        if (symptomManagementApi != null) {
-            CallableTask.invoke(() -> {
-                Log.d(LOG_TAG, "Updating single Patient id : " + patientId);
-                Log.v(LOG_TAG, "Last Login SET to before Sent to Cloud: " + patientRecord.getLastLogin());
-
-                // Make an API call to update the patient's record on the cloud server
-                return symptomManagementApi.updatePatient(patientId, patientRecord);
-            }, new TaskCallback<Patient>() {
-
-                @Override
-                public void success(Patient result) {
-                    // The API call was successful, and the updated patient data is returned
-                    Log.d(LOG_TAG, "Returned Patient from Server: " + result.toString());
-
-                    // Update the local patient object with the latest data returned from the server
-                    patient = result;
-                }
-
-                @Override
-                public void error(Exception e) {
-                    // There was an error making the API call, either due to no internet connectivity
-                    // or other server-side issues
-                    Log.e(LOG_TAG, "Sync unable to UPDATE Patient record to the Internet." +
-                            " Maybe no internet? Try again later. All data stored locally, so it's OK.");
-                }
-            });
-        } else {
-            // The SymptomManagementApi instance is null, indicating no internet connectivity or
-            // other issues with the API service
-            Log.d(LOG_TAG, "NO SERVICE available? Is the internet gone?");
+    private boolean sendPatientRecordToCloud(SymptomManagementApi symptomManagementApi, String patientId,
+                                             Patient patientRecord, SyncResult syncResult) {
+        Log.d(LOG_TAG, "Updating single Patient id : " + patientId);
+        Log.v(LOG_TAG, "Last Login SET to before Sent to Cloud: " + patientRecord.getLastLogin());
+        try {
+            // A retry of the same record carries the same request ID so the server does not process it twice
+            String operation = PATIENT_UPDATE_OPERATION + patientId;
+            String requestId = PendingRequestIds.get(context, operation, patientRecord);
+            Patient result = symptomManagementApi.updatePatient(patientId, requestId, patientRecord);
+            Log.d(LOG_TAG, "Returned Patient from Server: " + result);
+            SyncBackoff.recordSuccess();
+            PendingRequestIds.clear(context, operation, requestId);
+
+            // The cloud has these logs now, the next sync only sends newer ones
+            PatientDataManager.recordLogsUploaded(context, patientRecord);
+            SyncScheduler.setPatientETag(context, patientId, PatientCache.getETag(result));
+            syncResult.stats.numUpdates++;
+            return true;
+        } catch (Exception e) {
+            if (SymptomManagementService.isConflict(e)) {
+                Log.d(LOG_TAG, "Patient record was changed by another user, fetching it again.");
+                return false;
+            }
+            recordSyncError(syncResult, e, "Sync unable to UPDATE Patient record to the Internet." +
+                    " Maybe no internet? Try again later. All data stored locally, so it's OK.");
+            return true;
         }
     }
 
     /**
-     * Process data synchronization for a physician user.
+     * Process data synchronization for a physician user: send any queued alert acknowledgements, get the
+     * alerts and notify the physician. While any alert is open the physician syncs as often as the
+     * scheduler allows.
+     *
+     * @param syncResult The result of the sync operation.
+     * @return what the sync found, or null if the alerts could not be retrieved
      */
-    private void processPhysicianSync() {
-        // Check if the user is logged in and has the role of a physician
-        if (LoginUtility.isLoggedIn(getContext()) &&
-                LoginUtility.getUserRole(getContext()) == UserCredential.UserRole.PHYSICIAN) {
-            // Retrieve the physician ID of the logged-in physician user
-            physicianId = LoginUtility.getLoginId(context);
-            // Set patientId to null since this is physician sync
-            patientId = null;
-        } else {
-            // User is not logged in as a physician, so return and do nothing
-            return;
+    private SyncScheduler.Outcome processPhysicianSync(SyncResult syncResult) {
+        // Retrieve the physician ID of the logged-in physician user
+        String physicianId = LoginUtility.getLoginId(context);
+        Log.d(LOG_TAG, "Logged In and Processing Physician sync: " + physicianId);
+
+        SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
+        if (symptomManagementApi == null) {
+            // SymptomManagementApi instance is not available, likely due to a lack of internet connection
+            Log.d(LOG_TAG, "No SERVICE available? Is the internet gone?");
+            syncResult.stats.numIoExceptions++;
+            return null;
         }
 
-        Log.d(LOG_TAG, "Logged In and Processing Physician sync: " + physicianId);
-        // Trigger the retrieval of physician alerts from the cloud server
-        getPhysicianAlerts();
+        try {
+            Collection<Alert> result;
+            List<AlertAcknowledgement> pending = PendingAcknowledgements.get(context);
+            if (pending.isEmpty()) {
+                Log.d(LOG_TAG, "Getting patient alerts for physician: " + physicianId);
+                result = symptomManagementApi.getPatientAlerts(physicianId);
+            } else {
+                // Send the acknowledgements that could not be sent before, the alerts come back with them
+                Log.d(LOG_TAG, "Sending " + pending.size() + " alert acknowledgements for physician: " + physicianId);
+                String requestId = PendingAcknowledgements.getRequestId(context, physicianId, pending);
+                result = symptomManagementApi.acknowledgeAlerts(physicianId, requestId, pending);
+                PendingAcknowledgements.remove(context, physicianId, pending, requestId);
+            }
+            SyncBackoff.recordSuccess();
+            if (result != null) {
+                Log.d(LOG_TAG, "Found Alerts: " + result.size());
+                syncResult.stats.numEntries += result.size();
+            }
+            // Store the retrieved alerts and notify the physician about them
+            boolean changed = !pending.isEmpty() || !isSameAlerts(result);
+            setAlerts(result);
+            createPhysicianNotification(result);
+            if (hasOpenAlerts(result)) {
+                return SyncScheduler.Outcome.URGENT;
+            }
+            return changed ? SyncScheduler.Outcome.CHANGED : SyncScheduler.Outcome.UNCHANGED;
+        } catch (Exception e) {
+            recordSyncError(syncResult, e, "Sync unable to get physician alerts from the internet." +
+                    " Internet may not be available. Check your internet connection.");
+            return null;
+        }
     }
 
     /**
-     * Get the alerts for the physician from the cloud server.
+     * Checks if any of the alerts is severe and the physician has not contacted the patient yet.
+     *
+     * @param result The alerts of the physician.
+     * @return true if an alert is open
      */
-    private void getPhysicianAlerts() {
-        // Check if the user is logged in and has the role of a physician
-        if (LoginUtility.isLoggedIn(getContext()) &&
-                LoginUtility.getUserRole(getContext()) == UserCredential.UserRole.PHYSICIAN) {
-            // Retrieve the physician ID of the logged-in physician user
-            physicianId = LoginUtility.getLoginId(context);
-            // Set patientId to null since this is physician sync
-            patientId = null;
-        } else {
-            // User is not logged in as a physician, so return and do nothing
-            return;
+    private static boolean hasOpenAlerts(Collection<Alert> result) {
+        if (result == null) return false;
+        for (Alert a : result) {
+            if (a.getPhysicianContacted() <= 0L && a.getSeverityLevel() >= Alert.PAIN_SEVERITY_LEVEL_3) {
+                return true;
+            }
         }
+        return false;
+    }
 
-        Log.d(LOG_TAG, "Get Alerts for Physician: " + physicianId);
-        // Retrieve the SymptomManagementApi instance
-        final SymptomManagementApi symptomManagementApi = SymptomManagementService.getService();
-        if (symptomManagementApi != null) {
-            // Invoke a CallableTask to asynchronously retrieve the physician's alerts from the cloud server
-            CallableTask.invoke(() -> {
-                Log.d(LOG_TAG, "Getting patient alerts for physician: " + physicianId);
-                return symptomManagementApi.getPatientAlerts(physicianId);
-            }, new TaskCallback<Collection<Alert>>() {
-                @Override
-                public void success(Collection<Alert> result) {
-                    // Handle the successful retrieval of alerts from the cloud
-                    if (result != null) {
-                        Log.d(LOG_TAG, "Found Alerts: " + result.size());
-                    }
-                    // Store the retrieved alerts in the 'alerts' variable
-                    alerts = result;
-                    // Create a notification for the physician based on the retrieved alerts
-                    createPhysicianNotification(alerts);
-                }
+    /**
+     * Checks if the alerts are the same as the ones the last sync found.
+     *
+     * @param result The alerts of the physician.
+     * @return true if nothing changed
+     */
+    private static synchronized boolean isSameAlerts(Collection<Alert> result) {
+        if (alerts == null || result == null) return alerts == result;
+        return alerts.size() == result.size() && new HashSet<>(alerts).equals(new HashSet<>(result));
+    }
 
-                @Override
-                public void error(Exception e) {
-                    // Handle any errors that occurred during the retrieval of alerts
-                    Log.e(LOG_TAG, "Sync unable to get physician alerts from the internet." +
-                            " Internet may not be available. Check your internet connection.");
-                }
-            });
+    /**
+     * Record a failed call to the server in the backoff and in the sync result. Network and server
+     * errors are soft errors the framework retries later, a rejected login or an unreadable answer is not.
+     *
+     * @param syncResult The result of the sync operation.
+     * @param e          The exception the call failed with.
+     * @param message    The message to log.
+     */
+    private void recordSyncError(SyncResult syncResult, Exception e, String message) {
+        Log.e(LOG_TAG, message, e);
+        SyncBackoff.recordFailure(e);
+        if (e.getCause() instanceof ConversionException) {
+            syncResult.stats.numParseExceptions++;
+        } else if (e instanceof RetrofitError && ((RetrofitError) e).getResponse() != null
+                && ((RetrofitError) e).getResponse().getStatus() == HttpURLConnection.HTTP_UNAUTHORIZED) {
+            syncResult.stats.numAuthExceptions++;
         } else {
-            // SymptomManagementApi instance is not available, likely due to a lack of internet connection
-            Log.d(LOG_TAG, "No SERVICE available? Is the internet gone?");
+            syncResult.stats.numIoExceptions++;
         }
     }
 
@@ -447,24 +604,32 @@ public class SymptomManagementSyncAdapter extends AbstractThreadedSyncAdapter {
     }
 
     /**
-     * Find the severity level for the patient's alert.
+     * Replace the alerts of the physician, with the ones returned when alerts are acknowledged.
+     *
+     * @param result The current alerts of the physician.
+     */
+    public static synchronized void setAlerts(Collection<Alert> result) {
+        alerts = result;
+    }
+
+    /**
+     * Find the alert of a patient among the alerts of the physician.
      *
      * @param patient The Patient object.
-     * @return The severity level for the patient's alert.
+     * @return The alert of the patient, or null if the patient has none.
      */
-    public static synchronized int findPatientAlertSeverityLevel(Patient patient) {
-        Log.d(LOG_TAG, "Checking Patient for Severity Level: " + patient.getId());
+    public static synchronized Alert findPatientAlert(Patient patient) {
+        Log.d(LOG_TAG, "Checking Patient for an Alert: " + patient.getId());
         if (alerts == null || alerts.size() == 0) {
-            return Alert.PAIN_SEVERITY_LEVEL_0;
+            return null;
         }
         for (Alert a : alerts) {
             Log.d(LOG_TAG, "Checking Alert for Patient ID: " + a.getPatientId());
             if (a.getPatientId().contentEquals(patient.getId())) {
-                Log.d(LOG_TAG, "MATCHES PATIENT .. High Severity Level found: " + a.getSeverityLevel());
-                patient.setSeverityLevel(a.getSeverityLevel());
-                return a.getSeverityLevel();
+                Log.d(LOG_TAG, "MATCHES PATIENT .. Severity Level found: " + a.getSeverityLevel());
+                return a;
             }
         }
-        return Alert.PAIN_SEVERITY_LEVEL_0;
+        return null;
     }
 }
@@ -0,0 +1,90 @@
+package com.example.symptommanagement.sync;
+
+import android.util.Log;
+import retrofit.RetrofitError;
+import retrofit.client.Header;
+import retrofit.client.Response;
+
+import java.util.Random;
+
+/**
+ * Keeps track of failed sync attempts and computes how long the sync adapter should back off before
+ * contacting the server again.
+ * <p>
+ * Every device syncs on the same schedule, so after an outage they would all retry at once. The delay
+ * grows exponentially with each consecutive failure and is randomized ("full jitter") to spread the
+ * retries out. When the server answers 429 Too Many Requests, its Retry-After header is honored instead.
+ */
+public class SyncBackoff {
+
+    private static final String LOG_TAG = SyncBackoff.class.getSimpleName();
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final String RETRY_AFTER_HEADER = "Retry-After";
+    private static final long BASE_DELAY_SECONDS = 30;
+    private static final long MAX_DELAY_SECONDS = 60 * 20;
+    private static final Random random = new Random();
+
+    private static int failureCount = 0;
+    private static long nextAttemptTime = 0L;
+
+    /**
+     * Checks whether the sync adapter is still backing off.
+     *
+     * @return the number of seconds left to wait, or 0 if a sync may proceed
+     */
+    public static synchronized long getRemainingDelaySeconds() {
+        long remaining = nextAttemptTime - System.currentTimeMillis();
+        return remaining > 0L ? (remaining + 999L) / 1000L : 0L;
+    }
+
+    /**
+     * Record a successful call to the server, ending any backoff.
+     */
+    public static synchronized void recordSuccess() {
+        failureCount = 0;
+        nextAttemptTime = 0L;
+    }
+
+    /**
+     * Record a failed call to the server and schedule the next allowed attempt.
+     *
+     * @param e The exception the call failed with.
+     */
+    public static synchronized void recordFailure(Exception e) {
+        failureCount++;
+        long delay = getRetryAfterSeconds(e);
+        if (delay <= 0L) {
+            // Full jitter: a random delay between zero and the exponential cap
+            long cap = Math.min(MAX_DELAY_SECONDS, BASE_DELAY_SECONDS << Math.min(failureCount - 1, 10));
+            delay = 1L + (long) (random.nextDouble() * cap);
+        }
+        nextAttemptTime = Math.max(nextAttemptTime, System.currentTimeMillis() + delay * 1000L);
+        Log.d(LOG_TAG, "Sync failure " + failureCount + ", backing off for " + delay + " seconds.");
+    }
+
+    /**
+     * Get the delay requested by the server in the Retry-After header of a 429 response.
+     *
+     * @param e The exception the call failed with.
+     * @return the requested delay in seconds, or 0 if the server did not request one
+     */
+    private static long getRetryAfterSeconds(Exception e) {
+        if (!(e instanceof RetrofitError)) {
+            return 0L;
+        }
+        Response response = ((RetrofitError) e).getResponse();
+        if (response == null || response.getStatus() != HTTP_TOO_MANY_REQUESTS || response.getHeaders() == null) {
+            return 0L;
+        }
+        for (Header header : response.getHeaders()) {
+            if (RETRY_AFTER_HEADER.equalsIgnoreCase(header.getName())) {
+                try {
+                    return Long.parseLong(header.getValue().trim());
+                } catch (NumberFormatException ex) {
+                    Log.d(LOG_TAG, "Ignoring unparsable Retry-After header: " + header.getValue());
+                }
+            }
+        }
+        return 0L;
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.symptommanagement.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+/**
+ * Adapts the periodic sync interval to what the syncs find, and keeps the sync statistics in shared
+ * preferences.
+ * <p>
+ * A change made on the device is synced right away, so the periodic sync only has to pick up what
+ * changed elsewhere. Each periodic sync that finds nothing new doubles the interval up to
+ * {@link #MAX_INTERVAL}, a change brings it back to {@link #BASE_INTERVAL}, and a physician with open
+ * alerts syncs every {@link #MIN_INTERVAL}. The periodic sync is only rescheduled when its interval
+ * changes. Large transfers, the status log images and a long backlog of logs, wait for an unmetered
+ * network or the charger.
+ */
+public class SyncScheduler {
+
+    /**
+     * What a sync found, which decides the interval until the next one.
+     */
+    public enum Outcome {
+        /**
+         * Something needs attention soon, like an open alert.
+         */
+        URGENT,
+        /**
+         * Data was sent or received.
+         */
+        CHANGED,
+        /**
+         * Nothing changed on either side.
+         */
+        UNCHANGED
+    }
+
+    private static final String LOG_TAG = SyncScheduler.class.getSimpleName();
+
+    /**
+     * The shortest interval between periodic syncs in seconds.
+     */
+    public static final int MIN_INTERVAL = 60 * 5;
+
+    /**
+     * The interval between periodic syncs in seconds while things are changing.
+     */
+    public static final int BASE_INTERVAL = 60 * 20;
+
+    /**
+     * The longest interval between periodic syncs in seconds.
+     */
+    public static final int MAX_INTERVAL = 60 * 60 * 4;
+
+    private static final String INTERVAL_KEY = "sync_interval";
+    private static final String LOCAL_CHANGE_KEY = "sync_local_change";
+    private static final String PATIENT_ETAG_KEY = "sync_patient_etag";
+    private static final String SYNCS_PERFORMED_KEY = "sync_stats_performed";
+    private static final String BYTES_TRANSFERRED_KEY = "sync_stats_bytes";
+    private static final String NO_OP_AVOIDED_KEY = "sync_stats_no_op_avoided";
+
+    /**
+     * Retrieves the current interval between periodic syncs.
+     *
+     * @param context The context for accessing shared preferences.
+     * @return the interval in seconds
+     */
+    public static synchronized int getInterval(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getInt(INTERVAL_KEY, BASE_INTERVAL);
+    }
+
+    /**
+     * Retrieves the flex time of the periodic sync, which lets the framework batch it with the syncs
+     * of other apps.
+     *
+     * @param interval The interval between periodic syncs in seconds.
+     * @return the flex time in seconds
+     */
+    public static int getFlexTime(int interval) {
+        return interval / 3;
+    }
+
+    /**
+     * Records a completed sync: updates the statistics and reschedules the periodic sync if the outcome
+     * changes its interval.
+     *
+     * @param context The context for accessing shared preferences.
+     * @param outcome What the sync found.
+     * @param bytes   The number of bytes the sync transferred.
+     */
+    public static synchronized void recordSync(Context context, Outcome outcome, long bytes) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        int interval = getInterval(context);
+        int next;
+        if (outcome == Outcome.URGENT) {
+            next = MIN_INTERVAL;
+        } else if (outcome == Outcome.CHANGED) {
+            next = BASE_INTERVAL;
+        } else {
+            next = Math.min(MAX_INTERVAL, Math.max(BASE_INTERVAL, interval * 2));
+        }
+
+        SharedPreferences.Editor editor = prefs.edit();
+        editor.putLong(SYNCS_PERFORMED_KEY, prefs.getLong(SYNCS_PERFORMED_KEY, 0L) + 1L);
+        editor.putLong(BYTES_TRANSFERRED_KEY, prefs.getLong(BYTES_TRANSFERRED_KEY, 0L) + Math.max(0L, bytes));
+        editor.putInt(INTERVAL_KEY, next);
+        editor.apply();
+        Log.d(LOG_TAG, "Sync " + outcome + " transferred " + bytes + " bytes, next sync in " + next
+                + " seconds. Syncs: " + getSyncsPerformed(context) + ", bytes: " + getBytesTransferred(context)
+                + ", no-op syncs avoided: " + getNoOpSyncsAvoided(context));
+
+        if (next != interval) {
+            SymptomManagementSyncAdapter.configurePeriodicSync(context, next, getFlexTime(next));
+        }
+    }
+
+    /**
+     * Records a sync that found nothing to do and skipped sending the record back.
+     *
+     * @param context The context for accessing shared preferences.
+     */
+    public static synchronized void recordNoOpAvoided(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        prefs.edit().putLong(NO_OP_AVOIDED_KEY, prefs.getLong(NO_OP_AVOIDED_KEY, 0L) + 1L).apply();
+    }
+
+    /**
+     * Get the number of syncs performed.
+     *
+     * @param context The context for accessing shared preferences.
+     * @return the number of syncs
+     */
+    public static synchronized long getSyncsPerformed(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getLong(SYNCS_PERFORMED_KEY, 0L);
+    }
+
+    /**
+     * Get the number of bytes the syncs transferred.
+     *
+     * @param context The context for accessing shared preferences.
+     * @return the number of bytes
+     */
+    public static synchronized long getBytesTransferred(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getLong(BYTES_TRANSFERRED_KEY, 0L);
+    }
+
+    /**
+     * Get the number of syncs that found nothing to do and did not send the record back.
+     *
+     * @param context The context for accessing shared preferences.
+     * @return the number of syncs avoided
+     */
+    public static synchronized long getNoOpSyncsAvoided(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getLong(NO_OP_AVOIDED_KEY, 0L);
+    }
+
+    /**
+     * Records that the user changed something on the device that the next sync has to send.
+     *
+     * @param context The context for accessing shared preferences.
+     */
+    public static synchronized void recordLocalChange(Context context) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        prefs.edit().putLong(LOCAL_CHANGE_KEY, System.currentTimeMillis()).apply();
+    }
+
+    /**
+     * Get the time of the last local change that has not been synced.
+     *
+     * @param context The context for accessing shared preferences.
+     * @return the time of the change, or 0 if there is none
+     */
+    public static synchronized long getLocalChange(Context context) {
+        return PreferenceManager.getDefaultSharedPreferences(context).getLong(LOCAL_CHANGE_KEY, 0L);
+    }
+
+    /**
+     * Clears the local change once it has been synced. A change made while the sync was running is
+     * newer than the one synced and is kept for the next sync.
+     *
+     * @param context The context for accessing shared preferences.
+     * @param synced  The time of the local change the sync started with.
+     */
+    public static synchronized void clearLocalChange(Context context, long synced) {
+        if (synced == 0L || getLocalChange(context) != synced) return;
+        PreferenceManager.getDefaultSharedPreferences(context).edit().remove(LOCAL_CHANGE_KEY).apply();
+    }
+
+    /**
+     * Get the ETag of the patient record the device has last synced.
+     *
+     * @param context   The context for accessing shared preferences.
+     * @param patientId The ID of the patient.
+     * @return the ETag, or null if the record has not been synced
+     */
+    public static synchronized String getPatientETag(Context context, String patientId) {
+        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+        return prefs.getString(PATIENT_ETAG_KEY + "_" + patientId, null);
+    }
+
+    /**
+     * Stores the ETag of the patient record the device has synced.
+     *
+     * @param context   The context for accessing shared preferences.
+     * @param patientId The ID of the patient.
+     * @param etag      The ETag, or null to fetch the whole record next time.
+     */
+    public static synchronized void setPatientETag(Context context, String patientId, String etag) {
+        SharedPreferences.Editor editor = PreferenceManager.getDefaultSharedPreferences(context).edit();
+        if (etag == null) editor.remove(PATIENT_ETAG_KEY + "_" + patientId);
+        else editor.putString(PATIENT_ETAG_KEY + "_" + patientId, etag);
+        editor.apply();
+    }
+
+    /**
+     * Checks if a large transfer may run now, which is on an unmetered network or while the device is
+     * charging.
+     *
+     * @param context The context.
+     * @return true if a large transfer may run
+     */
+    public static boolean isLargeTransferAllowed(Context context) {
+        ConnectivityManager connectivity =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        return (connectivity != null && !connectivity.isActiveNetworkMetered()) || isCharging(context);
+    }
+
+    /**
+     * Checks if the user asked the device to save resources, with Data Saver or the battery saver.
+     *
+     * @param context The context.
+     * @return true if the device is saving data or battery
+     */
+    public static boolean isSavingResources(Context context) {
+        ConnectivityManager connectivity =
+                (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        PowerManager power = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        return (connectivity != null && connectivity.isActiveNetworkMetered()
+                && connectivity.getRestrictBackgroundStatus() == ConnectivityManager.RESTRICT_BACKGROUND_STATUS_ENABLED)
+                || (power != null && power.isPowerSaveMode());
+    }
+
+    /**
+     * Checks if the device is charging.
+     *
+     * @param context The context.
+     * @return true if the device is charging
+     */
+    public static boolean isCharging(Context context) {
+        BatteryManager battery = (BatteryManager) context.getSystemService(Context.BATTERY_SERVICE);
+        return battery != null && battery.isCharging();
+    }
+}
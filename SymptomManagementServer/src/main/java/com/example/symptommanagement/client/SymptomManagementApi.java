@@ -2,9 +2,12 @@ package com.example.symptommanagement.client;
 
 
 import com.example.symptommanagement.repository.*;
+import retrofit.client.Response;
 import retrofit.http.*;
+import retrofit.mime.TypedOutput;
 
 import java.util.Collection;
+import java.util.Map;
 
 /**
  * The SymptomManagementApi interface defines the endpoints for making API calls to the Symptom Management system.
@@ -22,6 +25,7 @@ public interface SymptomManagementApi {
     String ALERT_PATH = "/alert";
     String CREDENTIAL_PATH = "/credential";
     String CLEAR_PATH = "/clear";
+    String SUMMARY_PATH = "/summary";
 
     /**
      * Constants for query parameters and path parameters
@@ -30,12 +34,27 @@ public interface SymptomManagementApi {
     String LAST_NAME_PARAMETER = "lastname";
     String ID_PATH = "/{id}";
     String ID_PARAMETER = "id";
+    String REQUEST_ID_HEADER = "Idempotency-Key";
+    String ETAG_HEADER = "ETag";
+    String IF_NONE_MATCH_HEADER = "If-None-Match";
     String SEARCH_PATH = "/find";
     String PATIENT_SEARCH_PATH = PATIENT_PATH + SEARCH_PATH;
+    String PATIENT_TYPEAHEAD_PATH = PATIENT_SEARCH_PATH + "/typeahead";
+    String LIMIT_PARAMETER = "limit";
     String PHYSICIAN_SEARCH_PATH = PHYSICIAN_PATH + SEARCH_PATH;
     String MEDICATION_SEARCH_PATH = MEDICATION_PATH + SEARCH_PATH;
     String CREDENTIAL_SEARCH_PATH = CREDENTIAL_PATH + SEARCH_PATH;
     String PHYSICIAN_ALERT_PATH = PHYSICIAN_PATH + ID_PATH + ALERT_PATH;
+    String PHYSICIAN_SUMMARY_PATH = PHYSICIAN_PATH + ID_PATH + SUMMARY_PATH;
+    String QUERY_PLAN_PATH = "/diagnostics/queryplan";
+    String IMAGE_PATH = "/image";
+    String CREATED_PATH = "/{created}";
+    String CREATED_PARAMETER = "created";
+    String OFFSET_PARAMETER = "offset";
+    String TOTAL_PARAMETER = "total";
+    String PATIENT_IMAGE_PATH = PATIENT_PATH + ID_PATH + IMAGE_PATH + CREATED_PATH;
+    String PATIENT_IMAGE_UPLOAD_PATH = PATIENT_IMAGE_PATH + "/upload";
+    String PATIENT_THUMBNAIL_PATH = PATIENT_IMAGE_PATH + "/thumbnail";
 
     /**
      * Get a collection of Patient objects from the server.
@@ -54,6 +73,17 @@ public interface SymptomManagementApi {
     @GET(PATIENT_PATH + ID_PATH)
     Patient getPatient(@Path(ID_PARAMETER) String id);
 
+    /**
+     * Get a specific Patient object from the server by its ID, only if it has changed. When the
+     * patient's ETag still matches, the server answers 304 Not Modified without the record.
+     *
+     * @param id   The ID of the patient to retrieve.
+     * @param etag The ETag of the cached copy, or null to always get the record.
+     * @return The Patient object representing the retrieved patient.
+     */
+    @GET(PATIENT_PATH + ID_PATH)
+    Patient getPatient(@Path(ID_PARAMETER) String id, @Header(IF_NONE_MATCH_HEADER) String etag);
+
     /**
      * Add a new Patient object to the server.
      *
@@ -73,6 +103,19 @@ public interface SymptomManagementApi {
     @PUT(PATIENT_PATH + ID_PATH)
     Patient updatePatient(@Path(ID_PARAMETER) String id, @Body Patient patient);
 
+    /**
+     * Update an existing Patient object on the server. Retrying with the same request ID is safe, the
+     * server returns the earlier result instead of applying the update again.
+     *
+     * @param id        The ID of the patient to update.
+     * @param requestId The idempotency key identifying this update.
+     * @param patient   The updated Patient object to save on the server.
+     * @return The Patient object representing the updated patient.
+     */
+    @PUT(PATIENT_PATH + ID_PATH)
+    Patient updatePatient(@Path(ID_PARAMETER) String id, @Header(REQUEST_ID_HEADER) String requestId,
+                          @Body Patient patient);
+
     /**
      * Delete a specific Patient object from the server by its ID.
      *
@@ -91,6 +134,62 @@ public interface SymptomManagementApi {
     @GET(PATIENT_SEARCH_PATH)
     Collection<Patient> findByPatientName(@Query(NAME_PARAMETER) String name);
 
+    /**
+     * Search for patients while the physician types, by the start of the words of their names or birthdate.
+     *
+     * @param text  The text typed so far.
+     * @param limit The most patients to return.
+     * @return A Collection of Patient objects holding only their ID, names and birthdate.
+     */
+    @GET(PATIENT_TYPEAHEAD_PATH)
+    Collection<Patient> searchPatients(@Query(NAME_PARAMETER) String text, @Query(LIMIT_PARAMETER) int limit);
+
+    /**
+     * Get the progress of the upload of a status log image, to continue an interrupted upload.
+     *
+     * @param id      The ID of the patient.
+     * @param created The creation time of the status log.
+     * @return The ImageUpload object with the number of bytes received so far.
+     */
+    @GET(PATIENT_IMAGE_UPLOAD_PATH)
+    ImageUpload getImageUpload(@Path(ID_PARAMETER) String id, @Path(CREATED_PARAMETER) long created);
+
+    /**
+     * Upload a chunk of a status log image. The chunk is only stored if it starts at the number of bytes
+     * received so far, so a repeated chunk is safe to send.
+     *
+     * @param id      The ID of the patient.
+     * @param created The creation time of the status log.
+     * @param offset  The position of the chunk in the image.
+     * @param total   The size of the whole image in bytes.
+     * @param chunk   The bytes of the chunk.
+     * @return The ImageUpload object with the number of bytes received after the chunk.
+     */
+    @PUT(PATIENT_IMAGE_UPLOAD_PATH)
+    ImageUpload uploadImageChunk(@Path(ID_PARAMETER) String id, @Path(CREATED_PARAMETER) long created,
+                                 @Query(OFFSET_PARAMETER) long offset, @Query(TOTAL_PARAMETER) long total,
+                                 @Body TypedOutput chunk);
+
+    /**
+     * Get a status log image. Complete images never change, so the response may be cached.
+     *
+     * @param id      The ID of the patient.
+     * @param created The creation time of the status log.
+     * @return The Response with the JPEG image in its body.
+     */
+    @GET(PATIENT_IMAGE_PATH)
+    Response getImage(@Path(ID_PARAMETER) String id, @Path(CREATED_PARAMETER) long created);
+
+    /**
+     * Get the downscaled thumbnail of a status log image.
+     *
+     * @param id      The ID of the patient.
+     * @param created The creation time of the status log.
+     * @return The Response with the JPEG thumbnail in its body.
+     */
+    @GET(PATIENT_THUMBNAIL_PATH)
+    Response getThumbnail(@Path(ID_PARAMETER) String id, @Path(CREATED_PARAMETER) long created);
+
     /**
      * Get a collection of Physician objects from the server.
      *
@@ -127,6 +226,19 @@ public interface SymptomManagementApi {
     @PUT(PHYSICIAN_PATH + ID_PATH)
     Physician updatePhysician(@Path(ID_PARAMETER) String id, @Body Physician physician);
 
+    /**
+     * Update an existing Physician object on the server. Retrying with the same request ID is safe, the
+     * server returns the earlier result instead of applying the update again.
+     *
+     * @param id        The ID of the physician to update.
+     * @param requestId The idempotency key identifying this update.
+     * @param physician The updated Physician object to save on the server.
+     * @return The Physician object representing the updated physician.
+     */
+    @PUT(PHYSICIAN_PATH + ID_PATH)
+    Physician updatePhysician(@Path(ID_PARAMETER) String id, @Header(REQUEST_ID_HEADER) String requestId,
+                              @Body Physician physician);
+
     /**
      * Delete a specific Physician object from the server by its ID.
      *
@@ -154,6 +266,28 @@ public interface SymptomManagementApi {
     @GET(PHYSICIAN_ALERT_PATH)
     Collection<Alert> getPatientAlerts(@Path(ID_PARAMETER) String id);
 
+    /**
+     * Acknowledge a batch of patient alerts with the physician's status notes, and get the physician's
+     * alerts in the same request.
+     *
+     * @param id               The ID of the physician acknowledging the alerts.
+     * @param requestId        The idempotency key, a retried batch does not attach the notes twice.
+     * @param acknowledgements The status notes of the physician.
+     * @return A Collection of Alert objects associated with the physician, marked as contacted.
+     */
+    @POST(PHYSICIAN_ALERT_PATH)
+    Collection<Alert> acknowledgeAlerts(@Path(ID_PARAMETER) String id, @Header(REQUEST_ID_HEADER) String requestId,
+                                        @Body Collection<AlertAcknowledgement> acknowledgements);
+
+    /**
+     * Get the patient summaries for all patients assigned to a specific physician.
+     *
+     * @param id The ID of the physician for which to retrieve the patient summaries.
+     * @return A Collection of PatientSummary objects for the physician's patients.
+     */
+    @GET(PHYSICIAN_SUMMARY_PATH)
+    Collection<PatientSummary> getPatientSummaries(@Path(ID_PARAMETER) String id);
+
     /**
      * Get a collection of Alert objects from the server.
      *
@@ -248,5 +382,13 @@ public interface SymptomManagementApi {
      */
     @GET(CLEAR_PATH)
     boolean clear();
+
+    /**
+     * Explain every derived repository query on the server.
+     *
+     * @return A Map from each repository query to the stages of its winning plan.
+     */
+    @GET(QUERY_PLAN_PATH)
+    Map<String, String> getQueryPlans();
 }
 
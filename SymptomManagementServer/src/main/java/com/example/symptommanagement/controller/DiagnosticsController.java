@@ -0,0 +1,47 @@
+package com.example.symptommanagement.controller;
+
+import com.example.symptommanagement.client.SymptomManagementApi;
+import com.example.symptommanagement.repository.QueryPlanInspector;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.util.Map;
+
+/**
+ * The `DiagnosticsController` class is a Spring `@Controller` exposing diagnostics of the server's
+ * storage to administrators.
+ */
+@Controller
+public class DiagnosticsController {
+
+    private final QueryPlanInspector queryPlanInspector;
+
+    /**
+     * Constructor for DiagnosticsController.
+     *
+     * @param queryPlanInspector The inspector used to explain the repository queries.
+     */
+    public DiagnosticsController(QueryPlanInspector queryPlanInspector) {
+        this.queryPlanInspector = queryPlanInspector;
+    }
+
+    /**
+     * This endpoint requires ROLE_ADMIN to access.
+     * <p>
+     * Explain every derived repository query. The response maps each query to the stages of its
+     * winning plan, and has status 500 if any of them scans its whole collection or sorts in memory.
+     *
+     * @return The query plans of the repository queries.
+     */
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequestMapping(value = SymptomManagementApi.QUERY_PLAN_PATH, method = RequestMethod.GET)
+    public ResponseEntity<Map<String, String>> getQueryPlans() {
+        Map<String, String> plans = queryPlanInspector.explainRepositoryQueries();
+        boolean inefficient = plans.values().stream().anyMatch(QueryPlanInspector::isInefficient);
+        return new ResponseEntity<>(plans, inefficient ? HttpStatus.INTERNAL_SERVER_ERROR : HttpStatus.OK);
+    }
+}
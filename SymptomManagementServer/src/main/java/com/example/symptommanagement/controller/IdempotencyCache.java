@@ -0,0 +1,113 @@
+package com.example.symptommanagement.controller;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * A short-lived cache of the results of write requests, keyed by the idempotency key sent by the client.
+ * <p>
+ * A device that times out waiting for a response cannot know whether its update was applied, so it
+ * repeats the request with the same key. The repeated request is answered from this cache instead of
+ * redoing the write and its alert processing. A repeat arriving while the original is still running
+ * waits for the original's result. Failed writes are not cached, so they can be retried.
+ */
+public class IdempotencyCache {
+
+    private final long timeToLiveMillis;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * A cached result together with its expiry time.
+     */
+    private static class Entry {
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+        final long expires;
+
+        Entry(long expires) {
+            this.expires = expires;
+        }
+    }
+
+    /**
+     * Constructs the cache.
+     *
+     * @param timeToLiveMillis How long a result is kept, in milliseconds.
+     * @param maxEntries       The maximum number of results kept.
+     */
+    public IdempotencyCache(long timeToLiveMillis, int maxEntries) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Performs the write for the key, or returns the result of the write already performed for it.
+     *
+     * @param key   The idempotency key, or null if the client did not send one.
+     * @param write The write to perform.
+     * @param <V>   The type of the result.
+     * @return The result of the write.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(String key, Supplier<V> write) {
+        if (key == null) {
+            return write.get();
+        }
+        Entry entry;
+        boolean owner = false;
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            removeExpired(now);
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry(now + timeToLiveMillis);
+                entries.put(key, entry);
+                owner = true;
+            }
+        }
+        if (!owner) {
+            try {
+                return (V) entry.result.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            V value = write.get();
+            entry.result.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                entries.remove(key, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the expired entries, and the oldest ones beyond the maximum number of entries.
+     * Entries are kept in insertion order, which is also their order of expiry.
+     *
+     * @param now The current time in milliseconds.
+     */
+    private void removeExpired(long now) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        int size = entries.size();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.expires > now && size < maxEntries) {
+                break;
+            }
+            iterator.remove();
+            size--;
+        }
+    }
+}
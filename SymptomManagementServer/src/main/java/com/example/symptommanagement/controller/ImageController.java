@@ -0,0 +1,156 @@
+package com.example.symptommanagement.controller;
+
+import com.example.symptommanagement.client.SymptomManagementApi;
+import com.example.symptommanagement.repository.ImageStore;
+import com.example.symptommanagement.repository.ImageUpload;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The `ImageController` class is a Spring `@Controller` receiving the images patients take with their
+ * status logs, and serving them and their thumbnails to the physicians.
+ * <p>
+ * Images are uploaded in chunks, so a patient on a poor connection can continue an interrupted upload
+ * instead of starting over. A complete image never changes, so it is served with an ETag and a long
+ * private cache lifetime.
+ */
+@Controller
+public class ImageController {
+
+    // Complete images never change, the clients may keep them until they run out of space
+    private static final CacheControl IMAGE_CACHE_CONTROL = CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate();
+
+    private final ImageStore imageStore;
+
+    /**
+     * Constructor for ImageController.
+     *
+     * @param imageStore The store holding the images.
+     */
+    public ImageController(ImageStore imageStore) {
+        this.imageStore = imageStore;
+    }
+
+    /**
+     * This endpoint requires ROLE_PATIENT or ROLE_ADMIN to access.
+     * <p>
+     * Get the progress of the upload of a status log image.
+     *
+     * @param id      The ID of the patient.
+     * @param created The creation time of the status log.
+     * @return The progress of the upload.
+     */
+    @PreAuthorize("hasAnyRole('ROLE_PATIENT', 'ROLE_ADMIN')")
+    @RequestMapping(value = SymptomManagementApi.PATIENT_IMAGE_UPLOAD_PATH, method = RequestMethod.GET)
+    public @ResponseBody ImageUpload getImageUpload(
+            @PathVariable(SymptomManagementApi.ID_PARAMETER) String id,
+            @PathVariable(SymptomManagementApi.CREATED_PARAMETER) long created) {
+        return imageStore.getUpload(id, created);
+    }
+
+    /**
+     * This endpoint requires ROLE_PATIENT or ROLE_ADMIN to access.
+     * <p>
+     * Append a chunk to a status log image. A chunk that does not start at the number of bytes received
+     * so far is ignored, the progress returned tells the client where to continue.
+     *
+     * @param id      The ID of the patient.
+     * @param created The creation time of the status log.
+     * @param offset  The position of the chunk in the image.
+     * @param total   The size of the whole image in bytes.
+     * @param chunk   The bytes of the chunk.
+     * @return The progress of the upload after the chunk.
+     */
+    @PreAuthorize("hasAnyRole('ROLE_PATIENT', 'ROLE_ADMIN')")
+    @RequestMapping(value = SymptomManagementApi.PATIENT_IMAGE_UPLOAD_PATH, method = RequestMethod.PUT)
+    public @ResponseBody ImageUpload uploadImageChunk(
+            @PathVariable(SymptomManagementApi.ID_PARAMETER) String id,
+            @PathVariable(SymptomManagementApi.CREATED_PARAMETER) long created,
+            @RequestParam(SymptomManagementApi.OFFSET_PARAMETER) long offset,
+            @RequestParam(SymptomManagementApi.TOTAL_PARAMETER) long total,
+            @RequestBody byte[] chunk) {
+        return imageStore.append(id, created, offset, total, chunk);
+    }
+
+    /**
+     * This endpoint requires ROLE_PATIENT, ROLE_PHYSICIAN, or ROLE_ADMIN to access.
+     * <p>
+     * Get a status log image.
+     *
+     * @param id          The ID of the patient.
+     * @param created     The creation time of the status log.
+     * @param ifNoneMatch The ETag of the client's copy of the image, or null.
+     * @return The image, 304 Not Modified if the client has it already, or 404 if it is not uploaded yet.
+     */
+    @PreAuthorize("hasAnyRole('ROLE_PATIENT','ROLE_PHYSICIAN', 'ROLE_ADMIN')")
+    @RequestMapping(value = SymptomManagementApi.PATIENT_IMAGE_PATH, method = RequestMethod.GET)
+    public ResponseEntity<Resource> getImage(
+            @PathVariable(SymptomManagementApi.ID_PARAMETER) String id,
+            @PathVariable(SymptomManagementApi.CREATED_PARAMETER) long created,
+            @RequestHeader(value = SymptomManagementApi.IF_NONE_MATCH_HEADER, required = false) String ifNoneMatch) {
+        return serve(imageStore.getImage(id, created), ifNoneMatch);
+    }
+
+    /**
+     * This endpoint requires ROLE_PATIENT, ROLE_PHYSICIAN, or ROLE_ADMIN to access.
+     * <p>
+     * Get the downscaled thumbnail of a status log image.
+     *
+     * @param id          The ID of the patient.
+     * @param created     The creation time of the status log.
+     * @param ifNoneMatch The ETag of the client's copy of the thumbnail, or null.
+     * @return The thumbnail, 304 Not Modified if the client has it already, or 404 if it is not uploaded yet.
+     */
+    @PreAuthorize("hasAnyRole('ROLE_PATIENT','ROLE_PHYSICIAN', 'ROLE_ADMIN')")
+    @RequestMapping(value = SymptomManagementApi.PATIENT_THUMBNAIL_PATH, method = RequestMethod.GET)
+    public ResponseEntity<Resource> getThumbnail(
+            @PathVariable(SymptomManagementApi.ID_PARAMETER) String id,
+            @PathVariable(SymptomManagementApi.CREATED_PARAMETER) long created,
+            @RequestHeader(value = SymptomManagementApi.IF_NONE_MATCH_HEADER, required = false) String ifNoneMatch) {
+        return serve(imageStore.getThumbnail(id, created), ifNoneMatch);
+    }
+
+    /**
+     * Answer an upload that is too large or not an image with 400 Bad Request.
+     *
+     * @param e The exception thrown by the image store.
+     * @return The response with the reason.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleInvalidImage(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    /**
+     * Helper method to serve a stored image file with its caching headers.
+     *
+     * @param file        The image file, or null if it does not exist.
+     * @param ifNoneMatch The ETag of the client's copy, or null.
+     * @return The response.
+     */
+    private ResponseEntity<Resource> serve(File file, String ifNoneMatch) {
+        if (file == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = "\"" + Long.toHexString(file.lastModified()) + "-" + Long.toHexString(file.length()) + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(IMAGE_CACHE_CONTROL).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(IMAGE_CACHE_CONTROL)
+                .contentType(MediaType.IMAGE_JPEG)
+                .contentLength(file.length())
+                .body(new FileSystemResource(file));
+    }
+}
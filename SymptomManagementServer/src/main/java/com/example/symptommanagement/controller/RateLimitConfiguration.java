@@ -0,0 +1,39 @@
+package com.example.symptommanagement.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Configuration class registering the per-user {@link RateLimitInterceptor} for the API endpoints.
+ */
+@Configuration
+public class RateLimitConfiguration implements WebMvcConfigurer {
+
+    private final int capacity;
+    private final double refillPerSecond;
+
+    /**
+     * Constructor for RateLimitConfiguration.
+     *
+     * @param capacity        The number of requests a user may make in a burst.
+     * @param refillPerSecond The sustained number of requests per second allowed for a user.
+     */
+    public RateLimitConfiguration(@Value("${ratelimit.capacity:20}") int capacity,
+                                  @Value("${ratelimit.refill-per-second:2}") double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerSecond = refillPerSecond;
+    }
+
+    /**
+     * Register the rate limit interceptor for everything except the OAuth token endpoint.
+     *
+     * @param registry The InterceptorRegistry instance.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new RateLimitInterceptor(capacity, refillPerSecond))
+                .excludePathPatterns("/oauth/**");
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.symptommanagement.controller;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.security.Principal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interceptor that limits the request rate of each authenticated user with a {@link TokenBucket}.
+ * <p>
+ * All devices sync on the same schedule and retry together after an outage, so a user that runs out
+ * of tokens is answered with 429 Too Many Requests and a Retry-After header telling the device how
+ * many seconds to back off, instead of the request reaching MongoDB.
+ */
+public class RateLimitInterceptor extends HandlerInterceptorAdapter {
+
+    static final Logger logger = LoggerFactory.getLogger(RateLimitInterceptor.class);
+
+    private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final double refillPerSecond;
+
+    /**
+     * Constructs the interceptor.
+     *
+     * @param capacity        The number of requests a user may make in a burst.
+     * @param refillPerSecond The sustained number of requests per second allowed for a user.
+     */
+    public RateLimitInterceptor(int capacity, double refillPerSecond) {
+        this.capacity = capacity;
+        this.refillPerSecond = refillPerSecond;
+    }
+
+    /**
+     * Takes a token from the bucket of the requesting user, rejecting the request if there is none.
+     *
+     * @param request  The current HTTP request.
+     * @param response The current HTTP response.
+     * @param handler  The handler chosen to execute the request.
+     * @return true if the request may proceed, false if it has been rejected.
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        Principal principal = request.getUserPrincipal();
+        if (principal == null) {
+            // Unauthenticated requests are rejected by the security configuration
+            return true;
+        }
+        TokenBucket bucket = buckets.computeIfAbsent(principal.getName(),
+                name -> new TokenBucket(capacity, refillPerSecond));
+        long retryAfter = bucket.tryConsume();
+        if (retryAfter == 0L) {
+            return true;
+        }
+        logger.debug("Rate limit exceeded for " + principal.getName() + ", retry after " + retryAfter + "s");
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+        return false;
+    }
+}
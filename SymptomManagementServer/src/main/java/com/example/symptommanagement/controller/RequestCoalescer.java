@@ -0,0 +1,53 @@
+package com.example.symptommanagement.controller;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent identical reads so that only one of them reaches the repository.
+ * <p>
+ * The first caller for a key performs the read; callers arriving while it is in flight wait for and
+ * share its result. Nothing is cached once the read completes, so later callers always see fresh data.
+ *
+ * @param <K> The type of the key identifying a read.
+ * @param <V> The type of the value read.
+ */
+public class RequestCoalescer<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Performs the read for the key, or joins the read already in flight for it.
+     *
+     * @param key    The key identifying the read.
+     * @param loader The read to perform if none is in flight.
+     * @return The value read.
+     */
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            V value = loader.get();
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+}
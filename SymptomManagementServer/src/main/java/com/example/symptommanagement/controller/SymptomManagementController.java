@@ -4,12 +4,16 @@ import com.example.symptommanagement.client.SymptomManagementApi;
 import com.example.symptommanagement.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
 import java.security.Principal;
 import java.util.*;
+import java.util.function.Supplier;
 
 /**
  * The `SymptomManagementController` class is a Spring `@Controller` responsible for handling various API endpoints
@@ -41,6 +45,17 @@ public class SymptomManagementController {
     private final MedicationRepository medicationRepository;
     private final AlertRepository alertRepository;
     private final UserCredentialRepository userCredentialRepository;
+    private final PatientSummaryRepository patientSummaryRepository;
+    private final PatientSearchIndex patientSearchIndex;
+
+    // Concurrent reads of the same patient share a single repository read
+    private final RequestCoalescer<String, Patient> patientReads = new RequestCoalescer<>();
+
+    // Results of recent updates, so a retried update is not applied twice
+    private final IdempotencyCache idempotentResults = new IdempotencyCache(10 * 60 * 1000L, 1000);
+
+    // Number of times a save is attempted when concurrent writers keep changing the version
+    private static final int MAX_SAVE_ATTEMPTS = 3;
 
     /**
      * Constructor for the SymptomManagementController class.
@@ -50,17 +65,23 @@ public class SymptomManagementController {
      * @param medicationRepository     The repository for medication data.
      * @param alertRepository          The repository for alert data.
      * @param userCredentialRepository The repository for user credential data.
+     * @param patientSummaryRepository The repository for the physicians' patient summaries.
+     * @param patientSearchIndex       The index for searching patients by name and birthdate.
      */
     public SymptomManagementController(PatientRepository patientRepository,
                                        PhysicianRepository physicianRepository,
                                        MedicationRepository medicationRepository,
                                        AlertRepository alertRepository,
-                                       UserCredentialRepository userCredentialRepository) {
+                                       UserCredentialRepository userCredentialRepository,
+                                       PatientSummaryRepository patientSummaryRepository,
+                                       PatientSearchIndex patientSearchIndex) {
         this.patientRepository = patientRepository;
         this.physicianRepository = physicianRepository;
         this.medicationRepository = medicationRepository;
         this.alertRepository = alertRepository;
         this.userCredentialRepository = userCredentialRepository;
+        this.patientSummaryRepository = patientSummaryRepository;
+        this.patientSearchIndex = patientSearchIndex;
     }
 
     /**
@@ -79,17 +100,34 @@ public class SymptomManagementController {
     /**
      * This endpoint requires ROLE_PATIENT, ROLE_PHYSICIAN, or ROLE_ADMIN to access.
      * <p>
-     * Retrieve a specific patient by their ID from the patient repository.
+     * Retrieve a specific patient by their ID from the patient repository. Devices tend to sync at the same
+     * time, so concurrent requests for the same patient are served by a single repository read.
+     * <p>
+     * The version of the patient is sent as the ETag. A client that already has that version sends it
+     * back in If-None-Match and gets 304 Not Modified instead of the whole patient history.
      *
-     * @param id The ID of the patient to retrieve.
-     * @return The Patient object representing the specific patient, or null if not found.
+     * @param id          The ID of the patient to retrieve.
+     * @param ifNoneMatch The ETag of the client's copy of the patient, or null.
+     * @param response    The HTTP response, receiving the ETag.
+     * @return The Patient object representing the specific patient, or null if not found or not modified.
      */
     @PreAuthorize("hasAnyRole('ROLE_PATIENT','ROLE_PHYSICIAN', 'ROLE_ADMIN')")
     @RequestMapping(value = SymptomManagementApi.PATIENT_PATH
             + SymptomManagementApi.ID_PATH, method = RequestMethod.GET)
     public @ResponseBody Patient getPatient(
-            @PathVariable(SymptomManagementApi.ID_PARAMETER) String id) {
-        return patientRepository.findById(id).orElse(null);
+            @PathVariable(SymptomManagementApi.ID_PARAMETER) String id,
+            @RequestHeader(value = SymptomManagementApi.IF_NONE_MATCH_HEADER, required = false) String ifNoneMatch,
+            HttpServletResponse response) {
+        Patient patient = patientReads.execute(id, () -> patientRepository.findById(id).orElse(null));
+        if (patient != null && patient.getVersion() != null) {
+            String etag = "\"" + patient.getVersion() + "\"";
+            response.setHeader(SymptomManagementApi.ETAG_HEADER, etag);
+            if (etag.equals(ifNoneMatch)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return null;
+            }
+        }
+        return patient;
     }
 
     /**
@@ -109,6 +147,10 @@ public class SymptomManagementController {
         if (savedPatient != null) {
             // Add credentials for the newly added patient
             addCredentials(savedPatient);
+            if (savedPatient.getPhysicians() != null) {
+                // Create the summaries for the physicians assigned from the start
+                updatePatientSummaries(savedPatient, savedPatient.getSeverityLevel());
+            }
         }
         return savedPatient;
     }
@@ -117,8 +159,15 @@ public class SymptomManagementController {
      * This endpoint requires ROLE_PATIENT, ROLE_PHYSICIAN, or ROLE_ADMIN to access.
      * <p>
      * Update an existing patient's records on the patient repository.
+     * <p>
+     * If the request carries an idempotency key that was already processed, the earlier result is
+     * returned without saving the patient or processing the alerts again.
+     * <p>
+     * The update is merged with the stored patient: log entries written by other users are kept. If the
+     * update was made from an older version and changes the patient's details, it is rejected with 409.
      *
      * @param id        The ID of the patient to update.
+     * @param requestId The idempotency key of the request, or null if none was sent.
      * @param patient   The updated Patient object to save on the repository.
      * @param principal The Principal object representing the currently authenticated user.
      * @return The Patient object representing the updated patient.
@@ -128,12 +177,29 @@ public class SymptomManagementController {
             + SymptomManagementApi.ID_PATH, method = RequestMethod.PUT)
     public @ResponseBody Patient updatePatient(
             @PathVariable(SymptomManagementApi.ID_PARAMETER) String id,
+            @RequestHeader(value = SymptomManagementApi.REQUEST_ID_HEADER, required = false) String requestId,
             @RequestBody Patient patient,
             Principal principal) {
+        return idempotentResults.execute(createIdempotencyKey(principal, requestId),
+                () -> saveWithRetry(() -> savePatient(id, patient, principal)));
+    }
 
+    /**
+     * Helper method to sort the logs, process the alerts and save an updated patient.
+     *
+     * @param id        The ID of the patient to update.
+     * @param patient   The updated Patient object to save on the repository.
+     * @param principal The Principal object representing the currently authenticated user.
+     * @return The Patient object representing the updated patient.
+     */
+    private Patient savePatient(String id, Patient patient, Principal principal) {
         // Logging the user who initiated the update
         logger.debug("Updating the Patient Records - BEGIN - User is  : " + principal.getName());
 
+        // Merge with the stored patient, keeping the logs other users added since this update was read
+        Patient stored = patientRepository.findById(id).orElse(null);
+        mergeStoredPatient(patient, stored);
+
         // Sorting status logs, medication logs, and pain logs of the patient
         sortStatusLogs(patient);
         sortMedLogs(patient);
@@ -141,13 +207,15 @@ public class SymptomManagementController {
 
         // Creating alerts for this patient
         logger.debug("Creating alerts for this patient");
-        processAlerts(id, patient);
+        int severityLevel = processAlerts(id, patient);
 
         // Final saving the patient to storage
         logger.debug("FINAL Saving the patient to storage.");
         // Save the updated patient to the patient repository
         Patient savedPatient = patientRepository.save(patient);
         if (savedPatient != null) {
+            // Keep the physicians' patient summaries in step with this update
+            updatePatientSummaries(savedPatient, severityLevel);
             if (principal.getName().equalsIgnoreCase("admin")) {
                 // If the user is an admin, update physician's patient list as well
                 updatePhysicianPatientList(savedPatient);
@@ -176,6 +244,7 @@ public class SymptomManagementController {
         if (found != null) {
             // Delete the patient from the patient repository
             patientRepository.delete(found);
+            patientSummaryRepository.deleteByPatientId(id);
         }
         return found;
     }
@@ -192,25 +261,32 @@ public class SymptomManagementController {
     @RequestMapping(value = SymptomManagementApi.PATIENT_SEARCH_PATH, method = RequestMethod.GET)
     public @ResponseBody Collection<Patient> findByPatientName(
             @RequestParam(SymptomManagementApi.NAME_PARAMETER) String name) {
-        // Create a collection to store found patients
-        Collection<Patient> foundList = new HashSet<>();
         logger.debug("Patient Name to Search " + name);
-        // Get all patients from the patient repository
-        Collection<Patient> patients = patientRepository.findAll();
-        if (patients != null) {
-            logger.debug("All patients : " + patients.size());
-            // Iterate through all patients and add matching patients to the foundList
-            for (Patient patient : patients) {
-                if (patient.getName().contentEquals(name)) {
-                    logger.debug("Patient Match is " + patient.getName());
-                    foundList.add(patient);
-                }
-            }
-        }
+        // Narrow the patients down with the search index, then keep the exact matches
+        Collection<Patient> foundList = patientSearchIndex.findByName(name);
         logger.debug("Found patients : " + foundList.size());
         return foundList;
     }
 
+    /**
+     * This endpoint requires ROLE_PHYSICIAN or ROLE_ADMIN to access.
+     * <p>
+     * Search patients while the physician types. Every word typed must be the start of a word of the
+     * patient's names or birthdate. The patients returned only hold their ID, names and birthdate, the
+     * physician selects one to get the full record.
+     *
+     * @param text  The text typed so far.
+     * @param limit The most patients to return, capped by the search index.
+     * @return A collection of Patient objects matching the text, ordered by last and first name.
+     */
+    @PreAuthorize("hasAnyRole('ROLE_PHYSICIAN', 'ROLE_ADMIN')")
+    @RequestMapping(value = SymptomManagementApi.PATIENT_TYPEAHEAD_PATH, method = RequestMethod.GET)
+    public @ResponseBody Collection<Patient> searchPatients(
+            @RequestParam(SymptomManagementApi.NAME_PARAMETER) String text,
+            @RequestParam(value = SymptomManagementApi.LIMIT_PARAMETER, defaultValue = "10") int limit) {
+        return patientSearchIndex.search(text, limit);
+    }
+
     /**
      * This endpoint requires ROLE_PHYSICIAN or ROLE_ADMIN to access.
      * <p>
@@ -265,9 +341,18 @@ public class SymptomManagementController {
      * This endpoint requires ROLE_PHYSICIAN or ROLE_ADMIN to access.
      * <p>
      * Update an existing physician's records on the physician repository.
+     * <p>
+     * If the request carries an idempotency key that was already processed, the earlier result is
+     * returned without saving the physician again.
+     * <p>
+     * The update is merged with the stored physician: status notes written concurrently are kept. If the
+     * update was made from an older version and changes the physician's details or patient list, it is
+     * rejected with 409.
      *
      * @param id        The ID of the physician to update.
+     * @param requestId The idempotency key of the request, or null if none was sent.
      * @param physician The updated Physician object to save on the repository.
+     * @param principal The Principal object representing the currently authenticated user.
      * @return The Physician object representing the updated physician.
      */
     @PreAuthorize("hasAnyRole('ROLE_PHYSICIAN', 'ROLE_ADMIN')")
@@ -275,9 +360,21 @@ public class SymptomManagementController {
             + SymptomManagementApi.ID_PATH, method = RequestMethod.PUT)
     public @ResponseBody Physician updatePhysician(
             @PathVariable(SymptomManagementApi.ID_PARAMETER) String id,
-            @RequestBody Physician physician) {
-        // Save the updated physician to the physician repository
-        return physicianRepository.save(physician);
+            @RequestHeader(value = SymptomManagementApi.REQUEST_ID_HEADER, required = false) String requestId,
+            @RequestBody Physician physician,
+            Principal principal) {
+        return idempotentResults.execute(createIdempotencyKey(principal, requestId), () -> saveWithRetry(() -> {
+            // Merge with the stored physician, keeping the status notes added since this update was read
+            Physician stored = physicianRepository.findById(id).orElse(null);
+            mergeStoredPhysician(physician, stored);
+            // Save the updated physician to the physician repository
+            Physician savedPhysician = physicianRepository.save(physician);
+            if (savedPhysician != null) {
+                // Close the open alerts the physician has responded to with a status note
+                updateContactedSummaries(savedPhysician);
+            }
+            return savedPhysician;
+        }));
     }
 
     /**
@@ -297,6 +394,7 @@ public class SymptomManagementController {
         if (found != null) {
             // Delete the physician from the physician repository
             physicianRepository.delete(found);
+            patientSummaryRepository.deleteByPhysicianId(id);
         }
         return found;
     }
@@ -329,27 +427,63 @@ public class SymptomManagementController {
     @RequestMapping(value = SymptomManagementApi.PHYSICIAN_ALERT_PATH, method = RequestMethod.GET)
     public @ResponseBody Collection<Alert> getPatientAlerts(
             @PathVariable(SymptomManagementApi.ID_PARAMETER) String id) {
-        // Find all alerts associated with the specified physician ID
-        Collection<Alert> foundAlerts = alertRepository.findByPhysicianId(id);
-        if (foundAlerts != null && foundAlerts.size() > 0) {
-            logger.debug("Alerts to be verified: " + foundAlerts.size());
-            // Iterate through the found alerts and check if physicianContacted status exists
-            for (Alert alert : foundAlerts) {
-                logger.debug("Checking this alert: " + alert.toString());
-                // Find the physicianContacted status log associated with the alert
-                StatusLog s = findPhysicianContactedStatus(alert);
-                if (s != null) {
-                    logger.debug("With this status Log: " + s);
-                    // Set physicianContacted field of the alert to status log created date
-                    alert.setPhysicianContacted(s.getCreated());
-                    logger.debug("Found a Physician Contact Message post-alert"
-                            + "...setting contacted date to status log created: " + alert);
-                } else {
-                    logger.debug("No Status Logs found to compare with.");
+        return findAlerts(id, physicianRepository.findById(id).orElse(null));
+    }
+
+    /**
+     * This endpoint requires ROLE_PHYSICIAN or ROLE_ADMIN to access.
+     * <p>
+     * Acknowledge a batch of patient alerts and retrieve the physician's alerts in the same request. Each
+     * acknowledgement is attached as a status note to the patient in the physician's list, and the physician
+     * is saved once for the whole batch. The alerts returned are marked as contacted by the new notes.
+     * <p>
+     * If the request carries an idempotency key that was already processed, the earlier result is
+     * returned without attaching the notes again.
+     *
+     * @param id               The ID of the physician acknowledging the alerts.
+     * @param requestId        The idempotency key of the request, or null if none was sent.
+     * @param acknowledgements The status notes of the physician.
+     * @param principal        The Principal object representing the currently authenticated user.
+     * @return A collection of Alert objects representing the alerts associated with the physician.
+     */
+    @PreAuthorize("hasAnyRole('ROLE_PHYSICIAN', 'ROLE_ADMIN')")
+    @RequestMapping(value = SymptomManagementApi.PHYSICIAN_ALERT_PATH, method = RequestMethod.POST)
+    public @ResponseBody Collection<Alert> acknowledgeAlerts(
+            @PathVariable(SymptomManagementApi.ID_PARAMETER) String id,
+            @RequestHeader(value = SymptomManagementApi.REQUEST_ID_HEADER, required = false) String requestId,
+            @RequestBody Collection<AlertAcknowledgement> acknowledgements,
+            Principal principal) {
+        return idempotentResults.execute(createIdempotencyKey(principal, requestId), () -> {
+            Physician physician = saveWithRetry(() -> {
+                Physician stored = physicianRepository.findById(id).orElse(null);
+                if (stored == null || !attachStatusNotes(stored, acknowledgements)) {
+                    return stored;
                 }
-            }
-        }
-        return foundAlerts;
+                Physician savedPhysician = physicianRepository.save(stored);
+                if (savedPhysician != null) {
+                    // Close the open alerts the physician has responded to with a status note
+                    updateContactedSummaries(savedPhysician);
+                }
+                return savedPhysician;
+            });
+            return findAlerts(id, physician);
+        });
+    }
+
+    /**
+     * This endpoint requires ROLE_PHYSICIAN or ROLE_ADMIN to access.
+     * <p>
+     * Retrieve the summaries of all patients assigned to a specific physician. The summaries are
+     * maintained on every patient update, so the whole patient panel comes from a single query.
+     *
+     * @param id The ID of the physician to retrieve the patient summaries for.
+     * @return A collection of PatientSummary objects for the physician's patients.
+     */
+    @PreAuthorize("hasAnyRole('ROLE_PHYSICIAN', 'ROLE_ADMIN')")
+    @RequestMapping(value = SymptomManagementApi.PHYSICIAN_SUMMARY_PATH, method = RequestMethod.GET)
+    public @ResponseBody Collection<PatientSummary> getPatientSummaries(
+            @PathVariable(SymptomManagementApi.ID_PARAMETER) String id) {
+        return patientSummaryRepository.findByPhysicianId(id);
     }
 
     /**
@@ -527,6 +661,7 @@ public class SymptomManagementController {
     public @ResponseBody boolean clear() {
         try {
             alertRepository.deleteAll();
+            patientSummaryRepository.deleteAll();
             medicationRepository.deleteAll();
             patientRepository.deleteAll();
             physicianRepository.deleteAll();
@@ -538,34 +673,74 @@ public class SymptomManagementController {
     }
 
     /**
-     * Helper method to find the status log associated with the physician contacted status
-     * for a specific alert.
-     *
-     * @param a The Alert object to check for physician contacted status.
-     * @return The StatusLog object representing the physician contacted status, or null if not found.
-     */
-    private synchronized StatusLog findPhysicianContactedStatus(Alert a) {
-        // Check if the alert has a physician ID associated with it
-        if (a.getPhysicianId() != null) {
-            // Find the physician associated with the alert
-            Physician dr = physicianRepository.findById(a.getPhysicianId()).orElse(null);
-            if (dr != null && dr.getPatients() != null) {
-                // Iterate through the physician's patients to find status logs
-                for (Patient p : dr.getPatients()) {
-                    if (p.getStatusLog() != null && p.getStatusLog().size() > 0) {
-                        // Find the status log where the alert was created
-                        for (StatusLog s : p.getStatusLog()) {
-                            if (a.getCreated() < s.getCreated()) {
-                                logger.debug("found status log turning off the alert.");
-                                return s;
-                            }
-                        }
-                    }
+     * Helper method to retrieve the alerts of a physician, each marked with the time the physician first
+     * responded to the patient with a status note after the alert was raised.
+     *
+     * @param id        The ID of the physician.
+     * @param physician The Physician object holding the status notes, or null if it was not found.
+     * @return A collection of Alert objects representing the alerts associated with the physician.
+     */
+    private Collection<Alert> findAlerts(String id, Physician physician) {
+        Collection<Alert> foundAlerts = alertRepository.findByPhysicianId(id);
+        if (foundAlerts == null || foundAlerts.isEmpty() || physician == null || physician.getPatients() == null) {
+            return foundAlerts;
+        }
+        Map<String, Patient> patients = new HashMap<>();
+        for (Patient p : physician.getPatients()) {
+            patients.put(p.getId(), p);
+        }
+        logger.debug("Alerts to be verified: " + foundAlerts.size());
+        for (Alert alert : foundAlerts) {
+            Patient p = patients.get(alert.getPatientId());
+            if (p == null || p.getStatusLog() == null) {
+                continue;
+            }
+            long contacted = 0L;
+            for (StatusLog s : p.getStatusLog()) {
+                if (alert.getCreated() < s.getCreated() && (contacted == 0L || s.getCreated() < contacted)) {
+                    contacted = s.getCreated();
                 }
             }
+            if (contacted > 0L) {
+                logger.debug("Found a Physician Contact Message post-alert for : " + alert.getPatientId());
+                alert.setPhysicianContacted(contacted);
+            }
         }
-        logger.debug("NO physician contact message found for the alert.");
-        return null;
+        return foundAlerts;
+    }
+
+    /**
+     * Helper method to attach the status notes of a physician to the patients in the physician's list.
+     * Notes for patients that are not in the list are ignored.
+     *
+     * @param physician        The Physician object receiving the notes.
+     * @param acknowledgements The status notes of the physician.
+     * @return true if any note was attached
+     */
+    private boolean attachStatusNotes(Physician physician, Collection<AlertAcknowledgement> acknowledgements) {
+        if (physician.getPatients() == null || acknowledgements == null) {
+            return false;
+        }
+        Map<String, Patient> patients = new HashMap<>();
+        for (Patient p : physician.getPatients()) {
+            patients.put(p.getId(), p);
+        }
+        boolean attached = false;
+        for (AlertAcknowledgement ack : acknowledgements) {
+            Patient p = patients.get(ack.getPatientId());
+            if (p == null) {
+                logger.debug("Patient is not in the physician's list : " + ack.getPatientId());
+                continue;
+            }
+            StatusLog statusLog = new StatusLog();
+            statusLog.setCreated(ack.getCreated());
+            statusLog.setNote(ack.getNote() + " [" + physician.getName() + "] ");
+            if (p.getStatusLog() == null) {
+                p.setStatusLog(new HashSet<>());
+            }
+            attached |= p.getStatusLog().add(statusLog);
+        }
+        return attached;
     }
 
     /**
@@ -677,13 +852,257 @@ public class SymptomManagementController {
         }
     }
 
+    /**
+     * Helper method to run a versioned save, repeating it when another writer saved the same document
+     * between reading and saving it. Each attempt reads and merges the stored document again.
+     *
+     * @param save The save to perform.
+     * @param <T>  The type of the saved document.
+     * @return The saved document.
+     */
+    private <T> T saveWithRetry(Supplier<T> save) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return save.get();
+            } catch (OptimisticLockingFailureException | DuplicateKeyException e) {
+                if (attempt >= MAX_SAVE_ATTEMPTS) {
+                    throw new VersionConflictException("The document is being changed by other users, try again.");
+                }
+                logger.debug("Concurrent update detected, merging again. Attempt : " + attempt);
+            }
+        }
+    }
+
+    /**
+     * Helper method to merge an update with the stored patient. The logs are append-only, so the log
+     * entries of both are kept. An update made from an older version may only add to the logs, if it
+     * also changes the patient's details a VersionConflictException is thrown.
+     *
+     * @param patient The updated Patient object, which receives the merged data.
+     * @param stored  The Patient object currently in the repository, or null if there is none.
+     */
+    private void mergeStoredPatient(Patient patient, Patient stored) {
+        if (stored == null) {
+            return;
+        }
+        if (patient.getVersion() != null && !patient.getVersion().equals(stored.getVersion())
+                && !hasSameDetails(patient, stored)) {
+            throw new VersionConflictException("Patient " + stored.getId() + " was changed by another user.");
+        }
+        patient.setPainLog(mergeLogs(stored.getPainLog(), patient.getPainLog()));
+        patient.setMedLog(mergeLogs(stored.getMedLog(), patient.getMedLog()));
+        patient.setStatusLog(mergeLogs(stored.getStatusLog(), patient.getStatusLog()));
+        patient.setCheckinLog(mergeLogs(stored.getCheckinLog(), patient.getCheckinLog()));
+        patient.setLastLogin(Math.max(stored.getLastLogin(), patient.getLastLogin()));
+        patient.setVersion(stored.getVersion());
+    }
+
+    /**
+     * Helper method to check if two versions of a patient have the same details, ignoring the logs
+     * and the fields maintained by the server.
+     *
+     * @param p1 The first Patient object.
+     * @param p2 The second Patient object.
+     * @return true if the details are the same
+     */
+    private boolean hasSameDetails(Patient p1, Patient p2) {
+        return Objects.equals(p1.getFirstName(), p2.getFirstName())
+                && Objects.equals(p1.getLastName(), p2.getLastName())
+                && Objects.equals(p1.getBirthdate(), p2.getBirthdate())
+                && Objects.equals(p1.getActive(), p2.getActive())
+                && Objects.equals(p1.getPrefs(), p2.getPrefs())
+                && Objects.equals(p1.getPrescriptions(), p2.getPrescriptions())
+                && getPhysicianIds(p1).equals(getPhysicianIds(p2));
+    }
+
+    /**
+     * Helper method to merge an update with the stored physician. The status notes of the physician's
+     * patients are append-only, so the notes of both are kept. An update made from an older version may
+     * only add notes, if it also changes the physician's details or patients a VersionConflictException
+     * is thrown.
+     *
+     * @param physician The updated Physician object, which receives the merged data.
+     * @param stored    The Physician object currently in the repository, or null if there is none.
+     */
+    private void mergeStoredPhysician(Physician physician, Physician stored) {
+        if (stored == null) {
+            return;
+        }
+        Map<String, Patient> storedPatients = new HashMap<>();
+        if (stored.getPatients() != null) {
+            for (Patient p : stored.getPatients()) {
+                storedPatients.put(p.getId(), p);
+            }
+        }
+        Set<String> patientIds = new HashSet<>();
+        if (physician.getPatients() != null) {
+            for (Patient p : physician.getPatients()) {
+                patientIds.add(p.getId());
+            }
+        }
+        if (physician.getVersion() != null && !physician.getVersion().equals(stored.getVersion())
+                && !(Objects.equals(physician.getFirstName(), stored.getFirstName())
+                && Objects.equals(physician.getLastName(), stored.getLastName())
+                && patientIds.equals(storedPatients.keySet()))) {
+            throw new VersionConflictException("Physician " + stored.getId() + " was changed by another user.");
+        }
+        if (physician.getPatients() != null) {
+            for (Patient p : physician.getPatients()) {
+                Patient sp = storedPatients.get(p.getId());
+                if (sp != null) {
+                    p.setStatusLog(mergeLogs(sp.getStatusLog(), p.getStatusLog()));
+                }
+            }
+        }
+        physician.setVersion(stored.getVersion());
+    }
+
+    /**
+     * Helper method to get the IDs of the physicians assigned to a patient.
+     *
+     * @param patient The Patient object.
+     * @return The set of physician IDs.
+     */
+    private Set<String> getPhysicianIds(Patient patient) {
+        Set<String> ids = new HashSet<>();
+        if (patient.getPhysicians() != null) {
+            for (Physician physician : patient.getPhysicians()) {
+                ids.add(physician.getId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Helper method to merge two versions of an append-only log.
+     *
+     * @param stored  The log entries currently in the repository.
+     * @param updated The log entries in the update.
+     * @param <T>     The type of the log entries.
+     * @return The union of both logs, or null if both are null.
+     */
+    private <T> Set<T> mergeLogs(Set<T> stored, Set<T> updated) {
+        if (stored == null || stored.isEmpty()) {
+            return updated;
+        }
+        Set<T> merged = new HashSet<>(stored);
+        if (updated != null) {
+            merged.addAll(updated);
+        }
+        return merged;
+    }
+
+    /**
+     * Helper method to scope an idempotency key to the user that sent it, so keys from different users
+     * can never collide.
+     *
+     * @param principal The Principal object representing the currently authenticated user.
+     * @param requestId The idempotency key of the request, or null if none was sent.
+     * @return The scoped key, or null if the request has no idempotency key.
+     */
+    private String createIdempotencyKey(Principal principal, String requestId) {
+        if (requestId == null || requestId.isEmpty()) {
+            return null;
+        }
+        String user = (principal != null) ? principal.getName() : "";
+        return user + ":" + requestId;
+    }
+
+    /**
+     * Helper method to create or refresh the summary of a patient for each of the patient's physicians.
+     * Summaries of physicians that are no longer assigned to the patient are removed.
+     *
+     * @param patient       The Patient object that was saved.
+     * @param severityLevel The severity level computed for the patient.
+     */
+    private void updatePatientSummaries(Patient patient, int severityLevel) {
+        Set<String> physicianIds = getPhysicianIds(patient);
+
+        // Load the existing summaries once and drop the ones for physicians no longer assigned
+        Map<String, PatientSummary> existing = new HashMap<>();
+        for (PatientSummary summary : patientSummaryRepository.findByPatientId(patient.getId())) {
+            if (physicianIds.contains(summary.getPhysicianId())) {
+                existing.put(summary.getPhysicianId(), summary);
+            } else {
+                logger.debug("Removing stale summary : " + summary.getId());
+                patientSummaryRepository.delete(summary);
+            }
+        }
+
+        long lastPainLog = 0L;
+        if (patient.getPainLog() != null) {
+            for (PainLog log : patient.getPainLog()) {
+                lastPainLog = Math.max(lastPainLog, log.getCreated());
+            }
+        }
+        long lastCheckIn = 0L;
+        if (patient.getCheckinLog() != null) {
+            for (CheckInLog log : patient.getCheckinLog()) {
+                lastCheckIn = Math.max(lastCheckIn, log.getCreated());
+            }
+        }
+
+        Collection<PatientSummary> summaries = new ArrayList<>();
+        for (String physicianId : physicianIds) {
+            PatientSummary summary = existing.get(physicianId);
+            if (summary == null) {
+                summary = new PatientSummary(physicianId, patient.getId());
+            }
+            summary.setFirstName(patient.getFirstName());
+            summary.setLastName(patient.getLastName());
+            summary.setLastLogin(patient.getLastLogin());
+            summary.setSeverityLevel(severityLevel);
+            summary.setLastPainLog(lastPainLog);
+            summary.setLastCheckIn(lastCheckIn);
+            // Alerts are recreated on every update, so the summary follows the same lifecycle
+            summary.setAlertCreated(severityLevel > Alert.PAIN_SEVERITY_LEVEL_0 ? System.currentTimeMillis() : 0L);
+            summary.setPhysicianContacted(0L);
+            summaries.add(summary);
+        }
+        if (!summaries.isEmpty()) {
+            patientSummaryRepository.saveAll(summaries);
+        }
+        logger.debug("Patient summaries updated : " + summaries.size());
+    }
+
+    /**
+     * Helper method to mark the open alerts in a physician's patient summaries as contacted when the
+     * physician has attached a status note to the patient after the alert was raised.
+     *
+     * @param physician The Physician object that was saved.
+     */
+    private void updateContactedSummaries(Physician physician) {
+        if (physician.getPatients() == null || physician.getPatients().isEmpty()) {
+            return;
+        }
+        Map<String, Patient> patients = new HashMap<>();
+        for (Patient p : physician.getPatients()) {
+            patients.put(p.getId(), p);
+        }
+        for (PatientSummary summary : patientSummaryRepository.findByPhysicianId(physician.getId())) {
+            Patient p = patients.get(summary.getPatientId());
+            if (!summary.isAlertOpen() || p == null || p.getStatusLog() == null) {
+                continue;
+            }
+            for (StatusLog s : p.getStatusLog()) {
+                if (summary.getAlertCreated() < s.getCreated()) {
+                    logger.debug("Physician contacted patient, closing summary alert : " + summary.getId());
+                    summary.setPhysicianContacted(s.getCreated());
+                    patientSummaryRepository.save(summary);
+                    break;
+                }
+            }
+        }
+    }
+
     /**
      * Helper method to process alerts for a patient and create alerts for associated physicians.
      *
      * @param id      The ID of the patient for whom to process alerts.
      * @param patient The Patient object for whom to process alerts.
+     * @return The severity level of the patient.
      */
-    private void processAlerts(String id, Patient patient) {
+    private int processAlerts(String id, Patient patient) {
         logger.debug("Processing Alerts for patient :" + patient.toString());
 
         // Clear old alerts associated with the patient
@@ -707,6 +1126,7 @@ public class SymptomManagementController {
                 }
             }
         }
+        return severityLevel;
     }
 
     /**
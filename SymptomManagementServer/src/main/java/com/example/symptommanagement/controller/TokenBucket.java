@@ -0,0 +1,71 @@
+package com.example.symptommanagement.controller;
+
+/**
+ * A simple token bucket used to rate limit the requests of a single user.
+ * <p>
+ * The bucket holds up to {@code capacity} tokens and is refilled continuously at {@code refillPerSecond}
+ * tokens per second. Each request takes one token; when the bucket is empty the caller is told how long
+ * to wait until the next token becomes available.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double refillPerNanosecond;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Constructs a full token bucket.
+     *
+     * @param capacity        The maximum number of tokens (the allowed burst size).
+     * @param refillPerSecond The number of tokens added per second (the sustained request rate).
+     */
+    public TokenBucket(int capacity, double refillPerSecond) {
+        this(capacity, refillPerSecond, System.nanoTime());
+    }
+
+    /**
+     * Constructs a full token bucket starting at the given time.
+     *
+     * @param capacity        The maximum number of tokens (the allowed burst size).
+     * @param refillPerSecond The number of tokens added per second (the sustained request rate).
+     * @param now             The current time in nanoseconds.
+     */
+    TokenBucket(int capacity, double refillPerSecond, long now) {
+        if (capacity <= 0 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Token bucket capacity and refill rate must be positive.");
+        }
+        this.capacity = capacity;
+        this.refillPerNanosecond = refillPerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefill = now;
+    }
+
+    /**
+     * Tries to take a token from the bucket.
+     *
+     * @return 0 if a token was taken, otherwise the number of seconds to wait before retrying.
+     */
+    public long tryConsume() {
+        return tryConsume(System.nanoTime());
+    }
+
+    /**
+     * Tries to take a token from the bucket at the given time.
+     *
+     * @param now The current time in nanoseconds.
+     * @return 0 if a token was taken, otherwise the number of seconds to wait before retrying.
+     */
+    synchronized long tryConsume(long now) {
+        // Refill the tokens accumulated since the last request
+        tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerNanosecond);
+        lastRefill = now;
+        if (tokens >= 1d) {
+            tokens -= 1d;
+            return 0L;
+        }
+        // Round the wait up to whole seconds, as used by the Retry-After header
+        double nanosToWait = (1d - tokens) / refillPerNanosecond;
+        return Math.max(1L, (long) Math.ceil(nanosToWait / 1_000_000_000d));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.symptommanagement.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Thrown when an update was made from an older version of a document and changes fields that
+ * another user has changed in the meantime. It is answered with 409 Conflict, telling the client
+ * to fetch the current document and apply its change again.
+ */
+@ResponseStatus(HttpStatus.CONFLICT)
+public class VersionConflictException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs the exception.
+     *
+     * @param message The detail message.
+     */
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
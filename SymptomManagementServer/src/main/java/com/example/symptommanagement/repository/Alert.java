@@ -3,6 +3,7 @@ package com.example.symptommanagement.repository;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 
 /**
  * Represents an alert entity in the symptom management application.
@@ -20,6 +21,7 @@ public class Alert {
     /**
      * ID of the physician associated with this alert.
      */
+    @Indexed
     String physicianId;
 
     /**
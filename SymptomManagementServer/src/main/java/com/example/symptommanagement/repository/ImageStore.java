@@ -0,0 +1,207 @@
+package com.example.symptommanagement.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.regex.Pattern;
+
+/**
+ * Stores the images of the status logs as files, one directory per patient.
+ * <p>
+ * An image arrives in chunks that are appended to a partial file. A chunk is only appended at the
+ * end of what has been received, so a repeated or out of order chunk is ignored and the client
+ * continues from the size returned. When the last chunk arrives the partial file becomes the image
+ * and a downscaled thumbnail is written next to it. Complete images are never changed again, which
+ * lets the clients cache them for as long as they like.
+ * <p>
+ * The uploads of different images do not wait for each other. Each image is guarded by one of a fixed
+ * set of locks chosen by its patient and creation time, so a slow decode of one image only holds up the
+ * few images sharing its lock.
+ */
+@Component
+public class ImageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageStore.class);
+
+    private static final Pattern PATIENT_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+    private static final String IMAGE_SUFFIX = ".jpg";
+    private static final String THUMBNAIL_SUFFIX = ".thumb.jpg";
+    private static final String PARTIAL_SUFFIX = ".part";
+    private static final int LOCK_COUNT = 64;
+
+    private final File directory;
+    private final long maxSize;
+    private final int thumbnailSize;
+    private final Object[] locks = new Object[LOCK_COUNT];
+
+    /**
+     * Constructor for ImageStore.
+     *
+     * @param directory     The directory the images are stored in.
+     * @param maxSize       The largest image accepted, in bytes.
+     * @param thumbnailSize The width and height the thumbnails are scaled to fit, in pixels.
+     */
+    public ImageStore(@Value("${images.directory:images}") String directory,
+                      @Value("${images.max-size:10485760}") long maxSize,
+                      @Value("${images.thumbnail-size:200}") int thumbnailSize) {
+        this.directory = new File(directory);
+        this.maxSize = maxSize;
+        this.thumbnailSize = thumbnailSize;
+        for (int i = 0; i < LOCK_COUNT; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Get the progress of the upload of an image.
+     *
+     * @param patientId The ID of the patient.
+     * @param created   The creation time of the status log.
+     * @return The progress of the upload, nothing received if it has not started.
+     */
+    public ImageUpload getUpload(String patientId, long created) {
+        synchronized (lock(patientId, created)) {
+            return readUpload(patientId, created);
+        }
+    }
+
+    /**
+     * Helper method to read the progress of an upload, the caller holds the lock of the image.
+     */
+    private ImageUpload readUpload(String patientId, long created) {
+        File image = file(patientId, created, IMAGE_SUFFIX);
+        if (image.exists()) {
+            return new ImageUpload(patientId, created, image.length(), image.length(), true);
+        }
+        File partial = file(patientId, created, PARTIAL_SUFFIX);
+        return new ImageUpload(patientId, created, partial.length(), 0L, false);
+    }
+
+    /**
+     * Appends a chunk to the image of a status log. The chunk is ignored unless it starts at the
+     * number of bytes received so far. The image is complete when the total has been received.
+     *
+     * @param patientId The ID of the patient.
+     * @param created   The creation time of the status log.
+     * @param offset    The position of the chunk in the image.
+     * @param total     The size of the whole image in bytes.
+     * @param chunk     The bytes of the chunk.
+     * @return The progress of the upload after the chunk.
+     * @throws IllegalArgumentException if the image is too large or is not an image at all
+     */
+    public ImageUpload append(String patientId, long created, long offset, long total, byte[] chunk) {
+        if (total <= 0L || total > maxSize) {
+            throw new IllegalArgumentException("Image size " + total + " is not between 1 and " + maxSize);
+        }
+        synchronized (lock(patientId, created)) {
+            return appendLocked(patientId, created, offset, total, chunk);
+        }
+    }
+
+    /**
+     * Helper method to append a chunk, the caller holds the lock of the image.
+     */
+    private ImageUpload appendLocked(String patientId, long created, long offset, long total, byte[] chunk) {
+        ImageUpload upload = readUpload(patientId, created);
+        if (upload.isComplete() || offset != upload.getReceived() || offset + chunk.length > total) {
+            return upload;
+        }
+
+        File partial = file(patientId, created, PARTIAL_SUFFIX);
+        try {
+            Files.createDirectories(partial.getParentFile().toPath());
+            try (OutputStream out = new FileOutputStream(partial, true)) {
+                out.write(chunk);
+            }
+            if (partial.length() < total) {
+                return new ImageUpload(patientId, created, partial.length(), 0L, false);
+            }
+            complete(patientId, created, partial);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to store the image of " + patientId + " at " + created, e);
+        }
+        return readUpload(patientId, created);
+    }
+
+    /**
+     * Get a complete image.
+     *
+     * @param patientId The ID of the patient.
+     * @param created   The creation time of the status log.
+     * @return The image file, or null if the image has not been uploaded completely.
+     */
+    public File getImage(String patientId, long created) {
+        File image = file(patientId, created, IMAGE_SUFFIX);
+        return image.exists() ? image : null;
+    }
+
+    /**
+     * Get the thumbnail of a complete image.
+     *
+     * @param patientId The ID of the patient.
+     * @param created   The creation time of the status log.
+     * @return The thumbnail file, or null if the image has not been uploaded completely.
+     */
+    public File getThumbnail(String patientId, long created) {
+        File thumbnail = file(patientId, created, THUMBNAIL_SUFFIX);
+        return thumbnail.exists() ? thumbnail : null;
+    }
+
+    /**
+     * Writes the thumbnail of a fully received image and makes it the image. The thumbnail is written
+     * first, so an image that exists always has a thumbnail.
+     */
+    private void complete(String patientId, long created, File partial) throws IOException {
+        BufferedImage image = ImageIO.read(partial);
+        if (image == null) {
+            Files.delete(partial.toPath());
+            throw new IllegalArgumentException("The upload of " + patientId + " at " + created + " is not an image");
+        }
+        double scale = Math.min(1.0, (double) thumbnailSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        ImageIO.write(thumbnail, "jpg", file(patientId, created, THUMBNAIL_SUFFIX));
+        Files.move(partial.toPath(), file(patientId, created, IMAGE_SUFFIX).toPath(),
+                StandardCopyOption.ATOMIC_MOVE);
+        logger.debug("Stored the image of " + patientId + " at " + created + ", thumbnail " + width + "x" + height);
+    }
+
+    /**
+     * Get the lock guarding the upload of an image.
+     */
+    private Object lock(String patientId, long created) {
+        int hash = 31 * String.valueOf(patientId).hashCode() + Long.hashCode(created);
+        return locks[Math.floorMod(hash, LOCK_COUNT)];
+    }
+
+    /**
+     * Get the file of an image, the patient ID is checked so it cannot leave the image directory.
+     */
+    private File file(String patientId, long created, String suffix) {
+        if (patientId == null || !PATIENT_ID.matcher(patientId).matches()) {
+            throw new IllegalArgumentException("Invalid patient ID " + patientId);
+        }
+        return new File(new File(directory, patientId), created + suffix);
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.symptommanagement.repository;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Represents the progress of the upload of the image of a status log.
+ * <p>
+ * An image is uploaded in chunks, each appended at the number of bytes received so far. A client
+ * whose upload was interrupted asks for the progress and continues from {@link #received}.
+ */
+@Data
+@NoArgsConstructor
+public class ImageUpload {
+
+    /**
+     * The ID of the patient the status log belongs to.
+     */
+    private String patientId;
+
+    /**
+     * The creation time of the status log, which identifies it among the patient's logs.
+     */
+    private long created;
+
+    /**
+     * The number of bytes of the image received so far.
+     */
+    private long received;
+
+    /**
+     * The size of the whole image in bytes, or 0 until the upload is complete.
+     */
+    private long total;
+
+    /**
+     * Whether the whole image has been received and its thumbnail created.
+     */
+    private boolean complete;
+
+    /**
+     * Creates the progress of an upload.
+     *
+     * @param patientId The ID of the patient.
+     * @param created   The creation time of the status log.
+     * @param received  The number of bytes received so far.
+     * @param total     The size of the whole image in bytes.
+     * @param complete  Whether the upload is complete.
+     */
+    public ImageUpload(String patientId, long created, long received, long total, boolean complete) {
+        this.patientId = patientId;
+        this.created = created;
+        this.received = received;
+        this.total = total;
+        this.complete = complete;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.symptommanagement.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Field;
+
+/**
+ * {@link IndexBootstrap} creates the indexes declared with {@code @Indexed} on the repository entities
+ * when the application starts.
+ * <p>
+ * Spring Data only creates declared indexes for classes annotated with {@code @Document}, which the
+ * entities of this application are not, and its index resolver rejects them. Each field of an entity
+ * marked {@code @Indexed} is therefore indexed explicitly, in ascending order. Only the top-level fields
+ * of each collection are indexed, not those of embedded copies of other entities (such as the patients
+ * stored in a physician).
+ */
+@Component
+public class IndexBootstrap {
+
+    static final Logger logger = LoggerFactory.getLogger(IndexBootstrap.class);
+
+    /**
+     * The entities stored in their own collection.
+     */
+    static final Class<?>[] ENTITIES = {
+            Patient.class, Physician.class, Alert.class, Medication.class, UserCredential.class, PatientSummary.class
+    };
+
+    private final MongoOperations mongoOperations;
+
+    /**
+     * Constructor for IndexBootstrap.
+     *
+     * @param mongoOperations The MongoOperations instance used to create the indexes.
+     */
+    public IndexBootstrap(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * Ensure the declared indexes of all entities exist. Existing indexes are left untouched.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        for (Class<?> type : ENTITIES) {
+            IndexOperations indexOperations = mongoOperations.indexOps(type);
+            for (Field field : type.getDeclaredFields()) {
+                Indexed indexed = field.getAnnotation(Indexed.class);
+                if (indexed == null) {
+                    continue;
+                }
+                Index index = new Index().on(field.getName(), Sort.Direction.ASC);
+                if (indexed.unique()) {
+                    index.unique();
+                }
+                String name = indexOperations.ensureIndex(index);
+                logger.info("Ensured index " + name + " on " + mongoOperations.getCollectionName(type));
+            }
+        }
+    }
+}
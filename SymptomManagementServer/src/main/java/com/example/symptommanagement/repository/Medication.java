@@ -3,6 +3,7 @@ package com.example.symptommanagement.repository;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 
 /**
  * Represents a medication entity in the symptom management application.
@@ -21,6 +22,7 @@ public class Medication {
     /**
      * The name of the medication.
      */
+    @Indexed
     private String name;
 
     /**
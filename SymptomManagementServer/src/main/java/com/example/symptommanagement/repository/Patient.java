@@ -3,6 +3,8 @@ package com.example.symptommanagement.repository;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.annotation.Version;
 
 import java.util.Set;
 
@@ -19,6 +21,13 @@ public class Patient {
     @Id
     private String id;
 
+    /**
+     * The version of the patient document, incremented on every save. Updates made from an older
+     * version are merged or rejected instead of overwriting the newer document.
+     */
+    @Version
+    private Long version;
+
     /**
      * The first name of the patient.
      */
@@ -27,6 +36,7 @@ public class Patient {
     /**
      * The last name of the patient.
      */
+    @Indexed
     private String lastName;
 
     /**
@@ -84,6 +94,14 @@ public class Patient {
      */
     private Set<CheckInLog> checkinLog;
 
+    /**
+     * The normalized words of the patient's names and birthdate, kept by {@link PatientSearchIndex}
+     * for the typeahead search. They are not sent to the clients.
+     */
+    @JsonIgnore
+    @Indexed
+    private Set<String> searchTokens;
+
     /**
      * Returns the full name of the patient.
      *
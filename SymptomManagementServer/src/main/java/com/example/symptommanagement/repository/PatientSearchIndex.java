@@ -0,0 +1,194 @@
+package com.example.symptommanagement.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * {@link PatientSearchIndex} keeps the search tokens of the patients and answers the typeahead search
+ * of the physicians from them.
+ * <p>
+ * The tokens are the words of the first name, last name and birthdate of a patient, lowercased and
+ * without accents. They are stored with the patient in an indexed array, so a search for what the
+ * physician has typed so far is an index range scan on the prefix of each word instead of a scan of
+ * every patient. The tokens are set whenever a patient is saved, and patients stored before the
+ * tokens existed get theirs when the application starts.
+ */
+@Component
+public class PatientSearchIndex extends AbstractMongoEventListener<Patient> {
+
+    static final Logger logger = LoggerFactory.getLogger(PatientSearchIndex.class);
+
+    /**
+     * The name of the field holding the tokens.
+     */
+    static final String TOKENS_FIELD = "searchTokens";
+
+    /**
+     * The most patients a search returns.
+     */
+    public static final int MAX_RESULTS = 50;
+
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{Alnum}]+");
+    private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+    private static final Comparator<Patient> BY_NAME =
+            Comparator.comparing(Patient::getLastName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER))
+                    .thenComparing(Patient::getFirstName, Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER));
+
+    private final MongoOperations mongoOperations;
+
+    /**
+     * Constructor for PatientSearchIndex.
+     *
+     * @param mongoOperations The MongoOperations instance used to search and update the patients.
+     */
+    public PatientSearchIndex(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * Set the search tokens of a patient before it is saved.
+     *
+     * @param event The event holding the patient being saved.
+     */
+    @Override
+    public void onBeforeConvert(BeforeConvertEvent<Patient> event) {
+        Patient patient = event.getSource();
+        patient.setSearchTokens(createTokens(patient));
+    }
+
+    /**
+     * Set the search tokens of the patients stored without them. Only the fields the tokens are made
+     * of are read, and the tokens are written without changing the version of the patient.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureTokens() {
+        Query missing = new Query(Criteria.where(TOKENS_FIELD).exists(false));
+        missing.fields().include("firstName").include("lastName").include("birthdate");
+        int updated = 0;
+        for (Patient p : mongoOperations.find(missing, Patient.class)) {
+            mongoOperations.updateFirst(new Query(Criteria.where("id").is(p.getId())),
+                    new Update().set(TOKENS_FIELD, createTokens(p)), Patient.class);
+            updated++;
+        }
+        logger.info("Set the search tokens of " + updated + " patients");
+    }
+
+    /**
+     * Find the patients matching what the physician has typed so far. Every word typed must be the
+     * start of a word of the patient's names or birthdate, in any order. Only the ID, names and
+     * birthdate of the patients are returned.
+     * <p>
+     * The index scan stops at the limit, so when more patients match, the ones returned are the first
+     * found in the index rather than the first by name, and the physician narrows them by typing more.
+     * They are sorted here: sorting on the server would read and sort every match in memory.
+     *
+     * @param text  The text typed by the physician.
+     * @param limit The most patients to return, at most {@link #MAX_RESULTS}.
+     * @return The matching patients ordered by last and first name, empty if nothing was typed.
+     */
+    public List<Patient> search(String text, int limit) {
+        Query query = createSearchQuery(text, limit);
+        if (query == null) {
+            return Collections.emptyList();
+        }
+        List<Patient> patients = mongoOperations.find(query, Patient.class);
+        patients.sort(BY_NAME);
+        return patients;
+    }
+
+    /**
+     * Create the query a search runs, also explained by the {@link QueryPlanInspector}.
+     *
+     * @param text  The text typed by the physician.
+     * @param limit The most patients to return, at most {@link #MAX_RESULTS}.
+     * @return The query, or null if nothing was typed.
+     */
+    static Query createSearchQuery(String text, int limit) {
+        List<String> words = tokenize(text);
+        if (words.isEmpty() || limit <= 0) {
+            return null;
+        }
+        // The first prefix bounds the index scan, so the longest and most selective goes first
+        words.sort((a, b) -> b.length() - a.length());
+        List<Pattern> prefixes = new ArrayList<>();
+        for (String word : words) {
+            prefixes.add(Pattern.compile("^" + Pattern.quote(word)));
+        }
+        Query query = new Query(Criteria.where(TOKENS_FIELD).all(prefixes))
+                .limit(Math.min(limit, MAX_RESULTS));
+        query.fields().include("firstName").include("lastName").include("birthdate");
+        return query;
+    }
+
+    /**
+     * Find the patients with exactly the given full name, using the index of the tokens.
+     *
+     * @param name The full name of the patients.
+     * @return The patients with that full name.
+     */
+    public List<Patient> findByName(String name) {
+        List<String> words = tokenize(name);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Patient> found = new ArrayList<>();
+        for (Patient p : mongoOperations.find(new Query(Criteria.where(TOKENS_FIELD).all(words)), Patient.class)) {
+            if (p.getName().contentEquals(name)) {
+                found.add(p);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Create the search tokens of a patient.
+     *
+     * @param patient The patient.
+     * @return The distinct words of the patient's names and birthdate.
+     */
+    public static Set<String> createTokens(Patient patient) {
+        Set<String> tokens = new LinkedHashSet<>();
+        tokens.addAll(tokenize(patient.getFirstName()));
+        tokens.addAll(tokenize(patient.getLastName()));
+        tokens.addAll(tokenize(patient.getBirthdate()));
+        return tokens;
+    }
+
+    /**
+     * Split a text into lowercase words without accents.
+     *
+     * @param text The text, may be null.
+     * @return The words of the text.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String plain = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        for (String word : WORD_SEPARATOR.split(plain.toLowerCase())) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+}
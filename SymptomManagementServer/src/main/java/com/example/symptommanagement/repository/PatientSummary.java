@@ -0,0 +1,127 @@
+package com.example.symptommanagement.repository;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+
+/**
+ * Represents a small, materialized summary of one patient as seen by one physician.
+ * Summaries are maintained incrementally whenever a patient record is saved, so a
+ * physician's whole patient panel can be rendered from a single query.
+ */
+@Data
+@NoArgsConstructor
+public class PatientSummary {
+
+    /**
+     * Unique identifier for the summary (physician id + ":" + patient id).
+     */
+    @Id
+    private String id;
+
+    /**
+     * ID of the physician this summary belongs to.
+     */
+    @Indexed
+    private String physicianId;
+
+    /**
+     * ID of the patient being summarized.
+     */
+    @Indexed
+    private String patientId;
+
+    /**
+     * The first name of the patient.
+     */
+    private String firstName;
+
+    /**
+     * The last name of the patient.
+     */
+    private String lastName;
+
+    /**
+     * The timestamp of the patient's last login.
+     */
+    private long lastLogin;
+
+    /**
+     * The current severity level of the patient's condition.
+     */
+    private int severityLevel;
+
+    /**
+     * Timestamp of the most recent pain log.
+     */
+    private long lastPainLog;
+
+    /**
+     * Timestamp of the most recent check-in.
+     */
+    private long lastCheckIn;
+
+    /**
+     * Timestamp indicating when the currently open alert was created (0 if there is none).
+     */
+    private long alertCreated;
+
+    /**
+     * Timestamp indicating when the physician was contacted about the open alert.
+     */
+    private long physicianContacted;
+
+    /**
+     * Creates an empty summary for the given physician and patient.
+     *
+     * @param physicianId The ID of the physician.
+     * @param patientId   The ID of the patient.
+     */
+    public PatientSummary(String physicianId, String patientId) {
+        this.id = createId(physicianId, patientId);
+        this.physicianId = physicianId;
+        this.patientId = patientId;
+    }
+
+    /**
+     * Indicates if there is an alert the physician has not responded to yet.
+     *
+     * @return true if the alert is still open
+     */
+    public boolean isAlertOpen() {
+        return alertCreated > 0L && physicianContacted <= 0L;
+    }
+
+    /**
+     * Returns the full name of the patient.
+     *
+     * @return the full name of the patient
+     */
+    @JsonIgnore
+    public String getName() {
+        String name = "";
+        if (firstName != null && !firstName.isEmpty()) {
+            name += firstName;
+        }
+        if (!name.isEmpty()) {
+            name += " ";
+        }
+        if (lastName != null && !lastName.isEmpty()) {
+            name += lastName;
+        }
+        return name;
+    }
+
+    /**
+     * Builds the summary identifier for a physician and patient pair.
+     *
+     * @param physicianId The ID of the physician.
+     * @param patientId   The ID of the patient.
+     * @return the summary identifier
+     */
+    public static String createId(String physicianId, String patientId) {
+        return physicianId + ":" + patientId;
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.symptommanagement.repository;
+
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+
+import java.util.Collection;
+
+/**
+ * {@link PatientSummaryRepository} is a Spring Data MongoDB repository interface
+ * responsible for managing the persistence and retrieval of {@link PatientSummary} entities.
+ * <p>
+ * Summaries are derived data maintained by the controller, so the repository is not
+ * exported as a REST resource.
+ */
+@RepositoryRestResource(exported = false)
+public interface PatientSummaryRepository extends MongoRepository<PatientSummary, String> {
+
+    /**
+     * Retrieves the summaries of all patients assigned to a specific physician.
+     *
+     * @param physicianId The identifier of the physician.
+     * @return A collection of patient summaries for the physician.
+     */
+    Collection<PatientSummary> findByPhysicianId(String physicianId);
+
+    /**
+     * Retrieves all physician summaries of a specific patient.
+     *
+     * @param patientId The identifier of the patient.
+     * @return A collection of summaries for the patient.
+     */
+    Collection<PatientSummary> findByPatientId(String patientId);
+
+    /**
+     * Deletes all summaries of a specific patient.
+     *
+     * @param patientId The identifier of the patient.
+     * @return The number of summaries deleted.
+     */
+    Long deleteByPatientId(String patientId);
+
+    /**
+     * Deletes all summaries of a specific physician.
+     *
+     * @param physicianId The identifier of the physician.
+     * @return The number of summaries deleted.
+     */
+    Long deleteByPhysicianId(String physicianId);
+}
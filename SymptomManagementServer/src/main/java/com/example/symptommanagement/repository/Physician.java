@@ -3,6 +3,8 @@ package com.example.symptommanagement.repository;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.annotation.Version;
 
 import java.util.Collection;
 
@@ -19,6 +21,13 @@ public class Physician {
     @Id
     private String id;
 
+    /**
+     * The version of the physician document, incremented on every save. Updates made from an older
+     * version are merged or rejected instead of overwriting the newer document.
+     */
+    @Version
+    private Long version;
+
     /**
      * The first name of the physician.
      */
@@ -27,6 +36,7 @@ public class Physician {
     /**
      * The last name of the physician.
      */
+    @Indexed
     private String lastName;
 
     /**
@@ -0,0 +1,136 @@
+package com.example.symptommanagement.repository;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link QueryPlanInspector} runs explain() for every repository query and reports the winning plan
+ * chosen by MongoDB, so a query that falls back to a collection scan (COLLSCAN) because its index is
+ * missing, or that sorts its results in memory (SORT), can be detected.
+ */
+@Component
+public class QueryPlanInspector {
+
+    /**
+     * The stage MongoDB uses when it has to read the whole collection.
+     */
+    public static final String COLLECTION_SCAN = "COLLSCAN";
+
+    /**
+     * The stage MongoDB uses when it has to sort the matching documents in memory.
+     */
+    public static final String IN_MEMORY_SORT = "SORT";
+
+    /**
+     * The text explained for the patient search, a prefix as typed by a physician.
+     */
+    static final String SEARCH_TEXT = "ex";
+
+    private final MongoOperations mongoOperations;
+
+    /**
+     * Constructor for QueryPlanInspector.
+     *
+     * @param mongoOperations The MongoOperations instance used to run explain().
+     */
+    public QueryPlanInspector(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * Checks if a plan reads the whole collection or sorts in memory.
+     *
+     * @param plan The stages of the plan, as returned by {@link #explainRepositoryQueries()}.
+     * @return true if the plan has a COLLSCAN or SORT stage
+     */
+    public static boolean isInefficient(String plan) {
+        List<String> stages = Arrays.asList(plan.split(" > "));
+        return stages.contains(COLLECTION_SCAN) || stages.contains(IN_MEMORY_SORT);
+    }
+
+    /**
+     * Explain every repository query.
+     *
+     * @return A map from each repository query to the stages of its winning plan, e.g. "FETCH > IXSCAN".
+     */
+    public Map<String, String> explainRepositoryQueries() {
+        Map<String, String> plans = new LinkedHashMap<>();
+        plans.put("PatientRepository.findByLastName", explain(Patient.class, "lastName"));
+        plans.put("PatientSearchIndex.search", explain(Patient.class,
+                PatientSearchIndex.createSearchQuery(SEARCH_TEXT, PatientSearchIndex.MAX_RESULTS)));
+        plans.put("PhysicianRepository.findByLastName", explain(Physician.class, "lastName"));
+        plans.put("AlertRepository.findByPhysicianId", explain(Alert.class, "physicianId"));
+        plans.put("MedicationRepository.findByName", explain(Medication.class, "name"));
+        plans.put("UserCredentialRepository.findByUserName", explain(UserCredential.class, "userName"));
+        plans.put("PatientSummaryRepository.findByPhysicianId", explain(PatientSummary.class, "physicianId"));
+        plans.put("PatientSummaryRepository.findByPatientId", explain(PatientSummary.class, "patientId"));
+        return plans;
+    }
+
+    /**
+     * Explain an equality query on a single field, as generated for a derived query.
+     *
+     * @param type  The entity class queried.
+     * @param field The field the query filters on.
+     * @return The stages of the winning plan, from the outermost to the innermost.
+     */
+    private String explain(Class<?> type, String field) {
+        return explain(type, new Query(Criteria.where(field).is("explain")));
+    }
+
+    /**
+     * Explain a query with its filter, sort, projection and limit.
+     *
+     * @param type  The entity class queried.
+     * @param query The query.
+     * @return The stages of the winning plan, from the outermost to the innermost.
+     */
+    private String explain(Class<?> type, Query query) {
+        Document find = new Document("find", mongoOperations.getCollectionName(type))
+                .append("filter", query.getQueryObject());
+        if (!query.getSortObject().isEmpty()) {
+            find.append("sort", query.getSortObject());
+        }
+        if (!query.getFieldsObject().isEmpty()) {
+            find.append("projection", query.getFieldsObject());
+        }
+        if (query.getLimit() > 0) {
+            find.append("limit", query.getLimit());
+        }
+        Document result = mongoOperations.executeCommand(
+                new Document("explain", find).append("verbosity", "queryPlanner"));
+        Document queryPlanner = (Document) result.get("queryPlanner");
+        return describeStages((Document) queryPlanner.get("winningPlan"));
+    }
+
+    /**
+     * Describe a plan stage and its input stages.
+     *
+     * @param stage The plan stage.
+     * @return The stage names separated by " > ".
+     */
+    @SuppressWarnings("unchecked")
+    private String describeStages(Document stage) {
+        if (stage == null) {
+            return "";
+        }
+        String description = stage.getString("stage");
+        if (stage.get("inputStage") != null) {
+            description += " > " + describeStages((Document) stage.get("inputStage"));
+        }
+        if (stage.get("inputStages") != null) {
+            for (Document input : (List<Document>) stage.get("inputStages")) {
+                description += " > " + describeStages(input);
+            }
+        }
+        return description;
+    }
+}
@@ -3,6 +3,7 @@ package com.example.symptommanagement.repository;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
 
 /**
  * Represents user credentials in the symptom management application.
@@ -58,6 +59,7 @@ public class UserCredential {
     /**
      * The username of the user.
      */
+    @Indexed
     private String userName;
 
     /**
@@ -0,0 +1,58 @@
+package com.example.symptommanagement.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link VersionBackfill} gives the patients and physicians stored before their documents were versioned
+ * a version when the application starts.
+ * <p>
+ * A document without a version is taken as new by Spring Data, so saving it again would insert a
+ * duplicate and fail. The missing versions are set in place with one update per collection, which is
+ * atomic per document and leaves the rest of each document untouched.
+ */
+@Component
+public class VersionBackfill {
+
+    static final Logger logger = LoggerFactory.getLogger(VersionBackfill.class);
+
+    /**
+     * The name of the version field of the versioned entities.
+     */
+    static final String VERSION_FIELD = "version";
+
+    /**
+     * The entities that are versioned.
+     */
+    static final Class<?>[] ENTITIES = {Patient.class, Physician.class};
+
+    private final MongoOperations mongoOperations;
+
+    /**
+     * Constructor for VersionBackfill.
+     *
+     * @param mongoOperations The MongoOperations instance used to update the documents.
+     */
+    public VersionBackfill(MongoOperations mongoOperations) {
+        this.mongoOperations = mongoOperations;
+    }
+
+    /**
+     * Set the first version on the documents stored without one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureVersions() {
+        for (Class<?> type : ENTITIES) {
+            long updated = mongoOperations.updateMulti(new Query(Criteria.where(VERSION_FIELD).is(null)),
+                    new Update().set(VERSION_FIELD, 0L), type).getModifiedCount();
+            logger.info("Set the version of " + updated + " documents in " + mongoOperations.getCollectionName(type));
+        }
+    }
+}
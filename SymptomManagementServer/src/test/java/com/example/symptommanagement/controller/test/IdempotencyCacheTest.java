@@ -0,0 +1,62 @@
+package com.example.symptommanagement.controller.test;
+
+import com.example.symptommanagement.controller.IdempotencyCache;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * This class contains test cases for the IdempotencyCache class.
+ */
+public class IdempotencyCacheTest {
+
+    /**
+     * This test case validates that a repeated key returns the earlier result without repeating the write,
+     * while requests without a key are always performed.
+     */
+    @Test
+    public void testRepeatedRequests() {
+        IdempotencyCache cache = new IdempotencyCache(60 * 1000L, 10);
+        AtomicInteger writes = new AtomicInteger();
+
+        assertEquals(Integer.valueOf(1), cache.execute("user:1", writes::incrementAndGet));
+        assertEquals("A retry should return the earlier result.",
+                Integer.valueOf(1), cache.execute("user:1", writes::incrementAndGet));
+        assertEquals("A new key should perform the write.",
+                Integer.valueOf(2), cache.execute("user:2", writes::incrementAndGet));
+        assertEquals("A request without a key should perform the write.",
+                Integer.valueOf(3), cache.execute(null, writes::incrementAndGet));
+        assertEquals(3, writes.get());
+    }
+
+    /**
+     * This test case validates that failed writes are not cached, so the retry performs the write.
+     */
+    @Test
+    public void testFailedRequestIsRetried() {
+        IdempotencyCache cache = new IdempotencyCache(60 * 1000L, 10);
+        try {
+            cache.execute("user:1", () -> {
+                throw new IllegalStateException("Write failed");
+            });
+            fail("The failure should be passed on to the caller.");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals("saved", cache.execute("user:1", () -> "saved"));
+    }
+
+    /**
+     * This test case validates that expired results are removed.
+     */
+    @Test
+    public void testExpiredResult() throws InterruptedException {
+        IdempotencyCache cache = new IdempotencyCache(10L, 10);
+        assertEquals("first", cache.execute("user:1", () -> "first"));
+        Thread.sleep(50);
+        assertEquals("second", cache.execute("user:1", () -> "second"));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.symptommanagement.controller.test;
+
+import com.example.symptommanagement.controller.ImageController;
+import com.example.symptommanagement.repository.ImageStore;
+import com.example.symptommanagement.repository.ImageUpload;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * This class contains test cases for the ImageController class.
+ */
+public class ImageControllerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ImageController imageController;
+
+    private static final String PATIENT_ID = "duck";
+    private static final long CREATED = 1700000000000L;
+
+    @Before
+    public void setUp() {
+        imageController = new ImageController(new ImageStore(folder.getRoot().getPath(), 1024 * 1024, 50));
+    }
+
+    /**
+     * This test case validates that an image uploaded in chunks, with one chunk sent twice, is stored
+     * whole and gets a thumbnail scaled to fit the thumbnail size.
+     */
+    @Test
+    public void testChunkedUpload() throws IOException {
+        byte[] jpeg = createJpeg(400, 200);
+        int chunk = jpeg.length / 3 + 1;
+
+        ImageUpload upload = imageController.uploadImageChunk(PATIENT_ID, CREATED, 0, jpeg.length,
+                Arrays.copyOfRange(jpeg, 0, chunk));
+        assertEquals(chunk, upload.getReceived());
+        assertFalse(upload.isComplete());
+
+        // A repeated chunk is ignored, the client continues from the bytes received
+        upload = imageController.uploadImageChunk(PATIENT_ID, CREATED, 0, jpeg.length,
+                Arrays.copyOfRange(jpeg, 0, chunk));
+        assertEquals("A repeated chunk should not be appended again.", chunk, upload.getReceived());
+        assertEquals(chunk, imageController.getImageUpload(PATIENT_ID, CREATED).getReceived());
+
+        while (!upload.isComplete()) {
+            int from = (int) upload.getReceived();
+            upload = imageController.uploadImageChunk(PATIENT_ID, CREATED, from, jpeg.length,
+                    Arrays.copyOfRange(jpeg, from, Math.min(jpeg.length, from + chunk)));
+        }
+        assertEquals(jpeg.length, upload.getTotal());
+
+        ResponseEntity<Resource> image = imageController.getImage(PATIENT_ID, CREATED, null);
+        assertEquals(HttpStatus.OK, image.getStatusCode());
+        assertEquals(jpeg.length, image.getBody().contentLength());
+
+        ResponseEntity<Resource> thumbnail = imageController.getThumbnail(PATIENT_ID, CREATED, null);
+        BufferedImage scaled = ImageIO.read(thumbnail.getBody().getInputStream());
+        assertEquals("The thumbnail should fit the thumbnail size.", 50, scaled.getWidth());
+        assertEquals("The thumbnail should keep the aspect ratio.", 25, scaled.getHeight());
+    }
+
+    /**
+     * This test case validates that an image is served with caching headers, and that a client
+     * sending the ETag of its copy gets 304 Not Modified.
+     */
+    @Test
+    public void testImageNotModified() throws IOException {
+        byte[] jpeg = createJpeg(100, 100);
+        assertTrue(imageController.uploadImageChunk(PATIENT_ID, CREATED, 0, jpeg.length, jpeg).isComplete());
+
+        ResponseEntity<Resource> image = imageController.getImage(PATIENT_ID, CREATED, null);
+        String etag = image.getHeaders().getETag();
+        assertNotNull("The image should have an ETag.", etag);
+        assertTrue("The image should be cacheable.", image.getHeaders().getCacheControl().contains("max-age="));
+
+        ResponseEntity<Resource> again = imageController.getImage(PATIENT_ID, CREATED, etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, again.getStatusCode());
+        assertNull("A current copy should not be sent again.", again.getBody());
+
+        assertEquals("An image that is not uploaded should not be found.", HttpStatus.NOT_FOUND,
+                imageController.getImage(PATIENT_ID, CREATED + 1, null).getStatusCode());
+    }
+
+    /**
+     * This test case validates that an upload that is not an image is rejected and can be started over.
+     */
+    @Test
+    public void testInvalidImage() {
+        byte[] text = "not an image".getBytes();
+        try {
+            imageController.uploadImageChunk(PATIENT_ID, CREATED, 0, text.length, text);
+            fail("An upload that is not an image should be rejected.");
+        } catch (IllegalArgumentException e) {
+            assertEquals(HttpStatus.BAD_REQUEST, imageController.handleInvalidImage(e).getStatusCode());
+        }
+        assertEquals(0L, imageController.getImageUpload(PATIENT_ID, CREATED).getReceived());
+    }
+
+    /**
+     * Creates a JPEG image of the given size.
+     */
+    private static byte[] createJpeg(int width, int height) throws IOException {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+}
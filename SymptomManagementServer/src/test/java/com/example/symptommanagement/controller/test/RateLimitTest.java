@@ -0,0 +1,77 @@
+package com.example.symptommanagement.controller.test;
+
+import com.example.symptommanagement.controller.RequestCoalescer;
+import com.example.symptommanagement.controller.TokenBucket;
+import org.junit.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * This class contains test cases for the TokenBucket and RequestCoalescer classes.
+ */
+public class RateLimitTest {
+
+    /**
+     * This test case validates that a token bucket allows a burst up to its capacity and then
+     * asks the caller to retry later.
+     */
+    @Test
+    public void testTokenBucketBurst() {
+        // A bucket refilling one token every 1000 seconds
+        TokenBucket bucket = new TokenBucket(3, 0.001);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("Requests within the burst should be allowed.", 0L, bucket.tryConsume());
+        }
+        long retryAfter = bucket.tryConsume();
+        assertTrue("The request after the burst should be told to retry later.", retryAfter > 0L);
+        assertTrue("The retry delay should match the refill rate.", retryAfter <= 1000L);
+    }
+
+    /**
+     * This test case validates that concurrent reads of the same key are served by a single load.
+     */
+    @Test
+    public void testRequestCoalescing() throws Exception {
+        RequestCoalescer<String, String> coalescer = new RequestCoalescer<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // The first read blocks in the loader until released
+            Future<String> first = executor.submit(() -> coalescer.execute("patient", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "record";
+            }));
+            assertTrue("The first read should start loading.", loading.await(5, TimeUnit.SECONDS));
+
+            // Further reads for the same key join the read in flight
+            Future<String> second = executor.submit(() -> coalescer.execute("patient", () -> {
+                loads.incrementAndGet();
+                return "other";
+            }));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals("record", first.get(5, TimeUnit.SECONDS));
+            assertEquals("record", second.get(5, TimeUnit.SECONDS));
+            assertEquals("Only one load should reach the repository.", 1, loads.get());
+
+            // Once the read has completed the next read loads again
+            assertEquals("fresh", coalescer.execute("patient", () -> "fresh"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -1,20 +1,41 @@
 package com.example.symptommanagement.controller.test;
 
+import com.example.symptommanagement.client.SymptomManagementApi;
 import com.example.symptommanagement.controller.SymptomManagementController;
+import com.example.symptommanagement.controller.VersionConflictException;
 import com.example.symptommanagement.repository.*;
 import com.example.symptommanagement.testdata.TestData;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.data.mongodb.core.MongoOperations;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.mock.web.MockHttpServletResponse;
 
+import javax.servlet.http.HttpServletResponse;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
-import static org.junit.Assert.assertNotNull;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -34,6 +55,17 @@ public class SymptomManagementControllerTest {
     @Mock
     private UserCredentialRepository userCredentialRepository;
 
+    @Mock
+    private AlertRepository alertRepository;
+
+    @Mock
+    private PatientSummaryRepository patientSummaryRepository;
+
+    @Mock
+    private PatientSearchIndex patientSearchIndex;
+
+    private final Principal patientPrincipal = () -> "duck";
+
     @InjectMocks
     private SymptomManagementController symptomManagementController;
 
@@ -84,4 +116,271 @@ public class SymptomManagementControllerTest {
         Collection<Medication> medications = symptomManagementController.getMedicationList();
         assertTrue("The list of medications should contain the added medication.", medications.contains(addedMedication));
     }
+
+    /**
+     * This test case validates that an update made from an older version keeps the log entries
+     * stored by another user in the meantime.
+     */
+    @Test
+    public void testStaleUpdateMergesLogs() {
+        Patient stored = storedPatient(2L);
+        PainLog storedLog = TestData.randomPainLog();
+        TestData.addPainLogToPatient(storedLog, stored);
+        when(patientRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+        when(patientRepository.save(any(Patient.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Update from version 1 that only adds a new pain log
+        Patient update = storedPatient(1L);
+        PainLog newLog = TestData.randomPainLog();
+        TestData.addPainLogToPatient(newLog, update);
+        Patient saved = symptomManagementController.updatePatient(stored.getId(), null, update, patientPrincipal);
+
+        assertEquals("The update should be saved on the stored version.", Long.valueOf(2L), saved.getVersion());
+        assertTrue("The stored pain log should be kept.", saved.getPainLog().contains(storedLog));
+        assertTrue("The new pain log should be added.", saved.getPainLog().contains(newLog));
+    }
+
+    /**
+     * This test case validates that an update made from an older version is rejected when it changes
+     * details another user has changed in the meantime.
+     */
+    @Test(expected = VersionConflictException.class)
+    public void testStaleUpdateConflict() {
+        Patient stored = storedPatient(2L);
+        when(patientRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+
+        // Update from version 1 that also renames the patient
+        Patient update = storedPatient(1L);
+        update.setLastName("Mallard");
+        symptomManagementController.updatePatient(stored.getId(), null, update, patientPrincipal);
+    }
+
+    /**
+     * This test case validates that a client sending the ETag of the current version gets 304 Not Modified
+     * instead of the patient, and a client with an older version gets the patient.
+     */
+    @Test
+    public void testGetPatientNotModified() {
+        Patient stored = storedPatient(3L);
+        when(patientRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertNull("A current copy should not be sent again.",
+                symptomManagementController.getPatient(stored.getId(), "\"3\"", response));
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+        assertEquals("\"3\"", response.getHeader(SymptomManagementApi.ETAG_HEADER));
+
+        response = new MockHttpServletResponse();
+        assertEquals("An older copy should be replaced.", stored,
+                symptomManagementController.getPatient(stored.getId(), "\"2\"", response));
+        assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+        assertEquals("\"3\"", response.getHeader(SymptomManagementApi.ETAG_HEADER));
+    }
+
+    /**
+     * This test case validates that a batch of acknowledgements is saved with the physician once, and that
+     * each alert is only marked as contacted by a status note for its own patient.
+     */
+    @Test
+    public void testAcknowledgeAlerts() {
+        Physician stored = TestData.randomPhysician("Minnie", "Mouse");
+        stored.setId("minnie");
+        Patient duck = storedPatient(1L);
+        Patient goofy = TestData.randomPatient("Goofy", "Goof", "05/25/1932");
+        goofy.setId("goofy");
+        Patient pluto = TestData.randomPatient("Pluto", "Pup", "09/05/1930");
+        pluto.setId("pluto");
+        stored.setPatients(Arrays.asList(duck, goofy, pluto));
+        when(physicianRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+        when(physicianRepository.save(any(Physician.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        long raised = System.currentTimeMillis() - 60000L;
+        Alert duckAlert = alert(stored.getId(), duck.getId(), raised);
+        Alert goofyAlert = alert(stored.getId(), goofy.getId(), raised);
+        Alert plutoAlert = alert(stored.getId(), pluto.getId(), raised);
+        when(alertRepository.findByPhysicianId(stored.getId()))
+                .thenReturn(Arrays.asList(duckAlert, goofyAlert, plutoAlert));
+
+        Collection<Alert> alerts = symptomManagementController.acknowledgeAlerts(stored.getId(), null,
+                Arrays.asList(new AlertAcknowledgement(duck.getId(), "Called", raised + 1000L),
+                        new AlertAcknowledgement(goofy.getId(), "Left a message", raised + 2000L),
+                        new AlertAcknowledgement("mickey", "Not my patient", raised + 3000L)),
+                patientPrincipal);
+
+        verify(physicianRepository, times(1)).save(any(Physician.class));
+        assertEquals(3, alerts.size());
+        assertEquals(raised + 1000L, duckAlert.getPhysicianContacted());
+        assertEquals(raised + 2000L, goofyAlert.getPhysicianContacted());
+        assertEquals("An alert should not be closed by a note for another patient.", 0L,
+                plutoAlert.getPhysicianContacted());
+        assertTrue("The note should carry the physician's name.",
+                goofy.getStatusLog().iterator().next().getNote().contains(stored.getName()));
+    }
+
+    /**
+     * This test case validates that the search tokens of a patient are the lowercased words of the names
+     * and birthdate without accents, so a physician finds the patient by typing the start of any of them.
+     */
+    @Test
+    public void testPatientSearchTokens() {
+        Patient p = TestData.randomPatient("José", "O'Brien-Smith", "12/11/1944");
+        Set<String> tokens = PatientSearchIndex.createTokens(p);
+        assertEquals(new HashSet<>(Arrays.asList("jose", "o", "brien", "smith", "12", "11", "1944")), tokens);
+
+        assertEquals(Arrays.asList("jos", "bri"), PatientSearchIndex.tokenize("  Jos  BRI"));
+        assertTrue("Nothing typed should give no words.", PatientSearchIndex.tokenize(" - ").isEmpty());
+    }
+
+    /**
+     * This test case validates that the typeahead search leaves the sort out of the query, so MongoDB
+     * stops the index scan at the limit instead of sorting every match in memory, and orders the
+     * patients it gets by last and first name itself.
+     */
+    @Test
+    public void testPatientSearchSortedAfterQuery() {
+        MongoOperations mongoOperations = mock(MongoOperations.class);
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        when(mongoOperations.find(query.capture(), eq(Patient.class))).thenReturn(new ArrayList<>(Arrays.asList(
+                TestData.randomPatient("Mickey", "Mouse", "01/01/1928"),
+                TestData.randomPatient("Minnie", "Mouse", "01/01/1928"),
+                TestData.randomPatient("Daisy", "Duck", "01/01/1940"))));
+
+        List<Patient> found = new PatientSearchIndex(mongoOperations).search("M", 100);
+
+        assertTrue("The search should not sort on the server.", query.getValue().getSortObject().isEmpty());
+        assertEquals(PatientSearchIndex.MAX_RESULTS, query.getValue().getLimit());
+        assertEquals(Arrays.asList("Daisy Duck", "Mickey Mouse", "Minnie Mouse"),
+                found.stream().map(Patient::getName).collect(Collectors.toList()));
+    }
+
+    /**
+     * This test case validates that saving a patient creates the summary for a newly assigned physician,
+     * filled with the severity of the patient's alert and the times of the last pain log and check-in.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPatientSummaryCreated() {
+        Physician minnie = TestData.randomPhysician("Minnie", "Mouse");
+        minnie.setId("minnie");
+        Patient stored = storedPatient(1L);
+        when(patientRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+        when(patientRepository.save(any(Patient.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Severe pain for more than 12 hours raises the highest alert
+        long now = System.currentTimeMillis();
+        Patient update = storedPatient(1L);
+        TestData.addPhysicianToPatient(minnie, update);
+        TestData.addPainLogToPatient(painLog(now - 13 * 3600000L), update);
+        TestData.addPainLogToPatient(painLog(now - 3600000L), update);
+        CheckInLog checkIn = new CheckInLog();
+        checkIn.setCreated(now - 2 * 3600000L);
+        update.setCheckinLog(new HashSet<>(Collections.singletonList(checkIn)));
+        symptomManagementController.updatePatient(stored.getId(), null, update, patientPrincipal);
+
+        ArgumentCaptor<Collection<PatientSummary>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(patientSummaryRepository).saveAll(saved.capture());
+        assertEquals(1, saved.getValue().size());
+        PatientSummary summary = saved.getValue().iterator().next();
+        assertEquals(PatientSummary.createId(minnie.getId(), stored.getId()), summary.getId());
+        assertEquals(minnie.getId(), summary.getPhysicianId());
+        assertEquals(stored.getId(), summary.getPatientId());
+        assertEquals(stored.getLastName(), summary.getLastName());
+        assertEquals(Alert.PAIN_SEVERITY_LEVEL_3, summary.getSeverityLevel());
+        assertTrue("The alert should be open.", summary.isAlertOpen());
+        assertEquals(now - 3600000L, summary.getLastPainLog());
+        assertEquals(now - 2 * 3600000L, summary.getLastCheckIn());
+    }
+
+    /**
+     * This test case validates that saving a patient removes the summary of a physician no longer assigned
+     * to the patient, and refreshes the summary of the physician still assigned instead of adding one.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStalePatientSummaryRemoved() {
+        Physician minnie = TestData.randomPhysician("Minnie", "Mouse");
+        minnie.setId("minnie");
+        Patient stored = storedPatient(1L);
+        when(patientRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+        when(patientRepository.save(any(Patient.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        PatientSummary kept = new PatientSummary(minnie.getId(), stored.getId());
+        PatientSummary stale = new PatientSummary("mickey", stored.getId());
+        when(patientSummaryRepository.findByPatientId(stored.getId())).thenReturn(Arrays.asList(kept, stale));
+
+        // Mickey is no longer one of the patient's physicians and nothing is alarming
+        Patient update = storedPatient(1L);
+        TestData.addPhysicianToPatient(minnie, update);
+        symptomManagementController.updatePatient(stored.getId(), null, update, patientPrincipal);
+
+        verify(patientSummaryRepository).delete(stale);
+        verify(patientSummaryRepository, never()).delete(kept);
+        ArgumentCaptor<Collection<PatientSummary>> saved = ArgumentCaptor.forClass(Collection.class);
+        verify(patientSummaryRepository).saveAll(saved.capture());
+        Iterator<PatientSummary> summaries = saved.getValue().iterator();
+        assertSame("The existing summary should be refreshed.", kept, summaries.next());
+        assertFalse("Only the assigned physician should have a summary.", summaries.hasNext());
+        assertEquals(stored.getFirstName(), kept.getFirstName());
+        assertEquals(Alert.PAIN_SEVERITY_LEVEL_0, kept.getSeverityLevel());
+        assertFalse("There should be no open alert.", kept.isAlertOpen());
+        assertEquals(0L, kept.getLastPainLog());
+        assertEquals(0L, kept.getLastCheckIn());
+    }
+
+    /**
+     * This test case validates that saving a patient with no physicians saves no summaries.
+     */
+    @Test
+    public void testPatientSummaryWithoutPhysicians() {
+        Patient stored = storedPatient(1L);
+        when(patientRepository.findById(stored.getId())).thenReturn(Optional.of(stored));
+        when(patientRepository.save(any(Patient.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        symptomManagementController.updatePatient(stored.getId(), null, storedPatient(1L), patientPrincipal);
+
+        verify(patientSummaryRepository, never()).saveAll(anyCollection());
+    }
+
+    /**
+     * Creates a copy of the random patient as stored with the given version.
+     *
+     * @param version The version of the stored patient.
+     * @return The stored Patient object.
+     */
+    private Patient storedPatient(long version) {
+        Patient p = TestData.randomPatient(randomPatient.getFirstName(), randomPatient.getLastName(),
+                randomPatient.getBirthdate());
+        p.setId("duck");
+        p.setVersion(version);
+        return p;
+    }
+
+    /**
+     * Creates a pain log of severe pain while the patient is eating.
+     *
+     * @param created The time the pain was logged.
+     * @return The PainLog object.
+     */
+    private static PainLog painLog(long created) {
+        PainLog log = new PainLog();
+        log.setCreated(created);
+        log.setSeverity(PainLog.Severity.SEVERE);
+        log.setEating(PainLog.Eating.EATING);
+        return log;
+    }
+
+    /**
+     * Creates an open alert for a patient.
+     *
+     * @param physicianId The ID of the physician.
+     * @param patientId   The ID of the patient.
+     * @param created     The time the alert was raised.
+     * @return The Alert object.
+     */
+    private static Alert alert(String physicianId, String patientId, long created) {
+        Alert a = new Alert();
+        a.setPhysicianId(physicianId);
+        a.setPatientId(patientId);
+        a.setCreated(created);
+        return a;
+    }
 }
@@ -0,0 +1,41 @@
+package com.example.symptommanagement.integration.test;
+
+import com.example.symptommanagement.Application;
+import com.example.symptommanagement.repository.QueryPlanInspector;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Integration test verifying that every repository query is served by an index.
+ * Requires the MongoDB instance configured in application.properties.
+ */
+@SpringBootTest(classes = Application.class)
+@RunWith(SpringRunner.class)
+public class QueryPlanIntegrationTest {
+
+    /**
+     * The inspector used to explain the repository queries.
+     */
+    @Autowired
+    private QueryPlanInspector queryPlanInspector;
+
+    /**
+     * Test that no repository query falls back to a collection scan or an in-memory sort once the
+     * indexes have been created at startup.
+     */
+    @Test
+    public void testNoCollectionScans() {
+        Map<String, String> plans = queryPlanInspector.explainRepositoryQueries();
+        for (Map.Entry<String, String> plan : plans.entrySet()) {
+            assertFalse(plan.getKey() + " scans the whole collection or sorts in memory: " + plan.getValue(),
+                    QueryPlanInspector.isInefficient(plan.getValue()));
+        }
+    }
+}